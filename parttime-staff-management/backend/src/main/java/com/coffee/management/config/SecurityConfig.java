@@ -1,9 +1,13 @@
 package com.coffee.management.config;
 
+import com.coffee.management.security.BoundedPasswordEncoder;
 import com.coffee.management.security.CustomUserDetailsService;
 import com.coffee.management.security.JwtAuthenticationEntryPoint;
 import com.coffee.management.security.JwtAuthenticationFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -15,7 +19,6 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
@@ -36,9 +39,26 @@ public class SecurityConfig {
     @Autowired
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Hashes with a lower cost are re-hashed with this one at the next login
+    @Value("${security.password-hashing.bcrypt-strength:10}")
+    private int bcryptStrength;
+
+    @Value("${security.password-hashing.pool-size:2}")
+    private int hashingPoolSize;
+
+    @Value("${security.password-hashing.queue-capacity:100}")
+    private int hashingQueueCapacity;
+
+    @Value("${security.password-hashing.wait-timeout-ms:5000}")
+    private long hashingWaitTimeoutMs;
+
+    @Bean(destroyMethod = "shutdown")
+    public BoundedPasswordEncoder passwordEncoder() {
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(bcryptStrength),
+                hashingPoolSize, hashingQueueCapacity, hashingWaitTimeoutMs, meterRegistry);
     }
 
     @Bean
@@ -46,6 +66,7 @@ public class SecurityConfig {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(customUserDetailsService);
         authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setUserDetailsPasswordService(customUserDetailsService);
         return authProvider;
     }
 
@@ -65,8 +86,12 @@ public class SecurityConfig {
             .authorizeHttpRequests(auth -> auth
                     // Public endpoints
                     .requestMatchers("/api/v1/auth/**").permitAll()
+                    // Async dispatches of streamed responses (SSE, exports): the request was authorized already
+                    .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                     .requestMatchers("/api-docs/**", "/swagger-ui/**", "/swagger-ui.html").permitAll()
                     .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
+                    // Avatars are loaded as <img> sources, without the bearer token (checked in UserController)
+                    .requestMatchers(HttpMethod.GET, "/api/v1/users/*/avatar").permitAll()
                     // Protected endpoints
                     .anyRequest().authenticated()
             );
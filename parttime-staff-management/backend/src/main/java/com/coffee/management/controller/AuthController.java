@@ -5,9 +5,11 @@ import com.coffee.management.dto.auth.LoginRequest;
 import com.coffee.management.dto.auth.LoginResponse;
 import com.coffee.management.dto.auth.RefreshTokenRequest;
 import com.coffee.management.dto.user.UserResponse;
+import com.coffee.management.security.ClientBinding;
 import com.coffee.management.service.AuthService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -26,23 +28,25 @@ public class AuthController {
 
     @PostMapping("/login")
     @Operation(summary = "Login with username and password")
-    public ResponseEntity<ApiResponse<LoginResponse>> login(@Valid @RequestBody LoginRequest request) {
-        LoginResponse response = authService.login(request);
+    public ResponseEntity<ApiResponse<LoginResponse>> login(@Valid @RequestBody LoginRequest request,
+                                                            HttpServletRequest httpRequest) {
+        LoginResponse response = authService.login(request, ClientBinding.of(httpRequest));
         return ResponseEntity.ok(ApiResponse.success("Login successful", response));
     }
 
     @PostMapping("/refresh")
     @Operation(summary = "Refresh access token")
-    public ResponseEntity<ApiResponse<LoginResponse>> refreshToken(@Valid @RequestBody RefreshTokenRequest request) {
-        LoginResponse response = authService.refreshToken(request);
+    public ResponseEntity<ApiResponse<LoginResponse>> refreshToken(@Valid @RequestBody RefreshTokenRequest request,
+                                                                   HttpServletRequest httpRequest) {
+        LoginResponse response = authService.refreshToken(request, ClientBinding.of(httpRequest));
         return ResponseEntity.ok(ApiResponse.success("Token refreshed", response));
     }
 
     @PostMapping("/logout")
     @Operation(summary = "Logout current user")
-    public ResponseEntity<ApiResponse<Void>> logout() {
-        // For JWT, logout is handled client-side by deleting tokens
-        // Server-side blacklisting can be implemented if needed
+    public ResponseEntity<ApiResponse<Void>> logout(@RequestBody(required = false) RefreshTokenRequest request) {
+        // Revokes the session of the refresh token; the client also deletes its tokens
+        authService.logout(request != null ? request.getRefreshToken() : null);
         return ResponseEntity.ok(ApiResponse.success("Logout successful", null));
     }
 
@@ -2,6 +2,7 @@ package com.coffee.management.controller;
 
 import com.coffee.management.dto.ApiResponse;
 import com.coffee.management.dto.report.EmployeeRankingResponse;
+import com.coffee.management.dto.report.RankingPageResponse;
 import com.coffee.management.service.EmployeeRankingService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -34,6 +35,21 @@ public class EmployeeRankingController {
         return ResponseEntity.ok(ApiResponse.success(rankings));
     }
 
+    /**
+     * Get employee rankings page by page
+     */
+    @GetMapping("/page")
+    @Operation(summary = "Get one page of employee rankings, continuing from the cursor of the previous page")
+    public ResponseEntity<ApiResponse<RankingPageResponse>> getRankingPage(
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false) Integer month,
+            @RequestParam(required = false) Long storeId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        RankingPageResponse page = rankingService.getRankingPage(year, month, storeId, cursor, limit);
+        return ResponseEntity.ok(ApiResponse.success(page));
+    }
+
     /**
      * Get top performers (most hardworking)
      */
@@ -41,8 +57,9 @@ public class EmployeeRankingController {
     @Operation(summary = "Get top performing employees")
     public ResponseEntity<ApiResponse<List<EmployeeRankingResponse>>> getTopPerformers(
             @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(defaultValue = "0") int offset,
             @RequestParam(required = false) Long storeId) {
-        List<EmployeeRankingResponse> topPerformers = rankingService.getTopPerformers(limit, storeId);
+        List<EmployeeRankingResponse> topPerformers = rankingService.getTopPerformers(limit, offset, storeId);
         return ResponseEntity.ok(ApiResponse.success(topPerformers));
     }
 
@@ -53,8 +70,9 @@ public class EmployeeRankingController {
     @Operation(summary = "Get employees who need improvement")
     public ResponseEntity<ApiResponse<List<EmployeeRankingResponse>>> getLowestPerformers(
             @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(defaultValue = "0") int offset,
             @RequestParam(required = false) Long storeId) {
-        List<EmployeeRankingResponse> lowestPerformers = rankingService.getLowestPerformers(limit, storeId);
+        List<EmployeeRankingResponse> lowestPerformers = rankingService.getLowestPerformers(limit, offset, storeId);
         return ResponseEntity.ok(ApiResponse.success(lowestPerformers));
     }
 }
@@ -1,22 +1,36 @@
 package com.coffee.management.controller;
 
 import com.coffee.management.dto.ApiResponse;
+import com.coffee.management.dto.notification.AttachmentInfo;
 import com.coffee.management.dto.notification.BroadcastNotificationRequest;
+import com.coffee.management.dto.notification.NotificationPageResponse;
 import com.coffee.management.dto.notification.NotificationResponse;
 import com.coffee.management.dto.notification.SendNotificationRequest;
 import com.coffee.management.security.UserPrincipal;
+import com.coffee.management.service.NotificationAttachmentService;
 import com.coffee.management.service.NotificationService;
+import com.coffee.management.service.NotificationStreamService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * REST Controller for notification endpoints
@@ -29,20 +43,38 @@ public class NotificationController {
     @Autowired
     private NotificationService notificationService;
 
+    @Autowired
+    private NotificationAttachmentService attachmentService;
+
+    @Autowired
+    private NotificationStreamService streamService;
+
     @GetMapping
-    @Operation(summary = "Get all notifications for current user")
-    public ResponseEntity<ApiResponse<List<NotificationResponse>>> getNotifications(
+    @Operation(summary = "Get one page of notifications for current user, continuing from the cursor of the previous page")
+    public ResponseEntity<ApiResponse<NotificationPageResponse>> getNotifications(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
             @AuthenticationPrincipal UserPrincipal currentUser) {
-        List<NotificationResponse> notifications = notificationService.getNotifications(currentUser);
-        return ResponseEntity.ok(ApiResponse.success(notifications));
+        NotificationPageResponse page = notificationService.getNotifications(currentUser, cursor, limit, false);
+        return ResponseEntity.ok(ApiResponse.success(page));
     }
 
     @GetMapping("/unread")
-    @Operation(summary = "Get unread notifications for current user")
-    public ResponseEntity<ApiResponse<List<NotificationResponse>>> getUnreadNotifications(
+    @Operation(summary = "Get one page of unread notifications for current user, continuing from the cursor of the previous page")
+    public ResponseEntity<ApiResponse<NotificationPageResponse>> getUnreadNotifications(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+        NotificationPageResponse page = notificationService.getNotifications(currentUser, cursor, limit, true);
+        return ResponseEntity.ok(ApiResponse.success(page));
+    }
+
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream new notifications and unread count changes (Server-Sent Events)")
+    public SseEmitter streamNotifications(
+            @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId,
             @AuthenticationPrincipal UserPrincipal currentUser) {
-        List<NotificationResponse> notifications = notificationService.getUnreadNotifications(currentUser);
-        return ResponseEntity.ok(ApiResponse.success(notifications));
+        return streamService.subscribe(currentUser.getId(), lastEventId);
     }
 
     @GetMapping("/unread-count")
@@ -62,6 +94,64 @@ public class NotificationController {
         return ResponseEntity.ok(ApiResponse.success("Notification sent successfully", notification));
     }
 
+    @GetMapping("/{id}/attachment")
+    @Operation(summary = "Download the attachment of a notification (supports Range and ETag)")
+    public ResponseEntity<StreamingResponseBody> downloadAttachment(
+            @PathVariable Long id,
+            @RequestHeader HttpHeaders requestHeaders,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+        AttachmentInfo attachment = attachmentService.getAttachment(id, currentUser);
+        long size = attachment.getSizeBytes();
+
+        // Content is addressed by its hash, so the hash is a strong ETag
+        String etag = "\"" + attachment.getContentHash() + "\"";
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(etag);
+        headers.setCacheControl(CacheControl.maxAge(1, TimeUnit.DAYS).cachePrivate());
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (requestHeaders.getIfNoneMatch().stream().anyMatch(tag -> tag.equals(etag) || tag.equals("W/" + etag) || tag.equals("*"))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+        }
+
+        headers.setContentType(parseContentType(attachment.getContentType()));
+        headers.setContentDisposition(ContentDisposition.attachment()
+                .filename(attachment.getFileName() != null ? attachment.getFileName() : "attachment", StandardCharsets.UTF_8)
+                .build());
+
+        // A single range is served as 206; several ranges, an invalid Range header or a stale
+        // If-Range get the whole file
+        List<HttpRange> ranges;
+        try {
+            ranges = requestHeaders.getRange();
+        } catch (IllegalArgumentException e) {
+            ranges = List.of();
+        }
+        String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+        if (ranges.size() == 1 && (ifRange == null || ifRange.equals(etag))) {
+            long start;
+            long end;
+            try {
+                start = ranges.get(0).getRangeStart(size);
+                end = ranges.get(0).getRangeEnd(size);
+            } catch (IllegalArgumentException e) {
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE).headers(headers).build();
+            }
+            long length = end - start + 1;
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+            headers.setContentLength(length);
+            StreamingResponseBody body = outputStream ->
+                    attachmentService.writeContent(attachment.getAttachmentId(), start, length, outputStream);
+            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).headers(headers).body(body);
+        }
+
+        headers.setContentLength(size);
+        StreamingResponseBody body = outputStream ->
+                attachmentService.writeContent(attachment.getAttachmentId(), 0, size, outputStream);
+        return ResponseEntity.ok().headers(headers).body(body);
+    }
+
     @PutMapping("/{id}/read")
     @Operation(summary = "Mark a notification as read")
     public ResponseEntity<ApiResponse<Void>> markAsRead(
@@ -91,5 +181,12 @@ public class NotificationController {
                 Map.of("sentCount", sentCount)
         ));
     }
-}
 
+    private static MediaType parseContentType(String contentType) {
+        try {
+            return MediaType.parseMediaType(contentType);
+        } catch (IllegalArgumentException e) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+    }
+}
@@ -1,19 +1,29 @@
 package com.coffee.management.controller;
 
 import com.coffee.management.dto.ApiResponse;
+import com.coffee.management.dto.payroll.PayrollGenerationResult;
 import com.coffee.management.dto.payroll.PayrollResponse;
+import com.coffee.management.dto.payroll.PayrollRunResponse;
+import com.coffee.management.dto.payroll.PayrollRunResultsResponse;
 import com.coffee.management.dto.payroll.UpdatePayrollRequest;
 import com.coffee.management.security.UserPrincipal;
+import com.coffee.management.service.PayrollExportService;
+import com.coffee.management.service.PayrollRunService;
 import com.coffee.management.service.PayrollService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 /**
@@ -27,6 +37,12 @@ public class PayrollController {
     @Autowired
     private PayrollService payrollService;
 
+    @Autowired
+    private PayrollRunService payrollRunService;
+
+    @Autowired
+    private PayrollExportService payrollExportService;
+
     @PostMapping("/generate")
     @PreAuthorize("hasAnyRole('OWNER', 'MANAGER')")
     @Operation(summary = "Generate payroll for a month")
@@ -34,8 +50,50 @@ public class PayrollController {
             @RequestParam String month,
             @RequestParam(required = false) Long storeId,
             @AuthenticationPrincipal UserPrincipal currentUser) {
-        List<PayrollResponse> payrolls = payrollService.generatePayroll(month, storeId, currentUser);
-        return ResponseEntity.ok(ApiResponse.success("Payroll generated successfully", payrolls));
+        PayrollGenerationResult result = payrollService.generatePayroll(month, storeId, currentUser);
+        if (!result.getErrors().isEmpty()) {
+            // Stores are generated independently - return what succeeded and list the failed stores
+            return ResponseEntity.ok(ApiResponse.<List<PayrollResponse>>builder()
+                    .success(true)
+                    .message("Payroll generated with errors in " + result.getErrors().size() + " store(s)")
+                    .data(result.getPayrolls())
+                    .errors(result.getErrors())
+                    .build());
+        }
+        return ResponseEntity.ok(ApiResponse.success("Payroll generated successfully", result.getPayrolls()));
+    }
+
+    @PostMapping("/runs")
+    @PreAuthorize("hasAnyRole('OWNER', 'MANAGER')")
+    @Operation(summary = "Start a background payroll run for a month")
+    public ResponseEntity<ApiResponse<PayrollRunResponse>> startPayrollRun(
+            @RequestParam String month,
+            @RequestParam(required = false) Long storeId,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+        PayrollRunResponse run = payrollRunService.startRun(month, storeId, currentUser);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success("Payroll run started", run));
+    }
+
+    @GetMapping("/runs/{runId}")
+    @PreAuthorize("hasAnyRole('OWNER', 'MANAGER')")
+    @Operation(summary = "Get progress of a payroll run")
+    public ResponseEntity<ApiResponse<PayrollRunResponse>> getPayrollRun(
+            @PathVariable Long runId,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+        PayrollRunResponse run = payrollRunService.getRun(runId, currentUser);
+        return ResponseEntity.ok(ApiResponse.success(run));
+    }
+
+    @GetMapping("/runs/{runId}/results")
+    @PreAuthorize("hasAnyRole('OWNER', 'MANAGER')")
+    @Operation(summary = "Get payrolls produced by a payroll run, page by page")
+    public ResponseEntity<ApiResponse<PayrollRunResultsResponse>> getPayrollRunResults(
+            @PathVariable Long runId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+        PayrollRunResultsResponse results = payrollRunService.getRunResults(runId, page, size, currentUser);
+        return ResponseEntity.ok(ApiResponse.success(results));
     }
 
     @GetMapping("/user/{userId}")
@@ -85,6 +143,23 @@ public class PayrollController {
         return ResponseEntity.ok(ApiResponse.success(payrolls));
     }
 
+    @GetMapping("/export")
+    @PreAuthorize("hasAnyRole('OWNER', 'MANAGER')")
+    @Operation(summary = "Export payrolls of a month as CSV (streamed)")
+    public ResponseEntity<StreamingResponseBody> exportPayrolls(
+            @RequestParam String month,
+            @RequestParam(required = false) Long storeId,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+        Long exportStoreId = payrollExportService.resolveExportStore(month, storeId, currentUser);
+        String fileName = "payroll-" + month + (exportStoreId != null ? "-store-" + exportStoreId : "") + ".csv";
+
+        StreamingResponseBody body = outputStream -> payrollExportService.writeCsv(month, exportStoreId, outputStream);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .body(body);
+    }
+
     @PutMapping("/{id}")
     @PreAuthorize("hasAnyRole('OWNER', 'MANAGER')")
     @Operation(summary = "Update payroll (adjustments, status)")
@@ -14,6 +14,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -38,6 +39,16 @@ public class ShiftController {
         return ResponseEntity.ok(ApiResponse.success(shifts));
     }
 
+    @GetMapping("/shifts/calendar")
+    @Operation(summary = "Get the shift calendar of a week (Owner: several or all stores)")
+    public ResponseEntity<ApiResponse<List<ShiftResponse>>> getCalendar(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate weekStart,
+            @RequestParam(required = false) List<Long> storeIds,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+        List<ShiftResponse> shifts = shiftService.getCalendar(weekStart, storeIds, currentUser);
+        return ResponseEntity.ok(ApiResponse.success(shifts));
+    }
+
     @GetMapping("/shifts/{id}")
     @Operation(summary = "Get shift by ID")
     public ResponseEntity<ApiResponse<ShiftResponse>> getShiftById(@PathVariable Long id) {
@@ -4,18 +4,27 @@ import com.coffee.management.dto.ApiResponse;
 import com.coffee.management.dto.user.CreateUserRequest;
 import com.coffee.management.dto.user.UpdateUserRequest;
 import com.coffee.management.dto.user.UserResponse;
+import com.coffee.management.entity.AvatarVariant;
+import com.coffee.management.entity.UserAvatarImage;
+import com.coffee.management.exception.BadRequestException;
+import com.coffee.management.exception.ResourceNotFoundException;
 import com.coffee.management.security.UserPrincipal;
+import com.coffee.management.service.AvatarService;
 import com.coffee.management.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * REST Controller for user management endpoints
@@ -28,6 +37,9 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private AvatarService avatarService;
+
     @GetMapping
     @PreAuthorize("hasAnyRole('OWNER', 'MANAGER')")
     @Operation(summary = "Get all users")
@@ -46,6 +58,51 @@ public class UserController {
         return ResponseEntity.ok(ApiResponse.success(user));
     }
 
+    /**
+     * Reachable without the bearer token so avatars can be used directly as image sources:
+     * the current version (random, as given in UserResponse.avatarUrl) then acts as the key,
+     * and only the thumbnails are served. A URL with the current version never changes content
+     * and is cached for a year; other requests are revalidated with the ETag.
+     */
+    @GetMapping("/{id}/avatar")
+    @Operation(summary = "Get the avatar of a user (size: small, medium or original)")
+    public ResponseEntity<byte[]> getAvatar(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "medium") String size,
+            @RequestParam(name = "v", required = false) String version,
+            @RequestHeader(name = "If-None-Match", required = false) String ifNoneMatch,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+        AvatarVariant variant;
+        try {
+            variant = AvatarVariant.valueOf(size.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid avatar size, expected small, medium or original");
+        }
+
+        String currentVersion = avatarService.getVersion(id);
+        if (currentUser == null && (!currentVersion.equals(version) || variant == AvatarVariant.ORIGINAL)) {
+            throw new ResourceNotFoundException("Avatar", "userId", id);
+        }
+        String etag = "\"" + currentVersion + "-" + variant.name().toLowerCase() + "\"";
+        CacheControl cacheControl = currentVersion.equals(version)
+                ? CacheControl.maxAge(365, TimeUnit.DAYS).immutable()
+                : CacheControl.noCache();
+        // The original upload is only for signed-in users, shared caches must not keep it
+        cacheControl = variant == AvatarVariant.ORIGINAL ? cacheControl.cachePrivate() : cacheControl.cachePublic();
+
+        if (ifNoneMatch != null && (ifNoneMatch.contains(etag) || ifNoneMatch.trim().equals("*"))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+        }
+
+        UserAvatarImage image = avatarService.getImage(id, variant);
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .contentType(MediaType.parseMediaType(image.getContentType()))
+                .contentLength(image.getContent().length)
+                .body(image.getContent());
+    }
+
     @PostMapping
     @PreAuthorize("hasAnyRole('OWNER', 'MANAGER')")
     @Operation(summary = "Create a new user")
@@ -0,0 +1,20 @@
+package com.coffee.management.dto.notification;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Attachment of a notification without its content, for downloads
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttachmentInfo {
+
+    private Long attachmentId;
+    private String contentHash;
+    private String contentType;
+    private Long sizeBytes;
+    private String fileName;
+}
@@ -0,0 +1,18 @@
+package com.coffee.management.dto.notification;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationPageResponse {
+    
+    private List<NotificationResponse> notifications;
+    private String nextCursor;            // null on the last page
+}
@@ -20,6 +20,8 @@ public class NotificationResponse {
     private String message;
     private Boolean isRead;
     private String link;
+    private Long attachmentId;
+    // Download path relative to the API base URL, e.g. "/notifications/12/attachment"
     private String attachmentUrl;
     private String attachmentName;
     private LocalDateTime createdAt;
@@ -32,7 +34,9 @@ public class NotificationResponse {
                 .message(notification.getMessage())
                 .isRead(notification.getIsRead())
                 .link(notification.getLink())
-                .attachmentUrl(notification.getAttachmentUrl())
+                .attachmentId(notification.getAttachmentId())
+                .attachmentUrl(notification.getAttachmentId() != null
+                        ? "/notifications/" + notification.getId() + "/attachment" : null)
                 .attachmentName(notification.getAttachmentName())
                 .createdAt(notification.getCreatedAt())
                 .build();
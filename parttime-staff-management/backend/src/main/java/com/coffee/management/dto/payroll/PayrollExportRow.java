@@ -0,0 +1,35 @@
+package com.coffee.management.dto.payroll;
+
+import com.coffee.management.entity.PayrollStatus;
+import com.coffee.management.entity.Role;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Flat payroll row read by the streaming export (no entities, nothing kept in the persistence context)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PayrollExportRow {
+    
+    private Long id;
+    private Long userId;
+    private String userName;
+    private String userEmail;
+    private Role userRole;
+    private Long storeId;
+    private String storeName;
+    private String month;
+    private BigDecimal totalHours;
+    private BigDecimal hourlyRate;
+    private BigDecimal grossPay;
+    private BigDecimal adjustments;
+    private String adjustmentNote;
+    private PayrollStatus status;
+    private LocalDateTime createdAt;
+}
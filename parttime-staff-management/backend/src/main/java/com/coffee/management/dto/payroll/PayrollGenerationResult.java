@@ -0,0 +1,24 @@
+package com.coffee.management.dto.payroll;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Payrolls produced by a generation, with one error per store that could not be generated
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PayrollGenerationResult {
+    
+    private List<PayrollResponse> payrolls = new ArrayList<>();
+    private List<String> errors = new ArrayList<>();
+    
+    public PayrollGenerationResult(List<PayrollResponse> payrolls) {
+        this.payrolls = payrolls;
+    }
+}
@@ -0,0 +1,49 @@
+package com.coffee.management.dto.payroll;
+
+import com.coffee.management.entity.PayrollRun;
+import com.coffee.management.entity.PayrollRunStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PayrollRunResponse {
+    
+    private Long id;
+    private String month;
+    private Long storeId;
+    private Boolean includeManagers;
+    private Long requestedById;
+    private PayrollRunStatus status;
+    private Integer totalUsers;
+    private Integer processedUsers;
+    private Integer failedUsers;
+    private String errorMessage;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    
+    public static PayrollRunResponse fromEntity(PayrollRun run) {
+        return PayrollRunResponse.builder()
+                .id(run.getId())
+                .month(run.getMonth())
+                .storeId(run.getStore() != null ? run.getStore().getId() : null)
+                .includeManagers(run.getIncludeManagers())
+                .requestedById(run.getRequestedBy() != null ? run.getRequestedBy().getId() : null)
+                .status(run.getStatus())
+                .totalUsers(run.getTotalUsers())
+                .processedUsers(run.getProcessedUsers())
+                .failedUsers(run.getFailedUsers())
+                .errorMessage(run.getErrorMessage())
+                .createdAt(run.getCreatedAt())
+                .startedAt(run.getStartedAt())
+                .finishedAt(run.getFinishedAt())
+                .build();
+    }
+}
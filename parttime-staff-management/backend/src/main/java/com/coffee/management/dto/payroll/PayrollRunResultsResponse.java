@@ -0,0 +1,22 @@
+package com.coffee.management.dto.payroll;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PayrollRunResultsResponse {
+    
+    private Long runId;
+    private int page;
+    private int size;
+    private long totalElements;
+    private int totalPages;
+    private List<PayrollResponse> payrolls;
+}
@@ -0,0 +1,19 @@
+package com.coffee.management.dto.report;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RankingPageResponse {
+    
+    private List<EmployeeRankingResponse> rankings;
+    private long totalElements;
+    private String nextCursor;            // null on the last page
+}
@@ -32,6 +32,7 @@ public class UpdateUserRequest {
     
     private UserStatus status;
     
+    // New avatar as a base64 data URL, "" removes the avatar
     private String avatarUrl;
 }
 
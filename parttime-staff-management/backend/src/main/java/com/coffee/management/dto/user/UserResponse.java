@@ -27,7 +27,8 @@ public class UserResponse {
     private String storeName;
     private BigDecimal hourlyRate;
     private UserStatus status;
-    private String avatarUrl;
+    private String avatarUrl; // e.g. "/users/5/avatar?v=3f2a...", relative to the API base URL
+    private String avatarVersion;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     
@@ -43,7 +44,9 @@ public class UserResponse {
                 .storeName(user.getStore() != null ? user.getStore().getName() : null)
                 .hourlyRate(user.getHourlyRate())
                 .status(user.getStatus())
-                .avatarUrl(user.getAvatarUrl())
+                .avatarUrl(user.getAvatarVersion() != null
+                        ? "/users/" + user.getId() + "/avatar?v=" + user.getAvatarVersion() : null)
+                .avatarVersion(user.getAvatarVersion())
                 .createdAt(user.getCreatedAt())
                 .updatedAt(user.getUpdatedAt())
                 .build();
@@ -0,0 +1,21 @@
+package com.coffee.management.entity;
+
+/**
+ * Stored variants of a user avatar
+ */
+public enum AvatarVariant {
+    SMALL(64),      // Lists, navbar
+    MEDIUM(256),    // Profile, dashboard
+    ORIGINAL(0);    // As uploaded
+
+    // Side of the square thumbnail in pixels, 0 = not resized
+    private final int size;
+
+    AvatarVariant(int size) {
+        this.size = size;
+    }
+
+    public int getSize() {
+        return size;
+    }
+}
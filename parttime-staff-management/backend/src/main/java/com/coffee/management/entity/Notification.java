@@ -39,9 +39,9 @@ public class Notification {
     @Column(length = 500)
     private String link;
 
-    @Lob
-    @Column(name = "attachment_url", columnDefinition = "LONGTEXT")
-    private String attachmentUrl;
+    // Shared attachment content, see NotificationAttachment
+    @Column(name = "attachment_id")
+    private Long attachmentId;
 
     @Column(name = "attachment_name", length = 255)
     private String attachmentName;
@@ -68,7 +68,7 @@ public class Notification {
         private String message;
         private Boolean isRead = false; // Default value from @Builder.Default
         private String link;
-        private String attachmentUrl;
+        private Long attachmentId;
         private String attachmentName;
         private LocalDateTime createdAt;
 
@@ -102,8 +102,8 @@ public class Notification {
             return this;
         }
 
-        public NotificationBuilder attachmentUrl(String attachmentUrl) {
-            this.attachmentUrl = attachmentUrl;
+        public NotificationBuilder attachmentId(Long attachmentId) {
+            this.attachmentId = attachmentId;
             return this;
         }
 
@@ -118,7 +118,7 @@ public class Notification {
         }
 
         public Notification build() {
-            return new Notification(id, user, title, message, isRead, link, attachmentUrl, attachmentName, createdAt);
+            return new Notification(id, user, title, message, isRead, link, attachmentId, attachmentName, createdAt);
         }
     }
 }
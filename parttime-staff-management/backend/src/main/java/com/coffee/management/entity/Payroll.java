@@ -11,7 +11,8 @@ import java.time.LocalDateTime;
  * Entity representing monthly payroll records
  */
 @Entity
-@Table(name = "payrolls")
+@Table(name = "payrolls",
+        uniqueConstraints = @UniqueConstraint(name = "uk_user_month", columnNames = {"user_id", "month"}))
 @Getter
 @Setter
 @NoArgsConstructor
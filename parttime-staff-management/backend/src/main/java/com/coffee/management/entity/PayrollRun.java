@@ -0,0 +1,73 @@
+package com.coffee.management.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing an asynchronous payroll generation job
+ */
+@Entity
+@Table(name = "payroll_runs")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PayrollRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 7)
+    private String month; // Format: YYYY-MM
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "store_id")
+    private Store store; // null = all stores
+
+    @Column(name = "include_managers", nullable = false)
+    @Builder.Default
+    private Boolean includeManagers = false;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "requested_by")
+    private User requestedBy;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    @Builder.Default
+    private PayrollRunStatus status = PayrollRunStatus.QUEUED;
+
+    // "<month>:<storeId|ALL>:<STAFF|ALL_ROLES>" while the run is active, cleared when it finishes
+    @Column(name = "active_key", length = 32, unique = true)
+    private String activeKey;
+
+    @Column(name = "total_users", nullable = false)
+    @Builder.Default
+    private Integer totalUsers = 0;
+
+    @Column(name = "processed_users", nullable = false)
+    @Builder.Default
+    private Integer processedUsers = 0;
+
+    @Column(name = "failed_users", nullable = false)
+    @Builder.Default
+    private Integer failedUsers = 0;
+
+    @Column(name = "error_message", length = 1000)
+    private String errorMessage;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,12 @@
+package com.coffee.management.entity;
+
+/**
+ * Enum representing payroll run status
+ */
+public enum PayrollRunStatus {
+    QUEUED,     // Đang chờ
+    RUNNING,    // Đang chạy
+    COMPLETED,  // Hoàn thành
+    COMPLETED_WITH_ERRORS, // Hoàn thành, một số cơ sở bị lỗi
+    FAILED      // Thất bại
+}
@@ -0,0 +1,10 @@
+package com.coffee.management.entity;
+
+/**
+ * Enum representing refresh token status
+ */
+public enum RefreshTokenStatus {
+    ACTIVE,     // Có thể dùng để làm mới
+    USED,       // Đã dùng, dùng lại = bị lộ
+    REVOKED     // Đã thu hồi (đăng xuất, đổi quyền, dùng lại)
+}
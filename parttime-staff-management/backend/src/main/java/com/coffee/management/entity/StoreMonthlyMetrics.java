@@ -0,0 +1,107 @@
+package com.coffee.management.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing the monthly rollup of store report metrics.
+ * Counters default to 0 in the schema, since incremental upserts only set the columns they change.
+ */
+@Entity
+@Table(name = "store_monthly_metrics",
+        uniqueConstraints = @UniqueConstraint(name = "uk_store_metrics_store_month", columnNames = {"store_id", "month"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StoreMonthlyMetrics {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "store_id", nullable = false)
+    private Store store;
+
+    @Column(nullable = false, length = 7)
+    private String month; // Format: YYYY-MM
+
+    @Column(name = "total_shifts", nullable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Long totalShifts = 0L;
+
+    @Column(name = "total_minutes", nullable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Long totalMinutes = 0L;
+
+    @Column(name = "total_payroll", nullable = false, precision = 15, scale = 2)
+    @ColumnDefault("0")
+    @Builder.Default
+    private BigDecimal totalPayroll = BigDecimal.ZERO;
+
+    @Column(name = "total_tasks", nullable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Long totalTasks = 0L;
+
+    @Column(name = "completed_tasks", nullable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Long completedTasks = 0L;
+
+    @Column(name = "overdue_tasks", nullable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Long overdueTasks = 0L;
+
+    @Column(name = "pending_tasks", nullable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Long pendingTasks = 0L;
+
+    @Column(name = "in_progress_tasks", nullable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Long inProgressTasks = 0L;
+
+    @Column(name = "total_assigned_shifts", nullable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Long totalAssignedShifts = 0L;
+
+    @Column(name = "attended_shifts", nullable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Long attendedShifts = 0L;
+
+    @Column(name = "missed_shifts", nullable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Long missedShifts = 0L;
+
+    @Column(name = "late_check_ins", nullable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Long lateCheckIns = 0L;
+
+    @Column(name = "early_check_outs", nullable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Long earlyCheckOuts = 0L;
+
+    @Column(name = "reconciled_at")
+    private LocalDateTime reconciledAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -55,9 +55,9 @@ public class User {
     @Builder.Default
     private UserStatus status = UserStatus.ACTIVE;
 
-    @Lob
-    @Column(name = "avatar_url", columnDefinition = "LONGTEXT")
-    private String avatarUrl;
+    // Hash of the current avatar (images in user_avatar_images), null = no avatar
+    @Column(name = "avatar_version", length = 16)
+    private String avatarVersion;
 
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
@@ -104,8 +104,8 @@ public class User {
         return status;
     }
 
-    public String getAvatarUrl() {
-        return avatarUrl;
+    public String getAvatarVersion() {
+        return avatarVersion;
     }
 
     public java.time.LocalDateTime getCreatedAt() {
@@ -0,0 +1,59 @@
+package com.coffee.management.repository;
+
+import com.coffee.management.entity.ShiftAssignment;
+import com.coffee.management.util.DateRange;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Attendance of shift assignments, computed in SQL.
+ * Every assignment whose shift starts in the range is matched with the time logs of the same
+ * user and shift checked in within the range: the first check-in and the last check-out count.
+ * An assignment without time log is missed once its shift has ended.
+ */
+@Repository
+public interface AttendanceRepository extends org.springframework.data.repository.Repository<ShiftAssignment, Long> {
+
+    // First check-in and last check-out per (shift, user)
+    String ATTENDANCE_JOIN =
+            "FROM shift_assignments sa " +
+            "JOIN shifts s ON s.id = sa.shift_id " +
+            "LEFT JOIN (SELECT t.shift_id, t.user_id, MIN(t.check_in) AS check_in, MAX(t.check_out) AS check_out " +
+            "           FROM time_logs t " +
+            "           WHERE t.shift_id IS NOT NULL AND t.check_in >= :#{#range.start} AND t.check_in < :#{#range.end} " +
+            "           GROUP BY t.shift_id, t.user_id) tl " +
+            "       ON tl.shift_id = sa.shift_id AND tl.user_id = sa.user_id " +
+            "WHERE s.start_datetime >= :#{#range.start} AND s.start_datetime < :#{#range.end} ";
+
+    /**
+     * Attendance counts per store as (storeId, assigned, attended, missed, late, early).
+     * storeId null = all stores.
+     */
+    @Query(value = "SELECT s.store_id, COUNT(*), " +
+                   "SUM(CASE WHEN tl.check_in IS NOT NULL THEN 1 ELSE 0 END), " +
+                   "SUM(CASE WHEN tl.check_in IS NULL AND s.end_datetime < :now THEN 1 ELSE 0 END), " +
+                   "SUM(CASE WHEN tl.check_in > TIMESTAMPADD(MINUTE, :lateMinutes, s.start_datetime) THEN 1 ELSE 0 END), " +
+                   "SUM(CASE WHEN TIMESTAMPADD(MINUTE, :earlyMinutes, tl.check_out) < s.end_datetime THEN 1 ELSE 0 END) " +
+                   ATTENDANCE_JOIN +
+                   "AND (:storeId IS NULL OR s.store_id = :storeId) " +
+                   "GROUP BY s.store_id", nativeQuery = true)
+    List<Object[]> countGroupByStore(
+            @Param("storeId") Long storeId,
+            @Param("range") DateRange range,
+            @Param("now") LocalDateTime now,
+            @Param("lateMinutes") int lateMinutes,
+            @Param("earlyMinutes") int earlyMinutes);
+
+    /**
+     * Attendance per assignment as (userId, shiftId, shiftStart, shiftEnd, checkIn, checkOut),
+     * checkIn/checkOut null when the shift was not attended. Used to load employee rankings.
+     */
+    @Query(value = "SELECT sa.user_id, s.id, s.start_datetime, s.end_datetime, tl.check_in, tl.check_out " +
+                   ATTENDANCE_JOIN, nativeQuery = true)
+    List<Object[]> findAssignmentAttendance(
+            @Param("range") DateRange range);
+}
@@ -1,12 +1,12 @@
 package com.coffee.management.repository;
 
 import com.coffee.management.entity.AuditLog;
+import com.coffee.management.util.DateRange;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -20,10 +20,9 @@ public interface AuditLogRepository extends JpaRepository<AuditLog, Long> {
     
     List<AuditLog> findByEntityAndEntityId(String entity, Long entityId);
     
-    @Query("SELECT a FROM AuditLog a WHERE a.timestamp >= :startDate AND a.timestamp <= :endDate ORDER BY a.timestamp DESC")
+    @Query("SELECT a FROM AuditLog a WHERE a.timestamp >= :#{#range.start} AND a.timestamp < :#{#range.end} ORDER BY a.timestamp DESC")
     List<AuditLog> findByDateRange(
-            @Param("startDate") LocalDateTime startDate,
-            @Param("endDate") LocalDateTime endDate);
+            @Param("range") DateRange range);
     
     @Query("SELECT a FROM AuditLog a ORDER BY a.timestamp DESC")
     List<AuditLog> findAllOrderByTimestampDesc();
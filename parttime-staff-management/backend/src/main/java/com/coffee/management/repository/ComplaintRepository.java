@@ -2,6 +2,7 @@ package com.coffee.management.repository;
 
 import com.coffee.management.entity.Complaint;
 import com.coffee.management.entity.ComplaintStatus;
+import com.coffee.management.util.DateRange;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -40,22 +41,39 @@ public interface ComplaintRepository extends JpaRepository<Complaint, Long> {
     // Find resolved complaints against a user within a date range (for payroll deductions)
     @Query("SELECT c FROM Complaint c WHERE c.toUser.id = :userId " +
            "AND c.status = 'RESOLVED' " +
-           "AND c.createdAt >= :startDate " +
-           "AND c.createdAt <= :endDate")
+           "AND c.createdAt >= :#{#range.start} " +
+           "AND c.createdAt < :#{#range.end}")
     List<Complaint> findResolvedComplaintsAgainstUser(
             @Param("userId") Long userId,
-            @Param("startDate") java.time.LocalDateTime startDate,
-            @Param("endDate") java.time.LocalDateTime endDate);
+            @Param("range") DateRange range);
 
     // Count resolved complaints against a user within a date range
     @Query("SELECT COUNT(c) FROM Complaint c WHERE c.toUser.id = :userId " +
            "AND c.status = 'RESOLVED' " +
-           "AND c.createdAt >= :startDate " +
-           "AND c.createdAt <= :endDate")
+           "AND c.createdAt >= :#{#range.start} " +
+           "AND c.createdAt < :#{#range.end}")
     long countResolvedComplaintsAgainstUser(
             @Param("userId") Long userId,
-            @Param("startDate") java.time.LocalDateTime startDate,
-            @Param("endDate") java.time.LocalDateTime endDate);
+            @Param("range") DateRange range);
+
+    // Count resolved complaints against every user within a date range (for batch payroll)
+    @Query("SELECT c.toUser.id, COUNT(c) FROM Complaint c WHERE c.toUser IS NOT NULL " +
+           "AND c.status = 'RESOLVED' " +
+           "AND c.createdAt >= :#{#range.start} " +
+           "AND c.createdAt < :#{#range.end} " +
+           "GROUP BY c.toUser.id")
+    List<Object[]> countResolvedComplaintsGroupByUser(
+            @Param("range") DateRange range);
+
+    // Count resolved complaints against every user of one store within a date range (for store payroll runs)
+    @Query("SELECT c.toUser.id, COUNT(c) FROM Complaint c WHERE c.toUser.store.id = :storeId " +
+           "AND c.status = 'RESOLVED' " +
+           "AND c.createdAt >= :#{#range.start} " +
+           "AND c.createdAt < :#{#range.end} " +
+           "GROUP BY c.toUser.id")
+    List<Object[]> countResolvedComplaintsGroupByUserForStore(
+            @Param("storeId") Long storeId,
+            @Param("range") DateRange range);
 }
 
 
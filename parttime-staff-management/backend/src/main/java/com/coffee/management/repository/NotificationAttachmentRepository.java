@@ -0,0 +1,40 @@
+package com.coffee.management.repository;
+
+import com.coffee.management.dto.notification.AttachmentInfo;
+import com.coffee.management.entity.NotificationAttachment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface NotificationAttachmentRepository extends JpaRepository<NotificationAttachment, Long> {
+
+    @Query("SELECT a.id FROM NotificationAttachment a WHERE a.contentHash = :contentHash")
+    Optional<Long> findIdByContentHash(@Param("contentHash") String contentHash);
+
+    // Store content unless the same content is already stored (content_hash is unique)
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO notification_attachments (content_hash, content_type, size_bytes, content, created_at) " +
+                   "VALUES (:contentHash, :contentType, :sizeBytes, :content, CURRENT_TIMESTAMP)", nativeQuery = true)
+    int insertIfAbsent(@Param("contentHash") String contentHash,
+                       @Param("contentType") String contentType,
+                       @Param("sizeBytes") long sizeBytes,
+                       @Param("content") byte[] content);
+
+    // For downloads - attachment of a notification owned by the user, without its content
+    @Query("SELECT new com.coffee.management.dto.notification.AttachmentInfo(" +
+           "a.id, a.contentHash, a.contentType, a.sizeBytes, n.attachmentName) " +
+           "FROM Notification n, NotificationAttachment a " +
+           "WHERE a.id = n.attachmentId AND n.id = :notificationId AND n.user.id = :userId")
+    Optional<AttachmentInfo> findForNotification(@Param("notificationId") Long notificationId,
+                                                 @Param("userId") Long userId);
+
+    // For downloads - bytes [offset, offset + length) of the content, offset is 0-based
+    @Query(value = "SELECT SUBSTRING(content, :offset + 1, :length) FROM notification_attachments WHERE id = :id",
+           nativeQuery = true)
+    byte[] findContentRange(@Param("id") Long id, @Param("offset") long offset, @Param("length") int length);
+}
@@ -0,0 +1,31 @@
+package com.coffee.management.repository;
+
+import com.coffee.management.entity.NotificationCounter;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface NotificationCounterRepository extends JpaRepository<NotificationCounter, Long> {
+
+    @Query("SELECT c.unreadCount FROM NotificationCounter c WHERE c.userId = :userId")
+    Optional<Long> findUnreadCountByUserId(@Param("userId") Long userId);
+
+    // Incremental update - create the row on first write, otherwise add the delta in place (never below 0)
+    @Modifying
+    @Query(value = "INSERT INTO notification_counters (user_id, unread_count) VALUES (:userId, GREATEST(:delta, 0)) " +
+                   "ON DUPLICATE KEY UPDATE unread_count = GREATEST(unread_count + :delta, 0)", nativeQuery = true)
+    void addUnread(@Param("userId") Long userId, @Param("delta") long delta);
+
+    // For reconciliation - counters of a chunk of users, locked until the chunk is committed
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<NotificationCounter> findByUserIdIn(Collection<Long> userIds);
+}
@@ -0,0 +1,41 @@
+package com.coffee.management.repository;
+
+import com.coffee.management.entity.NotificationOutboxEvent;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutboxEvent, Long> {
+
+    // For dispatch - oldest due events, locked until dispatched; rows locked by another
+    // instance are skipped (lock timeout -2 = SKIP LOCKED)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM NotificationOutboxEvent e WHERE e.attempts < :maxAttempts AND e.availableAt <= :now ORDER BY e.id")
+    List<NotificationOutboxEvent> findDue(@Param("now") LocalDateTime now,
+                                          @Param("maxAttempts") int maxAttempts,
+                                          Pageable pageable);
+
+    // For dispatch retries - one event, locked until dispatched
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM NotificationOutboxEvent e WHERE e.id = :id")
+    Optional<NotificationOutboxEvent> findLockedById(@Param("id") Long id);
+
+    // For dispatch retries - count the failure and postpone the event
+    @Modifying
+    @Query("UPDATE NotificationOutboxEvent e SET e.attempts = e.attempts + 1, e.lastError = :error, " +
+           "e.availableAt = :retryAt WHERE e.id = :id")
+    int recordFailure(@Param("id") Long id, @Param("error") String error, @Param("retryAt") LocalDateTime retryAt);
+}
@@ -1,31 +1,69 @@
 package com.coffee.management.repository;
 
 import com.coffee.management.entity.Notification;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
     
-    List<Notification> findByUserIdOrderByCreatedAtDesc(Long userId);
-    
-    List<Notification> findByUserIdAndIsReadFalseOrderByCreatedAtDesc(Long userId);
+    // Inbox pages are read newest first by (createdAt, id) on idx_notifications_user_created and
+    // idx_notifications_user_read (InnoDB appends id to both). A page after a cursor starts right
+    // after the last row of the previous page, so every page costs the same as the first one.
+    // "createdAt <= :createdAt" bounds the index range, the OR breaks ties on id.
+
+    // For inbox - first page
+    @Query("SELECT n FROM Notification n WHERE n.user.id = :userId ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findInboxPage(@Param("userId") Long userId, Pageable pageable);
+
+    // For inbox - page after the cursor (createdAt, id)
+    @Query("SELECT n FROM Notification n WHERE n.user.id = :userId " +
+           "AND n.createdAt <= :createdAt AND (n.createdAt < :createdAt OR n.id < :id) " +
+           "ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findInboxPageAfter(@Param("userId") Long userId, @Param("createdAt") LocalDateTime createdAt,
+                                          @Param("id") Long id, Pageable pageable);
+
+    // For the notification stream - notifications after the cursor (createdAt, id), oldest first
+    @Query("SELECT n FROM Notification n WHERE n.user.id = :userId " +
+           "AND n.createdAt >= :createdAt AND (n.createdAt > :createdAt OR n.id > :id) " +
+           "ORDER BY n.createdAt ASC, n.id ASC")
+    List<Notification> findInboxSince(@Param("userId") Long userId, @Param("createdAt") LocalDateTime createdAt,
+                                      @Param("id") Long id, Pageable pageable);
+
+    // For unread list - first page
+    @Query("SELECT n FROM Notification n WHERE n.user.id = :userId AND n.isRead = false " +
+           "ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findUnreadPage(@Param("userId") Long userId, Pageable pageable);
+
+    // For unread list - page after the cursor (createdAt, id)
+    @Query("SELECT n FROM Notification n WHERE n.user.id = :userId AND n.isRead = false " +
+           "AND n.createdAt <= :createdAt AND (n.createdAt < :createdAt OR n.id < :id) " +
+           "ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findUnreadPageAfter(@Param("userId") Long userId, @Param("createdAt") LocalDateTime createdAt,
+                                           @Param("id") Long id, Pageable pageable);
     
-    @Query("SELECT COUNT(n) FROM Notification n WHERE n.user.id = :userId AND n.isRead = false")
-    long countUnreadByUser(@Param("userId") Long userId);
+    // For notification counter reconciliation - unread count per user as (userId, count)
+    @Query("SELECT n.user.id, COUNT(n) FROM Notification n WHERE n.user.id IN :userIds AND n.isRead = false " +
+           "GROUP BY n.user.id")
+    List<Object[]> countUnreadGroupByUser(@Param("userIds") Collection<Long> userIds);
     
+    // Returns the number of notifications that were unread
     @Modifying
-    @Query("UPDATE Notification n SET n.isRead = true WHERE n.user.id = :userId")
-    void markAllAsReadByUser(@Param("userId") Long userId);
+    @Query("UPDATE Notification n SET n.isRead = true WHERE n.user.id = :userId AND n.isRead = false")
+    int markAllAsReadByUser(@Param("userId") Long userId);
     
+    // Returns 1 if the notification was unread
     @Modifying
-    @Query("UPDATE Notification n SET n.isRead = true WHERE n.id = :notificationId")
-    void markAsRead(@Param("notificationId") Long notificationId);
+    @Query("UPDATE Notification n SET n.isRead = true WHERE n.id = :notificationId AND n.isRead = false")
+    int markAsRead(@Param("notificationId") Long notificationId);
 }
 
 
@@ -1,14 +1,25 @@
 package com.coffee.management.repository;
 
+import com.coffee.management.dto.payroll.PayrollExportRow;
 import com.coffee.management.entity.Payroll;
 import com.coffee.management.entity.PayrollStatus;
+import com.coffee.management.entity.Role;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface PayrollRepository extends JpaRepository<Payroll, Long> {
@@ -33,12 +44,50 @@ public interface PayrollRepository extends JpaRepository<Payroll, Long> {
     java.math.BigDecimal sumTotalPayByStoreAndMonth(@Param("storeId") Long storeId, @Param("month") String month);
     
     boolean existsByUserIdAndMonth(Long userId, String month);
-}
-
-
-
-
-
-
-
+    
+    @Query("SELECT u.store.id, SUM(p.grossPay + p.adjustments) FROM Payroll p JOIN p.user u WHERE u.store IS NOT NULL AND p.month = :month GROUP BY u.store.id")
+    List<Object[]> sumTotalPayGroupByStore(@Param("month") String month);
+    
+    // For batch payroll - (userId, id, createdAt) of the payrolls of some users in a month
+    @Query("SELECT p.user.id, p.id, p.createdAt FROM Payroll p WHERE p.month = :month AND p.user.id IN :userIds")
+    List<Object[]> findKeysByMonthAndUserIds(@Param("month") String month, @Param("userIds") Collection<Long> userIds);
+    
+    // For payroll run results - one page of the payrolls of a month, optionally of one store
+    @Query(value = "SELECT p FROM Payroll p JOIN FETCH p.user u LEFT JOIN FETCH u.store s " +
+                   "WHERE p.month = :month AND (:storeId IS NULL OR s.id = :storeId) AND u.role IN :roles",
+           countQuery = "SELECT COUNT(p) FROM Payroll p JOIN p.user u " +
+                        "WHERE p.month = :month AND (:storeId IS NULL OR u.store.id = :storeId) AND u.role IN :roles")
+    Page<Payroll> findPageByMonthAndStore(@Param("month") String month, @Param("storeId") Long storeId,
+                                          @Param("roles") List<Role> roles, Pageable pageable);
+    
+    // For batch status changes - ids among :ids still in :status, locked until the transaction ends
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p.id FROM Payroll p WHERE p.id IN :ids AND p.status = :status")
+    List<Long> lockIdsByIdInAndStatus(@Param("ids") List<Long> ids, @Param("status") PayrollStatus status);
+    
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Payroll p SET p.status = :newStatus WHERE p.id IN :ids AND p.status = :expectedStatus")
+    int updateStatusByIdInAndStatus(@Param("ids") List<Long> ids,
+                                    @Param("expectedStatus") PayrollStatus expectedStatus,
+                                    @Param("newStatus") PayrollStatus newStatus);
+    
+    @Query("SELECT p FROM Payroll p JOIN FETCH p.user u LEFT JOIN FETCH u.store WHERE p.id IN :ids ORDER BY p.id")
+    List<Payroll> findByIdInWithUser(@Param("ids") List<Long> ids);
+    
+    // For the streaming export - flat rows read through a cursor
+    // (1000 rows per fetch: MySQL Connector/J reads them from a server-side cursor with useCursorFetch=true)
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "1000"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    @Query("SELECT new com.coffee.management.dto.payroll.PayrollExportRow(" +
+           "p.id, u.id, u.fullName, u.email, u.role, s.id, s.name, p.month, p.totalHours, u.hourlyRate, " +
+           "p.grossPay, p.adjustments, p.adjustmentNote, p.status, p.createdAt) " +
+           "FROM Payroll p JOIN p.user u LEFT JOIN u.store s " +
+           "WHERE p.month = :month AND (:storeId IS NULL OR s.id = :storeId) ORDER BY p.id")
+    Stream<PayrollExportRow> streamExportRows(@Param("month") String month, @Param("storeId") Long storeId);
 
+    // For the store metrics backfill - earliest payroll month (YYYY-MM sorts chronologically)
+    @Query("SELECT MIN(p.month) FROM Payroll p")
+    String findEarliestMonth();
+}
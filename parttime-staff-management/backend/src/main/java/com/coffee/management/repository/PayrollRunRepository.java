@@ -0,0 +1,16 @@
+package com.coffee.management.repository;
+
+import com.coffee.management.entity.PayrollRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PayrollRunRepository extends JpaRepository<PayrollRun, Long> {
+    
+    Optional<PayrollRun> findByActiveKey(String activeKey);
+    
+    List<PayrollRun> findByActiveKeyIsNotNull();
+}
@@ -0,0 +1,48 @@
+package com.coffee.management.repository;
+
+import com.coffee.management.entity.RefreshToken;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, String> {
+
+    // For refresh - the presented token, locked so concurrent refreshes with it are serialized
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM RefreshToken t WHERE t.id = :id")
+    Optional<RefreshToken> findLockedById(@Param("id") String id);
+
+    // For logout and reuse detection - revoke every token of a family
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.status = 'REVOKED', t.revokedAt = :now " +
+           "WHERE t.familyId = :familyId AND t.status <> 'REVOKED'")
+    int revokeFamily(@Param("familyId") String familyId, @Param("now") LocalDateTime now);
+
+    // For role/store/status changes - families of a user that are still in use
+    @Query("SELECT DISTINCT t.familyId FROM RefreshToken t WHERE t.userId = :userId AND t.status = 'ACTIVE'")
+    List<String> findActiveFamilyIdsByUserId(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.status = 'REVOKED', t.revokedAt = :now " +
+           "WHERE t.familyId IN :familyIds AND t.status <> 'REVOKED'")
+    int revokeFamilies(@Param("familyIds") List<String> familyIds, @Param("now") LocalDateTime now);
+
+    // For the revocation list - families revoked since a time as (familyId, revokedAt)
+    @Query("SELECT t.familyId, MAX(t.revokedAt) FROM RefreshToken t " +
+           "WHERE t.status = 'REVOKED' AND t.revokedAt >= :since GROUP BY t.familyId")
+    List<Object[]> findFamiliesRevokedSince(@Param("since") LocalDateTime since);
+
+    // For purge - a batch of expired tokens
+    @Query("SELECT t.id FROM RefreshToken t WHERE t.expiresAt < :now")
+    List<String> findExpiredIds(@Param("now") LocalDateTime now, Pageable pageable);
+}
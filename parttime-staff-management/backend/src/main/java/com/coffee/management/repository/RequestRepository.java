@@ -32,6 +32,12 @@ public interface RequestRepository extends JpaRepository<Request, Long> {
     
     @Query("SELECT COUNT(r) FROM Request r JOIN r.user u WHERE u.store.id = :storeId AND r.status = 'PENDING'")
     long countPendingRequestsByStore(@Param("storeId") Long storeId);
+    
+    @Query("SELECT u.store.id, r.status, COUNT(r) FROM Request r JOIN r.user u WHERE u.store IS NOT NULL GROUP BY u.store.id, r.status")
+    List<Object[]> countGroupByStoreAndStatus();
+    
+    @Query("SELECT r.status, COUNT(r) FROM Request r JOIN r.user u WHERE u.store.id = :storeId GROUP BY r.status")
+    List<Object[]> countByStatusForStore(@Param("storeId") Long storeId);
 }
 
 
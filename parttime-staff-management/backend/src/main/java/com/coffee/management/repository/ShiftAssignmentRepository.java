@@ -2,11 +2,13 @@ package com.coffee.management.repository;
 
 import com.coffee.management.entity.AssignmentStatus;
 import com.coffee.management.entity.ShiftAssignment;
+import com.coffee.management.util.DateRange;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -35,27 +37,32 @@ public interface ShiftAssignmentRepository extends JpaRepository<ShiftAssignment
     @Query("SELECT sa FROM ShiftAssignment sa " +
            "JOIN FETCH sa.shift s " +
            "WHERE sa.user.id = :userId " +
-           "AND s.startDatetime >= :startDate " +
-           "AND s.startDatetime <= :endDate")
+           "AND s.startDatetime >= :#{#range.start} " +
+           "AND s.startDatetime < :#{#range.end}")
     List<ShiftAssignment> findByUserIdAndDateRange(
             @Param("userId") Long userId,
-            @Param("startDate") java.time.LocalDateTime startDate,
-            @Param("endDate") java.time.LocalDateTime endDate);
+            @Param("range") DateRange range);
     
     // For store report - get all assignments for a store in date range
     @Query("SELECT sa FROM ShiftAssignment sa " +
            "JOIN FETCH sa.shift s " +
            "JOIN FETCH sa.user u " +
            "WHERE s.store.id = :storeId " +
-           "AND s.startDatetime >= :startDate " +
-           "AND s.startDatetime <= :endDate")
+           "AND s.startDatetime >= :#{#range.start} " +
+           "AND s.startDatetime < :#{#range.end}")
     List<ShiftAssignment> findByStoreIdAndDateRange(
             @Param("storeId") Long storeId,
-            @Param("startDate") java.time.LocalDateTime startDate,
-            @Param("endDate") java.time.LocalDateTime endDate);
-}
-
-
-
-
+            @Param("range") DateRange range);
 
+    // For the shift calendar - assignments of the shifts of findCalendarRows (same filter) as
+    // (id, shiftId, userId, userName, userEmail, status, assignedAt)
+    @Query("SELECT sa.id, s.id, u.id, u.fullName, u.email, sa.status, sa.assignedAt " +
+           "FROM ShiftAssignment sa JOIN sa.shift s JOIN sa.user u " +
+           "WHERE (:allStores = true OR s.store.id IN :storeIds) " +
+           "AND s.startDatetime >= :#{#range.start} AND s.startDatetime < :#{#range.end} AND s.endDatetime <= :#{#range.end} " +
+           "ORDER BY sa.id")
+    List<Object[]> findCalendarRows(
+            @Param("storeIds") Collection<Long> storeIds,
+            @Param("allStores") boolean allStores,
+            @Param("range") DateRange range);
+}
@@ -1,12 +1,14 @@
 package com.coffee.management.repository;
 
 import com.coffee.management.entity.Shift;
+import com.coffee.management.util.DateRange;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,22 +17,20 @@ public interface ShiftRepository extends JpaRepository<Shift, Long> {
     
     List<Shift> findByStoreId(Long storeId);
     
-    @Query("SELECT s FROM Shift s WHERE s.store.id = :storeId AND s.startDatetime >= :startDate AND s.endDatetime <= :endDate ORDER BY s.startDatetime")
+    @Query("SELECT s FROM Shift s WHERE s.store.id = :storeId AND s.startDatetime >= :#{#range.start} AND s.startDatetime < :#{#range.end} AND s.endDatetime <= :#{#range.end} ORDER BY s.startDatetime")
     List<Shift> findByStoreAndDateRange(
             @Param("storeId") Long storeId, 
-            @Param("startDate") LocalDateTime startDate, 
-            @Param("endDate") LocalDateTime endDate);
+            @Param("range") DateRange range);
     
-    @Query("SELECT s FROM Shift s WHERE s.startDatetime >= :startDate AND s.endDatetime <= :endDate ORDER BY s.startDatetime")
+    @Query("SELECT s FROM Shift s WHERE s.startDatetime >= :#{#range.start} AND s.startDatetime < :#{#range.end} AND s.endDatetime <= :#{#range.end} ORDER BY s.startDatetime")
     List<Shift> findByDateRange(
-            @Param("startDate") LocalDateTime startDate, 
-            @Param("endDate") LocalDateTime endDate);
+            @Param("range") DateRange range);
     
     @Query("SELECT s FROM Shift s JOIN s.assignments a WHERE a.user.id = :userId AND a.status = 'CONFIRMED' AND s.startDatetime >= :startDate ORDER BY s.startDatetime")
     List<Shift> findByUserAssignment(@Param("userId") Long userId, @Param("startDate") LocalDateTime startDate);
     
-    @Query("SELECT COUNT(s) FROM Shift s WHERE s.store.id = :storeId AND MONTH(s.startDatetime) = :month AND YEAR(s.startDatetime) = :year")
-    long countByStoreAndMonth(@Param("storeId") Long storeId, @Param("month") int month, @Param("year") int year);
+    @Query("SELECT COUNT(s) FROM Shift s WHERE s.store.id = :storeId AND s.startDatetime >= :#{#range.start} AND s.startDatetime < :#{#range.end}")
+    long countByStoreAndDateRange(@Param("storeId") Long storeId, @Param("range") DateRange range);
     
     @Query("SELECT DISTINCT s FROM Shift s " +
            "LEFT JOIN FETCH s.store " +
@@ -46,17 +46,30 @@ public interface ShiftRepository extends JpaRepository<Shift, Long> {
            "WHERE s.store.id = :storeId AND s.isTemplate = true")
     List<Shift> findByStoreIdAndIsTemplateTrue(@Param("storeId") Long storeId);
     
-    @Query("SELECT s FROM Shift s WHERE s.store.id = :storeId AND (s.isTemplate = false OR s.isTemplate IS NULL) AND s.startDatetime >= :startDate AND s.startDatetime <= :endDate ORDER BY s.startDatetime")
+    @Query("SELECT s FROM Shift s WHERE s.store.id = :storeId AND (s.isTemplate = false OR s.isTemplate IS NULL) AND s.startDatetime >= :#{#range.start} AND s.startDatetime < :#{#range.end} ORDER BY s.startDatetime")
     List<Shift> findActualShiftsByStoreAndDateRange(
             @Param("storeId") Long storeId, 
-            @Param("startDate") LocalDateTime startDate, 
-            @Param("endDate") LocalDateTime endDate);
-}
-
-
-
-
-
-
+            @Param("range") DateRange range);
+    
+    // For system report - shift count per store in one grouped query
+    @Query("SELECT s.store.id, COUNT(s) FROM Shift s WHERE s.startDatetime >= :#{#range.start} AND s.startDatetime < :#{#range.end} GROUP BY s.store.id")
+    List<Object[]> countGroupByStoreAndDateRange(
+            @Param("range") DateRange range);
 
+    // For the shift calendar - shifts of some stores (or all) in a range as
+    // (id, storeId, storeName, title, start, end, requiredSlots, createdById, createdByName, createdAt),
+    // read without loading entities
+    @Query("SELECT s.id, st.id, st.name, s.title, s.startDatetime, s.endDatetime, s.requiredSlots, cb.id, cb.fullName, s.createdAt " +
+           "FROM Shift s JOIN s.store st LEFT JOIN s.createdBy cb " +
+           "WHERE (:allStores = true OR st.id IN :storeIds) " +
+           "AND s.startDatetime >= :#{#range.start} AND s.startDatetime < :#{#range.end} AND s.endDatetime <= :#{#range.end} " +
+           "ORDER BY s.startDatetime, s.id")
+    List<Object[]> findCalendarRows(
+            @Param("storeIds") Collection<Long> storeIds,
+            @Param("allStores") boolean allStores,
+            @Param("range") DateRange range);
 
+    // For the store metrics backfill - start of the earliest shift
+    @Query("SELECT MIN(s.startDatetime) FROM Shift s")
+    LocalDateTime findEarliestStart();
+}
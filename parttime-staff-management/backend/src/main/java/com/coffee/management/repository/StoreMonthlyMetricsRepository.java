@@ -0,0 +1,67 @@
+package com.coffee.management.repository;
+
+import com.coffee.management.entity.StoreMonthlyMetrics;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StoreMonthlyMetricsRepository extends JpaRepository<StoreMonthlyMetrics, Long> {
+    
+    Optional<StoreMonthlyMetrics> findByStoreIdAndMonth(Long storeId, String month);
+    
+    List<StoreMonthlyMetrics> findByMonth(String month);
+    
+    // Incremental updates - create the row on first write, otherwise add the delta in place
+    @Modifying
+    @Query(value = "INSERT INTO store_monthly_metrics (store_id, month, total_minutes) VALUES (:storeId, :month, :minutes) " +
+                   "ON DUPLICATE KEY UPDATE total_minutes = total_minutes + :minutes", nativeQuery = true)
+    void addWorkedMinutes(@Param("storeId") Long storeId, @Param("month") String month, @Param("minutes") long minutes);
+    
+    @Modifying
+    @Query(value = "INSERT INTO store_monthly_metrics (store_id, month, total_payroll) VALUES (:storeId, :month, :amount) " +
+                   "ON DUPLICATE KEY UPDATE total_payroll = total_payroll + :amount", nativeQuery = true)
+    void addPayroll(@Param("storeId") Long storeId, @Param("month") String month, @Param("amount") BigDecimal amount);
+    
+    @Modifying
+    @Query(value = "INSERT INTO store_monthly_metrics (store_id, month, total_tasks, pending_tasks, in_progress_tasks) " +
+                   "VALUES (:storeId, :month, :total, :pending, :inProgress) " +
+                   "ON DUPLICATE KEY UPDATE total_tasks = total_tasks + :total, " +
+                   "pending_tasks = pending_tasks + :pending, in_progress_tasks = in_progress_tasks + :inProgress",
+           nativeQuery = true)
+    void addTaskCounts(@Param("storeId") Long storeId, @Param("month") String month,
+                       @Param("total") long total, @Param("pending") long pending, @Param("inProgress") long inProgress);
+    
+    @Modifying
+    @Query(value = "INSERT INTO store_monthly_metrics (store_id, month, completed_tasks) VALUES (:storeId, :month, :completed) " +
+                   "ON DUPLICATE KEY UPDATE completed_tasks = completed_tasks + :completed", nativeQuery = true)
+    void addCompletedTasks(@Param("storeId") Long storeId, @Param("month") String month, @Param("completed") long completed);
+    
+    // For batch payroll - recompute the payroll of some stores from the payrolls table
+    // (INSERT ... SELECT reads the current rows with locks, not a snapshot)
+    @Modifying
+    @Query(value = "INSERT INTO store_monthly_metrics (store_id, month, total_payroll) " +
+                   "SELECT u.store_id, p.month, SUM(p.gross_pay + p.adjustments) FROM payrolls p JOIN users u ON u.id = p.user_id " +
+                   "WHERE p.month = :month AND u.store_id IN :storeIds GROUP BY u.store_id, p.month " +
+                   "ON DUPLICATE KEY UPDATE total_payroll = VALUES(total_payroll)", nativeQuery = true)
+    void refreshPayroll(@Param("storeIds") Collection<Long> storeIds, @Param("month") String month);
+
+    // A closed month whose raw data changed - its report is read live until the row is reconciled again
+    @Modifying
+    @Query("UPDATE StoreMonthlyMetrics m SET m.reconciledAt = NULL WHERE m.store.id = :storeId AND m.month = :month")
+    void markUnreconciled(@Param("storeId") Long storeId, @Param("month") String month);
+
+    @Query("SELECT DISTINCT m.month FROM StoreMonthlyMetrics m WHERE m.reconciledAt IS NULL")
+    List<String> findUnreconciledMonths();
+
+    // For the backfill - number of reconciled rows per month
+    @Query("SELECT m.month, COUNT(m) FROM StoreMonthlyMetrics m WHERE m.reconciledAt IS NOT NULL GROUP BY m.month")
+    List<Object[]> countReconciledGroupByMonth();
+}
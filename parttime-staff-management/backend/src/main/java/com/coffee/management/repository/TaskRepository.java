@@ -2,6 +2,7 @@ package com.coffee.management.repository;
 
 import com.coffee.management.entity.Task;
 import com.coffee.management.entity.TaskStatus;
+import com.coffee.management.util.DateRange;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -61,14 +62,15 @@ public interface TaskRepository extends JpaRepository<Task, Long> {
     List<Task> findByStoreIdAndStatusOrderByDueDateAsc(Long storeId, TaskStatus status);
 
     /**
-     * Find tasks due today for a store
+     * Find tasks of a store due within a day
      */
     @Query("SELECT t FROM Task t " +
            "WHERE t.store.id = :storeId " +
            "AND t.status IN ('PENDING', 'IN_PROGRESS') " +
-           "AND DATE(t.dueDate) = DATE(:date) " +
+           "AND t.dueDate >= :#{#range.start} " +
+           "AND t.dueDate < :#{#range.end} " +
            "ORDER BY t.priority DESC, t.dueDate ASC")
-    List<Task> findTasksDueToday(@Param("storeId") Long storeId, @Param("date") LocalDateTime date);
+    List<Task> findTasksDueToday(@Param("storeId") Long storeId, @Param("range") DateRange range);
 
     /**
      * Find overdue tasks for a store
@@ -98,23 +100,21 @@ public interface TaskRepository extends JpaRepository<Task, Long> {
      */
     @Query("SELECT t FROM Task t " +
            "WHERE t.assignedTo.id = :userId " +
-           "AND t.createdAt >= :startDate " +
-           "AND t.createdAt <= :endDate")
+           "AND t.createdAt >= :#{#range.start} " +
+           "AND t.createdAt < :#{#range.end}")
     List<Task> findByAssignedToIdAndDateRange(
             @Param("userId") Long userId,
-            @Param("startDate") LocalDateTime startDate,
-            @Param("endDate") LocalDateTime endDate);
+            @Param("range") DateRange range);
 
     /**
      * Count tasks by store and date range
      */
     @Query("SELECT COUNT(t) FROM Task t " +
            "WHERE t.store.id = :storeId " +
-           "AND t.createdAt >= :startDate " +
-           "AND t.createdAt <= :endDate")
+           "AND t.createdAt >= :#{#range.start} " +
+           "AND t.createdAt < :#{#range.end}")
     long countByStoreAndDateRange(@Param("storeId") Long storeId, 
-                                  @Param("startDate") LocalDateTime startDate, 
-                                  @Param("endDate") LocalDateTime endDate);
+                                  @Param("range") DateRange range);
 
     /**
      * Count completed tasks by store and date range
@@ -122,11 +122,10 @@ public interface TaskRepository extends JpaRepository<Task, Long> {
     @Query("SELECT COUNT(t) FROM Task t " +
            "WHERE t.store.id = :storeId " +
            "AND t.status = 'COMPLETED' " +
-           "AND t.completedAt >= :startDate " +
-           "AND t.completedAt <= :endDate")
+           "AND t.completedAt >= :#{#range.start} " +
+           "AND t.completedAt < :#{#range.end}")
     long countCompletedByStoreAndDateRange(@Param("storeId") Long storeId, 
-                                           @Param("startDate") LocalDateTime startDate, 
-                                           @Param("endDate") LocalDateTime endDate);
+                                           @Param("range") DateRange range);
 
     /**
      * Count overdue tasks by store and date range (not completed and due date passed)
@@ -135,12 +134,58 @@ public interface TaskRepository extends JpaRepository<Task, Long> {
            "WHERE t.store.id = :storeId " +
            "AND t.status != 'COMPLETED' " +
            "AND t.dueDate < :now " +
-           "AND t.createdAt >= :startDate " +
-           "AND t.createdAt <= :endDate")
+           "AND t.createdAt >= :#{#range.start} " +
+           "AND t.createdAt < :#{#range.end}")
     long countOverdueByStoreAndDateRange(@Param("storeId") Long storeId, 
                                          @Param("now") LocalDateTime now,
-                                         @Param("startDate") LocalDateTime startDate, 
-                                         @Param("endDate") LocalDateTime endDate);
+                                         @Param("range") DateRange range);
+
+    /**
+     * Count a store's tasks created in date range grouped by status,
+     * together with how many of them are overdue (not completed and due date passed)
+     */
+    @Query("SELECT t.status, COUNT(t), " +
+           "SUM(CASE WHEN t.status <> 'COMPLETED' AND t.dueDate < :now THEN 1 ELSE 0 END) " +
+           "FROM Task t " +
+           "WHERE t.store.id = :storeId " +
+           "AND t.createdAt >= :#{#range.start} " +
+           "AND t.createdAt < :#{#range.end} " +
+           "GROUP BY t.status")
+    List<Object[]> countByStatusForStoreAndDateRange(@Param("storeId") Long storeId,
+                                                     @Param("now") LocalDateTime now,
+                                                     @Param("range") DateRange range);
+
+    /**
+     * Count tasks created in date range grouped by store and status,
+     * together with how many of them are overdue (not completed and due date passed)
+     */
+    @Query("SELECT t.store.id, t.status, COUNT(t), " +
+           "SUM(CASE WHEN t.status <> 'COMPLETED' AND t.dueDate < :now THEN 1 ELSE 0 END) " +
+           "FROM Task t " +
+           "WHERE t.createdAt >= :#{#range.start} " +
+           "AND t.createdAt < :#{#range.end} " +
+           "GROUP BY t.store.id, t.status")
+    List<Object[]> countGroupByStoreAndStatus(@Param("now") LocalDateTime now,
+                                              @Param("range") DateRange range);
+
+    /**
+     * Count completed tasks in date range grouped by store
+     */
+    @Query("SELECT t.store.id, COUNT(t) FROM Task t " +
+           "WHERE t.status = 'COMPLETED' " +
+           "AND t.completedAt >= :#{#range.start} " +
+           "AND t.completedAt < :#{#range.end} " +
+           "GROUP BY t.store.id")
+    List<Object[]> countCompletedGroupByStore(@Param("range") DateRange range);
+
+    /**
+     * Assigned tasks created in date range as (assigneeId, taskId, status), for the employee ranking engine
+     */
+    @Query("SELECT t.assignedTo.id, t.id, t.status FROM Task t " +
+           "WHERE t.assignedTo IS NOT NULL " +
+           "AND t.createdAt >= :#{#range.start} " +
+           "AND t.createdAt < :#{#range.end}")
+    List<Object[]> findRankingRows(@Param("range") DateRange range);
 }
 
 
@@ -1,6 +1,7 @@
 package com.coffee.management.repository;
 
 import com.coffee.management.entity.TimeLog;
+import com.coffee.management.util.DateRange;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -18,52 +19,46 @@ public interface TimeLogRepository extends JpaRepository<TimeLog, Long> {
     @Query("SELECT t FROM TimeLog t WHERE t.user.id = :userId AND t.checkOut IS NULL ORDER BY t.checkIn DESC")
     Optional<TimeLog> findActiveCheckIn(@Param("userId") Long userId);
     
-    @Query("SELECT t FROM TimeLog t WHERE t.user.id = :userId AND t.checkIn >= :startDate AND t.checkIn <= :endDate ORDER BY t.checkIn DESC")
+    @Query("SELECT t FROM TimeLog t WHERE t.user.id = :userId AND t.checkIn >= :#{#range.start} AND t.checkIn < :#{#range.end} ORDER BY t.checkIn DESC")
     List<TimeLog> findByUserAndDateRange(
             @Param("userId") Long userId,
-            @Param("startDate") LocalDateTime startDate,
-            @Param("endDate") LocalDateTime endDate);
+            @Param("range") DateRange range);
     
-    @Query("SELECT t FROM TimeLog t JOIN t.user u WHERE u.store.id = :storeId AND t.checkIn >= :startDate AND t.checkIn <= :endDate ORDER BY t.checkIn DESC")
+    @Query("SELECT t FROM TimeLog t JOIN t.user u WHERE u.store.id = :storeId AND t.checkIn >= :#{#range.start} AND t.checkIn < :#{#range.end} ORDER BY t.checkIn DESC")
     List<TimeLog> findByStoreAndDateRange(
             @Param("storeId") Long storeId,
-            @Param("startDate") LocalDateTime startDate,
-            @Param("endDate") LocalDateTime endDate);
+            @Param("range") DateRange range);
     
-    @Query("SELECT SUM(t.durationMinutes) FROM TimeLog t WHERE t.user.id = :userId AND t.checkIn >= :startDate AND t.checkIn <= :endDate")
+    @Query("SELECT SUM(t.durationMinutes) FROM TimeLog t WHERE t.user.id = :userId AND t.checkIn >= :#{#range.start} AND t.checkIn < :#{#range.end}")
     Long sumDurationByUserAndDateRange(
             @Param("userId") Long userId,
-            @Param("startDate") LocalDateTime startDate,
-            @Param("endDate") LocalDateTime endDate);
+            @Param("range") DateRange range);
     
-    @Query("SELECT SUM(t.durationMinutes) FROM TimeLog t JOIN t.user u WHERE u.store.id = :storeId AND t.checkIn >= :startDate AND t.checkIn <= :endDate")
+    @Query("SELECT SUM(t.durationMinutes) FROM TimeLog t JOIN t.user u WHERE u.store.id = :storeId AND t.checkIn >= :#{#range.start} AND t.checkIn < :#{#range.end}")
     Long sumDurationByStoreAndDateRange(
             @Param("storeId") Long storeId,
-            @Param("startDate") LocalDateTime startDate,
-            @Param("endDate") LocalDateTime endDate);
+            @Param("range") DateRange range);
 
     // For employee ranking
     @Query("SELECT t FROM TimeLog t " +
            "LEFT JOIN FETCH t.shift " +
            "WHERE t.user.id = :userId " +
-           "AND t.checkIn >= :startDate " +
-           "AND t.checkIn <= :endDate")
+           "AND t.checkIn >= :#{#range.start} " +
+           "AND t.checkIn < :#{#range.end}")
     List<TimeLog> findByUserIdAndDateRange(
             @Param("userId") Long userId,
-            @Param("startDate") LocalDateTime startDate,
-            @Param("endDate") LocalDateTime endDate);
+            @Param("range") DateRange range);
 
     // For payroll - find time logs with associated shifts (to check late check-ins)
     @Query("SELECT t FROM TimeLog t " +
            "JOIN FETCH t.shift s " +
            "WHERE t.user.id = :userId " +
-           "AND t.checkIn >= :startDate " +
-           "AND t.checkIn <= :endDate " +
+           "AND t.checkIn >= :#{#range.start} " +
+           "AND t.checkIn < :#{#range.end} " +
            "AND t.shift IS NOT NULL")
     List<TimeLog> findByUserIdAndDateRangeWithShift(
             @Param("userId") Long userId,
-            @Param("startDate") LocalDateTime startDate,
-            @Param("endDate") LocalDateTime endDate);
+            @Param("range") DateRange range);
     
     /**
      * Find time logs that need auto check-out:
@@ -78,10 +73,52 @@ public interface TimeLogRepository extends JpaRepository<TimeLog, Long> {
            "AND t.shift IS NOT NULL " +
            "AND s.endDatetime < :now")
     List<TimeLog> findTimeLogsNeedingAutoCheckOut(@Param("now") LocalDateTime now);
-}
-
-
-
-
-
+    
+    // For system report - worked minutes per store in one grouped query
+    @Query("SELECT u.store.id, SUM(t.durationMinutes) FROM TimeLog t JOIN t.user u " +
+           "WHERE u.store IS NOT NULL AND t.checkIn >= :#{#range.start} AND t.checkIn < :#{#range.end} " +
+           "GROUP BY u.store.id")
+    List<Object[]> sumDurationGroupByStore(
+            @Param("range") DateRange range);
+    
+    // For batch payroll - worked minutes per user in one grouped query
+    @Query("SELECT t.user.id, SUM(t.durationMinutes) FROM TimeLog t " +
+           "WHERE t.checkIn >= :#{#range.start} AND t.checkIn < :#{#range.end} " +
+           "GROUP BY t.user.id")
+    List<Object[]> sumDurationGroupByUser(
+            @Param("range") DateRange range);
+    
+    // For batch payroll - late check-ins (more than :thresholdMinutes after shift start) per user
+    @Query(value = "SELECT t.user_id, COUNT(*) FROM time_logs t " +
+                   "JOIN shifts s ON s.id = t.shift_id " +
+                   "WHERE t.check_in >= :#{#range.start} AND t.check_in < :#{#range.end} " +
+                   "AND TIMESTAMPDIFF(MINUTE, s.start_datetime, t.check_in) > :thresholdMinutes " +
+                   "GROUP BY t.user_id", nativeQuery = true)
+    List<Object[]> countLateCheckInsGroupByUser(
+            @Param("range") DateRange range,
+            @Param("thresholdMinutes") int thresholdMinutes);
+    
+    // For store payroll runs - worked minutes per user of one store
+    @Query("SELECT t.user.id, SUM(t.durationMinutes) FROM TimeLog t " +
+           "WHERE t.user.store.id = :storeId AND t.checkIn >= :#{#range.start} AND t.checkIn < :#{#range.end} " +
+           "GROUP BY t.user.id")
+    List<Object[]> sumDurationGroupByUserForStore(
+            @Param("storeId") Long storeId,
+            @Param("range") DateRange range);
+    
+    // For store payroll runs - late check-ins per user of one store
+    @Query(value = "SELECT t.user_id, COUNT(*) FROM time_logs t " +
+                   "JOIN shifts s ON s.id = t.shift_id " +
+                   "JOIN users u ON u.id = t.user_id " +
+                   "WHERE u.store_id = :storeId AND t.check_in >= :#{#range.start} AND t.check_in < :#{#range.end} " +
+                   "AND TIMESTAMPDIFF(MINUTE, s.start_datetime, t.check_in) > :thresholdMinutes " +
+                   "GROUP BY t.user_id", nativeQuery = true)
+    List<Object[]> countLateCheckInsGroupByUserForStore(
+            @Param("storeId") Long storeId,
+            @Param("range") DateRange range,
+            @Param("thresholdMinutes") int thresholdMinutes);
 
+    // For the store metrics backfill - earliest check-in
+    @Query("SELECT MIN(t.checkIn) FROM TimeLog t")
+    LocalDateTime findEarliestCheckIn();
+}
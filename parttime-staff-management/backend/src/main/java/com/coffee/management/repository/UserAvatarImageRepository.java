@@ -0,0 +1,21 @@
+package com.coffee.management.repository;
+
+import com.coffee.management.entity.AvatarVariant;
+import com.coffee.management.entity.UserAvatarImage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface UserAvatarImageRepository extends JpaRepository<UserAvatarImage, Long> {
+
+    Optional<UserAvatarImage> findByUserIdAndVariant(Long userId, AvatarVariant variant);
+
+    @Modifying
+    @Query("DELETE FROM UserAvatarImage i WHERE i.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+}
@@ -3,11 +3,14 @@ package com.coffee.management.repository;
 import com.coffee.management.entity.Role;
 import com.coffee.management.entity.User;
 import com.coffee.management.entity.UserStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,6 +31,8 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     List<User> findByStoreIdAndRole(Long storeId, Role role);
 
+    List<User> findByRoleAndStoreIsNull(Role role);
+
     List<User> findByStatus(UserStatus status);
 
     @Query("SELECT u FROM User u WHERE u.store.id = :storeId AND u.status = 'ACTIVE'")
@@ -52,4 +57,49 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     @Query("SELECT u FROM User u WHERE u.store.id = :storeId AND u.role = 'STAFF' AND u.status = 'ACTIVE'")
     List<User> findActiveStaffByStoreId(@Param("storeId") Long storeId);
+
+    // For system report - staff count per store in one grouped query
+    @Query("SELECT u.store.id, COUNT(u) FROM User u WHERE u.store IS NOT NULL AND u.role = 'STAFF' GROUP BY u.store.id")
+    List<Object[]> countStaffGroupByStore();
+
+    // For batch payroll - users of a role with their store loaded
+    @Query("SELECT u FROM User u LEFT JOIN FETCH u.store WHERE u.role = :role")
+    List<User> findByRoleWithStore(@Param("role") Role role);
+
+    // For store payroll runs - users of a store and role with their store loaded
+    @Query("SELECT u FROM User u JOIN FETCH u.store s WHERE s.id = :storeId AND u.role = :role")
+    List<User> findByStoreIdAndRoleWithStore(@Param("storeId") Long storeId, @Param("role") Role role);
+
+    // For employee ranking engine - active staff of all stores with their store loaded
+    @Query("SELECT u FROM User u LEFT JOIN FETCH u.store WHERE u.role = 'STAFF' AND u.status = 'ACTIVE'")
+    List<User> findAllActiveStaffWithStore();
+
+    // For broadcast - ids of active users except owners, optionally of one role
+    @Query("SELECT u.id FROM User u WHERE u.status = 'ACTIVE' AND u.role <> 'OWNER' AND (:role IS NULL OR u.role = :role)")
+    List<Long> findActiveNonOwnerIds(@Param("role") Role role);
+
+    // For broadcast - ids of active users of a store, optionally of one role
+    @Query("SELECT u.id FROM User u WHERE u.store.id = :storeId AND u.status = 'ACTIVE' AND (:role IS NULL OR u.role = :role)")
+    List<Long> findActiveIdsByStore(@Param("storeId") Long storeId, @Param("role") Role role);
+
+    // For notification counter reconciliation - user ids in chunks
+    @Query("SELECT u.id FROM User u WHERE u.id > :afterId ORDER BY u.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // For avatar requests - current avatar version, empty when the user has no avatar
+    @Query("SELECT u.avatarVersion FROM User u WHERE u.id = :id")
+    Optional<String> findAvatarVersionById(@Param("id") Long id);
+
+    // For notification dispatch - ids of the given users that still exist
+    @Query("SELECT u.id FROM User u WHERE u.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // For notification dispatch - every user with a role in a store (any status)
+    @Query("SELECT u.id FROM User u WHERE u.store.id = :storeId AND u.role = :role")
+    List<Long> findIdsByStoreAndRole(@Param("storeId") Long storeId, @Param("role") Role role);
+
+    // For password re-hashing at login
+    @Modifying
+    @Query("UPDATE User u SET u.passwordHash = :passwordHash WHERE u.username = :username")
+    int updatePasswordHash(@Param("username") String username, @Param("passwordHash") String passwordHash);
 }
@@ -0,0 +1,32 @@
+package com.coffee.management.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Client a refresh token was issued to: SHA-256 (hex) of its User-Agent and IP address.
+ * Only the hash is stored; it tells a second tab of the same browser from another client.
+ */
+public final class ClientBinding {
+
+    private ClientBinding() {
+    }
+
+    public static String of(HttpServletRequest request) {
+        String userAgent = request.getHeader("User-Agent");
+        return sha256Hex((userAgent != null ? userAgent : "") + "|" + request.getRemoteAddr());
+    }
+
+    private static String sha256Hex(String value) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
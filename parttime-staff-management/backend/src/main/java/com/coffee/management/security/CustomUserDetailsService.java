@@ -2,22 +2,57 @@ package com.coffee.management.security;
 
 import com.coffee.management.entity.User;
 import com.coffee.management.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.concurrent.TimeUnit;
+
 /**
- * Custom UserDetailsService implementation for loading user from database
+ * Custom UserDetailsService implementation for loading user from database.
+ * Principals of authenticated requests are cached by user id (without the password hash), so
+ * requests with a valid token do not query the users table. UserService evicts a user after
+ * commit of changes to their profile, role, store or status; the TTL bounds how long another
+ * application instance may use a stale principal.
  */
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${security.principal-cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${security.principal-cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    // Key: user id
+    private Cache<Long, UserPrincipal> principalCache;
+
+    @PostConstruct
+    public void createCache() {
+        principalCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, principalCache, "principals");
+    }
+
     @Override
     @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
@@ -34,11 +69,36 @@ public class CustomUserDetailsService implements UserDetailsService {
 
         return UserPrincipal.create(user);
     }
-}
-
-
-
-
 
+    /**
+     * Store a password re-hashed at login with the current cost (see SecurityConfig)
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.updatePasswordHash(user.getUsername(), newPassword);
+        if (user instanceof UserPrincipal principal) {
+            principal.setPassword(newPassword);
+        }
+        return user;
+    }
 
+    /**
+     * Principal of an authenticated request, from the cache or loaded on a miss.
+     * The cached principal has no password.
+     */
+    public UserPrincipal loadCachedUserById(Long id) {
+        return principalCache.get(id, k -> {
+            UserPrincipal principal = (UserPrincipal) loadUserById(k);
+            principal.setPassword(null);
+            return principal;
+        });
+    }
 
+    /**
+     * Drop the cached principal of a user (call after commit of changes to the user)
+     */
+    public void evictUser(Long id) {
+        principalCache.invalidate(id);
+    }
+}
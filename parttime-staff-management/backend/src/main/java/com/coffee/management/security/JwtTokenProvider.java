@@ -2,124 +2,197 @@ package com.coffee.management.security;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.io.DecodingException;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
- * JWT Token Provider for generating and validating JWT tokens
+ * JWT Token Provider for generating and validating JWT tokens.
+ * Keys and the parser are built once at startup and shared by every request. Tokens are signed
+ * with the current key and carry its id in the "kid" header; the parser accepts any configured
+ * key by kid, so the secret can be rotated without logging every user out:
+ * move the current key to jwt.previous-keys, then set a new jwt.secret and jwt.key-id.
+ * Tokens without kid (issued before key ids were used) are only verified with jwt.secret.
  */
 @Component
 public class JwtTokenProvider {
 
     private static final Logger logger = LoggerFactory.getLogger(JwtTokenProvider.class);
 
+    static final String REFRESH_TYPE = "refresh";
+    private static final String FAMILY_CLAIM = "fid";
+
     @Value("${jwt.secret}")
     private String jwtSecret;
 
+    @Value("${jwt.key-id:k1}")
+    private String keyId;
+
+    // Keys still accepted for verification, as "kid:secret" separated by commas
+    @Value("${jwt.previous-keys:}")
+    private String previousKeys;
+
     @Value("${jwt.access-token-expiration}")
     private long accessTokenExpiration;
 
     @Value("${jwt.refresh-token-expiration}")
     private long refreshTokenExpiration;
 
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(jwtSecret);
+    private SecretKey signingKey;
+    private Map<String, SecretKey> verificationKeys;
+    private JwtParser parser;
+
+    @PostConstruct
+    public void init() {
+        Map<String, SecretKey> keys = new HashMap<>();
+        if (StringUtils.hasText(previousKeys)) {
+            for (String entry : previousKeys.split(",")) {
+                int separator = entry.indexOf(':');
+                if (separator <= 0) {
+                    throw new IllegalStateException("jwt.previous-keys entries must be kid:secret");
+                }
+                keys.put(entry.substring(0, separator).trim(), toKey(entry.substring(separator + 1).trim()));
+            }
+        }
+        signingKey = toKey(jwtSecret);
+        keys.put(keyId, signingKey);
+        verificationKeys = Collections.unmodifiableMap(keys);
+
+        parser = Jwts.parser()
+                .keyLocator(new LocatorAdapter<Key>() {
+                    @Override
+                    protected Key locate(JwsHeader header) {
+                        // Tokens without kid were signed with the current secret
+                        if (header.getKeyId() == null) {
+                            return signingKey;
+                        }
+                        SecretKey key = verificationKeys.get(header.getKeyId());
+                        if (key == null) {
+                            throw new UnsupportedJwtException("Unknown JWT key id: " + header.getKeyId());
+                        }
+                        return key;
+                    }
+                })
+                .build();
+    }
+
+    private static SecretKey toKey(String secret) {
+        byte[] keyBytes;
+        try {
+            keyBytes = Decoders.BASE64.decode(secret);
+        } catch (DecodingException e) {
+            keyBytes = new byte[0];
+        }
         if (keyBytes.length < 32) {
             // If secret is too short, use it as-is (not base64)
-            return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+            return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
         }
         return Keys.hmacShaKeyFor(keyBytes);
     }
 
-    public String generateAccessToken(Authentication authentication) {
-        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
-        return generateAccessToken(userPrincipal.getId(), userPrincipal.getUsername());
-    }
-
-    public String generateAccessToken(Long userId, String username) {
+    /**
+     * Access token of a login session (familyId = refresh token family, see RefreshTokenService)
+     */
+    public String generateAccessToken(Long userId, String username, String familyId) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + accessTokenExpiration);
 
         return Jwts.builder()
+                .header().keyId(keyId).and()
                 .subject(username)
                 .claim("userId", userId)
+                .claim(FAMILY_CLAIM, familyId)
                 .issuedAt(now)
                 .expiration(expiryDate)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
-    public String generateRefreshToken(Long userId, String username) {
+    /**
+     * Refresh token with its id (jti) and family, both stored in refresh_tokens
+     */
+    public String generateRefreshToken(Long userId, String username, String familyId, String tokenId) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + refreshTokenExpiration);
 
         return Jwts.builder()
+                .header().keyId(keyId).and()
+                .id(tokenId)
                 .subject(username)
                 .claim("userId", userId)
-                .claim("type", "refresh")
+                .claim(FAMILY_CLAIM, familyId)
+                .claim("type", REFRESH_TYPE)
                 .issuedAt(now)
                 .expiration(expiryDate)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
-    public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-
-        return claims.getSubject();
-    }
-
-    public Long getUserIdFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-
-        return claims.get("userId", Long.class);
-    }
-
-    public boolean validateToken(String authToken) {
+    /**
+     * Verify the token and return its claims, or null when it is invalid or expired
+     */
+    public VerifiedToken verify(String token) {
         try {
-            Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(authToken);
-            return true;
-        } catch (SecurityException ex) {
+            Jws<Claims> jws = parser.parseSignedClaims(token);
+            Claims claims = jws.getPayload();
+            return VerifiedToken.builder()
+                    .userId(claims.get("userId", Long.class))
+                    .username(claims.getSubject())
+                    .type(claims.get("type", String.class))
+                    .tokenId(claims.getId())
+                    .familyId(claims.get(FAMILY_CLAIM, String.class))
+                    .keyId(jws.getHeader().getKeyId())
+                    .issuedAt(claims.getIssuedAt())
+                    .expiresAt(claims.getExpiration())
+                    .build();
+        } catch (ExpiredJwtException ex) {
+            logger.error("Expired JWT token");
+        } catch (io.jsonwebtoken.security.SecurityException ex) {
             logger.error("Invalid JWT signature");
         } catch (MalformedJwtException ex) {
             logger.error("Invalid JWT token");
-        } catch (ExpiredJwtException ex) {
-            logger.error("Expired JWT token");
         } catch (UnsupportedJwtException ex) {
-            logger.error("Unsupported JWT token");
+            logger.error("Unsupported JWT token: {}", ex.getMessage());
+        } catch (JwtException ex) {
+            logger.error("Invalid JWT token: {}", ex.getMessage());
         } catch (IllegalArgumentException ex) {
             logger.error("JWT claims string is empty");
         }
-        return false;
+        return null;
     }
 
-    public long getAccessTokenExpiration() {
-        return accessTokenExpiration;
+    public String getUsernameFromToken(String token) {
+        VerifiedToken verified = verify(token);
+        return verified != null ? verified.getUsername() : null;
     }
-}
-
-
-
-
 
+    public Long getUserIdFromToken(String token) {
+        VerifiedToken verified = verify(token);
+        return verified != null ? verified.getUserId() : null;
+    }
 
+    public boolean validateToken(String authToken) {
+        return verify(authToken) != null;
+    }
 
+    public long getAccessTokenExpiration() {
+        return accessTokenExpiration;
+    }
 
+    public long getRefreshTokenExpiration() {
+        return refreshTokenExpiration;
+    }
+}
@@ -0,0 +1,107 @@
+package com.coffee.management.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory list of revoked token families, checked for every authenticated request.
+ * A Bloom filter answers "not revoked" for almost every token without allocating; only its
+ * hits (revoked families and rare false positives) look up the exact set. An entry is kept
+ * until the last access token of its family has expired, then dropped by purge(), which
+ * also rebuilds the Bloom filter (its bits cannot be cleared one entry at a time).
+ */
+@Component
+public class TokenRevocationList {
+
+    private static final int HASH_COUNT = 3;
+
+    @Value("${security.revocation.bloom-bits:1048576}")
+    private int bloomBits;
+
+    // Family id -> time (epoch ms) after which no access token of the family is valid
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    private volatile AtomicLongArray bloom;
+
+    public boolean isRevoked(String familyId) {
+        if (familyId == null || revoked.isEmpty()) {
+            return false;
+        }
+        AtomicLongArray bits = bloom();
+        int h1 = familyId.hashCode();
+        int h2 = spread(h1);
+        for (int i = 0; i < HASH_COUNT; i++) {
+            int bit = index(h1 + i * h2, bits);
+            if ((bits.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return revoked.containsKey(familyId);
+    }
+
+    /**
+     * Revoke a family until the given time (epoch ms)
+     */
+    public void revoke(String familyId, long untilMillis) {
+        revoked.merge(familyId, untilMillis, Math::max);
+        set(bloom(), familyId);
+    }
+
+    /**
+     * Drop families whose access tokens have all expired and rebuild the Bloom filter
+     */
+    public int purge(long nowMillis) {
+        int before = revoked.size();
+        revoked.values().removeIf(until -> until < nowMillis);
+        AtomicLongArray rebuilt = newBloom();
+        revoked.keySet().forEach(familyId -> set(rebuilt, familyId));
+        bloom = rebuilt;
+        // Families revoked during the rebuild may have been set in the old filter only
+        revoked.keySet().forEach(familyId -> set(bloom, familyId));
+        return before - revoked.size();
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    private AtomicLongArray bloom() {
+        AtomicLongArray bits = bloom;
+        if (bits == null) {
+            synchronized (this) {
+                if (bloom == null) {
+                    bloom = newBloom();
+                }
+                bits = bloom;
+            }
+        }
+        return bits;
+    }
+
+    private AtomicLongArray newBloom() {
+        return new AtomicLongArray(Math.max(1, bloomBits >>> 6));
+    }
+
+    private static void set(AtomicLongArray bits, String familyId) {
+        int h1 = familyId.hashCode();
+        int h2 = spread(h1);
+        for (int i = 0; i < HASH_COUNT; i++) {
+            int bit = index(h1 + i * h2, bits);
+            bits.getAndAccumulate(bit >>> 6, 1L << bit, (current, mask) -> current | mask);
+        }
+    }
+
+    // Second hash for double hashing, derived from the cached String hash
+    private static int spread(int h) {
+        h *= 0x9E3779B9;
+        return (h ^ (h >>> 16)) | 1;
+    }
+
+    private static int index(int hash, AtomicLongArray bits) {
+        return Math.floorMod(hash, bits.length() << 6);
+    }
+}
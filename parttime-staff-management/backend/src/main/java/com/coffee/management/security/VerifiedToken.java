@@ -0,0 +1,31 @@
+package com.coffee.management.security;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.Date;
+
+/**
+ * Claims of a token whose signature and expiry were verified by JwtTokenProvider, read in one parse
+ */
+@Getter
+@Builder
+public final class VerifiedToken {
+
+    private final Long userId;
+    private final String username;
+    // "refresh" for refresh tokens, null for access tokens
+    private final String type;
+    // jti, set on refresh tokens
+    private final String tokenId;
+    // Login session (refresh token family), null for tokens issued before families were used
+    private final String familyId;
+    // Id of the key that signed the token, null for tokens issued before key ids were used
+    private final String keyId;
+    private final Date issuedAt;
+    private final Date expiresAt;
+
+    public boolean isRefreshToken() {
+        return JwtTokenProvider.REFRESH_TYPE.equals(type);
+    }
+}
@@ -4,12 +4,17 @@ import com.coffee.management.entity.AuditLog;
 import com.coffee.management.entity.User;
 import com.coffee.management.repository.AuditLogRepository;
 import com.coffee.management.repository.UserRepository;
+import com.coffee.management.util.DateRange;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service for audit logging
@@ -18,12 +23,18 @@ import java.util.List;
 @Transactional
 public class AuditService {
 
+    // Rows per multi-row INSERT when logging many entities at once
+    private static final int BATCH_INSERT_SIZE = 500;
+
     @Autowired
     private AuditLogRepository auditLogRepository;
 
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     /**
      * Log an action
      */
@@ -41,12 +52,40 @@ public class AuditService {
         auditLogRepository.save(auditLog);
     }
 
+    /**
+     * Log the same action on many entities with one multi-row INSERT per batch
+     * (detailsByEntityId keeps its iteration order)
+     */
+    public void logAll(Long userId, String action, String entity, Map<Long, String> detailsByEntityId) {
+        if (detailsByEntityId.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Map.Entry<Long, String>> entries = new ArrayList<>(detailsByEntityId.entrySet());
+        for (int from = 0; from < entries.size(); from += BATCH_INSERT_SIZE) {
+            List<Map.Entry<Long, String>> batch = entries.subList(from, Math.min(from + BATCH_INSERT_SIZE, entries.size()));
+            StringBuilder sql = new StringBuilder(
+                    "INSERT INTO audit_log (user_id, action, entity, entity_id, details, timestamp) VALUES ");
+            List<Object> args = new ArrayList<>(batch.size() * 6);
+            for (int i = 0; i < batch.size(); i++) {
+                sql.append(i == 0 ? "(?, ?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?, ?)");
+                args.add(userId);
+                args.add(action);
+                args.add(entity);
+                args.add(batch.get(i).getKey());
+                args.add(batch.get(i).getValue());
+                args.add(now);
+            }
+            jdbcTemplate.update(sql.toString(), args.toArray());
+        }
+    }
+
     /**
      * Get audit logs by date range
      */
     public List<AuditLog> getAuditLogs(LocalDateTime startDate, LocalDateTime endDate) {
         if (startDate != null && endDate != null) {
-            return auditLogRepository.findByDateRange(startDate, endDate);
+            return auditLogRepository.findByDateRange(DateRange.closed(startDate, endDate));
         }
         return auditLogRepository.findAllOrderByTimestampDesc();
     }
@@ -4,12 +4,15 @@ import com.coffee.management.dto.auth.LoginRequest;
 import com.coffee.management.dto.auth.LoginResponse;
 import com.coffee.management.dto.auth.RefreshTokenRequest;
 import com.coffee.management.dto.user.UserResponse;
+import com.coffee.management.entity.RefreshToken;
 import com.coffee.management.entity.User;
+import com.coffee.management.entity.UserStatus;
 import com.coffee.management.exception.BadRequestException;
 import com.coffee.management.exception.UnauthorizedException;
 import com.coffee.management.repository.UserRepository;
 import com.coffee.management.security.JwtTokenProvider;
 import com.coffee.management.security.UserPrincipal;
+import com.coffee.management.security.VerifiedToken;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -32,10 +35,13 @@ public class AuthService {
     @Autowired
     private JwtTokenProvider tokenProvider;
 
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
     /**
-     * Authenticate user and generate tokens
+     * Authenticate user and generate tokens, bound to the client (see ClientBinding)
      */
-    public LoginResponse login(LoginRequest request) {
+    public LoginResponse login(LoginRequest request, String clientBinding) {
         Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(
                         request.getUsername(),
@@ -46,8 +52,11 @@ public class AuthService {
         SecurityContextHolder.getContext().setAuthentication(authentication);
 
         UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
-        String accessToken = tokenProvider.generateAccessToken(authentication);
-        String refreshToken = tokenProvider.generateRefreshToken(userPrincipal.getId(), userPrincipal.getUsername());
+        RefreshToken session = refreshTokenService.startFamily(userPrincipal.getId(), clientBinding);
+        String accessToken = tokenProvider.generateAccessToken(
+                userPrincipal.getId(), userPrincipal.getUsername(), session.getFamilyId());
+        String refreshToken = tokenProvider.generateRefreshToken(
+                userPrincipal.getId(), userPrincipal.getUsername(), session.getFamilyId(), session.getId());
 
         User user = userRepository.findById(userPrincipal.getId())
                 .orElseThrow(() -> new UnauthorizedException("User not found"));
@@ -64,21 +73,27 @@ public class AuthService {
     /**
      * Refresh access token using refresh token
      */
-    public LoginResponse refreshToken(RefreshTokenRequest request) {
+    public LoginResponse refreshToken(RefreshTokenRequest request, String clientBinding) {
         String refreshToken = request.getRefreshToken();
 
-        if (!tokenProvider.validateToken(refreshToken)) {
+        VerifiedToken token = tokenProvider.verify(refreshToken);
+        if (token == null || !token.isRefreshToken()) {
             throw new BadRequestException("Invalid or expired refresh token");
         }
 
-        String username = tokenProvider.getUsernameFromToken(refreshToken);
-        Long userId = tokenProvider.getUserIdFromToken(refreshToken);
+        String username = token.getUsername();
+        Long userId = token.getUserId();
 
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UnauthorizedException("User not found"));
+        if (user.getStatus() != UserStatus.ACTIVE) {
+            throw new UnauthorizedException("User account is inactive");
+        }
 
-        String newAccessToken = tokenProvider.generateAccessToken(userId, username);
-        String newRefreshToken = tokenProvider.generateRefreshToken(userId, username);
+        // Uses up the presented token; a token presented twice revokes the session
+        RefreshToken next = refreshTokenService.rotate(token, clientBinding);
+        String newAccessToken = tokenProvider.generateAccessToken(userId, username, next.getFamilyId());
+        String newRefreshToken = tokenProvider.generateRefreshToken(userId, username, next.getFamilyId(), next.getId());
 
         return LoginResponse.builder()
                 .accessToken(newAccessToken)
@@ -89,6 +104,16 @@ public class AuthService {
                 .build();
     }
 
+    /**
+     * Logout: revoke the session of the refresh token (its access tokens stop working too)
+     */
+    public void logout(String refreshToken) {
+        VerifiedToken token = refreshToken != null ? tokenProvider.verify(refreshToken) : null;
+        if (token != null && token.isRefreshToken() && token.getFamilyId() != null) {
+            refreshTokenService.revokeFamily(token.getFamilyId());
+        }
+    }
+
     /**
      * Get current authenticated user
      */
@@ -0,0 +1,97 @@
+package com.coffee.management.service;
+
+import com.coffee.management.exception.BadRequestException;
+import com.coffee.management.util.DataUrl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Moves avatars stored as base64 in users.avatar_url (before V15) into user_avatar_images.
+ * Users are read in chunks of ids and their avatars one at a time, so memory use does not
+ * grow with the number of users; each user is migrated in its own transaction and
+ * avatar_url is cleared, so an interrupted migration resumes at the next startup.
+ * Avatars whose content cannot be read are dropped; on other errors (database, memory)
+ * avatar_url is kept and the user is retried at the next startup.
+ */
+@Service
+public class AvatarMigrationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvatarMigrationService.class);
+
+    @Autowired
+    private AvatarService avatarService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${avatar.legacy-migration.enabled:true}")
+    private boolean enabled;
+
+    @Value("${avatar.legacy-migration.chunk-size:50}")
+    private int chunkSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateLegacyAvatars() {
+        if (!enabled) {
+            return;
+        }
+        long lastId = 0;
+        int migrated = 0;
+        int dropped = 0;
+        int failed = 0;
+        while (true) {
+            List<Long> ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM users WHERE avatar_url IS NOT NULL AND id > ? ORDER BY id LIMIT ?",
+                    Long.class, lastId, Math.max(1, chunkSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            for (Long userId : ids) {
+                switch (migrateOne(userId)) {
+                    case MIGRATED -> migrated++;
+                    case DROPPED -> dropped++;
+                    case FAILED -> failed++;
+                }
+            }
+            lastId = ids.get(ids.size() - 1);
+        }
+        if (migrated + dropped + failed > 0) {
+            logger.info("Migrated {} legacy avatar(s), dropped {} that could not be read, {} left for next startup",
+                    migrated, dropped, failed);
+        }
+    }
+
+    private enum Outcome { MIGRATED, DROPPED, FAILED }
+
+    /**
+     * Migrate the avatar of one user. It is only dropped when the content itself is unusable,
+     * other failures leave it for the next startup.
+     */
+    private Outcome migrateOne(Long userId) {
+        String avatarUrl = jdbcTemplate.queryForObject("SELECT avatar_url FROM users WHERE id = ?", String.class, userId);
+        if (DataUrl.isDataUrl(avatarUrl)) {
+            try {
+                avatarService.migrateLegacy(userId, avatarUrl);
+                return Outcome.MIGRATED;
+            } catch (BadRequestException e) {
+                logger.warn("Legacy avatar of user {} could not be read: {}", userId, e.getMessage());
+            } catch (RuntimeException e) {
+                logger.warn("Legacy avatar of user {} could not be migrated, retried at next startup", userId, e);
+                return Outcome.FAILED;
+            }
+        } else {
+            logger.warn("Legacy avatar of user {} is not a data URL and was dropped", userId);
+        }
+        jdbcTemplate.update("UPDATE users SET avatar_url = NULL WHERE id = ?", userId);
+        return Outcome.DROPPED;
+    }
+}
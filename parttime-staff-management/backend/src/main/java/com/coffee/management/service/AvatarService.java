@@ -0,0 +1,208 @@
+package com.coffee.management.service;
+
+import com.coffee.management.entity.AvatarVariant;
+import com.coffee.management.entity.UserAvatarImage;
+import com.coffee.management.exception.BadRequestException;
+import com.coffee.management.exception.ResourceNotFoundException;
+import com.coffee.management.repository.UserAvatarImageRepository;
+import com.coffee.management.repository.UserRepository;
+import com.coffee.management.util.DataUrl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.Iterator;
+
+/**
+ * Service storing user avatars: the uploaded image plus square SMALL and MEDIUM thumbnails
+ * generated on upload. The version (random, new on each upload) is kept on the user and is part
+ * of the avatar URL, so the images can be cached by browsers until the next upload; it also
+ * keeps the URL from being guessed, as thumbnails are served to anyone presenting it.
+ */
+@Service
+public class AvatarService {
+
+    private static final String THUMBNAIL_FORMAT = "jpeg";
+    private static final String THUMBNAIL_CONTENT_TYPE = "image/jpeg";
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    @Autowired
+    private UserAvatarImageRepository avatarImageRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${avatar.max-bytes:5242880}")
+    private int maxBytes;
+
+    @Value("${avatar.max-pixels:25000000}")
+    private long maxPixels;
+
+    /**
+     * Replace the avatar of a user with an image sent as a base64 data URL.
+     * Returns the new avatar version to store on the user.
+     */
+    @Transactional
+    public String replace(Long userId, String dataUrl) {
+        byte[] content;
+        try {
+            content = DataUrl.parse(dataUrl).getContent();
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Avatar must be a base64 data URL");
+        }
+        return replace(userId, content);
+    }
+
+    /**
+     * Replace the avatar of a user with an uploaded image (PNG, JPEG, GIF or BMP).
+     * Returns the new avatar version to store on the user.
+     */
+    @Transactional
+    public String replace(Long userId, byte[] content) {
+        if (content.length == 0 || content.length > maxBytes) {
+            throw new BadRequestException("Avatar must be between 1 byte and " + maxBytes / 1024 + " KB");
+        }
+
+        DecodedImage original = decode(content);
+        avatarImageRepository.deleteByUserId(userId);
+        avatarImageRepository.save(image(userId, AvatarVariant.ORIGINAL, original.contentType, original.image, content));
+        for (AvatarVariant variant : new AvatarVariant[] {AvatarVariant.SMALL, AvatarVariant.MEDIUM}) {
+            BufferedImage thumbnail = thumbnail(original.image, variant.getSize());
+            avatarImageRepository.save(image(userId, variant, THUMBNAIL_CONTENT_TYPE, thumbnail, encode(thumbnail)));
+        }
+        return randomVersion();
+    }
+
+    /**
+     * Move a legacy avatar (base64 in users.avatar_url) into the avatar images
+     */
+    @Transactional
+    public void migrateLegacy(Long userId, String dataUrl) {
+        String version = replace(userId, dataUrl);
+        jdbcTemplate.update("UPDATE users SET avatar_version = ?, avatar_url = NULL WHERE id = ?", version, userId);
+    }
+
+    /**
+     * Remove the avatar images of a user
+     */
+    @Transactional
+    public void delete(Long userId) {
+        avatarImageRepository.deleteByUserId(userId);
+    }
+
+    /**
+     * Current avatar version of a user
+     */
+    @Transactional(readOnly = true)
+    public String getVersion(Long userId) {
+        return userRepository.findAvatarVersionById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Avatar", "userId", userId));
+    }
+
+    /**
+     * One variant of the avatar of a user
+     */
+    @Transactional(readOnly = true)
+    public UserAvatarImage getImage(Long userId, AvatarVariant variant) {
+        return avatarImageRepository.findByUserIdAndVariant(userId, variant)
+                .orElseThrow(() -> new ResourceNotFoundException("Avatar", "userId", userId));
+    }
+
+    private UserAvatarImage image(Long userId, AvatarVariant variant, String contentType,
+                                  BufferedImage image, byte[] content) {
+        return UserAvatarImage.builder()
+                .userId(userId)
+                .variant(variant)
+                .contentType(contentType)
+                .width(image.getWidth())
+                .height(image.getHeight())
+                .content(content)
+                .build();
+    }
+
+    private record DecodedImage(String contentType, BufferedImage image) {
+    }
+
+    /**
+     * Decode an image, checking its dimensions before the pixels are read
+     */
+    private DecodedImage decode(byte[] content) {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(content))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new BadRequestException("Avatar must be a PNG, JPEG, GIF or BMP image");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > maxPixels) {
+                    throw new BadRequestException("Avatar image is too large");
+                }
+                String[] mimeTypes = reader.getOriginatingProvider().getMIMETypes();
+                String contentType = mimeTypes != null && mimeTypes.length > 0 ? mimeTypes[0] : "image/" + reader.getFormatName();
+                return new DecodedImage(contentType, reader.read(0));
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            throw new BadRequestException("Avatar image could not be read");
+        }
+    }
+
+    /**
+     * Center square of the image scaled down to size x size (never scaled up),
+     * on a white background since JPEG has no transparency
+     */
+    private static BufferedImage thumbnail(BufferedImage source, int size) {
+        int side = Math.min(source.getWidth(), source.getHeight());
+        int target = Math.min(size, side);
+        int x = (source.getWidth() - side) / 2;
+        int y = (source.getHeight() - side) / 2;
+
+        BufferedImage thumbnail = new BufferedImage(target, target, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = thumbnail.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, target, target);
+            graphics.drawImage(source, 0, 0, target, target, x, y, x + side, y + side, null);
+        } finally {
+            graphics.dispose();
+        }
+        return thumbnail;
+    }
+
+    private static byte[] encode(BufferedImage image) {
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            ImageIO.write(image, THUMBNAIL_FORMAT, output);
+            return output.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Thumbnail could not be encoded", e);
+        }
+    }
+
+    private static String randomVersion() {
+        byte[] bytes = new byte[8];
+        RANDOM.nextBytes(bytes);
+        return HexFormat.of().formatHex(bytes);
+    }
+}
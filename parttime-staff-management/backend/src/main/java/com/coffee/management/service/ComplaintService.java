@@ -32,7 +32,7 @@ public class ComplaintService {
     private StoreRepository storeRepository;
 
     @Autowired
-    private NotificationService notificationService;
+    private NotificationOutboxService notificationOutbox;
 
     @Autowired
     private AuditService auditService;
@@ -66,7 +66,7 @@ public class ComplaintService {
 
         // Notify store manager
         if (store.getManager() != null) {
-            notificationService.sendNotification(store.getManager().getId(),
+            notificationOutbox.enqueue(store.getManager().getId(),
                     "Khiếu nại mới",
                     fromUser.getFullName() + " gửi khiếu nại: " + request.getSubject(),
                     "/complaints");
@@ -180,7 +180,7 @@ public class ComplaintService {
 
         // Notify the complaint owner
         String statusText = getStatusText(request.getStatus());
-        notificationService.sendNotification(complaint.getFromUser().getId(),
+        notificationOutbox.enqueue(complaint.getFromUser().getId(),
                 "Phản hồi khiếu nại",
                 "Khiếu nại \"" + complaint.getSubject() + "\" đã được " + statusText,
                 "/complaints");
@@ -0,0 +1,579 @@
+package com.coffee.management.service;
+
+import com.coffee.management.dto.report.EmployeeRankingResponse;
+import com.coffee.management.dto.report.RankingPageResponse;
+import com.coffee.management.entity.Shift;
+import com.coffee.management.entity.Task;
+import com.coffee.management.entity.TaskStatus;
+import com.coffee.management.entity.TimeLog;
+import com.coffee.management.entity.User;
+import com.coffee.management.repository.AttendanceRepository;
+import com.coffee.management.repository.TaskRepository;
+import com.coffee.management.repository.UserRepository;
+import com.coffee.management.util.DateRange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * In-memory engine behind employee rankings.
+ * Keeps one board per month with the counters of every active staff member. A board is loaded
+ * from the database once, then kept up to date by events from time logs, shift assignments and
+ * tasks, so rankings are served from memory. Sorted rankings are cached per store until the
+ * next change on the board (or until an unattended shift ends and becomes missed).
+ * Loaded boards are rebuilt from the database every 15 minutes to repair any drift.
+ */
+@Service
+public class EmployeeRankingEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmployeeRankingEngine.class);
+    private static final int MAX_BOARDS = 12;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AttendanceRepository attendanceRepository;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final Map<YearMonth, MonthBoard> boards = new ConcurrentHashMap<>();
+
+    // Events received while a board is being rebuilt, replayed on the new board before it is swapped in
+    private final Map<YearMonth, List<Consumer<MonthBoard>>> rebuildLogs = new ConcurrentHashMap<>();
+
+    /**
+     * Ranked staff of a month, optionally of one store
+     */
+    public List<EmployeeRankingResponse> getRankings(YearMonth month, Long storeId) {
+        return board(month).ranking(storeId, LocalDateTime.now());
+    }
+
+    /**
+     * Best ranked staff of a month, starting after the given entry (null for the top) and skipping offset
+     */
+    public RankingPageResponse getTopRankings(YearMonth month, Long storeId, EmployeeRankingResponse after, int offset, int limit) {
+        return board(month).top(storeId, after, offset, limit, LocalDateTime.now());
+    }
+
+    /**
+     * Worst ranked staff of a month, worst first, skipping offset
+     */
+    public RankingPageResponse getBottomRankings(YearMonth month, Long storeId, int offset, int limit) {
+        return board(month).bottom(storeId, offset, limit, LocalDateTime.now());
+    }
+
+    private MonthBoard board(YearMonth month) {
+        MonthBoard board = boards.get(month);
+        if (board == null) {
+            synchronized (boards) {
+                board = boards.get(month);
+                if (board == null) {
+                    board = rebuildBoard(month, true);
+                    evictOldBoards();
+                }
+            }
+        }
+        return board;
+    }
+
+    // ==================== EVENTS ====================
+
+    /**
+     * A staff member was assigned to a shift (counted in the month the shift starts)
+     */
+    public void recordAssignment(Long userId, Shift shift) {
+        Long shiftId = shift.getId();
+        LocalDateTime start = shift.getStartDatetime();
+        LocalDateTime end = shift.getEndDatetime();
+        apply(YearMonth.from(start), board -> board.update(userId, staff -> staff.shifts.put(shiftId, new ShiftSlot(start, end))));
+    }
+
+    /**
+     * A staff member was removed from a shift
+     */
+    public void removeAssignment(Long userId, Shift shift) {
+        Long shiftId = shift.getId();
+        apply(YearMonth.from(shift.getStartDatetime()), board -> board.update(userId, staff -> staff.shifts.remove(shiftId)));
+    }
+
+    /**
+     * A time log was created or checked out (counted in the month of its check-in)
+     */
+    public void recordTimeLog(TimeLog timeLog) {
+        if (timeLog.getShift() == null || timeLog.getCheckIn() == null) {
+            return;
+        }
+        Long userId = timeLog.getUser().getId();
+        Long shiftId = timeLog.getShift().getId();
+        AttendanceSlot slot = new AttendanceSlot(timeLog.getCheckIn(), timeLog.getCheckOut());
+        apply(YearMonth.from(slot.checkIn), board -> board.update(userId,
+                staff -> staff.attendance.merge(shiftId, slot, AttendanceSlot::merge)));
+    }
+
+    /**
+     * A task was created or changed (counted in the month it was created)
+     */
+    public void recordTask(Task task, Long previousAssigneeId) {
+        Long taskId = task.getId();
+        Long assigneeId = task.getAssignedTo() != null ? task.getAssignedTo().getId() : null;
+        boolean completed = task.getStatus() == TaskStatus.COMPLETED;
+        LocalDateTime createdAt = task.getCreatedAt() != null ? task.getCreatedAt() : LocalDateTime.now();
+        apply(YearMonth.from(createdAt), board -> {
+            if (previousAssigneeId != null && !previousAssigneeId.equals(assigneeId)) {
+                board.update(previousAssigneeId, staff -> staff.tasks.remove(taskId));
+            }
+            if (assigneeId != null) {
+                board.update(assigneeId, staff -> staff.tasks.put(taskId, completed));
+            }
+        });
+    }
+
+    /**
+     * A task was deleted
+     */
+    public void removeTask(Task task) {
+        if (task.getAssignedTo() == null) {
+            return;
+        }
+        Long taskId = task.getId();
+        Long assigneeId = task.getAssignedTo().getId();
+        LocalDateTime createdAt = task.getCreatedAt() != null ? task.getCreatedAt() : LocalDateTime.now();
+        apply(YearMonth.from(createdAt), board -> board.update(assigneeId, staff -> staff.tasks.remove(taskId)));
+    }
+
+    /**
+     * Drop the board of the month containing the given time, it is reloaded on next use.
+     * Used for changes that are not worth applying incrementally (shift edits and deletions).
+     */
+    public void invalidateMonth(LocalDateTime time) {
+        YearMonth month = YearMonth.from(time);
+        TransactionCallbacks.afterCommit(() -> {
+            rebuildLogs.remove(month);
+            boards.remove(month);
+        });
+    }
+
+    /**
+     * Drop every board, e.g. after staff were added, deactivated or moved to another store
+     */
+    public void invalidateAll() {
+        TransactionCallbacks.afterCommit(() -> {
+            rebuildLogs.clear();
+            boards.clear();
+        });
+    }
+
+    // ==================== LOADING ====================
+
+    /**
+     * Rebuild loaded boards from the database every 15 minutes, repairing changes made
+     * outside the event methods
+     */
+    @Scheduled(fixedDelay = 900000, initialDelay = 900000)
+    public void rebuildLoadedBoards() {
+        for (YearMonth month : new ArrayList<>(boards.keySet())) {
+            try {
+                rebuildBoard(month, false);
+            } catch (Exception e) {
+                logger.error("Error rebuilding ranking board for {}: {}", month, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Load a board and replay the events committed while it was loading.
+     * The board is not kept if the month was invalidated meanwhile (or, for a rebuild, evicted).
+     */
+    private MonthBoard rebuildBoard(YearMonth month, boolean initialLoad) {
+        List<Consumer<MonthBoard>> log = new ArrayList<>();
+        rebuildLogs.put(month, log);
+        MonthBoard fresh;
+        try {
+            fresh = loadBoard(month);
+        } catch (RuntimeException e) {
+            rebuildLogs.remove(month, log);
+            throw e;
+        }
+        synchronized (log) {
+            log.forEach(fresh::apply);
+            if (rebuildLogs.remove(month, log) && (initialLoad || boards.containsKey(month))) {
+                boards.put(month, fresh);
+            }
+        }
+        return fresh;
+    }
+
+    private MonthBoard loadBoard(YearMonth month) {
+        DateRange range = DateRange.ofMonth(month);
+
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        MonthBoard board = template.execute(status -> {
+            MonthBoard loaded = new MonthBoard();
+            for (User user : userRepository.findAllActiveStaffWithStore()) {
+                loaded.staff.put(user.getId(), new StaffCounters(user));
+            }
+            for (Object[] row : attendanceRepository.findAssignmentAttendance(range)) {
+                StaffCounters staff = loaded.staff.get(((Number) row[0]).longValue());
+                if (staff == null) {
+                    continue;
+                }
+                Long shiftId = ((Number) row[1]).longValue();
+                staff.shifts.put(shiftId, new ShiftSlot(toLocalDateTime(row[2]), toLocalDateTime(row[3])));
+                if (row[4] != null) {
+                    staff.attendance.put(shiftId, new AttendanceSlot(toLocalDateTime(row[4]), toLocalDateTime(row[5])));
+                }
+            }
+            for (Object[] row : taskRepository.findRankingRows(range)) {
+                StaffCounters staff = loaded.staff.get((Long) row[0]);
+                if (staff != null) {
+                    staff.tasks.put((Long) row[1], row[2] == TaskStatus.COMPLETED);
+                }
+            }
+            return loaded;
+        });
+
+        LocalDateTime now = LocalDateTime.now();
+        board.staff.values().forEach(staff -> staff.recount(now));
+        board.validUntil = board.staff.values().stream()
+                .map(staff -> staff.nextMissedAt)
+                .filter(t -> t != null)
+                .min(Comparator.naturalOrder())
+                .orElse(null);
+        logger.debug("Loaded ranking board for {} with {} staff", month, board.staff.size());
+        return board;
+    }
+
+    // Native queries may return java.sql.Timestamp depending on the driver
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
+
+    private void evictOldBoards() {
+        while (boards.size() > MAX_BOARDS) {
+            boards.entrySet().stream()
+                    .min(Comparator.comparingLong(e -> e.getValue().lastAccess))
+                    .ifPresent(e -> boards.remove(e.getKey(), e.getValue()));
+        }
+    }
+
+    private void apply(YearMonth month, Consumer<MonthBoard> event) {
+        TransactionCallbacks.afterCommit(() -> {
+            List<Consumer<MonthBoard>> log = rebuildLogs.get(month);
+            if (log != null) {
+                synchronized (log) {
+                    log.add(event);
+                    applyToBoard(month, event);
+                }
+            } else {
+                applyToBoard(month, event);
+            }
+        });
+    }
+
+    private void applyToBoard(YearMonth month, Consumer<MonthBoard> event) {
+        MonthBoard board = boards.get(month);
+        if (board != null) {
+            board.apply(event);
+        }
+    }
+
+    // ==================== BOARD ====================
+
+    /**
+     * Counters of every staff member for one month, with sorted rankings cached per store
+     */
+    private static class MonthBoard {
+        private final Map<Long, StaffCounters> staff = new HashMap<>();
+        private final Map<Long, List<EmployeeRankingResponse>> rankingsByStore = new HashMap<>();
+        private LocalDateTime validUntil; // earliest time an unattended shift becomes missed
+        private volatile long lastAccess = System.nanoTime();
+
+        synchronized void apply(Consumer<MonthBoard> event) {
+            event.accept(this);
+        }
+
+        // Change one staff member; events for users that are not active staff are ignored
+        void update(Long userId, Consumer<StaffCounters> change) {
+            StaffCounters counters = staff.get(userId);
+            if (counters != null) {
+                change.accept(counters);
+                counters.recount(LocalDateTime.now());
+                rankingsByStore.clear();
+                if (counters.nextMissedAt != null && (validUntil == null || counters.nextMissedAt.isBefore(validUntil))) {
+                    validUntil = counters.nextMissedAt;
+                }
+            }
+        }
+
+        synchronized List<EmployeeRankingResponse> ranking(Long storeId, LocalDateTime now) {
+            refresh(now);
+            List<EmployeeRankingResponse> ranking = rankingsByStore.get(storeId);
+            if (ranking == null) {
+                ranking = new ArrayList<>();
+                for (StaffCounters counters : staff.values()) {
+                    if (storeId == null || storeId.equals(counters.storeId)) {
+                        ranking.add(counters.toResponse());
+                    }
+                }
+                ranking.sort(EmployeeRankingService.RANKING_ORDER);
+                for (int i = 0; i < ranking.size(); i++) {
+                    EmployeeRankingService.assignRank(ranking.get(i), i + 1);
+                }
+                ranking = Collections.unmodifiableList(ranking);
+                rankingsByStore.put(storeId, ranking);
+            }
+            return ranking;
+        }
+
+        /**
+         * Best ranked staff after the given entry (or from the top), skipping offset.
+         * Served from the cached ranking when there is one, otherwise selected with a bounded heap
+         * so only offset + limit entries are kept and sorted.
+         */
+        synchronized RankingPageResponse top(Long storeId, EmployeeRankingResponse after, int offset, int limit, LocalDateTime now) {
+            refresh(now);
+            Comparator<EmployeeRankingResponse> order = EmployeeRankingService.RANKING_ORDER;
+            List<EmployeeRankingResponse> cached = rankingsByStore.get(storeId);
+            if (cached != null) {
+                int from = after != null ? firstAfter(cached, after) : 0;
+                return page(cached.subList(Math.min(cached.size(), from + offset),
+                        (int) Math.min(cached.size(), (long) from + offset + limit)), cached.size());
+            }
+
+            // Max-heap on the ranking order: the head is the worst of the kept entries
+            int keep = (int) Math.min(Integer.MAX_VALUE - 1, (long) offset + limit);
+            PriorityQueue<EmployeeRankingResponse> heap = new PriorityQueue<>(Math.min(keep, 1024) + 1, order.reversed());
+            int total = 0;
+            int before = 0;
+            for (StaffCounters counters : staff.values()) {
+                if (storeId != null && !storeId.equals(counters.storeId)) {
+                    continue;
+                }
+                total++;
+                EmployeeRankingResponse candidate = counters.toResponse();
+                if (after != null && order.compare(candidate, after) <= 0) {
+                    before++;
+                    continue;
+                }
+                if (heap.size() < keep) {
+                    heap.add(candidate);
+                } else if (order.compare(candidate, heap.peek()) < 0) {
+                    heap.poll();
+                    heap.add(candidate);
+                }
+            }
+
+            List<EmployeeRankingResponse> selected = new ArrayList<>(heap);
+            selected.sort(order);
+            List<EmployeeRankingResponse> result = new ArrayList<>();
+            for (int i = offset; i < selected.size(); i++) {
+                result.add(EmployeeRankingService.assignRank(selected.get(i), before + i + 1));
+            }
+            return page(result, total);
+        }
+
+        /**
+         * Worst ranked staff, worst first, skipping offset
+         */
+        synchronized RankingPageResponse bottom(Long storeId, int offset, int limit, LocalDateTime now) {
+            refresh(now);
+            Comparator<EmployeeRankingResponse> order = EmployeeRankingService.RANKING_ORDER;
+            List<EmployeeRankingResponse> cached = rankingsByStore.get(storeId);
+            if (cached != null) {
+                List<EmployeeRankingResponse> result = new ArrayList<>();
+                for (int i = cached.size() - 1 - offset; i >= 0 && result.size() < limit; i--) {
+                    result.add(cached.get(i));
+                }
+                return page(result, cached.size());
+            }
+
+            // Min-heap on the ranking order: the head is the best of the kept entries
+            int keep = (int) Math.min(Integer.MAX_VALUE - 1, (long) offset + limit);
+            PriorityQueue<EmployeeRankingResponse> heap = new PriorityQueue<>(Math.min(keep, 1024) + 1, order);
+            int total = 0;
+            for (StaffCounters counters : staff.values()) {
+                if (storeId != null && !storeId.equals(counters.storeId)) {
+                    continue;
+                }
+                total++;
+                EmployeeRankingResponse candidate = counters.toResponse();
+                if (heap.size() < keep) {
+                    heap.add(candidate);
+                } else if (order.compare(candidate, heap.peek()) > 0) {
+                    heap.poll();
+                    heap.add(candidate);
+                }
+            }
+
+            List<EmployeeRankingResponse> selected = new ArrayList<>(heap);
+            selected.sort(order.reversed());
+            List<EmployeeRankingResponse> result = new ArrayList<>();
+            for (int i = offset; i < selected.size(); i++) {
+                result.add(EmployeeRankingService.assignRank(selected.get(i), total - i));
+            }
+            return page(result, total);
+        }
+
+        // Shifts that ended without attendance became missed - recount the staff concerned
+        private void refresh(LocalDateTime now) {
+            lastAccess = System.nanoTime();
+            if (validUntil == null || now.isBefore(validUntil)) {
+                return;
+            }
+            validUntil = null;
+            for (StaffCounters counters : staff.values()) {
+                if (counters.nextMissedAt != null && !now.isBefore(counters.nextMissedAt)) {
+                    counters.recount(now);
+                }
+                if (counters.nextMissedAt != null && (validUntil == null || counters.nextMissedAt.isBefore(validUntil))) {
+                    validUntil = counters.nextMissedAt;
+                }
+            }
+            rankingsByStore.clear();
+        }
+
+        // Index of the first entry ranked after the given one
+        private static int firstAfter(List<EmployeeRankingResponse> ranking, EmployeeRankingResponse after) {
+            int low = 0;
+            int high = ranking.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (EmployeeRankingService.RANKING_ORDER.compare(ranking.get(mid), after) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private static RankingPageResponse page(List<EmployeeRankingResponse> rankings, int total) {
+            return RankingPageResponse.builder()
+                    .rankings(new ArrayList<>(rankings))
+                    .totalElements(total)
+                    .build();
+        }
+    }
+
+    /**
+     * Monthly state and counters of one staff member
+     */
+    private static class StaffCounters {
+        private final Long userId;
+        private final String fullName;
+        private final Long storeId;
+        private final String storeName;
+
+        // Assigned shifts, attendance per shift and assigned tasks (task id -> completed)
+        private final Map<Long, ShiftSlot> shifts = new HashMap<>();
+        private final Map<Long, AttendanceSlot> attendance = new HashMap<>();
+        private final Map<Long, Boolean> tasks = new HashMap<>();
+
+        private int attendedShifts;
+        private int missedShifts;
+        private int lateCheckIns;
+        private int earlyCheckOuts;
+        private long workedMinutes;
+        private int completedTasks;
+        private LocalDateTime nextMissedAt; // end of the next unattended shift that has not ended yet
+
+        StaffCounters(User user) {
+            this.userId = user.getId();
+            this.fullName = user.getFullName();
+            this.storeId = user.getStore() != null ? user.getStore().getId() : null;
+            this.storeName = user.getStore() != null ? user.getStore().getName() : "N/A";
+        }
+
+        void recount(LocalDateTime now) {
+            attendedShifts = 0;
+            missedShifts = 0;
+            lateCheckIns = 0;
+            earlyCheckOuts = 0;
+            workedMinutes = 0;
+            nextMissedAt = null;
+
+            for (Map.Entry<Long, ShiftSlot> entry : shifts.entrySet()) {
+                ShiftSlot shift = entry.getValue();
+                AttendanceSlot log = attendance.get(entry.getKey());
+                if (log != null) {
+                    attendedShifts++;
+                    if (log.checkOut != null) {
+                        workedMinutes += ChronoUnit.MINUTES.between(log.checkIn, log.checkOut);
+                    }
+                    if (log.checkIn.isAfter(shift.start.plusMinutes(ReportService.LATE_THRESHOLD_MINUTES))) {
+                        lateCheckIns++;
+                    }
+                    if (log.checkOut != null && log.checkOut.isBefore(shift.end.minusMinutes(ReportService.EARLY_THRESHOLD_MINUTES))) {
+                        earlyCheckOuts++;
+                    }
+                } else if (shift.end.isBefore(now)) {
+                    missedShifts++;
+                } else if (nextMissedAt == null || shift.end.isBefore(nextMissedAt)) {
+                    nextMissedAt = shift.end;
+                }
+            }
+
+            completedTasks = (int) tasks.values().stream().filter(Boolean::booleanValue).count();
+        }
+
+        EmployeeRankingResponse toResponse() {
+            return EmployeeRankingService.buildRanking(userId, fullName, storeId, storeName,
+                    shifts.size(), attendedShifts, missedShifts, lateCheckIns, earlyCheckOuts,
+                    workedMinutes, completedTasks, tasks.size());
+        }
+    }
+
+    private static class ShiftSlot {
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+
+        ShiftSlot(LocalDateTime start, LocalDateTime end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    // First check-in and last check-out of a staff member on a shift
+    private static class AttendanceSlot {
+        private final LocalDateTime checkIn;
+        private final LocalDateTime checkOut;
+
+        AttendanceSlot(LocalDateTime checkIn, LocalDateTime checkOut) {
+            this.checkIn = checkIn;
+            this.checkOut = checkOut;
+        }
+
+        static AttendanceSlot merge(AttendanceSlot a, AttendanceSlot b) {
+            LocalDateTime checkOut = a.checkOut == null ? b.checkOut
+                    : b.checkOut == null || a.checkOut.isAfter(b.checkOut) ? a.checkOut : b.checkOut;
+            return new AttendanceSlot(a.checkIn.isBefore(b.checkIn) ? a.checkIn : b.checkIn, checkOut);
+        }
+    }
+}
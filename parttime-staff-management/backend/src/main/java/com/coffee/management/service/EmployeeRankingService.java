@@ -1,218 +1,140 @@
 package com.coffee.management.service;
 
 import com.coffee.management.dto.report.EmployeeRankingResponse;
-import com.coffee.management.entity.*;
-import com.coffee.management.repository.*;
+import com.coffee.management.dto.report.RankingPageResponse;
+import com.coffee.management.exception.BadRequestException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
-import java.util.*;
-import java.util.stream.Collectors;
+import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
 
 /**
- * Service for calculating employee rankings and performance metrics
+ * Service for calculating employee rankings and performance metrics.
+ * Rankings are served from the in-memory {@link EmployeeRankingEngine}.
  */
 @Service
-@Transactional(readOnly = true)
 public class EmployeeRankingService {
 
-    @Autowired
-    private UserRepository userRepository;
+    /**
+     * Ranking order, with tie-breakers:
+     * 1. Performance score (highest first)
+     * 2. Attendance rate (highest first)
+     * 3. If attendance rate is equal and both are below 100%: prefer employee with fewer total shifts assigned
+     * 4. Punctuality rate (highest first)
+     * 5. Total hours worked (highest first)
+     * 6. Full name (alphabetical)
+     * 7. User id, so equal entries always keep the same order and rank
+     */
+    static final Comparator<EmployeeRankingResponse> RANKING_ORDER = (a, b) -> {
+        // First: Compare by performance score
+        int scoreCompare = Double.compare(b.getPerformanceScore(), a.getPerformanceScore());
+        if (scoreCompare != 0) return scoreCompare;
+
+        // Second: Compare by attendance rate
+        int attendanceCompare = Double.compare(b.getAttendanceRate(), a.getAttendanceRate());
+        if (attendanceCompare != 0) return attendanceCompare;
+
+        // Third: If both have same attendance rate (especially 0%),
+        // prefer employee with fewer total shifts assigned (less opportunity = better ranking)
+        // This handles cases like 0/1 vs 0/5 - the one with 1 shift should rank higher
+        // When attendance rates are equal and low (especially 0%), fewer assigned shifts = better
+        if (a.getAttendanceRate() < 1.0 && b.getAttendanceRate() < 1.0) {
+            int shiftsCompare = Integer.compare(a.getTotalShifts(), b.getTotalShifts());
+            if (shiftsCompare != 0) return shiftsCompare;
+        }
 
-    @Autowired
-    private ShiftAssignmentRepository assignmentRepository;
+        // Fourth: Compare by punctuality rate
+        int punctualityCompare = Double.compare(b.getPunctualityRate(), a.getPunctualityRate());
+        if (punctualityCompare != 0) return punctualityCompare;
 
-    @Autowired
-    private TimeLogRepository timeLogRepository;
+        // Fifth: Compare by total hours worked
+        int hoursCompare = Double.compare(b.getTotalHoursWorked(), a.getTotalHoursWorked());
+        if (hoursCompare != 0) return hoursCompare;
+
+        // Sixth: Compare by full name (alphabetical)
+        int nameCompare = a.getFullName().compareToIgnoreCase(b.getFullName());
+        if (nameCompare != 0) return nameCompare;
+
+        return Long.compare(a.getUserId(), b.getUserId());
+    };
+
+    private static final int MAX_LIMIT = 200;
 
     @Autowired
-    private TaskRepository taskRepository;
+    private EmployeeRankingEngine rankingEngine;
 
     /**
      * Get employee rankings for a specific month
      */
     public List<EmployeeRankingResponse> getEmployeeRankings(Integer year, Integer month, Long storeId) {
-        // Determine date range
-        LocalDateTime startDate;
-        LocalDateTime endDate;
-        
-        if (year != null && month != null) {
-            startDate = LocalDateTime.of(year, month, 1, 0, 0);
-            endDate = startDate.plusMonths(1).minusSeconds(1);
-        } else {
-            // Default: current month
-            LocalDateTime now = LocalDateTime.now();
-            startDate = LocalDateTime.of(now.getYear(), now.getMonth(), 1, 0, 0);
-            endDate = startDate.plusMonths(1).minusSeconds(1);
-        }
-
-        // Get staff list
-        List<User> staffList;
-        if (storeId != null) {
-            staffList = userRepository.findActiveStaffByStoreId(storeId);
-        } else {
-            staffList = userRepository.findAllActiveStaff();
-        }
-
-        // Calculate metrics for each staff
-        List<EmployeeRankingResponse> rankings = new ArrayList<>();
-        
-        for (User staff : staffList) {
-            EmployeeRankingResponse ranking = calculateStaffMetrics(staff, startDate, endDate);
-            rankings.add(ranking);
-        }
-
-        // Sort by performance score (descending), with tie-breakers:
-        // 1. Performance score (highest first)
-        // 2. Attendance rate (highest first)
-        // 3. If attendance rate is equal and both are 0%: prefer employee with fewer total shifts assigned
-        // 4. Punctuality rate (highest first)
-        // 5. Total hours worked (highest first)
-        // 6. Full name (alphabetical)
-        rankings.sort((a, b) -> {
-            // First: Compare by performance score
-            int scoreCompare = Double.compare(b.getPerformanceScore(), a.getPerformanceScore());
-            if (scoreCompare != 0) return scoreCompare;
-            
-            // Second: Compare by attendance rate
-            int attendanceCompare = Double.compare(b.getAttendanceRate(), a.getAttendanceRate());
-            if (attendanceCompare != 0) return attendanceCompare;
-            
-            // Third: If both have same attendance rate (especially 0%),
-            // prefer employee with fewer total shifts assigned (less opportunity = better ranking)
-            // This handles cases like 0/1 vs 0/5 - the one with 1 shift should rank higher
-            // When attendance rates are equal and low (especially 0%), fewer assigned shifts = better
-            if (a.getAttendanceRate() < 1.0 && b.getAttendanceRate() < 1.0) {
-                int shiftsCompare = Integer.compare(a.getTotalShifts(), b.getTotalShifts());
-                if (shiftsCompare != 0) return shiftsCompare;
-            }
-            
-            // Fourth: Compare by punctuality rate
-            int punctualityCompare = Double.compare(b.getPunctualityRate(), a.getPunctualityRate());
-            if (punctualityCompare != 0) return punctualityCompare;
-            
-            // Fifth: Compare by total hours worked
-            int hoursCompare = Double.compare(b.getTotalHoursWorked(), a.getTotalHoursWorked());
-            if (hoursCompare != 0) return hoursCompare;
-            
-            // Sixth: Compare by full name (alphabetical)
-            return a.getFullName().compareToIgnoreCase(b.getFullName());
-        });
-
-        // Assign ranks and labels
-        for (int i = 0; i < rankings.size(); i++) {
-            EmployeeRankingResponse r = rankings.get(i);
-            r.setRank(i + 1);
-            r.setRankLabel(getRankLabel(i + 1, rankings.size(), r.getPerformanceScore()));
-        }
-
-        return rankings;
+        // Default: current month
+        YearMonth period = year != null && month != null ? YearMonth.of(year, month) : YearMonth.now();
+        return new ArrayList<>(rankingEngine.getRankings(period, storeId));
     }
 
     /**
-     * Get top performers (most hardworking)
+     * Get top performers (most hardworking) of the current month
      */
-    public List<EmployeeRankingResponse> getTopPerformers(int limit, Long storeId) {
-        List<EmployeeRankingResponse> rankings = getEmployeeRankings(null, null, storeId);
-        return rankings.stream()
-                .limit(limit)
-                .collect(Collectors.toList());
+    public List<EmployeeRankingResponse> getTopPerformers(int limit, int offset, Long storeId) {
+        validateLimitAndOffset(limit, offset);
+        return rankingEngine.getTopRankings(YearMonth.now(), storeId, null, offset, limit).getRankings();
     }
 
     /**
-     * Get lowest performers (need improvement)
+     * Get lowest performers (need improvement) of the current month, lowest first
      */
-    public List<EmployeeRankingResponse> getLowestPerformers(int limit, Long storeId) {
-        List<EmployeeRankingResponse> rankings = getEmployeeRankings(null, null, storeId);
-        Collections.reverse(rankings);
-        
-        // Re-assign ranks from bottom
-        List<EmployeeRankingResponse> result = rankings.stream()
-                .limit(limit)
-                .collect(Collectors.toList());
-        
-        return result;
+    public List<EmployeeRankingResponse> getLowestPerformers(int limit, int offset, Long storeId) {
+        validateLimitAndOffset(limit, offset);
+        return rankingEngine.getBottomRankings(YearMonth.now(), storeId, offset, limit).getRankings();
     }
 
-    private EmployeeRankingResponse calculateStaffMetrics(User staff, LocalDateTime startDate, LocalDateTime endDate) {
-        EmployeeRankingResponse.EmployeeRankingResponseBuilder builder = EmployeeRankingResponse.builder()
-                .userId(staff.getId())
-                .fullName(staff.getFullName())
-                .storeId(staff.getStore() != null ? staff.getStore().getId() : null)
-                .storeName(staff.getStore() != null ? staff.getStore().getName() : "N/A");
-
-        // Get shift assignments
-        List<ShiftAssignment> assignments = assignmentRepository.findByUserIdAndDateRange(
-                staff.getId(), startDate, endDate);
-        
-        int totalShifts = assignments.size();
-        int attendedShifts = 0;
-        int missedShifts = 0;
-        double totalHoursWorked = 0;
-
-        // Get time logs
-        List<TimeLog> timeLogs = timeLogRepository.findByUserIdAndDateRange(
-                staff.getId(), startDate, endDate);
-        
-        Map<Long, TimeLog> timeLogByShift = timeLogs.stream()
-                .filter(tl -> tl.getShift() != null)
-                .collect(Collectors.toMap(
-                        tl -> tl.getShift().getId(),
-                        tl -> tl,
-                        (existing, replacement) -> existing
-                ));
-
-        int lateCheckIns = 0;
-        int earlyCheckOuts = 0;
-
-        for (ShiftAssignment assignment : assignments) {
-            Shift shift = assignment.getShift();
-            TimeLog timeLog = timeLogByShift.get(shift.getId());
-
-            if (timeLog != null && timeLog.getCheckIn() != null) {
-                attendedShifts++;
-                
-                // Calculate hours worked
-                if (timeLog.getCheckOut() != null) {
-                    long minutes = ChronoUnit.MINUTES.between(timeLog.getCheckIn(), timeLog.getCheckOut());
-                    totalHoursWorked += minutes / 60.0;
-                }
-
-                // Check punctuality
-                if (timeLog.getCheckIn().isAfter(shift.getStartDatetime().plusMinutes(15))) {
-                    lateCheckIns++;
-                }
-                if (timeLog.getCheckOut() != null && 
-                    timeLog.getCheckOut().isBefore(shift.getEndDatetime().minusMinutes(15))) {
-                    earlyCheckOuts++;
-                }
-            } else if (shift.getEndDatetime().isBefore(LocalDateTime.now())) {
-                // Shift has passed without attendance
-                missedShifts++;
-            }
+    /**
+     * Get one page of the rankings of a month.
+     * The cursor holds the ranking key of the last entry of the previous page, so pages do not
+     * skip or repeat entries when rankings shift between requests.
+     */
+    public RankingPageResponse getRankingPage(Integer year, Integer month, Long storeId, String cursor, int limit) {
+        validateLimitAndOffset(limit, 0);
+        YearMonth period = year != null && month != null ? YearMonth.of(year, month) : YearMonth.now();
+
+        RankingPageResponse page = rankingEngine.getTopRankings(period, storeId, decodeCursor(cursor), 0, limit);
+        List<EmployeeRankingResponse> rankings = page.getRankings();
+        if (!rankings.isEmpty() && rankings.size() == limit &&
+                rankings.get(rankings.size() - 1).getRank() < page.getTotalElements()) {
+            page.setNextCursor(encodeCursor(rankings.get(rankings.size() - 1)));
         }
+        return page;
+    }
 
-        // Task statistics
-        List<Task> tasks = taskRepository.findByAssignedToIdAndDateRange(staff.getId(), startDate, endDate);
-        int totalTasks = tasks.size();
-        int completedTasks = (int) tasks.stream()
-                .filter(t -> t.getStatus() == TaskStatus.COMPLETED)
-                .count();
+    /**
+     * Build the ranking entry of one staff member from their monthly counters
+     */
+    static EmployeeRankingResponse buildRanking(Long userId, String fullName, Long storeId, String storeName,
+                                                int totalShifts, int attendedShifts, int missedShifts,
+                                                int lateCheckIns, int earlyCheckOuts, long workedMinutes,
+                                                int completedTasks, int totalTasks) {
+        double totalHoursWorked = workedMinutes / 60.0;
 
         // Calculate rates
         double attendanceRate = totalShifts > 0 ? (attendedShifts * 100.0 / totalShifts) : 100;
         double taskCompletionRate = totalTasks > 0 ? (completedTasks * 100.0 / totalTasks) : 100;
-        double punctualityRate = attendedShifts > 0 ? 
+        double punctualityRate = attendedShifts > 0 ?
                 ((attendedShifts - lateCheckIns - earlyCheckOuts) * 100.0 / attendedShifts) : 100;
 
         // Calculate overall performance score (weighted average)
         // Attendance: 40%, Punctuality: 30%, Task completion: 30%
         double performanceScore = (attendanceRate * 0.4) + (punctualityRate * 0.3) + (taskCompletionRate * 0.3);
 
-        return builder
+        return EmployeeRankingResponse.builder()
+                .userId(userId)
+                .fullName(fullName)
+                .storeId(storeId)
+                .storeName(storeName)
                 .totalShifts(totalShifts)
                 .totalHoursWorked(Math.round(totalHoursWorked * 10) / 10.0)
                 .attendedShifts(attendedShifts)
@@ -228,7 +150,13 @@ public class EmployeeRankingService {
                 .build();
     }
 
-    private String getRankLabel(int rank, int total, double score) {
+    static EmployeeRankingResponse assignRank(EmployeeRankingResponse ranking, int rank) {
+        ranking.setRank(rank);
+        ranking.setRankLabel(getRankLabel(ranking.getPerformanceScore()));
+        return ranking;
+    }
+
+    static String getRankLabel(double score) {
         if (score >= 90) {
             return "Xuất sắc";
         } else if (score >= 80) {
@@ -241,6 +169,40 @@ public class EmployeeRankingService {
             return "Cần cải thiện";
         }
     }
+
+    private static void validateLimitAndOffset(int limit, int offset) {
+        if (limit < 1 || limit > MAX_LIMIT || offset < 0) {
+            throw new BadRequestException("Limit must be between 1 and " + MAX_LIMIT + " and offset must be >= 0");
+        }
+    }
+
+    // Cursor = the fields compared by RANKING_ORDER, full name last as it may contain the separator
+    private static String encodeCursor(EmployeeRankingResponse last) {
+        String key = last.getPerformanceScore() + "|" + last.getAttendanceRate() + "|" + last.getTotalShifts() + "|" +
+                last.getPunctualityRate() + "|" + last.getTotalHoursWorked() + "|" + last.getUserId() + "|" +
+                last.getFullName();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static EmployeeRankingResponse decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 7);
+            return EmployeeRankingResponse.builder()
+                    .performanceScore(Double.parseDouble(parts[0]))
+                    .attendanceRate(Double.parseDouble(parts[1]))
+                    .totalShifts(Integer.parseInt(parts[2]))
+                    .punctualityRate(Double.parseDouble(parts[3]))
+                    .totalHoursWorked(Double.parseDouble(parts[4]))
+                    .userId(Long.parseLong(parts[5]))
+                    .fullName(parts[6])
+                    .build();
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
 }
 
 
@@ -41,11 +41,17 @@ public class MarketplaceService {
     private StoreRepository storeRepository;
 
     @Autowired
-    private NotificationService notificationService;
+    private NotificationOutboxService notificationOutbox;
 
     @Autowired
     private AuditService auditService;
 
+    @Autowired
+    private EmployeeRankingEngine rankingEngine;
+
+    @Autowired
+    private ReportCacheService reportCacheService;
+
     // ==================== MARKETPLACE LISTINGS ====================
 
     /**
@@ -143,7 +149,7 @@ public class MarketplaceService {
 
         // Notify manager
         if (store.getManager() != null) {
-            notificationService.sendNotification(store.getManager().getId(),
+            notificationOutbox.enqueue(store.getManager().getId(),
                     "Ca làm mới trên Chợ Ca",
                     fromUser.getFullName() + " đã đăng nhường ca " + shift.getTitle(),
                     "/marketplace");
@@ -200,14 +206,14 @@ public class MarketplaceService {
                 "Claimed listing for shift: " + listing.getShift().getTitle());
 
         // Notify original user and manager
-        notificationService.sendNotification(listing.getFromUser().getId(),
+        notificationOutbox.enqueue(listing.getFromUser().getId(),
                 "Có người nhận ca của bạn",
                 claimer.getFullName() + " đã yêu cầu nhận ca " + listing.getShift().getTitle() + ". Chờ Manager duyệt.",
                 "/marketplace");
 
         Store store = listing.getShift().getStore();
         if (store.getManager() != null) {
-            notificationService.sendNotification(store.getManager().getId(),
+            notificationOutbox.enqueue(store.getManager().getId(),
                     "Yêu cầu chuyển ca cần duyệt",
                     claimer.getFullName() + " muốn nhận ca " + listing.getShift().getTitle() + " từ " + listing.getFromUser().getFullName(),
                     "/marketplace");
@@ -255,18 +261,21 @@ public class MarketplaceService {
                     .status(AssignmentStatus.CONFIRMED)
                     .build();
             assignmentRepository.save(newAssignment);
+            rankingEngine.removeAssignment(listing.getFromUser().getId(), listing.getShift());
+            rankingEngine.recordAssignment(listing.getToUser().getId(), listing.getShift());
+            reportCacheService.evict(listing.getShift().getStore().getId(), listing.getShift().getStartDatetime());
 
             auditService.log(currentUser.getId(), "APPROVE", "MARKETPLACE_LISTING", listingId,
                     "Approved shift transfer from " + listing.getFromUser().getFullName() + 
                     " to " + listing.getToUser().getFullName());
 
             // Notify users
-            notificationService.sendNotification(listing.getFromUser().getId(),
+            notificationOutbox.enqueue(listing.getFromUser().getId(),
                     "Đã duyệt nhường ca",
                     "Yêu cầu nhường ca " + listing.getShift().getTitle() + " cho " + listing.getToUser().getFullName() + " đã được duyệt",
                     "/my-shifts");
 
-            notificationService.sendNotification(listing.getToUser().getId(),
+            notificationOutbox.enqueue(listing.getToUser().getId(),
                     "Đã nhận ca mới",
                     "Bạn đã được nhận ca " + listing.getShift().getTitle(),
                     "/my-shifts");
@@ -274,13 +283,13 @@ public class MarketplaceService {
             auditService.log(currentUser.getId(), "REJECT", "MARKETPLACE_LISTING", listingId,
                     "Rejected shift transfer: " + (request.getNote() != null ? request.getNote() : ""));
 
-            notificationService.sendNotification(listing.getFromUser().getId(),
+            notificationOutbox.enqueue(listing.getFromUser().getId(),
                     "Từ chối nhường ca",
                     "Yêu cầu nhường ca " + listing.getShift().getTitle() + " đã bị từ chối" + 
                     (request.getNote() != null ? ": " + request.getNote() : ""),
                     "/marketplace");
 
-            notificationService.sendNotification(listing.getToUser().getId(),
+            notificationOutbox.enqueue(listing.getToUser().getId(),
                     "Yêu cầu nhận ca bị từ chối",
                     "Yêu cầu nhận ca " + listing.getShift().getTitle() + " đã bị từ chối" +
                     (request.getNote() != null ? ": " + request.getNote() : ""),
@@ -366,7 +375,7 @@ public class MarketplaceService {
                 "Requested swap: " + myAssignment.getShift().getTitle() + " <-> " + targetAssignment.getShift().getTitle());
 
         // Notify target user
-        notificationService.sendNotification(toUser.getId(),
+        notificationOutbox.enqueue(toUser.getId(),
                 "Yêu cầu đổi ca",
                 fromUser.getFullName() + " muốn đổi ca " + myAssignment.getShift().getTitle() + " với ca " + targetAssignment.getShift().getTitle() + " của bạn",
                 "/marketplace");
@@ -425,14 +434,14 @@ public class MarketplaceService {
             swapRequest.setStatus(SwapStatus.PENDING_MANAGER);
 
             // Notify requester and manager
-            notificationService.sendNotification(swapRequest.getFromUser().getId(),
+            notificationOutbox.enqueue(swapRequest.getFromUser().getId(),
                     "Đồng nghiệp đồng ý đổi ca",
                     swapRequest.getToUser().getFullName() + " đã đồng ý đổi ca. Chờ Manager duyệt.",
                     "/marketplace");
 
             Store store = swapRequest.getFromAssignment().getShift().getStore();
             if (store.getManager() != null) {
-                notificationService.sendNotification(store.getManager().getId(),
+                notificationOutbox.enqueue(store.getManager().getId(),
                         "Yêu cầu đổi ca cần duyệt",
                         swapRequest.getFromUser().getFullName() + " và " + swapRequest.getToUser().getFullName() + " muốn đổi ca",
                         "/marketplace");
@@ -440,7 +449,7 @@ public class MarketplaceService {
         } else {
             swapRequest.setStatus(SwapStatus.REJECTED);
 
-            notificationService.sendNotification(swapRequest.getFromUser().getId(),
+            notificationOutbox.enqueue(swapRequest.getFromUser().getId(),
                     "Từ chối đổi ca",
                     swapRequest.getToUser().getFullName() + " đã từ chối yêu cầu đổi ca của bạn",
                     "/marketplace");
@@ -490,18 +499,24 @@ public class MarketplaceService {
 
             assignmentRepository.save(fromAssignment);
             assignmentRepository.save(toAssignment);
+            rankingEngine.removeAssignment(fromUser.getId(), fromAssignment.getShift());
+            rankingEngine.removeAssignment(toUser.getId(), toAssignment.getShift());
+            rankingEngine.recordAssignment(toUser.getId(), fromAssignment.getShift());
+            rankingEngine.recordAssignment(fromUser.getId(), toAssignment.getShift());
+            reportCacheService.evict(fromAssignment.getShift().getStore().getId(), fromAssignment.getShift().getStartDatetime());
+            reportCacheService.evict(toAssignment.getShift().getStore().getId(), toAssignment.getShift().getStartDatetime());
 
             auditService.log(currentUser.getId(), "APPROVE", "SWAP_REQUEST", swapId,
                     "Approved swap between " + swapRequest.getFromUser().getFullName() + 
                     " and " + swapRequest.getToUser().getFullName());
 
             // Notify both users
-            notificationService.sendNotification(swapRequest.getFromUser().getId(),
+            notificationOutbox.enqueue(swapRequest.getFromUser().getId(),
                     "Đổi ca được duyệt",
                     "Yêu cầu đổi ca với " + swapRequest.getToUser().getFullName() + " đã được duyệt",
                     "/my-shifts");
 
-            notificationService.sendNotification(swapRequest.getToUser().getId(),
+            notificationOutbox.enqueue(swapRequest.getToUser().getId(),
                     "Đổi ca được duyệt",
                     "Yêu cầu đổi ca với " + swapRequest.getFromUser().getFullName() + " đã được duyệt",
                     "/my-shifts");
@@ -511,12 +526,12 @@ public class MarketplaceService {
             auditService.log(currentUser.getId(), "REJECT", "SWAP_REQUEST", swapId,
                     "Rejected swap: " + (note != null ? note : ""));
 
-            notificationService.sendNotification(swapRequest.getFromUser().getId(),
+            notificationOutbox.enqueue(swapRequest.getFromUser().getId(),
                     "Đổi ca bị từ chối",
                     "Yêu cầu đổi ca đã bị từ chối" + (note != null ? ": " + note : ""),
                     "/marketplace");
 
-            notificationService.sendNotification(swapRequest.getToUser().getId(),
+            notificationOutbox.enqueue(swapRequest.getToUser().getId(),
                     "Đổi ca bị từ chối",
                     "Yêu cầu đổi ca đã bị từ chối" + (note != null ? ": " + note : ""),
                     "/marketplace");
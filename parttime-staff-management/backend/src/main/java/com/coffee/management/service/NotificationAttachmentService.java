@@ -0,0 +1,96 @@
+package com.coffee.management.service;
+
+import com.coffee.management.dto.notification.AttachmentInfo;
+import com.coffee.management.exception.BadRequestException;
+import com.coffee.management.exception.ResourceNotFoundException;
+import com.coffee.management.repository.NotificationAttachmentRepository;
+import com.coffee.management.security.UserPrincipal;
+import com.coffee.management.util.DataUrl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Service storing notification attachments once per distinct content (SHA-256) and
+ * streaming them back to the recipients of the notifications
+ */
+@Service
+public class NotificationAttachmentService {
+
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    // Bytes read from the database per query while streaming
+    private static final int CHUNK_SIZE = 256 * 1024;
+
+    @Autowired
+    private NotificationAttachmentRepository attachmentRepository;
+
+    /**
+     * Store an attachment sent as a data URL ("data:<type>;base64,<data>") and return its id.
+     * Content already stored is not stored again. Runs in its own transaction so the
+     * content-hash lookup sees a row inserted by a concurrent broadcast.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public Long store(String dataUrl) {
+        DataUrl attachment;
+        try {
+            attachment = DataUrl.parse(dataUrl);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Attachment must be a base64 data URL");
+        }
+
+        byte[] content = attachment.getContent();
+        String contentType = attachment.getContentType();
+        if (contentType.isEmpty() || contentType.length() > 100) {
+            contentType = DEFAULT_CONTENT_TYPE;
+        }
+
+        String hash = sha256Hex(content);
+        attachmentRepository.insertIfAbsent(hash, contentType, content.length, content);
+        return attachmentRepository.findIdByContentHash(hash)
+                .orElseThrow(() -> new IllegalStateException("Attachment " + hash + " was not stored"));
+    }
+
+    /**
+     * Attachment of a notification of the current user, without its content
+     */
+    @Transactional(readOnly = true)
+    public AttachmentInfo getAttachment(Long notificationId, UserPrincipal currentUser) {
+        return attachmentRepository.findForNotification(notificationId, currentUser.getId())
+                .orElseThrow(() -> new ResourceNotFoundException("Attachment", "notificationId", notificationId));
+    }
+
+    /**
+     * Write length bytes of an attachment starting at offset, reading CHUNK_SIZE bytes per query
+     * so the whole file is never held in memory
+     */
+    public void writeContent(Long attachmentId, long offset, long length, OutputStream outputStream) throws IOException {
+        long position = offset;
+        long end = offset + length;
+        while (position < end) {
+            int chunk = (int) Math.min(CHUNK_SIZE, end - position);
+            byte[] bytes = attachmentRepository.findContentRange(attachmentId, position, chunk);
+            if (bytes == null || bytes.length == 0) {
+                break;
+            }
+            outputStream.write(bytes);
+            position += bytes.length;
+        }
+        outputStream.flush();
+    }
+
+    private static String sha256Hex(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.coffee.management.service;
+
+import com.coffee.management.entity.NotificationCounter;
+import com.coffee.management.repository.NotificationCounterRepository;
+import com.coffee.management.repository.NotificationRepository;
+import com.coffee.management.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Unread notification count per user, kept in notification_counters and cached in memory.
+ * Counters are changed in the same transaction as the notifications they count, and cached
+ * counts are evicted after commit. Reading a count never touches the notifications table;
+ * a periodic job recomputes the counters from notifications to fix any drift.
+ */
+@Service
+public class NotificationCounterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationCounterService.class);
+
+    private static final String INCREMENT_SQL =
+            "INSERT INTO notification_counters (user_id, unread_count) VALUES (?, 1) " +
+            "ON DUPLICATE KEY UPDATE unread_count = unread_count + 1";
+
+    @Autowired
+    private NotificationCounterRepository counterRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${notification.batch-size:500}")
+    private int batchSize;
+
+    @Value("${notification.counter.cache.max-size:10000}")
+    private long maxSize;
+
+    // Bounds how long another application instance may serve a stale count
+    @Value("${notification.counter.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    // Key: user id
+    private Cache<Long, Long> cache;
+
+    @PostConstruct
+    public void createCache() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "notification-unread");
+    }
+
+    /**
+     * Unread notification count of a user
+     */
+    public long getUnreadCount(Long userId) {
+        return cache.get(userId, id -> counterRepository.findUnreadCountByUserId(id).orElse(0L));
+    }
+
+    /**
+     * Add delta to the unread count of a user (in the caller's transaction)
+     */
+    public void add(Long userId, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        counterRepository.addUnread(userId, delta);
+        TransactionCallbacks.afterCommit(() -> cache.invalidate(userId));
+    }
+
+    /**
+     * Add one unread notification to each user, with JDBC batches of batchSize rows
+     */
+    public void incrementAll(List<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INCREMENT_SQL, userIds, Math.max(1, batchSize), (ps, userId) -> ps.setLong(1, userId));
+        List<Long> evicted = new ArrayList<>(userIds);
+        TransactionCallbacks.afterCommit(() -> cache.invalidateAll(evicted));
+    }
+
+    /**
+     * Hourly reconciliation of every counter with the notifications table (runs at minute 15)
+     */
+    @Scheduled(cron = "${notification.counter.reconcile-cron:0 15 * * * *}")
+    public void reconcileAll() {
+        long lastId = 0;
+        int fixed = 0;
+        while (true) {
+            List<Long> userIds = userRepository.findIdsAfter(lastId, PageRequest.of(0, Math.max(1, batchSize)));
+            if (userIds.isEmpty()) {
+                break;
+            }
+            try {
+                Integer chunkFixed = transactionTemplate.execute(status -> reconcile(userIds));
+                fixed += chunkFixed != null ? chunkFixed : 0;
+            } catch (Exception e) {
+                logger.error("Error reconciling notification counters after user {}: {}", lastId, e.getMessage(), e);
+            }
+            lastId = userIds.get(userIds.size() - 1);
+        }
+        if (fixed > 0) {
+            logger.warn("Fixed {} notification counter(s) that drifted from the notifications table", fixed);
+        }
+    }
+
+    /**
+     * Recompute the counters of a chunk of users. The counters are locked before counting, so a
+     * notification sent or read meanwhile is either counted here or applied after this update.
+     */
+    private int reconcile(List<Long> userIds) {
+        Map<Long, NotificationCounter> counters = counterRepository.findByUserIdIn(userIds).stream()
+                .collect(Collectors.toMap(NotificationCounter::getUserId, Function.identity()));
+        Map<Long, Long> unread = notificationRepository.countUnreadGroupByUser(userIds).stream()
+                .collect(Collectors.toMap(row -> (Long) row[0], row -> (Long) row[1]));
+        LocalDateTime now = LocalDateTime.now();
+
+        List<Long> fixed = new ArrayList<>();
+        for (Long userId : userIds) {
+            long actual = unread.getOrDefault(userId, 0L);
+            NotificationCounter counter = counters.get(userId);
+            if (counter == null) {
+                if (actual == 0) {
+                    continue;
+                }
+                counter = NotificationCounter.builder().userId(userId).build();
+            }
+            if (counter.getUnreadCount() != actual) {
+                counter.setUnreadCount(actual);
+                fixed.add(userId);
+            }
+            counter.setReconciledAt(now);
+            counterRepository.save(counter);
+        }
+        TransactionCallbacks.afterCommit(() -> cache.invalidateAll(fixed));
+        return fixed.size();
+    }
+}
@@ -0,0 +1,183 @@
+package com.coffee.management.service;
+
+import com.coffee.management.entity.NotificationOutboxEvent;
+import com.coffee.management.entity.Role;
+import com.coffee.management.repository.NotificationOutboxRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Transactional outbox for notifications sent as a side effect of business operations.
+ * Business methods write one notification_outbox row in their own transaction; a background
+ * dispatcher reads due rows in batches, creates the notifications and deletes the rows.
+ * Dispatch starts after commit of a write and also runs periodically, so events left by a
+ * crash or a failed dispatch are sent later. A failing event is retried on its own and never
+ * fails the business operation.
+ */
+@Service
+public class NotificationOutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationOutboxService.class);
+
+    @Autowired
+    private NotificationOutboxRepository outboxRepository;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${notification.outbox.batch-size:200}")
+    private int batchSize;
+
+    @Value("${notification.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${notification.outbox.retry-delay-seconds:60}")
+    private long retryDelaySeconds;
+
+    // Single dispatcher thread; a dispatch requested while one is queued is merged into it
+    private ThreadPoolExecutor executor;
+    private final AtomicBoolean dispatchQueued = new AtomicBoolean();
+
+    @PostConstruct
+    public void startExecutor() {
+        executor = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(1),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "notification-outbox");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queue a notification to a user (written in the current transaction)
+     */
+    public void enqueue(Long userId, String title, String message, String link) {
+        save(NotificationOutboxEvent.builder()
+                .recipientUserId(userId)
+                .title(title)
+                .message(message)
+                .link(link));
+    }
+
+    /**
+     * Queue a notification to every user with a role in a store, e.g. the store managers
+     * (recipients are looked up when the event is dispatched)
+     */
+    public void enqueueToStore(Long storeId, Role role, String title, String message, String link) {
+        save(NotificationOutboxEvent.builder()
+                .recipientStoreId(storeId)
+                .recipientRole(role)
+                .title(title)
+                .message(message)
+                .link(link));
+    }
+
+    private void save(NotificationOutboxEvent.NotificationOutboxEventBuilder event) {
+        outboxRepository.save(event.availableAt(LocalDateTime.now()).build());
+        TransactionCallbacks.afterCommit(this::requestDispatch);
+    }
+
+    /**
+     * Periodic dispatch of due events (every 5 seconds): events whose immediate dispatch failed
+     * or was lost, and retries
+     */
+    @Scheduled(fixedDelayString = "${notification.outbox.poll-ms:5000}")
+    public void dispatchDue() {
+        requestDispatch();
+    }
+
+    private void requestDispatch() {
+        if (!dispatchQueued.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(this::dispatch);
+        } catch (RejectedExecutionException e) {
+            dispatchQueued.set(false);
+        }
+    }
+
+    // Dispatch batches until no due event is left
+    private void dispatch() {
+        dispatchQueued.set(false);
+        try {
+            while (dispatchBatch() >= Math.max(1, batchSize)) {
+                // Full batch, more events may be due
+            }
+        } catch (Exception e) {
+            logger.error("Error dispatching notification outbox: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Dispatch one batch of due events in one transaction. When the batch fails, its events are
+     * retried one by one so a single bad event does not block the others.
+     */
+    private int dispatchBatch() {
+        List<Long> ids = new ArrayList<>();
+        try {
+            Integer dispatched = transactionTemplate.execute(status -> {
+                List<NotificationOutboxEvent> events = outboxRepository.findDue(
+                        LocalDateTime.now(), maxAttempts, PageRequest.of(0, Math.max(1, batchSize)));
+                events.forEach(event -> ids.add(event.getId()));
+                if (!events.isEmpty()) {
+                    notificationService.deliver(events);
+                    outboxRepository.deleteAllInBatch(events);
+                }
+                return events.size();
+            });
+            return dispatched != null ? dispatched : 0;
+        } catch (RuntimeException e) {
+            if (ids.isEmpty()) {
+                throw e;
+            }
+            logger.warn("Dispatching {} notification outbox event(s) failed, retrying one by one: {}",
+                    ids.size(), e.getMessage());
+            ids.forEach(this::dispatchOne);
+            return ids.size();
+        }
+    }
+
+    private void dispatchOne(Long id) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> outboxRepository.findLockedById(id)
+                    .ifPresent(event -> {
+                        notificationService.deliver(List.of(event));
+                        outboxRepository.delete(event);
+                    }));
+        } catch (RuntimeException e) {
+            logger.error("Notification outbox event {} failed: {}", id, e.getMessage());
+            String error = e.getMessage() != null && e.getMessage().length() > 500
+                    ? e.getMessage().substring(0, 500) : e.getMessage();
+            transactionTemplate.executeWithoutResult(status -> outboxRepository.recordFailure(
+                    id, error, LocalDateTime.now().plusSeconds(retryDelaySeconds)));
+        }
+    }
+}
@@ -1,23 +1,40 @@
 package com.coffee.management.service;
 
+import com.coffee.management.dto.notification.NotificationPageResponse;
 import com.coffee.management.dto.notification.NotificationResponse;
 import com.coffee.management.dto.notification.SendNotificationRequest;
 import com.coffee.management.dto.notification.BroadcastNotificationRequest;
 import com.coffee.management.entity.Notification;
+import com.coffee.management.entity.NotificationOutboxEvent;
 import com.coffee.management.entity.Role;
 import com.coffee.management.entity.User;
-import com.coffee.management.entity.UserStatus;
+import com.coffee.management.exception.BadRequestException;
 import com.coffee.management.exception.ForbiddenException;
 import com.coffee.management.exception.ResourceNotFoundException;
 import com.coffee.management.repository.NotificationRepository;
 import com.coffee.management.repository.UserRepository;
 import com.coffee.management.security.UserPrincipal;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -27,35 +44,76 @@ import java.util.stream.Collectors;
 @Transactional
 public class NotificationService {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO notifications (user_id, title, message, is_read, link, attachment_id, attachment_name, created_at) " +
+            "VALUES (?, ?, ?, FALSE, ?, ?, ?, ?)";
+
     @Autowired
     private NotificationRepository notificationRepository;
 
     @Autowired
     private UserRepository userRepository;
 
-    /**
-     * Get notifications for current user
-     */
-    public List<NotificationResponse> getNotifications(UserPrincipal currentUser) {
-        return notificationRepository.findByUserIdOrderByCreatedAtDesc(currentUser.getId()).stream()
-                .map(NotificationResponse::fromEntity)
-                .collect(Collectors.toList());
-    }
+    @Autowired
+    private NotificationAttachmentService attachmentService;
+
+    @Autowired
+    private NotificationCounterService counterService;
+
+    @Autowired
+    private NotificationStreamService streamService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${notification.batch-size:500}")
+    private int batchSize;
 
     /**
-     * Get unread notifications for current user
+     * Get one page of notifications for current user, newest first.
+     * The cursor holds (createdAt, id) of the last notification of the previous page, so pages do
+     * not skip or repeat notifications when new ones arrive between requests.
      */
-    public List<NotificationResponse> getUnreadNotifications(UserPrincipal currentUser) {
-        return notificationRepository.findByUserIdAndIsReadFalseOrderByCreatedAtDesc(currentUser.getId()).stream()
-                .map(NotificationResponse::fromEntity)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public NotificationPageResponse getNotifications(UserPrincipal currentUser, String cursor, int limit,
+                                                     boolean unreadOnly) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        // One extra row tells whether there is a next page
+        Pageable pageable = PageRequest.of(0, limit + 1);
+        Long userId = currentUser.getId();
+
+        List<Notification> rows;
+        if (cursor == null || cursor.isEmpty()) {
+            rows = unreadOnly
+                    ? notificationRepository.findUnreadPage(userId, pageable)
+                    : notificationRepository.findInboxPage(userId, pageable);
+        } else {
+            Notification after = decodeCursor(cursor);
+            rows = unreadOnly
+                    ? notificationRepository.findUnreadPageAfter(userId, after.getCreatedAt(), after.getId(), pageable)
+                    : notificationRepository.findInboxPageAfter(userId, after.getCreatedAt(), after.getId(), pageable);
+        }
+
+        boolean hasNext = rows.size() > limit;
+        List<Notification> page = hasNext ? rows.subList(0, limit) : rows;
+        return NotificationPageResponse.builder()
+                .notifications(page.stream()
+                        .map(NotificationResponse::fromEntity)
+                        .collect(Collectors.toList()))
+                .nextCursor(hasNext ? encodeCursor(page.get(page.size() - 1)) : null)
+                .build();
     }
 
     /**
-     * Get unread notification count
+     * Get unread notification count (from the per-user counter, not the notifications table)
      */
+    @Transactional(readOnly = true)
     public long getUnreadCount(UserPrincipal currentUser) {
-        return notificationRepository.countUnreadByUser(currentUser.getId());
+        return counterService.getUnreadCount(currentUser.getId());
     }
 
     /**
@@ -74,6 +132,8 @@ public class NotificationService {
                 .build();
 
         Notification saved = notificationRepository.save(notification);
+        counterService.add(user.getId(), 1);
+        streamService.publish(user.getId(), true, 1);
         return NotificationResponse.fromEntity(saved);
     }
 
@@ -81,11 +141,10 @@ public class NotificationService {
      * Send notification (internal use)
      */
     public void sendNotification(Long userId, String title, String message, String link) {
-        User user = userRepository.findById(userId).orElse(null);
-        if (user == null) return;
+        if (!userRepository.existsById(userId)) return;
 
         Notification notification = Notification.builder()
-                .user(user)
+                .user(userRepository.getReferenceById(userId))
                 .title(title)
                 .message(message)
                 .link(link)
@@ -93,6 +152,8 @@ public class NotificationService {
                 .build();
 
         notificationRepository.save(notification);
+        counterService.add(userId, 1);
+        streamService.publish(userId, true, 1);
     }
 
     /**
@@ -106,14 +167,21 @@ public class NotificationService {
             throw new ResourceNotFoundException("Notification", "id", notificationId);
         }
 
-        notificationRepository.markAsRead(notificationId);
+        if (notificationRepository.markAsRead(notificationId) > 0) {
+            counterService.add(currentUser.getId(), -1);
+            streamService.publish(currentUser.getId(), false, -1);
+        }
     }
 
     /**
      * Mark all notifications as read
      */
     public void markAllAsRead(UserPrincipal currentUser) {
-        notificationRepository.markAllAsReadByUser(currentUser.getId());
+        int marked = notificationRepository.markAllAsReadByUser(currentUser.getId());
+        counterService.add(currentUser.getId(), -marked);
+        if (marked > 0) {
+            streamService.publish(currentUser.getId(), false, -marked);
+        }
     }
 
     /**
@@ -122,76 +190,127 @@ public class NotificationService {
      * Manager: can only send to their own store
      */
     public int broadcastNotification(BroadcastNotificationRequest request, UserPrincipal currentUser) {
-        List<User> recipients = new ArrayList<>();
+        // Filter by role if specified
+        Role targetRole = request.getTargetRole() != null ? Role.valueOf(request.getTargetRole()) : null;
+        List<Long> recipientIds = new ArrayList<>();
 
         if (currentUser.getRole().equals("OWNER")) {
             // Owner can send to all or specific stores
             if (request.getStoreId() == null) {
                 // Send to all active users (except Owner)
-                recipients = userRepository.findByStatusAndRoleNot(UserStatus.ACTIVE, Role.OWNER);
+                recipientIds = userRepository.findActiveNonOwnerIds(targetRole);
             } else {
                 // Send to specific store
-                recipients = userRepository.findByStoreIdAndStatus(request.getStoreId(), UserStatus.ACTIVE);
+                recipientIds = userRepository.findActiveIdsByStore(request.getStoreId(), targetRole);
             }
         } else if (currentUser.getRole().equals("MANAGER")) {
             // Manager can only send to their store
             if (request.getStoreId() != null && !request.getStoreId().equals(currentUser.getStoreId())) {
                 throw new ForbiddenException("You can only send notifications to your store");
             }
-            recipients = userRepository.findByStoreIdAndStatus(currentUser.getStoreId(), UserStatus.ACTIVE);
+            recipientIds = userRepository.findActiveIdsByStore(currentUser.getStoreId(), targetRole);
             // Remove self from recipients
-            recipients = recipients.stream()
-                    .filter(u -> !u.getId().equals(currentUser.getId()))
-                    .collect(Collectors.toList());
-        }
-
-        // Filter by role if specified
-        if (request.getTargetRole() != null) {
-            Role targetRole = Role.valueOf(request.getTargetRole());
-            recipients = recipients.stream()
-                    .filter(u -> u.getRole() == targetRole)
-                    .collect(Collectors.toList());
+            recipientIds.remove(currentUser.getId());
         }
 
-        // Send notifications
-        int sentCount = 0;
-        for (User recipient : recipients) {
-            Notification notification = Notification.builder()
-                    .user(recipient)
-                    .title(request.getTitle())
-                    .message(request.getMessage())
-                    .link(request.getLink())
-                    .attachmentUrl(request.getAttachmentUrl())
-                    .attachmentName(request.getAttachmentName())
-                    .isRead(false)
-                    .build();
-            notificationRepository.save(notification);
-            sentCount++;
+        // The attachment is stored once and referenced by every recipient's notification
+        Long attachmentId = null;
+        if (!recipientIds.isEmpty() && request.getAttachmentUrl() != null && !request.getAttachmentUrl().isBlank()) {
+            attachmentId = attachmentService.store(request.getAttachmentUrl());
         }
 
-        return sentCount;
+        return insertForRecipients(recipientIds, request.getTitle(), request.getMessage(), request.getLink(),
+                attachmentId, attachmentId != null ? request.getAttachmentName() : null);
     }
 
     /**
      * Send notification to all staff in a store
      */
     public int sendToStore(Long storeId, String title, String message, String link) {
-        List<User> staffInStore = userRepository.findByStoreIdAndStatus(storeId, UserStatus.ACTIVE);
-        
-        int sentCount = 0;
-        for (User staff : staffInStore) {
-            Notification notification = Notification.builder()
-                    .user(staff)
-                    .title(title)
-                    .message(message)
-                    .link(link)
-                    .isRead(false)
+        return insertForRecipients(userRepository.findActiveIdsByStore(storeId, null), title, message, link, null, null);
+    }
+
+    /**
+     * Create the notifications of outbox events (see NotificationOutboxService), resolving the
+     * recipients of each event. Events of users that no longer exist are dropped.
+     */
+    void deliver(List<NotificationOutboxEvent> events) {
+        Set<Long> userIds = events.stream()
+                .map(NotificationOutboxEvent::getRecipientUserId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Set<Long> existingIds = userIds.isEmpty() ? Set.of() : new HashSet<>(userRepository.findExistingIds(userIds));
+        Map<String, List<Long>> storeRecipients = new HashMap<>();
+
+        List<PendingNotification> rows = new ArrayList<>();
+        for (NotificationOutboxEvent event : events) {
+            List<Long> recipients;
+            if (event.getRecipientUserId() != null) {
+                recipients = existingIds.contains(event.getRecipientUserId())
+                        ? List.of(event.getRecipientUserId()) : List.of();
+            } else {
+                recipients = storeRecipients.computeIfAbsent(
+                        event.getRecipientStoreId() + ":" + event.getRecipientRole(),
+                        k -> userRepository.findIdsByStoreAndRole(event.getRecipientStoreId(), event.getRecipientRole()));
+            }
+            recipients.forEach(userId -> rows.add(
+                    new PendingNotification(userId, event.getTitle(), event.getMessage(), event.getLink())));
+        }
+        insertAll(rows, null, null);
+    }
+
+    /**
+     * Insert one notification per recipient
+     */
+    private int insertForRecipients(List<Long> userIds, String title, String message, String link,
+                                    Long attachmentId, String attachmentName) {
+        return insertAll(userIds.stream()
+                .map(userId -> new PendingNotification(userId, title, message, link))
+                .collect(Collectors.toList()), attachmentId, attachmentName);
+    }
+
+    /**
+     * Insert notifications with JDBC batches of batchSize rows (sent as multi-row INSERTs by the
+     * MySQL driver), without loading the users
+     */
+    private int insertAll(List<PendingNotification> rows, Long attachmentId, String attachmentName) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows, Math.max(1, batchSize), (ps, row) -> {
+            ps.setLong(1, row.userId());
+            ps.setString(2, row.title());
+            ps.setString(3, row.message());
+            ps.setString(4, row.link());
+            ps.setObject(5, attachmentId, Types.BIGINT);
+            ps.setString(6, attachmentName);
+            ps.setTimestamp(7, createdAt);
+        });
+        List<Long> userIds = rows.stream().map(PendingNotification::userId).collect(Collectors.toList());
+        counterService.incrementAll(userIds);
+        streamService.publishAll(new HashSet<>(userIds));
+        return rows.size();
+    }
+
+    private record PendingNotification(Long userId, String title, String message, String link) {
+    }
+
+    // Cursor = createdAt and id of the last notification of the page (also the id of stream events)
+    static String encodeCursor(Notification last) {
+        String key = last.getCreatedAt() + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Notification decodeCursor(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 2);
+            return Notification.builder()
+                    .createdAt(LocalDateTime.parse(parts[0]))
+                    .id(Long.parseLong(parts[1]))
                     .build();
-            notificationRepository.save(notification);
-            sentCount++;
+        } catch (IllegalArgumentException | DateTimeParseException | ArrayIndexOutOfBoundsException e) {
+            throw new BadRequestException("Invalid cursor");
         }
-        
-        return sentCount;
     }
 }
-
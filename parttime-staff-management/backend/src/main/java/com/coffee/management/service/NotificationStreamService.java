@@ -0,0 +1,293 @@
+package com.coffee.management.service;
+
+import com.coffee.management.dto.notification.NotificationResponse;
+import com.coffee.management.entity.Notification;
+import com.coffee.management.exception.BadRequestException;
+import com.coffee.management.repository.NotificationRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server-Sent Events stream of notifications per connected user.
+ * Events:
+ * - "notification": a new NotificationResponse, with the inbox cursor of the notification as event id
+ * - "unread": {"delta": n, "unreadCount": total} change of the unread count and the count after it
+ * Signals only mark a connection as having work; a bounded pool then reads the new notifications
+ * from the table after the last one sent and writes them. Signals for a busy connection are
+ * merged, so a slow client costs one pending task, not a growing queue. A reconnecting client
+ * sends Last-Event-ID and gets every notification created after it.
+ */
+@Service
+public class NotificationStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationStreamService.class);
+
+    // Notifications read per query when sending or replaying
+    private static final int SEND_PAGE_SIZE = 100;
+
+    // Cursor start for users without notifications yet
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private NotificationCounterService counterService;
+
+    @Value("${notification.stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${notification.stream.max-connections-per-user:5}")
+    private int maxConnectionsPerUser;
+
+    @Value("${notification.stream.pool-size:4}")
+    private int poolSize;
+
+    @Value("${notification.stream.queue-capacity:1000}")
+    private int queueCapacity;
+
+    // Key: user id
+    private final Map<Long, List<Connection>> connections = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor executor;
+
+    /**
+     * One open stream. Flags are set by signals and cleared by the task that sends the events;
+     * scheduled guarantees at most one such task per stream, so events stay in order.
+     */
+    private static class Connection {
+        final Long userId;
+        final SseEmitter emitter;
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        final AtomicBoolean newNotifications = new AtomicBoolean();
+        final AtomicBoolean heartbeat = new AtomicBoolean();
+        final AtomicLong unreadDelta = new AtomicLong();
+        Notification lastSent; // Only accessed by the sending task
+
+        Connection(Long userId, SseEmitter emitter, Notification lastSent) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.lastSent = lastSent;
+        }
+
+        boolean hasWork() {
+            return newNotifications.get() || heartbeat.get() || unreadDelta.get() != 0;
+        }
+    }
+
+    @PostConstruct
+    public void startExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "notification-stream-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void stopExecutor() {
+        executor.shutdownNow();
+        connections.values().forEach(list -> list.forEach(connection -> connection.emitter.complete()));
+    }
+
+    /**
+     * Open a stream for a user. With lastEventId (the id of the last event received), every
+     * notification created after it is sent first; otherwise only notifications created from now on.
+     */
+    public SseEmitter subscribe(Long userId, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Connection connection = new Connection(userId, emitter, startCursor(userId, lastEventId));
+        emitter.onCompletion(() -> remove(connection));
+        emitter.onTimeout(() -> remove(connection));
+        emitter.onError(e -> remove(connection));
+
+        List<Connection> evicted = new ArrayList<>();
+        connections.compute(userId, (id, list) -> {
+            List<Connection> result = list != null ? list : new CopyOnWriteArrayList<>();
+            result.add(connection);
+            while (result.size() > Math.max(1, maxConnectionsPerUser)) {
+                evicted.add(result.remove(0));
+            }
+            return result;
+        });
+        evicted.forEach(old -> old.emitter.complete());
+
+        // First bytes at once (proxies hold back empty responses), then the replay if any
+        connection.heartbeat.set(true);
+        connection.newNotifications.set(lastEventId != null);
+        schedule(connection);
+        return emitter;
+    }
+
+    /**
+     * Tell the streams of a user about new notifications and/or an unread count change.
+     * Takes effect after the current transaction commits.
+     */
+    public void publish(Long userId, boolean newNotifications, long unreadDelta) {
+        TransactionCallbacks.afterCommit(() -> signal(userId, newNotifications, unreadDelta));
+    }
+
+    /**
+     * Tell the streams of several users about one new notification each (broadcasts).
+     * Connections are looked up after commit, so streams opened meanwhile are signalled too.
+     */
+    public void publishAll(Collection<Long> userIds) {
+        TransactionCallbacks.afterCommit(() -> {
+            if (connections.isEmpty()) {
+                return;
+            }
+            userIds.forEach(userId -> signal(userId, true, 1));
+        });
+    }
+
+    /**
+     * Number of open streams
+     */
+    public int getConnectionCount() {
+        return connections.values().stream().mapToInt(List::size).sum();
+    }
+
+    /**
+     * Comment line on every stream so idle connections are not closed by proxies,
+     * and closed ones are detected (runs every 25 seconds)
+     */
+    @Scheduled(fixedDelayString = "${notification.stream.heartbeat-ms:25000}")
+    public void sendHeartbeats() {
+        connections.values().forEach(list -> list.forEach(connection -> {
+            connection.heartbeat.set(true);
+            schedule(connection);
+        }));
+    }
+
+    private void signal(Long userId, boolean newNotifications, long unreadDelta) {
+        List<Connection> list = connections.get(userId);
+        if (list == null) {
+            return;
+        }
+        for (Connection connection : list) {
+            if (newNotifications) {
+                connection.newNotifications.set(true);
+            }
+            connection.unreadDelta.addAndGet(unreadDelta);
+            schedule(connection);
+        }
+    }
+
+    private void schedule(Connection connection) {
+        if (!connection.scheduled.compareAndSet(false, true)) {
+            return; // The running task will see the new flags
+        }
+        try {
+            executor.execute(() -> send(connection));
+        } catch (RejectedExecutionException e) {
+            // Too many streams behind: drop this one, the client reconnects with Last-Event-ID
+            connection.scheduled.set(false);
+            logger.warn("Notification stream of user {} closed, send queue is full", connection.userId);
+            close(connection);
+        }
+    }
+
+    private void send(Connection connection) {
+        try {
+            while (connection.hasWork()) {
+                if (connection.heartbeat.getAndSet(false)) {
+                    connection.emitter.send(SseEmitter.event().comment("keepalive"));
+                }
+                if (connection.newNotifications.getAndSet(false)) {
+                    sendNewNotifications(connection);
+                }
+                long delta = connection.unreadDelta.getAndSet(0);
+                if (delta != 0) {
+                    connection.emitter.send(SseEmitter.event().name("unread").data(Map.of(
+                            "delta", delta, "unreadCount", counterService.getUnreadCount(connection.userId))));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Client gone (or the emitter already completed)
+            logger.debug("Notification stream of user {} closed: {}", connection.userId, e.getMessage());
+            connection.scheduled.set(false);
+            close(connection);
+            return;
+        }
+        connection.scheduled.set(false);
+        // A signal may have arrived after the last check
+        if (connection.hasWork()) {
+            schedule(connection);
+        }
+    }
+
+    private void sendNewNotifications(Connection connection) throws IOException {
+        List<Notification> rows;
+        do {
+            rows = notificationRepository.findInboxSince(connection.userId, connection.lastSent.getCreatedAt(),
+                    connection.lastSent.getId(), PageRequest.of(0, SEND_PAGE_SIZE));
+            for (Notification notification : rows) {
+                connection.emitter.send(SseEmitter.event()
+                        .id(NotificationService.encodeCursor(notification))
+                        .name("notification")
+                        .data(NotificationResponse.fromEntity(notification)));
+                connection.lastSent = notification;
+            }
+        } while (rows.size() == SEND_PAGE_SIZE);
+    }
+
+    /**
+     * Position to send from: the event id sent back by a reconnecting client, otherwise the
+     * newest notification of the user
+     */
+    private Notification startCursor(Long userId, String lastEventId) {
+        if (lastEventId != null && !lastEventId.isEmpty()) {
+            try {
+                return NotificationService.decodeCursor(lastEventId);
+            } catch (BadRequestException e) {
+                logger.debug("Ignoring invalid Last-Event-ID from user {}", userId);
+            }
+        }
+        List<Notification> newest = notificationRepository.findInboxPage(userId, PageRequest.of(0, 1));
+        return !newest.isEmpty() ? newest.get(0) : Notification.builder().createdAt(BEGINNING).id(0L).build();
+    }
+
+    private void close(Connection connection) {
+        remove(connection);
+        try {
+            connection.emitter.complete();
+        } catch (RuntimeException e) {
+            // Already completed
+        }
+    }
+
+    private void remove(Connection connection) {
+        connections.computeIfPresent(connection.userId, (id, list) -> {
+            list.remove(connection);
+            return list.isEmpty() ? null : list;
+        });
+    }
+}
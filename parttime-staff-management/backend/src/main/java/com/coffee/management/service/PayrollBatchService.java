@@ -0,0 +1,450 @@
+package com.coffee.management.service;
+
+import com.coffee.management.dto.payroll.PayrollGenerationResult;
+import com.coffee.management.dto.payroll.PayrollResponse;
+import com.coffee.management.entity.Payroll;
+import com.coffee.management.entity.PayrollStatus;
+import com.coffee.management.entity.Role;
+import com.coffee.management.entity.Store;
+import com.coffee.management.entity.User;
+import com.coffee.management.repository.ComplaintRepository;
+import com.coffee.management.repository.PayrollRepository;
+import com.coffee.management.repository.StoreRepository;
+import com.coffee.management.repository.TimeLogRepository;
+import com.coffee.management.repository.UserRepository;
+import com.coffee.management.util.DateRange;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Batch pipeline for generating payroll of many users at once.
+ * Loads every input of the month with grouped queries, calculates payrolls in memory with the
+ * same rules as PayrollService and upserts them with JDBC batches.
+ * Payroll of all stores is sharded by store over a worker pool: each store is computed and
+ * written in its own transaction, so a failing store does not roll back the others.
+ */
+@Service
+public class PayrollBatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PayrollBatchService.class);
+
+    // Only DRAFT rows are overwritten, so a payroll approved in the meantime is never touched
+    private static final String UPSERT_SQL =
+            "INSERT INTO payrolls (user_id, month, total_hours, gross_pay, adjustments, adjustment_note, status, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, 'DRAFT', ?) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "total_hours = CASE WHEN status = 'DRAFT' THEN VALUES(total_hours) ELSE total_hours END, " +
+            "gross_pay = CASE WHEN status = 'DRAFT' THEN VALUES(gross_pay) ELSE gross_pay END, " +
+            "adjustments = CASE WHEN status = 'DRAFT' THEN VALUES(adjustments) ELSE adjustments END, " +
+            "adjustment_note = CASE WHEN status = 'DRAFT' THEN VALUES(adjustment_note) ELSE adjustment_note END";
+
+    // STAFF before MANAGER, then by user id
+    private static final Comparator<PayrollResponse> ALL_STORES_ORDER = Comparator
+            .comparing((PayrollResponse payroll) -> payroll.getUserRole() == Role.MANAGER)
+            .thenComparing(PayrollResponse::getUserId);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private StoreRepository storeRepository;
+
+    @Autowired
+    private PayrollRepository payrollRepository;
+
+    @Autowired
+    private TimeLogRepository timeLogRepository;
+
+    @Autowired
+    private ComplaintRepository complaintRepository;
+
+    @Autowired
+    private StoreMetricsService storeMetricsService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${payroll.batch-size:500}")
+    private int batchSize;
+
+    @Value("${payroll.shard.pool-size:4}")
+    private int shardPoolSize;
+
+    private ExecutorService shardExecutor;
+
+    @PostConstruct
+    public void startExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        shardExecutor = Executors.newFixedThreadPool(Math.max(1, shardPoolSize), runnable -> {
+            Thread thread = new Thread(runnable, "payroll-shard-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stopExecutor() {
+        shardExecutor.shutdownNow();
+    }
+
+    /**
+     * Callback reporting the progress of a batch, called after every chunk
+     */
+    public interface ProgressListener {
+        void onProgress(int totalUsers, int processedUsers, int failedUsers, String lastError);
+    }
+
+    /**
+     * Generate payroll of a month for every STAFF (and MANAGER), one store per task on the shard pool.
+     * Users without a store are computed as one extra shard. Stores that fail are reported in
+     * the result while the payrolls of the other stores are kept.
+     * Payrolls are returned in the order of the former all-store generation: every STAFF, then
+     * every MANAGER, each by user id.
+     */
+    public PayrollGenerationResult generatePayrollByStore(String month, boolean includeManagers, ProgressListener listener) {
+        List<Store> stores = new ArrayList<>(storeRepository.findAll());
+        stores.sort(Comparator.comparing(Store::getId));
+        ShardProgress progress = new ShardProgress(stores.size() + 1, listener);
+
+        List<Future<List<PayrollResponse>>> futures = new ArrayList<>(stores.size() + 1);
+        for (int i = 0; i < stores.size(); i++) {
+            Long storeId = stores.get(i).getId();
+            int shard = i;
+            futures.add(shardExecutor.submit(() -> generateShard(month, storeId, false, includeManagers,
+                    (total, processed, failed, lastError) -> progress.update(shard, total, processed, failed))));
+        }
+        int unassignedShard = stores.size();
+        futures.add(shardExecutor.submit(() -> generateShard(month, null, true, includeManagers,
+                (total, processed, failed, lastError) -> progress.update(unassignedShard, total, processed, failed))));
+
+        List<PayrollResponse> payrolls = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            String shardName = i < stores.size()
+                    ? "Store " + stores.get(i).getId() + " (" + stores.get(i).getName() + ")"
+                    : "Users without store";
+            try {
+                payrolls.addAll(futures.get(i).get());
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                logger.error("Error generating payroll of {} for {}: {}", shardName, month, cause.getMessage(), cause);
+                errors.add(shardName + ": " + cause.getMessage());
+                progress.fail(i, shardName + ": " + cause.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(future -> future.cancel(true));
+                throw new IllegalStateException("Payroll generation interrupted", e);
+            }
+        }
+
+        payrolls.sort(ALL_STORES_ORDER);
+
+        logger.info("Generated payroll for {} user(s) in {} across {} store(s), {} failed",
+                payrolls.size(), month, stores.size(), errors.size());
+        return new PayrollGenerationResult(payrolls, errors);
+    }
+
+    /**
+     * Generate payroll of a month for one store.
+     * Without a listener the first failing chunk aborts the batch; with a listener failed chunks
+     * are reported and the remaining chunks are still written.
+     */
+    public List<PayrollResponse> generatePayroll(String month, Long storeId, boolean includeManagers,
+                                                 ProgressListener listener) {
+        return generate(month, storeId, false, includeManagers, false, listener);
+    }
+
+    private List<PayrollResponse> generateShard(String month, Long storeId, boolean unassigned,
+                                                boolean includeManagers, ProgressListener listener) {
+        String storeTag = unassigned ? "none" : String.valueOf(storeId);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        try {
+            List<PayrollResponse> payrolls = generate(month, storeId, unassigned, includeManagers, true, listener);
+            outcome = "success";
+            return payrolls;
+        } finally {
+            long nanos = sample.stop(Timer.builder("payroll.generation.store")
+                    .description("Time to generate the payroll of one store")
+                    .tag("store", storeTag)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+            logger.debug("Payroll of store {} for {} took {} ms ({})", storeTag, month, nanos / 1_000_000, outcome);
+        }
+    }
+
+    /**
+     * Load, calculate and write the payrolls of one scope: a store, the users without a store
+     * (unassigned) or everybody (no store, not unassigned). With singleTransaction all chunks of
+     * the scope commit together; otherwise every chunk commits on its own.
+     */
+    private List<PayrollResponse> generate(String month, Long storeId, boolean unassigned, boolean includeManagers,
+                                           boolean singleTransaction, ProgressListener listener) {
+        DateRange range = DateRange.ofMonth(YearMonth.parse(month));
+
+        TransactionTemplate readTemplate = new TransactionTemplate(transactionManager);
+        readTemplate.setReadOnly(true);
+        BatchInputs inputs = readTemplate.execute(status ->
+                loadInputs(month, storeId, unassigned, includeManagers, range));
+
+        // Calculate in memory; payrolls that are no longer DRAFT are returned unchanged
+        List<Payroll> payrolls = new ArrayList<>(inputs.users.size());
+        List<Payroll> drafts = new ArrayList<>();
+        for (User user : inputs.users) {
+            Payroll existing = inputs.existingByUser.get(user.getId());
+            if (existing != null && existing.getStatus() != PayrollStatus.DRAFT) {
+                existing.setUser(user);
+                payrolls.add(existing);
+                continue;
+            }
+
+            long totalMinutes = user.getRole() != Role.MANAGER ? inputs.minutesByUser.getOrDefault(user.getId(), 0L) : 0L;
+            int lateCount = user.getRole() == Role.STAFF ? inputs.lateCountByUser.getOrDefault(user.getId(), 0L).intValue() : 0;
+            long complaintCount = inputs.complaintCountByUser.getOrDefault(user.getId(), 0L);
+            PayrollService.PayrollAmounts amounts = PayrollService.calculateAmounts(user, totalMinutes, lateCount, complaintCount);
+
+            Payroll payroll;
+            if (existing != null) {
+                existing.setUser(user);
+                PayrollService.applyToDraft(existing, amounts);
+                payroll = existing;
+            } else {
+                payroll = Payroll.builder()
+                        .user(user)
+                        .month(month)
+                        .totalHours(amounts.totalHours)
+                        .grossPay(amounts.grossPay)
+                        .adjustments(amounts.totalDeduction.negate())
+                        .adjustmentNote(amounts.note)
+                        .status(PayrollStatus.DRAFT)
+                        .build();
+            }
+            payrolls.add(payroll);
+            drafts.add(payroll);
+        }
+
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+        int chunkSize = Math.max(1, batchSize);
+        TransactionTemplate writeTemplate = new TransactionTemplate(transactionManager);
+        if (singleTransaction) {
+            writeTemplate.executeWithoutResult(status -> {
+                for (int from = 0; from < drafts.size(); from += chunkSize) {
+                    writeChunk(drafts.subList(from, Math.min(from + chunkSize, drafts.size())), month, createdAt);
+                }
+            });
+            if (listener != null) {
+                listener.onProgress(payrolls.size(), payrolls.size(), 0, null);
+            }
+        } else {
+            // Upsert drafts chunk by chunk, each chunk in its own transaction
+            int processed = payrolls.size() - drafts.size();
+            int failed = 0;
+            String lastError = null;
+            if (listener != null) {
+                listener.onProgress(payrolls.size(), processed, failed, lastError);
+            }
+            for (int from = 0; from < drafts.size(); from += chunkSize) {
+                List<Payroll> chunk = drafts.subList(from, Math.min(from + chunkSize, drafts.size()));
+                try {
+                    writeTemplate.executeWithoutResult(status -> writeChunk(chunk, month, createdAt));
+                } catch (RuntimeException e) {
+                    if (listener == null) {
+                        throw e;
+                    }
+                    logger.error("Error writing payroll chunk of {} user(s) for {}: {}", chunk.size(), month, e.getMessage(), e);
+                    failed += chunk.size();
+                    lastError = e.getMessage();
+                }
+                processed += chunk.size();
+                if (listener != null) {
+                    listener.onProgress(payrolls.size(), processed, failed, lastError);
+                }
+            }
+        }
+
+        // Fill in generated ids and creation times of newly inserted rows (only this scope's users)
+        List<Payroll> inserted = drafts.stream().filter(p -> p.getId() == null).toList();
+        for (int from = 0; from < inserted.size(); from += chunkSize) {
+            List<Payroll> chunk = inserted.subList(from, Math.min(from + chunkSize, inserted.size()));
+            List<Long> userIds = chunk.stream().map(p -> p.getUser().getId()).toList();
+            Map<Long, Object[]> keysByUser = new HashMap<>();
+            for (Object[] row : readTemplate.execute(status -> payrollRepository.findKeysByMonthAndUserIds(month, userIds))) {
+                keysByUser.put((Long) row[0], row);
+            }
+            for (Payroll payroll : chunk) {
+                Object[] keys = keysByUser.get(payroll.getUser().getId());
+                if (keys != null) {
+                    payroll.setId((Long) keys[1]);
+                    payroll.setCreatedAt((LocalDateTime) keys[2]);
+                }
+            }
+        }
+
+        List<PayrollResponse> responses = new ArrayList<>(payrolls.size());
+        for (Payroll payroll : payrolls) {
+            responses.add(PayrollResponse.fromEntity(payroll));
+        }
+        return responses;
+    }
+
+    private BatchInputs loadInputs(String month, Long storeId, boolean unassigned, boolean includeManagers,
+                                   DateRange range) {
+        BatchInputs inputs = new BatchInputs();
+        List<Payroll> existing;
+        if (storeId != null) {
+            inputs.users.addAll(userRepository.findByStoreIdAndRoleWithStore(storeId, Role.STAFF));
+            if (includeManagers) {
+                inputs.users.addAll(userRepository.findByStoreIdAndRoleWithStore(storeId, Role.MANAGER));
+            }
+            existing = payrollRepository.findByStoreAndMonth(storeId, month);
+            inputs.minutesByUser = toLongMap(timeLogRepository.sumDurationGroupByUserForStore(storeId, range));
+            inputs.lateCountByUser = toLongMap(timeLogRepository.countLateCheckInsGroupByUserForStore(
+                    storeId, range, PayrollService.LATE_THRESHOLD_MINUTES));
+            inputs.complaintCountByUser = toLongMap(complaintRepository.countResolvedComplaintsGroupByUserForStore(
+                    storeId, range));
+        } else {
+            if (unassigned) {
+                inputs.users.addAll(userRepository.findByRoleAndStoreIsNull(Role.STAFF));
+                if (includeManagers) {
+                    inputs.users.addAll(userRepository.findByRoleAndStoreIsNull(Role.MANAGER));
+                }
+                // Usually nobody - skip the month-wide queries below
+                if (inputs.users.isEmpty()) {
+                    return inputs;
+                }
+            } else {
+                inputs.users.addAll(userRepository.findByRoleWithStore(Role.STAFF));
+                if (includeManagers) {
+                    inputs.users.addAll(userRepository.findByRoleWithStore(Role.MANAGER));
+                }
+            }
+            existing = payrollRepository.findByMonth(month);
+            inputs.minutesByUser = toLongMap(timeLogRepository.sumDurationGroupByUser(range));
+            inputs.lateCountByUser = toLongMap(timeLogRepository.countLateCheckInsGroupByUser(
+                    range, PayrollService.LATE_THRESHOLD_MINUTES));
+            inputs.complaintCountByUser = toLongMap(complaintRepository.countResolvedComplaintsGroupByUser(range));
+        }
+
+        for (Payroll payroll : existing) {
+            inputs.existingByUser.put(payroll.getUser().getId(), payroll);
+        }
+        return inputs;
+    }
+
+    /**
+     * Upsert one chunk of drafts, then recompute the payroll rollup of the stores in the chunk from
+     * the table (rows skipped by the upsert or rewritten by an overlapping run would make deltas drift)
+     */
+    private void writeChunk(List<Payroll> chunk, String month, Timestamp createdAt) {
+        List<Object[]> args = new ArrayList<>(chunk.size());
+        Set<Long> storeIds = new HashSet<>();
+        for (Payroll payroll : chunk) {
+            User user = payroll.getUser();
+            args.add(new Object[] {
+                    user.getId(), month, payroll.getTotalHours(), payroll.getGrossPay(),
+                    payroll.getAdjustments(), payroll.getAdjustmentNote(), createdAt
+            });
+            if (user.getStore() != null) {
+                storeIds.add(user.getStore().getId());
+            }
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SQL, args);
+        storeMetricsService.refreshStorePayroll(storeIds, month);
+    }
+
+    private static Map<Long, Long> toLongMap(List<Object[]> rows) {
+        Map<Long, Long> result = new HashMap<>();
+        for (Object[] row : rows) {
+            if (row[0] != null && row[1] != null) {
+                result.put(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Helper class to hold everything loaded for one batch
+     */
+    private static class BatchInputs {
+        final List<User> users = new ArrayList<>();
+        final Map<Long, Payroll> existingByUser = new HashMap<>();
+        Map<Long, Long> minutesByUser = new HashMap<>();
+        Map<Long, Long> lateCountByUser = new HashMap<>();
+        Map<Long, Long> complaintCountByUser = new HashMap<>();
+    }
+
+    /**
+     * Helper class summing the progress of all shards into one listener call
+     */
+    private static class ShardProgress {
+        private final int[][] counters; // per shard: total, processed, failed
+        private final ProgressListener listener;
+        private String lastError;
+
+        ShardProgress(int shards, ProgressListener listener) {
+            this.counters = new int[shards][3];
+            this.listener = listener;
+        }
+
+        synchronized void update(int shard, int total, int processed, int failed) {
+            counters[shard][0] = total;
+            counters[shard][1] = processed;
+            counters[shard][2] = failed;
+            report();
+        }
+
+        synchronized void fail(int shard, String error) {
+            counters[shard][1] = counters[shard][0];
+            counters[shard][2] = counters[shard][0];
+            lastError = error;
+            report();
+        }
+
+        private void report() {
+            if (listener == null) {
+                return;
+            }
+            int total = 0;
+            int processed = 0;
+            int failed = 0;
+            for (int[] shard : counters) {
+                total += shard[0];
+                processed += shard[1];
+                failed += shard[2];
+            }
+            listener.onProgress(total, processed, failed, lastError);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.coffee.management.service;
+
+import com.coffee.management.dto.payroll.PayrollExportRow;
+import com.coffee.management.exception.BadRequestException;
+import com.coffee.management.exception.ForbiddenException;
+import com.coffee.management.repository.PayrollRepository;
+import com.coffee.management.security.UserPrincipal;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Service exporting payrolls as CSV.
+ * Rows are read through a database cursor and written straight to the response stream,
+ * so memory use does not grow with the number of payrolls.
+ */
+@Service
+public class PayrollExportService {
+
+    private static final String CSV_HEADER = "id,user_id,user_name,user_email,user_role,store_id,store_name,month," +
+            "total_hours,hourly_rate,gross_pay,adjustments,adjustment_note,net_pay,status,created_at";
+
+    // Rows written between two flushes of the response stream
+    private static final int FLUSH_EVERY_ROWS = 1000;
+
+    @Autowired
+    private PayrollRepository payrollRepository;
+
+    /**
+     * Check the month and the caller's access before the response starts streaming.
+     * Returns the store to export (a manager always exports their own store).
+     */
+    public Long resolveExportStore(String month, Long storeId, UserPrincipal currentUser) {
+        try {
+            YearMonth.parse(month);
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("Invalid month format, expected YYYY-MM");
+        }
+
+        if (currentUser.getRole().equals("MANAGER")) {
+            // Manager can only export their store
+            // A manager without a store must not fall through to "all stores"
+            if (currentUser.getStoreId() == null) {
+                throw new ForbiddenException("You are not assigned to a store");
+            }
+            if (storeId != null && !storeId.equals(currentUser.getStoreId())) {
+                throw new ForbiddenException("You can only export payrolls from your store");
+            }
+            return currentUser.getStoreId();
+        }
+        return storeId;
+    }
+
+    /**
+     * Write the payrolls of a month (optionally of one store) as CSV, UTF-8 with BOM so Excel
+     * shows Vietnamese names correctly
+     */
+    @Transactional(readOnly = true)
+    public void writeCsv(String month, Long storeId, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 64 * 1024);
+        writer.write('\uFEFF');
+        writer.write(CSV_HEADER);
+        writer.write("\r\n");
+
+        try (Stream<PayrollExportRow> rows = payrollRepository.streamExportRows(month, storeId)) {
+            Iterator<PayrollExportRow> iterator = rows.iterator();
+            int count = 0;
+            while (iterator.hasNext()) {
+                writeRow(writer, iterator.next());
+                if (++count % FLUSH_EVERY_ROWS == 0) {
+                    writer.flush();
+                }
+            }
+        }
+        writer.flush();
+    }
+
+    private static void writeRow(Writer writer, PayrollExportRow row) throws IOException {
+        BigDecimal adjustments = row.getAdjustments() != null ? row.getAdjustments() : BigDecimal.ZERO;
+        BigDecimal netPay = row.getGrossPay() != null ? row.getGrossPay().add(adjustments) : adjustments;
+
+        writer.write(String.valueOf(row.getId()));
+        writeField(writer, row.getUserId());
+        writeText(writer, row.getUserName());
+        writeText(writer, row.getUserEmail());
+        writeField(writer, row.getUserRole());
+        writeField(writer, row.getStoreId());
+        writeText(writer, row.getStoreName());
+        writeField(writer, row.getMonth());
+        writeField(writer, toPlain(row.getTotalHours()));
+        writeField(writer, toPlain(row.getHourlyRate()));
+        writeField(writer, toPlain(row.getGrossPay()));
+        writeField(writer, toPlain(row.getAdjustments()));
+        writeText(writer, row.getAdjustmentNote());
+        writeField(writer, toPlain(netPay));
+        writeField(writer, row.getStatus());
+        writeField(writer, row.getCreatedAt());
+        writer.write("\r\n");
+    }
+
+    // Text typed by users: Excel evaluates a cell starting with =, +, -, @, tab or CR as a formula,
+    // so such values are prefixed with ' to be shown as plain text
+    private static void writeText(Writer writer, String text) throws IOException {
+        if (text != null && !text.isEmpty() && "=+-@\t\r".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        writeField(writer, text);
+    }
+
+    private static void writeField(Writer writer, Object value) throws IOException {
+        writer.write(',');
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            writer.write('"');
+            writer.write(text.replace("\"", "\"\""));
+            writer.write('"');
+        } else {
+            writer.write(text);
+        }
+    }
+
+    private static String toPlain(BigDecimal value) {
+        return value != null ? value.toPlainString() : null;
+    }
+}
@@ -0,0 +1,285 @@
+package com.coffee.management.service;
+
+import com.coffee.management.dto.payroll.PayrollResponse;
+import com.coffee.management.dto.payroll.PayrollRunResponse;
+import com.coffee.management.dto.payroll.PayrollRunResultsResponse;
+import com.coffee.management.entity.Payroll;
+import com.coffee.management.entity.PayrollRun;
+import com.coffee.management.entity.PayrollRunStatus;
+import com.coffee.management.entity.Role;
+import com.coffee.management.exception.BadRequestException;
+import com.coffee.management.exception.ForbiddenException;
+import com.coffee.management.exception.ResourceNotFoundException;
+import com.coffee.management.exception.ServiceUnavailableException;
+import com.coffee.management.repository.PayrollRepository;
+import com.coffee.management.repository.PayrollRunRepository;
+import com.coffee.management.repository.StoreRepository;
+import com.coffee.management.repository.UserRepository;
+import com.coffee.management.security.UserPrincipal;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Service running payroll generation as background jobs.
+ * A run is started on a bounded executor and its progress is kept in payroll_runs, so the
+ * HTTP request returns immediately and clients poll for progress and page through the results.
+ * Only one run can be active per (month, store, role scope); starting it again returns the active run.
+ */
+@Service
+public class PayrollRunService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PayrollRunService.class);
+    private static final int MAX_PAGE_SIZE = 200;
+    // Payroll runs take minutes, so a client turned away by a full executor waits a little longer
+    private static final long BUSY_RETRY_AFTER_SECONDS = 30;
+
+    @Autowired
+    private PayrollRunRepository payrollRunRepository;
+
+    @Autowired
+    private PayrollRepository payrollRepository;
+
+    @Autowired
+    private StoreRepository storeRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PayrollBatchService payrollBatchService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${payroll.run.pool-size:2}")
+    private int poolSize;
+
+    @Value("${payroll.run.queue-capacity:20}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void startExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "payroll-run-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Runs still active at startup were interrupted by a restart - mark them failed
+     * so their scope can be started again
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void failInterruptedRuns() {
+        List<PayrollRun> interrupted = payrollRunRepository.findByActiveKeyIsNotNull();
+        for (PayrollRun run : interrupted) {
+            finish(run, PayrollRunStatus.FAILED, "Interrupted by application restart");
+            payrollRunRepository.save(run);
+        }
+        if (!interrupted.isEmpty()) {
+            logger.warn("Marked {} interrupted payroll run(s) as failed", interrupted.size());
+        }
+    }
+
+    /**
+     * Start a payroll run, or return the run already active for the same month, store and roles
+     */
+    public PayrollRunResponse startRun(String month, Long storeId, UserPrincipal currentUser) {
+        validateMonth(month);
+        boolean isOwner = currentUser.getRole().equals("OWNER");
+        if (storeId == null) {
+            // Only owner can generate for all stores
+            if (!isOwner) {
+                throw new ForbiddenException("Only owner can generate payroll for all stores");
+            }
+        } else {
+            // Manager can only generate for their store
+            if (currentUser.getRole().equals("MANAGER") && !storeId.equals(currentUser.getStoreId())) {
+                throw new ForbiddenException("You can only generate payroll for your store");
+            }
+            if (!storeRepository.existsById(storeId)) {
+                throw new ResourceNotFoundException("Store", "id", storeId);
+            }
+        }
+
+        // Owner runs cover STAFF and MANAGER, manager runs STAFF only. An active owner run also
+        // answers a manager's request, but a staff-only run never answers an owner's.
+        String scopeKey = month + ":" + (storeId != null ? storeId : "ALL");
+        String activeKey = scopeKey + (isOwner ? ":ALL_ROLES" : ":STAFF");
+        PayrollRun active = payrollRunRepository.findByActiveKey(activeKey)
+                .or(() -> isOwner ? Optional.empty() : payrollRunRepository.findByActiveKey(scopeKey + ":ALL_ROLES"))
+                .orElse(null);
+        if (active != null) {
+            return PayrollRunResponse.fromEntity(active);
+        }
+
+        // Manager chỉ tạo bảng lương cho STAFF, Owner tạo cho cả STAFF và MANAGER
+        PayrollRun run = PayrollRun.builder()
+                .month(month)
+                .store(storeId != null ? storeRepository.getReferenceById(storeId) : null)
+                .includeManagers(isOwner)
+                .requestedBy(userRepository.getReferenceById(currentUser.getId()))
+                .status(PayrollRunStatus.QUEUED)
+                .activeKey(activeKey)
+                .build();
+        try {
+            run = payrollRunRepository.saveAndFlush(run);
+        } catch (DataIntegrityViolationException e) {
+            // Another request started the same run concurrently
+            return payrollRunRepository.findByActiveKey(activeKey)
+                    .map(PayrollRunResponse::fromEntity)
+                    .orElseThrow(() -> new BadRequestException("A payroll run for this month and store has just finished, please retry"));
+        }
+
+        Long runId = run.getId();
+        try {
+            executor.execute(() -> execute(runId, month, storeId, isOwner));
+        } catch (RejectedExecutionException e) {
+            updateRun(runId, r -> finish(r, PayrollRunStatus.FAILED, "Too many payroll runs in progress"));
+            throw new ServiceUnavailableException("Too many payroll runs in progress, please retry later",
+                    BUSY_RETRY_AFTER_SECONDS);
+        }
+
+        logger.info("Queued payroll run {} for {} (store {})", runId, month, storeId != null ? storeId : "ALL");
+        return PayrollRunResponse.fromEntity(run);
+    }
+
+    /**
+     * Get the progress of a run
+     */
+    public PayrollRunResponse getRun(Long runId, UserPrincipal currentUser) {
+        return PayrollRunResponse.fromEntity(findAccessibleRun(runId, currentUser));
+    }
+
+    /**
+     * Get one page of the payrolls produced by a run
+     */
+    public PayrollRunResultsResponse getRunResults(Long runId, int page, int size, UserPrincipal currentUser) {
+        PayrollRun run = findAccessibleRun(runId, currentUser);
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Page must be >= 0 and size between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        List<Role> roles = run.getIncludeManagers() ? List.of(Role.STAFF, Role.MANAGER) : List.of(Role.STAFF);
+        Page<Payroll> payrolls = payrollRepository.findPageByMonthAndStore(run.getMonth(),
+                run.getStore() != null ? run.getStore().getId() : null, roles,
+                PageRequest.of(page, size, Sort.by("id")));
+
+        return PayrollRunResultsResponse.builder()
+                .runId(run.getId())
+                .page(page)
+                .size(size)
+                .totalElements(payrolls.getTotalElements())
+                .totalPages(payrolls.getTotalPages())
+                .payrolls(payrolls.getContent().stream()
+                        .map(PayrollResponse::fromEntity)
+                        .collect(Collectors.toList()))
+                .build();
+    }
+
+    private void execute(Long runId, String month, Long storeId, boolean includeManagers) {
+        updateRun(runId, run -> {
+            run.setStatus(PayrollRunStatus.RUNNING);
+            run.setStartedAt(LocalDateTime.now());
+        });
+
+        PayrollBatchService.ProgressListener listener =
+                (totalUsers, processedUsers, failedUsers, lastError) -> updateRun(runId, run -> {
+                    run.setTotalUsers(totalUsers);
+                    run.setProcessedUsers(processedUsers);
+                    run.setFailedUsers(failedUsers);
+                    run.setErrorMessage(truncate(lastError));
+                });
+        try {
+            String errors;
+            if (storeId == null) {
+                // All stores: sharded by store, failed stores do not stop the others
+                errors = String.join("; ", payrollBatchService.generatePayrollByStore(month, includeManagers, listener).getErrors());
+            } else {
+                payrollBatchService.generatePayroll(month, storeId, includeManagers, listener);
+                errors = "";
+            }
+            updateRun(runId, run -> {
+                boolean failed = !errors.isEmpty() || run.getFailedUsers() > 0;
+                finish(run, failed ? PayrollRunStatus.COMPLETED_WITH_ERRORS : PayrollRunStatus.COMPLETED,
+                        errors.isEmpty() ? run.getErrorMessage() : errors);
+            });
+            logger.info("Payroll run {} completed", runId);
+        } catch (Exception e) {
+            logger.error("Payroll run {} failed: {}", runId, e.getMessage(), e);
+            updateRun(runId, run -> finish(run, PayrollRunStatus.FAILED, e.getMessage()));
+        }
+    }
+
+    private void updateRun(Long runId, Consumer<PayrollRun> update) {
+        transactionTemplate.executeWithoutResult(status -> payrollRunRepository.findById(runId).ifPresent(update));
+    }
+
+    private static void finish(PayrollRun run, PayrollRunStatus status, String errorMessage) {
+        run.setStatus(status);
+        run.setErrorMessage(truncate(errorMessage));
+        run.setActiveKey(null);
+        run.setFinishedAt(LocalDateTime.now());
+    }
+
+    private PayrollRun findAccessibleRun(Long runId, UserPrincipal currentUser) {
+        PayrollRun run = payrollRunRepository.findById(runId)
+                .orElseThrow(() -> new ResourceNotFoundException("Payroll run", "id", runId));
+
+        // Manager can only view runs of their store
+        if (currentUser.getRole().equals("MANAGER") &&
+                (run.getStore() == null || !run.getStore().getId().equals(currentUser.getStoreId()))) {
+            throw new ForbiddenException("You can only view payroll runs of your store");
+        }
+        return run;
+    }
+
+    private static void validateMonth(String month) {
+        try {
+            YearMonth.parse(month);
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("Invalid month format, expected YYYY-MM");
+        }
+    }
+
+    private static String truncate(String message) {
+        return message != null && message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+}
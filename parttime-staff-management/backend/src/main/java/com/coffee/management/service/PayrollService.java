@@ -1,5 +1,6 @@
 package com.coffee.management.service;
 
+import com.coffee.management.dto.payroll.PayrollGenerationResult;
 import com.coffee.management.dto.payroll.PayrollResponse;
 import com.coffee.management.dto.payroll.UpdatePayrollRequest;
 import com.coffee.management.entity.*;
@@ -7,9 +8,12 @@ import com.coffee.management.exception.ForbiddenException;
 import com.coffee.management.exception.ResourceNotFoundException;
 import com.coffee.management.repository.*;
 import com.coffee.management.security.UserPrincipal;
+import com.coffee.management.util.DateRange;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -18,7 +22,10 @@ import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 /**
@@ -43,30 +50,54 @@ public class PayrollService {
     @Autowired
     private AuditService auditService;
 
+    @Autowired
+    private StoreMetricsService storeMetricsService;
+
+    @Autowired
+    private PayrollBatchService payrollBatchService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    // Ids per UPDATE / reload statement in batch approve and batch paid
+    private static final int BATCH_STATUS_CHUNK_SIZE = 1000;
     
     // Cấu hình khấu trừ - có thể chuyển vào application.yml sau
     private static final BigDecimal LATE_PENALTY_PER_OCCURRENCE = new BigDecimal("10000"); // 10.000 VNĐ mỗi lần đi muộn
-    private static final int LATE_THRESHOLD_MINUTES = 15; // Trễ > 15 phút tính là đi muộn
+    static final int LATE_THRESHOLD_MINUTES = 15; // Trễ > 15 phút tính là đi muộn
     private static final BigDecimal COMPLAINT_PENALTY = new BigDecimal("50000"); // 50.000 VNĐ mỗi khiếu nại xác nhận
     
     // Lương cố định hàng tháng cho managers
     private static final BigDecimal MANAGER_MONTHLY_SALARY = new BigDecimal("7000000"); // 7.000.000 VNĐ/tháng
 
     /**
-     * Generate payroll for a month
+     * Generate payroll for a month.
+     * A single store is generated user by user in one transaction; all stores go through
+     * the batch pipeline, sharded by store with one transaction per store, and therefore
+     * runs outside a transaction here. Stores that fail are listed in the result errors.
      */
-    public List<PayrollResponse> generatePayroll(String month, Long storeId, UserPrincipal currentUser) {
-        YearMonth yearMonth = YearMonth.parse(month);
-        LocalDateTime startDate = yearMonth.atDay(1).atStartOfDay();
-        LocalDateTime endDate = yearMonth.atEndOfMonth().atTime(23, 59, 59);
-
-        List<User> users;
-        if (storeId != null) {
-            // Manager can only generate for their store
-            if (currentUser.getRole().equals("MANAGER") && !storeId.equals(currentUser.getStoreId())) {
-                throw new ForbiddenException("You can only generate payroll for your store");
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public PayrollGenerationResult generatePayroll(String month, Long storeId, UserPrincipal currentUser) {
+        DateRange range = DateRange.ofMonth(YearMonth.parse(month));
+
+        if (storeId == null) {
+            // Only owner can generate for all stores
+            if (!currentUser.getRole().equals("OWNER")) {
+                throw new ForbiddenException("Only owner can generate payroll for all stores");
             }
+            // Owner: bao gồm cả STAFF và MANAGER
+            return payrollBatchService.generatePayrollByStore(month, true, null);
+        }
+
+        // Manager can only generate for their store
+        if (currentUser.getRole().equals("MANAGER") && !storeId.equals(currentUser.getStoreId())) {
+            throw new ForbiddenException("You can only generate payroll for your store");
+        }
+
+        return transactionTemplate.execute(status -> {
+            List<User> users;
             // Manager chỉ tạo bảng lương cho STAFF, Owner tạo cho cả STAFF và MANAGER
             if (currentUser.getRole().equals("OWNER")) {
                 // Owner: bao gồm cả STAFF và MANAGER
@@ -79,51 +110,32 @@ public class PayrollService {
                 // Manager: chỉ STAFF
                 users = userRepository.findByStoreIdAndRole(storeId, Role.STAFF);
             }
-        } else {
-            // Only owner can generate for all stores
-            if (!currentUser.getRole().equals("OWNER")) {
-                throw new ForbiddenException("Only owner can generate payroll for all stores");
-            }
-            // Owner: bao gồm cả STAFF và MANAGER
-            List<User> staff = userRepository.findByRole(Role.STAFF);
-            List<User> managers = userRepository.findByRole(Role.MANAGER);
-            users = new ArrayList<>();
-            users.addAll(staff);
-            users.addAll(managers);
-        }
 
-        return users.stream()
-                .map(user -> generatePayrollForUser(user, month, startDate, endDate))
-                .collect(Collectors.toList());
+            return new PayrollGenerationResult(users.stream()
+                    .map(user -> generatePayrollForUser(user, month, range))
+                    .collect(Collectors.toList()));
+        });
     }
 
-    private PayrollResponse generatePayrollForUser(User user, String month, LocalDateTime startDate, LocalDateTime endDate) {
+    private PayrollResponse generatePayrollForUser(User user, String month, DateRange range) {
         // Check if payroll already exists
         Payroll existingPayroll = payrollRepository.findByUserIdAndMonth(user.getId(), month).orElse(null);
         
-        BigDecimal totalHours;
-        BigDecimal grossPay;
-        
-        // Managers: lương cố định 7 triệu/tháng, không cần chấm công
-        if (user.getRole() == Role.MANAGER) {
-            totalHours = BigDecimal.ZERO; // Managers không tính giờ làm
-            grossPay = MANAGER_MONTHLY_SALARY; // Lương cố định 7 triệu/tháng
-        } else {
-            // STAFF: tính lương theo giờ làm việc
-            Long totalMinutes = timeLogRepository.sumDurationByUserAndDateRange(user.getId(), startDate, endDate);
-            totalMinutes = totalMinutes != null ? totalMinutes : 0L;
+        // Managers: lương cố định, không cần chấm công
+        long totalMinutes = 0L;
+        if (user.getRole() != Role.MANAGER) {
+            Long minutes = timeLogRepository.sumDurationByUserAndDateRange(user.getId(), range);
+            totalMinutes = minutes != null ? minutes : 0L;
+        }
 
-            // Convert to hours
-            totalHours = BigDecimal.valueOf(totalMinutes)
-                    .divide(BigDecimal.valueOf(60), 2, RoundingMode.HALF_UP);
+        // Late check-in penalties chỉ áp dụng cho STAFF, managers không chấm công
+        int lateCount = user.getRole() == Role.STAFF ? countLateCheckIns(user, range) : 0;
 
-            // Calculate gross pay
-            BigDecimal hourlyRate = user.getHourlyRate() != null ? user.getHourlyRate() : BigDecimal.ZERO;
-            grossPay = totalHours.multiply(hourlyRate);
-        }
+        // Complaint penalties áp dụng cho cả STAFF và MANAGER
+        long complaintCount = complaintRepository.countResolvedComplaintsAgainstUser(
+                user.getId(), range);
 
-        // Calculate auto-deductions (chỉ áp dụng cho STAFF, managers không chấm công nên không có phạt đi muộn)
-        DeductionResult deductions = calculateAutoDeductions(user, startDate, endDate);
+        PayrollAmounts amounts = calculateAmounts(user, totalMinutes, lateCount, complaintCount);
 
         Payroll payroll;
         if (existingPayroll != null) {
@@ -131,69 +143,83 @@ public class PayrollService {
             if (existingPayroll.getStatus() != PayrollStatus.DRAFT) {
                 return PayrollResponse.fromEntity(existingPayroll);
             }
-            existingPayroll.setTotalHours(totalHours);
-            existingPayroll.setGrossPay(grossPay);
-            
-            // Update adjustments with auto-deductions if no manual adjustment was made
-            if (existingPayroll.getAdjustmentNote() == null || existingPayroll.getAdjustmentNote().isEmpty() ||
-                existingPayroll.getAdjustmentNote().startsWith("[Tự động]")) {
-                existingPayroll.setAdjustments(deductions.totalDeduction.negate());
-                existingPayroll.setAdjustmentNote(deductions.note);
-            }
+            BigDecimal previousTotal = totalPay(existingPayroll);
+            applyToDraft(existingPayroll, amounts);
             
             payroll = payrollRepository.save(existingPayroll);
+            storeMetricsService.recordPayrollChange(user, month, totalPay(payroll).subtract(previousTotal));
         } else {
             payroll = Payroll.builder()
                     .user(user)
                     .month(month)
-                    .totalHours(totalHours)
-                    .grossPay(grossPay)
-                    .adjustments(deductions.totalDeduction.negate())
-                    .adjustmentNote(deductions.note)
+                    .totalHours(amounts.totalHours)
+                    .grossPay(amounts.grossPay)
+                    .adjustments(amounts.totalDeduction.negate())
+                    .adjustmentNote(amounts.note)
                     .status(PayrollStatus.DRAFT)
                     .build();
             payroll = payrollRepository.save(payroll);
+            storeMetricsService.recordPayrollChange(user, month, totalPay(payroll));
         }
 
         return PayrollResponse.fromEntity(payroll);
     }
 
     /**
-     * Calculate auto-deductions from late check-ins and complaints
+     * Count late check-ins (> 15 minutes after shift start) of a user
+     */
+    private int countLateCheckIns(User user, DateRange range) {
+        List<TimeLog> timeLogsWithShift = timeLogRepository.findByUserIdAndDateRangeWithShift(
+                user.getId(), range);
+        
+        int lateCount = 0;
+        for (TimeLog timeLog : timeLogsWithShift) {
+            if (timeLog.getShift() != null && timeLog.getCheckIn() != null) {
+                LocalDateTime shiftStart = timeLog.getShift().getStartDatetime();
+                long minutesLate = ChronoUnit.MINUTES.between(shiftStart, timeLog.getCheckIn());
+                
+                if (minutesLate > LATE_THRESHOLD_MINUTES) {
+                    lateCount++;
+                }
+            }
+        }
+        return lateCount;
+    }
+
+    /**
+     * Calculate hours, gross pay and auto-deductions from already loaded counters.
+     * Shared by the per-user path and the batch pipeline so both produce identical payrolls.
      * Note: Managers không chấm công nên không tính phạt đi muộn, chỉ tính phạt khiếu nại
      */
-    private DeductionResult calculateAutoDeductions(User user, LocalDateTime startDate, LocalDateTime endDate) {
+    static PayrollAmounts calculateAmounts(User user, long totalMinutes, int lateCount, long complaintCount) {
+        BigDecimal totalHours;
+        BigDecimal grossPay;
+
+        // Managers: lương cố định 7 triệu/tháng, không cần chấm công
+        if (user.getRole() == Role.MANAGER) {
+            totalHours = BigDecimal.ZERO; // Managers không tính giờ làm
+            grossPay = MANAGER_MONTHLY_SALARY; // Lương cố định 7 triệu/tháng
+        } else {
+            // STAFF: tính lương theo giờ làm việc
+            totalHours = BigDecimal.valueOf(totalMinutes)
+                    .divide(BigDecimal.valueOf(60), 2, RoundingMode.HALF_UP);
+
+            // Calculate gross pay
+            BigDecimal hourlyRate = user.getHourlyRate() != null ? user.getHourlyRate() : BigDecimal.ZERO;
+            grossPay = totalHours.multiply(hourlyRate);
+        }
+
         BigDecimal totalDeduction = BigDecimal.ZERO;
         List<String> deductionNotes = new ArrayList<>();
 
-        // 1. Calculate late check-in penalties (chỉ áp dụng cho STAFF, managers không chấm công)
-        if (user.getRole() == Role.STAFF) {
-            List<TimeLog> timeLogsWithShift = timeLogRepository.findByUserIdAndDateRangeWithShift(
-                    user.getId(), startDate, endDate);
-            
-            int lateCount = 0;
-            for (TimeLog timeLog : timeLogsWithShift) {
-                if (timeLog.getShift() != null && timeLog.getCheckIn() != null) {
-                    LocalDateTime shiftStart = timeLog.getShift().getStartDatetime();
-                    long minutesLate = ChronoUnit.MINUTES.between(shiftStart, timeLog.getCheckIn());
-                    
-                    if (minutesLate > LATE_THRESHOLD_MINUTES) {
-                        lateCount++;
-                    }
-                }
-            }
-            
-            if (lateCount > 0) {
-                BigDecimal latePenalty = LATE_PENALTY_PER_OCCURRENCE.multiply(BigDecimal.valueOf(lateCount));
-                totalDeduction = totalDeduction.add(latePenalty);
-                deductionNotes.add(String.format("Đi muộn %d lần (-%s)", lateCount, formatCurrency(latePenalty)));
-            }
+        // 1. Late check-in penalties (chỉ áp dụng cho STAFF, managers không chấm công)
+        if (user.getRole() == Role.STAFF && lateCount > 0) {
+            BigDecimal latePenalty = LATE_PENALTY_PER_OCCURRENCE.multiply(BigDecimal.valueOf(lateCount));
+            totalDeduction = totalDeduction.add(latePenalty);
+            deductionNotes.add(String.format("Đi muộn %d lần (-%s)", lateCount, formatCurrency(latePenalty)));
         }
 
-        // 2. Calculate complaint penalties (áp dụng cho cả STAFF và MANAGER)
-        long complaintCount = complaintRepository.countResolvedComplaintsAgainstUser(
-                user.getId(), startDate, endDate);
-        
+        // 2. Complaint penalties (áp dụng cho cả STAFF và MANAGER)
         if (complaintCount > 0) {
             BigDecimal complaintPenalty = COMPLAINT_PENALTY.multiply(BigDecimal.valueOf(complaintCount));
             totalDeduction = totalDeduction.add(complaintPenalty);
@@ -206,21 +232,46 @@ public class PayrollService {
             finalNote = "[Tự động] " + String.join("; ", deductionNotes);
         }
 
-        return new DeductionResult(totalDeduction, finalNote);
+        return new PayrollAmounts(totalHours, grossPay, totalDeduction, finalNote);
+    }
+
+    /**
+     * Apply recalculated amounts to a draft payroll.
+     * Auto-deductions only replace the adjustment if no manual adjustment was made.
+     */
+    static void applyToDraft(Payroll payroll, PayrollAmounts amounts) {
+        payroll.setTotalHours(amounts.totalHours);
+        payroll.setGrossPay(amounts.grossPay);
+        
+        if (payroll.getAdjustmentNote() == null || payroll.getAdjustmentNote().isEmpty() ||
+            payroll.getAdjustmentNote().startsWith("[Tự động]")) {
+            payroll.setAdjustments(amounts.totalDeduction.negate());
+            payroll.setAdjustmentNote(amounts.note);
+        }
+    }
+
+    static BigDecimal totalPay(Payroll payroll) {
+        BigDecimal grossPay = payroll.getGrossPay() != null ? payroll.getGrossPay() : BigDecimal.ZERO;
+        BigDecimal adjustments = payroll.getAdjustments() != null ? payroll.getAdjustments() : BigDecimal.ZERO;
+        return grossPay.add(adjustments);
     }
 
-    private String formatCurrency(BigDecimal amount) {
+    private static String formatCurrency(BigDecimal amount) {
         return String.format("%,.0f VNĐ", amount);
     }
 
     /**
-     * Helper class to hold deduction calculation results
+     * Helper class to hold payroll calculation results
      */
-    private static class DeductionResult {
-        BigDecimal totalDeduction;
-        String note;
-
-        DeductionResult(BigDecimal totalDeduction, String note) {
+    static class PayrollAmounts {
+        final BigDecimal totalHours;
+        final BigDecimal grossPay;
+        final BigDecimal totalDeduction;
+        final String note;
+
+        PayrollAmounts(BigDecimal totalHours, BigDecimal grossPay, BigDecimal totalDeduction, String note) {
+            this.totalHours = totalHours;
+            this.grossPay = grossPay;
             this.totalDeduction = totalDeduction;
             this.note = note;
         }
@@ -282,6 +333,9 @@ public class PayrollService {
         }
 
         if (request.getAdjustments() != null) {
+            BigDecimal previousAdjustments = payroll.getAdjustments() != null ? payroll.getAdjustments() : BigDecimal.ZERO;
+            storeMetricsService.recordPayrollChange(payroll.getUser(), payroll.getMonth(),
+                    request.getAdjustments().subtract(previousAdjustments));
             payroll.setAdjustments(request.getAdjustments());
         }
         if (request.getAdjustmentNote() != null) {
@@ -339,46 +393,62 @@ public class PayrollService {
     }
 
     /**
-     * Batch approve payrolls
+     * Batch approve payrolls.
+     * Only payrolls still in DRAFT change state; the response lists exactly those.
      */
     public List<PayrollResponse> batchApprovePayrolls(List<Long> ids, UserPrincipal currentUser) {
         if (!currentUser.getRole().equals("OWNER")) {
             throw new ForbiddenException("Only owner can approve payrolls");
         }
-
-        List<PayrollResponse> results = new ArrayList<>();
-        for (Long id : ids) {
-            Payroll payroll = payrollRepository.findById(id).orElse(null);
-            if (payroll != null && payroll.getStatus() == PayrollStatus.DRAFT) {
-                payroll.setStatus(PayrollStatus.APPROVED);
-                payrollRepository.save(payroll);
-                auditService.log(currentUser.getId(), "APPROVE", "PAYROLL", id,
-                        "Batch approved payroll for user: " + payroll.getUser().getUsername() + " - " + payroll.getMonth());
-                results.add(PayrollResponse.fromEntity(payroll));
-            }
-        }
-        return results;
+        return batchChangeStatus(ids, PayrollStatus.DRAFT, PayrollStatus.APPROVED, currentUser,
+                "APPROVE", "Batch approved payroll for user: ");
     }
 
     /**
-     * Batch mark payrolls as paid
+     * Batch mark payrolls as paid.
+     * Only payrolls still APPROVED change state; the response lists exactly those.
      */
     public List<PayrollResponse> batchMarkPaid(List<Long> ids, UserPrincipal currentUser) {
         if (!currentUser.getRole().equals("OWNER")) {
             throw new ForbiddenException("Only owner can mark payrolls as paid");
         }
+        return batchChangeStatus(ids, PayrollStatus.APPROVED, PayrollStatus.PAID, currentUser,
+                "PAID", "Batch marked payroll as paid for user: ");
+    }
 
-        List<PayrollResponse> results = new ArrayList<>();
-        for (Long id : ids) {
-            Payroll payroll = payrollRepository.findById(id).orElse(null);
-            if (payroll != null && payroll.getStatus() == PayrollStatus.APPROVED) {
-                payroll.setStatus(PayrollStatus.PAID);
-                payrollRepository.save(payroll);
-                auditService.log(currentUser.getId(), "PAID", "PAYROLL", id,
-                        "Batch marked payroll as paid for user: " + payroll.getUser().getUsername() + " - " + payroll.getMonth());
-                results.add(PayrollResponse.fromEntity(payroll));
+    /**
+     * Set-based status change: per chunk of ids, lock the rows still in the expected status,
+     * update them with one conditional UPDATE, then reload the changed rows with their users
+     * and write all audit entries with one multi-row insert.
+     */
+    private List<PayrollResponse> batchChangeStatus(List<Long> ids, PayrollStatus expectedStatus, PayrollStatus newStatus,
+                                                    UserPrincipal currentUser, String auditAction, String auditDetails) {
+        List<Long> distinctIds = ids.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+
+        List<Long> changedIds = new ArrayList<>();
+        for (int from = 0; from < distinctIds.size(); from += BATCH_STATUS_CHUNK_SIZE) {
+            List<Long> chunk = distinctIds.subList(from, Math.min(from + BATCH_STATUS_CHUNK_SIZE, distinctIds.size()));
+            List<Long> lockedIds = payrollRepository.lockIdsByIdInAndStatus(chunk, expectedStatus);
+            if (!lockedIds.isEmpty()) {
+                payrollRepository.updateStatusByIdInAndStatus(lockedIds, expectedStatus, newStatus);
+                changedIds.addAll(lockedIds);
             }
         }
-        return results;
+
+        List<Payroll> changed = new ArrayList<>(changedIds.size());
+        for (int from = 0; from < changedIds.size(); from += BATCH_STATUS_CHUNK_SIZE) {
+            changed.addAll(payrollRepository.findByIdInWithUser(
+                    changedIds.subList(from, Math.min(from + BATCH_STATUS_CHUNK_SIZE, changedIds.size()))));
+        }
+
+        Map<Long, String> auditDetailsById = new LinkedHashMap<>();
+        for (Payroll payroll : changed) {
+            auditDetailsById.put(payroll.getId(), auditDetails + payroll.getUser().getUsername() + " - " + payroll.getMonth());
+        }
+        auditService.logAll(currentUser.getId(), auditAction, "PAYROLL", auditDetailsById);
+
+        return changed.stream()
+                .map(PayrollResponse::fromEntity)
+                .collect(Collectors.toList());
     }
 }
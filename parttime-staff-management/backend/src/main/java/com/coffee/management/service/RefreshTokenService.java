@@ -0,0 +1,229 @@
+package com.coffee.management.service;
+
+import com.coffee.management.entity.RefreshToken;
+import com.coffee.management.entity.RefreshTokenStatus;
+import com.coffee.management.exception.UnauthorizedException;
+import com.coffee.management.repository.RefreshTokenRepository;
+import com.coffee.management.security.JwtTokenProvider;
+import com.coffee.management.security.TokenRevocationList;
+import com.coffee.management.security.VerifiedToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Refresh token families stored in refresh_tokens.
+ * A login starts a family; each refresh uses up the presented token and issues the next one.
+ * A token presented twice means it was copied, so the whole family is revoked and its holder
+ * and the legitimate user must both log in again; except when the same client (see ClientBinding)
+ * presents it again within a couple of seconds of its use, as when several tabs refreshed at once:
+ * those get the same next token. Revoked families are also added to the
+ * in-memory TokenRevocationList, so their access tokens stop working at once; other
+ * application instances pick them up from the table within the sync interval.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+
+    @Autowired
+    private TokenRevocationList revocationList;
+
+    @Value("${security.revocation.purge-batch-size:500}")
+    private int purgeBatchSize;
+
+    @Value("${security.revocation.reuse-grace-ms:2000}")
+    private long reuseGraceMs;
+
+    // Last revocation read from the table (revocations are re-read with some overlap)
+    private volatile LocalDateTime lastSync;
+
+    /**
+     * Start a family for a new login and return its first token
+     */
+    @Transactional
+    public RefreshToken startFamily(Long userId, String clientBinding) {
+        return issue(userId, UUID.randomUUID().toString(), clientBinding);
+    }
+
+    /**
+     * Use up a verified refresh token and return the next token of its family.
+     * Unknown, expired, used or revoked tokens are rejected; a used token revokes its family,
+     * unless its next token was issued to the same client within the grace period and is still unused.
+     */
+    @Transactional(noRollbackFor = UnauthorizedException.class)
+    public RefreshToken rotate(VerifiedToken token, String clientBinding) {
+        RefreshToken current = token.getTokenId() != null
+                ? refreshTokenRepository.findLockedById(token.getTokenId()).orElse(null)
+                : legacyToken(token);
+        if (current == null || !current.getUserId().equals(token.getUserId())) {
+            throw new UnauthorizedException("Invalid refresh token");
+        }
+        if (current.getStatus() == RefreshTokenStatus.USED) {
+            RefreshToken successor = recentSuccessor(current, clientBinding);
+            if (successor != null) {
+                return successor;
+            }
+            logger.warn("Refresh token reuse detected for user {}, revoking session {}",
+                    current.getUserId(), current.getFamilyId());
+            revokeFamily(current.getFamilyId());
+            throw new UnauthorizedException("Refresh token was already used, please log in again");
+        }
+        if (current.getStatus() == RefreshTokenStatus.REVOKED || current.getExpiresAt().isBefore(LocalDateTime.now())) {
+            throw new UnauthorizedException("Refresh token was revoked or has expired, please log in again");
+        }
+
+        RefreshToken next = issue(current.getUserId(), current.getFamilyId(), clientBinding);
+        current.setStatus(RefreshTokenStatus.USED);
+        current.setReplacedBy(next.getId());
+        refreshTokenRepository.save(current);
+        return next;
+    }
+
+    /**
+     * Revoke a login session (logout): its refresh and access tokens stop working
+     */
+    @Transactional
+    public void revokeFamily(String familyId) {
+        LocalDateTime now = LocalDateTime.now();
+        refreshTokenRepository.revokeFamily(familyId, now);
+        TransactionCallbacks.afterCommit(() -> revocationList.revoke(familyId, accessTokenDeadline(now)));
+    }
+
+    /**
+     * Revoke every session of a user, e.g. after a role, store or status change
+     */
+    @Transactional
+    public void revokeUser(Long userId) {
+        List<String> familyIds = refreshTokenRepository.findActiveFamilyIdsByUserId(userId);
+        if (familyIds.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        refreshTokenRepository.revokeFamilies(familyIds, now);
+        long until = accessTokenDeadline(now);
+        TransactionCallbacks.afterCommit(() -> familyIds.forEach(familyId -> revocationList.revoke(familyId, until)));
+    }
+
+    /**
+     * Load families revoked while their access tokens may still be valid (at startup)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadRevocations() {
+        syncSince(LocalDateTime.now().minusNanos(tokenProvider.getAccessTokenExpiration() * 1_000_000));
+    }
+
+    /**
+     * Read revocations made by other application instances (every 30 seconds)
+     */
+    @Scheduled(fixedDelayString = "${security.revocation.sync-ms:30000}")
+    public void syncRevocations() {
+        LocalDateTime since = lastSync;
+        if (since != null) {
+            syncSince(since.minusSeconds(5));
+        }
+    }
+
+    private void syncSince(LocalDateTime since) {
+        LocalDateTime now = LocalDateTime.now();
+        for (Object[] row : refreshTokenRepository.findFamiliesRevokedSince(since)) {
+            revocationList.revoke((String) row[0], accessTokenDeadline((LocalDateTime) row[1]));
+        }
+        lastSync = now;
+    }
+
+    /**
+     * Delete expired tokens in batches and drop revocations whose access tokens have expired
+     * (hourly, at minute 40)
+     */
+    @Scheduled(cron = "${security.revocation.purge-cron:0 40 * * * *}")
+    public void purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        int deleted = 0;
+        while (true) {
+            List<String> ids = refreshTokenRepository.findExpiredIds(now, PageRequest.of(0, Math.max(1, purgeBatchSize)));
+            if (ids.isEmpty()) {
+                break;
+            }
+            refreshTokenRepository.deleteAllByIdInBatch(ids);
+            deleted += ids.size();
+        }
+        int dropped = revocationList.purge(System.currentTimeMillis());
+        if (deleted > 0 || dropped > 0) {
+            logger.info("Purged {} expired refresh token(s) and {} expired revocation(s)", deleted, dropped);
+        }
+    }
+
+    /**
+     * Next token of a used token when it was issued to the same client within the grace period
+     * and is still unused
+     */
+    private RefreshToken recentSuccessor(RefreshToken used, String clientBinding) {
+        if (used.getReplacedBy() == null || clientBinding == null) {
+            return null;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        return refreshTokenRepository.findLockedById(used.getReplacedBy())
+                .filter(next -> next.getStatus() == RefreshTokenStatus.ACTIVE)
+                .filter(next -> clientBinding.equals(next.getClientBinding()))
+                .filter(next -> next.getExpiresAt().isAfter(now))
+                .filter(next -> next.getCreatedAt() != null
+                        && next.getCreatedAt().isAfter(now.minusNanos(reuseGraceMs * 1_000_000)))
+                .orElse(null);
+    }
+
+    /**
+     * Tokens issued before refresh_tokens have no jti: the first use starts a family, recorded
+     * under an id derived from the token, so a second use is detected like any other reuse
+     */
+    private RefreshToken legacyToken(VerifiedToken token) {
+        if (token.getIssuedAt() == null || token.getExpiresAt() == null) {
+            return null;
+        }
+        String id = UUID.nameUUIDFromBytes(("legacy:" + token.getUserId() + ":" + token.getIssuedAt().getTime())
+                .getBytes(StandardCharsets.UTF_8)).toString();
+        return refreshTokenRepository.findLockedById(id).orElseGet(() -> refreshTokenRepository.save(RefreshToken.builder()
+                .id(id)
+                .familyId(UUID.randomUUID().toString())
+                .userId(token.getUserId())
+                .status(RefreshTokenStatus.ACTIVE)
+                .expiresAt(LocalDateTime.ofInstant(token.getExpiresAt().toInstant(), ZoneId.systemDefault()))
+                .build()));
+    }
+
+    private RefreshToken issue(Long userId, String familyId, String clientBinding) {
+        return refreshTokenRepository.save(RefreshToken.builder()
+                .id(UUID.randomUUID().toString())
+                .familyId(familyId)
+                .userId(userId)
+                .status(RefreshTokenStatus.ACTIVE)
+                .clientBinding(clientBinding)
+                .expiresAt(LocalDateTime.now().plusNanos(tokenProvider.getRefreshTokenExpiration() * 1_000_000))
+                .build());
+    }
+
+    // Access tokens issued before the revocation expire by this time (epoch ms)
+    private long accessTokenDeadline(LocalDateTime revokedAt) {
+        return revokedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                + tokenProvider.getAccessTokenExpiration();
+    }
+}
@@ -0,0 +1,130 @@
+package com.coffee.management.service;
+
+import com.coffee.management.dto.report.StoreReportResponse;
+import com.coffee.management.dto.report.SystemReportResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Cache of store and system reports keyed by (store, month).
+ * Entries are evicted after commit of the writes they depend on (time logs, tasks, payroll,
+ * shifts and assignments of that store and month; staff and requests of that store).
+ * Reports of the current or future months also expire after a short TTL, since overdue tasks
+ * and missed shifts change with time; closed months stay cached until evicted.
+ * Hit/miss/eviction statistics are published as cache.* metrics with cache=reports.
+ */
+@Service
+public class ReportCacheService {
+
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+    private static final String ALL_STORES = "ALL";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${report.cache.max-size:2000}")
+    private long maxSize;
+
+    @Value("${report.cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    // Key: "month:storeId", or "month:ALL" for the system report
+    private Cache<String, Object> cache;
+
+    @PostConstruct
+    public void createCache() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, Object>() {
+                    @Override
+                    public long expireAfterCreate(String key, Object value, long currentTime) {
+                        YearMonth month = YearMonth.parse(key.substring(0, key.indexOf(':')));
+                        return month.isBefore(YearMonth.now()) ? Long.MAX_VALUE : TimeUnit.SECONDS.toNanos(ttlSeconds);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Object value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Object value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "reports");
+    }
+
+    /**
+     * Cached report of a store, computed by the loader on a miss
+     */
+    public StoreReportResponse getStoreReport(Long storeId, String month, Supplier<StoreReportResponse> loader) {
+        return (StoreReportResponse) cache.get(key(month, storeId.toString()), k -> loader.get());
+    }
+
+    /**
+     * Cached system report, computed by the loader on a miss
+     */
+    public SystemReportResponse getSystemReport(String month, Supplier<SystemReportResponse> loader) {
+        return (SystemReportResponse) cache.get(key(month, ALL_STORES), k -> loader.get());
+    }
+
+    /**
+     * Evict the report of a store for the month containing the given time (and the system report of that month)
+     */
+    public void evict(Long storeId, LocalDateTime time) {
+        if (storeId != null && time != null) {
+            evict(storeId, time.format(MONTH_FORMAT));
+        }
+    }
+
+    /**
+     * Evict the report of a store for a month (and the system report of that month)
+     */
+    public void evict(Long storeId, String month) {
+        TransactionCallbacks.afterCommit(() -> {
+            cache.invalidate(key(month, storeId.toString()));
+            cache.invalidate(key(month, ALL_STORES));
+        });
+    }
+
+    /**
+     * Evict every report of a month
+     */
+    public void evictMonth(String month) {
+        TransactionCallbacks.afterCommit(() -> cache.asMap().keySet().removeIf(k -> k.startsWith(month + ":")));
+    }
+
+    /**
+     * Evict every month of a store and every system report, after changes that are not
+     * month-scoped (staff, requests, the store itself)
+     */
+    public void evictStore(Long storeId) {
+        if (storeId == null) {
+            return;
+        }
+        String storeSuffix = ":" + storeId;
+        String allSuffix = ":" + ALL_STORES;
+        TransactionCallbacks.afterCommit(() -> cache.asMap().keySet()
+                .removeIf(k -> k.endsWith(storeSuffix) || k.endsWith(allSuffix)));
+    }
+
+    private static String key(String month, String scope) {
+        return month + ":" + scope;
+    }
+}
@@ -5,10 +5,13 @@ import com.coffee.management.dto.report.SystemReportResponse;
 import com.coffee.management.entity.RequestStatus;
 import com.coffee.management.entity.Role;
 import com.coffee.management.entity.Store;
+import com.coffee.management.entity.StoreMonthlyMetrics;
+import com.coffee.management.entity.TaskStatus;
 import com.coffee.management.exception.ForbiddenException;
 import com.coffee.management.exception.ResourceNotFoundException;
 import com.coffee.management.repository.*;
 import com.coffee.management.security.UserPrincipal;
+import com.coffee.management.util.DateRange;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -17,10 +20,11 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
-import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * Service for generating reports
@@ -29,6 +33,10 @@ import java.util.stream.Collectors;
 @Transactional(readOnly = true)
 public class ReportService {
 
+    // Check-in later than / check-out earlier than this many minutes off the shift times counts as not punctual
+    static final int LATE_THRESHOLD_MINUTES = 15;
+    static final int EARLY_THRESHOLD_MINUTES = 15;
+
     @Autowired
     private StoreRepository storeRepository;
 
@@ -53,6 +61,15 @@ public class ReportService {
     @Autowired
     private ShiftAssignmentRepository shiftAssignmentRepository;
 
+    @Autowired
+    private AttendanceRepository attendanceRepository;
+
+    @Autowired
+    private StoreMonthlyMetricsRepository storeMonthlyMetricsRepository;
+
+    @Autowired
+    private ReportCacheService reportCacheService;
+
     /**
      * Generate report for a specific store
      */
@@ -62,18 +79,35 @@ public class ReportService {
             throw new ForbiddenException("You can only view reports for your store");
         }
 
+        return reportCacheService.getStoreReport(storeId, month, () -> buildStoreReport(storeId, month));
+    }
+
+    private StoreReportResponse buildStoreReport(Long storeId, String month) {
         Store store = storeRepository.findById(storeId)
                 .orElseThrow(() -> new ResourceNotFoundException("Store", "id", storeId));
 
         YearMonth yearMonth = YearMonth.parse(month);
-        LocalDateTime startDate = yearMonth.atDay(1).atStartOfDay();
-        LocalDateTime endDate = yearMonth.atEndOfMonth().atTime(23, 59, 59);
+        DateRange range = DateRange.ofMonth(yearMonth);
+
+        // Closed month: read the reconciled rollup row instead of aggregating raw data
+        if (yearMonth.isBefore(YearMonth.now())) {
+            StoreMonthlyMetrics metrics = storeMonthlyMetricsRepository.findByStoreIdAndMonth(storeId, month)
+                    .filter(m -> m.getReconciledAt() != null)
+                    .orElse(null);
+            if (metrics != null) {
+                StoreReportResponse report = toStoreReport(metrics, month, userRepository.countStaffByStore(storeId),
+                        countRequests(storeId));
+                // Tasks of the month keep becoming overdue after it closed, without any write
+                report.setOverdueTasks(taskRepository.countOverdueByStoreAndDateRange(storeId, LocalDateTime.now(), range));
+                return report;
+            }
+        }
 
         // Get statistics
         int totalStaff = (int) userRepository.countStaffByStore(storeId);
-        long totalShifts = shiftRepository.countByStoreAndMonth(storeId, yearMonth.getMonthValue(), yearMonth.getYear());
+        long totalShifts = shiftRepository.countByStoreAndDateRange(storeId, range);
         
-        Long totalMinutes = timeLogRepository.sumDurationByStoreAndDateRange(storeId, startDate, endDate);
+        Long totalMinutes = timeLogRepository.sumDurationByStoreAndDateRange(storeId, range);
         BigDecimal totalHoursWorked = totalMinutes != null ? 
                 BigDecimal.valueOf(totalMinutes).divide(BigDecimal.valueOf(60), 2, RoundingMode.HALF_UP) : BigDecimal.ZERO;
 
@@ -81,31 +115,26 @@ public class ReportService {
         if (totalPayroll == null) totalPayroll = BigDecimal.ZERO;
 
         // Request statistics
-        List<com.coffee.management.entity.Request> storeRequests = requestRepository.findByStoreId(storeId);
-        int pendingRequests = (int) storeRequests.stream().filter(r -> r.getStatus() == RequestStatus.PENDING).count();
-        int approvedRequests = (int) storeRequests.stream().filter(r -> r.getStatus() == RequestStatus.APPROVED).count();
-        int rejectedRequests = (int) storeRequests.stream().filter(r -> r.getStatus() == RequestStatus.REJECTED).count();
-
-        // Task statistics - count tasks created in the month
-        long totalTasks = taskRepository.countByStoreAndDateRange(storeId, startDate, endDate);
-        long completedTasks = taskRepository.countCompletedByStoreAndDateRange(storeId, startDate, endDate);
-        long overdueTasks = taskRepository.countOverdueByStoreAndDateRange(storeId, LocalDateTime.now(), startDate, endDate);
-        
-        // Count by status - tasks created in the month
-        List<com.coffee.management.entity.Task> tasks = taskRepository.findByStoreIdOrderByDueDateAsc(storeId);
-        long pendingTasks = tasks.stream()
-                .filter(t -> t.getStatus() == com.coffee.management.entity.TaskStatus.PENDING 
-                        && !t.getCreatedAt().isBefore(startDate) 
-                        && !t.getCreatedAt().isAfter(endDate))
-                .count();
-        long inProgressTasks = tasks.stream()
-                .filter(t -> t.getStatus() == com.coffee.management.entity.TaskStatus.IN_PROGRESS 
-                        && !t.getCreatedAt().isBefore(startDate) 
-                        && !t.getCreatedAt().isAfter(endDate))
-                .count();
+        Map<RequestStatus, Long> requests = countRequests(storeId);
+        int pendingRequests = requests.getOrDefault(RequestStatus.PENDING, 0L).intValue();
+        int approvedRequests = requests.getOrDefault(RequestStatus.APPROVED, 0L).intValue();
+        int rejectedRequests = requests.getOrDefault(RequestStatus.REJECTED, 0L).intValue();
+
+        // Task statistics - tasks created in the month by status, overdue summed across statuses;
+        // completed tasks are counted by the month they were completed in
+        Map<TaskStatus, Long> tasks = new EnumMap<>(TaskStatus.class);
+        long overdueTasks = 0;
+        for (Object[] row : taskRepository.countByStatusForStoreAndDateRange(storeId, LocalDateTime.now(), range)) {
+            tasks.put((TaskStatus) row[0], ((Number) row[1]).longValue());
+            overdueTasks += toLong(row[2]);
+        }
+        long totalTasks = tasks.values().stream().mapToLong(Long::longValue).sum();
+        long completedTasks = taskRepository.countCompletedByStoreAndDateRange(storeId, range);
+        long pendingTasks = tasks.getOrDefault(TaskStatus.PENDING, 0L);
+        long inProgressTasks = tasks.getOrDefault(TaskStatus.IN_PROGRESS, 0L);
 
         // Calculate attendance and punctuality metrics
-        AttendanceMetrics attendanceMetrics = calculateAttendanceMetrics(storeId, startDate, endDate);
+        AttendanceMetrics attendanceMetrics = calculateAttendanceMetrics(storeId, range);
 
         return StoreReportResponse.builder()
                 .storeId(storeId)
@@ -141,10 +170,10 @@ public class ReportService {
             throw new ForbiddenException("Only owner can view system reports");
         }
 
-        YearMonth yearMonth = YearMonth.parse(month);
-        LocalDateTime startDate = yearMonth.atDay(1).atStartOfDay();
-        LocalDateTime endDate = yearMonth.atEndOfMonth().atTime(23, 59, 59);
+        return reportCacheService.getSystemReport(month, () -> buildSystemReport(month));
+    }
 
+    private SystemReportResponse buildSystemReport(String month) {
         // Get all stores
         List<Store> stores = storeRepository.findAll();
         int totalStores = stores.size();
@@ -156,16 +185,16 @@ public class ReportService {
         BigDecimal totalHoursWorked = BigDecimal.ZERO;
         BigDecimal totalPayroll = BigDecimal.ZERO;
 
-        List<StoreReportResponse> storeReports = stores.stream()
-                .map(store -> {
-                    try {
-                        return getStoreReportInternal(store, month, startDate, endDate);
-                    } catch (Exception e) {
-                        return null;
-                    }
-                })
-                .filter(report -> report != null)
-                .collect(Collectors.toList());
+        Map<Long, Long> staffByStore = toLongMap(userRepository.countStaffGroupByStore());
+        Map<Long, Map<RequestStatus, Long>> requestsByStore = countRequestsByStore();
+
+        List<StoreReportResponse> storeReports = new ArrayList<>(stores.size());
+        for (StoreMonthlyMetrics metrics : computeMonthlyMetrics(stores, month)) {
+            Long storeId = metrics.getStore().getId();
+            storeReports.add(toStoreReport(metrics, month,
+                    staffByStore.getOrDefault(storeId, 0L),
+                    requestsByStore.getOrDefault(storeId, Map.of())));
+        }
 
         long totalTasks = 0;
         long totalCompletedTasks = 0;
@@ -234,157 +263,172 @@ public class ReportService {
                 .build();
     }
 
-    private StoreReportResponse getStoreReportInternal(Store store, String month, LocalDateTime startDate, LocalDateTime endDate) {
-        Long storeId = store.getId();
+    /**
+     * Compute month-scoped metrics for all given stores with a fixed number of grouped queries
+     * (GROUP BY store), independent of how many stores there are.
+     * Returned rows are not persisted; they are also used to reconcile the monthly rollup.
+     */
+    public List<StoreMonthlyMetrics> computeMonthlyMetrics(List<Store> stores, String month) {
+        DateRange range = DateRange.ofMonth(YearMonth.parse(month));
+        LocalDateTime now = LocalDateTime.now();
 
-        int totalStaff = (int) userRepository.countStaffByStore(storeId);
-        
-        YearMonth yearMonth = YearMonth.parse(month);
-        long totalShifts = shiftRepository.countByStoreAndMonth(storeId, yearMonth.getMonthValue(), yearMonth.getYear());
-        
-        Long totalMinutes = timeLogRepository.sumDurationByStoreAndDateRange(storeId, startDate, endDate);
-        BigDecimal totalHoursWorked = totalMinutes != null ? 
-                BigDecimal.valueOf(totalMinutes).divide(BigDecimal.valueOf(60), 2, RoundingMode.HALF_UP) : BigDecimal.ZERO;
+        Map<Long, Long> shiftsByStore = toLongMap(shiftRepository.countGroupByStoreAndDateRange(range));
+        Map<Long, Long> minutesByStore = toLongMap(timeLogRepository.sumDurationGroupByStore(range));
+        Map<Long, Long> completedTasksByStore = toLongMap(taskRepository.countCompletedGroupByStore(range));
 
-        BigDecimal totalPayroll = payrollRepository.sumTotalPayByStoreAndMonth(storeId, month);
-        if (totalPayroll == null) totalPayroll = BigDecimal.ZERO;
+        Map<Long, BigDecimal> payrollByStore = new HashMap<>();
+        for (Object[] row : payrollRepository.sumTotalPayGroupByStore(month)) {
+            if (row[1] != null) {
+                payrollByStore.put((Long) row[0], (BigDecimal) row[1]);
+            }
+        }
 
-        List<com.coffee.management.entity.Request> storeRequests = requestRepository.findByStoreId(storeId);
-        int pendingRequests = (int) storeRequests.stream().filter(r -> r.getStatus() == RequestStatus.PENDING).count();
-        int approvedRequests = (int) storeRequests.stream().filter(r -> r.getStatus() == RequestStatus.APPROVED).count();
-        int rejectedRequests = (int) storeRequests.stream().filter(r -> r.getStatus() == RequestStatus.REJECTED).count();
+        // Task counts (created in the month) keyed by store, then by status; overdue is summed across statuses
+        Map<Long, Map<TaskStatus, Long>> tasksByStore = new HashMap<>();
+        Map<Long, Long> overdueTasksByStore = new HashMap<>();
+        for (Object[] row : taskRepository.countGroupByStoreAndStatus(now, range)) {
+            Long storeId = (Long) row[0];
+            tasksByStore.computeIfAbsent(storeId, k -> new EnumMap<>(TaskStatus.class))
+                    .put((TaskStatus) row[1], ((Number) row[2]).longValue());
+            long overdue = row[3] != null ? ((Number) row[3]).longValue() : 0L;
+            overdueTasksByStore.merge(storeId, overdue, Long::sum);
+        }
 
-        // Task statistics - count tasks created in the month
-        long totalTasks = taskRepository.countByStoreAndDateRange(storeId, startDate, endDate);
-        long completedTasks = taskRepository.countCompletedByStoreAndDateRange(storeId, startDate, endDate);
-        long overdueTasks = taskRepository.countOverdueByStoreAndDateRange(storeId, LocalDateTime.now(), startDate, endDate);
-        
-        // Count by status - tasks created in the month
-        List<com.coffee.management.entity.Task> tasks = taskRepository.findByStoreIdOrderByDueDateAsc(storeId);
-        long pendingTasks = tasks.stream()
-                .filter(t -> t.getStatus() == com.coffee.management.entity.TaskStatus.PENDING 
-                        && !t.getCreatedAt().isBefore(startDate) 
-                        && !t.getCreatedAt().isAfter(endDate))
-                .count();
-        long inProgressTasks = tasks.stream()
-                .filter(t -> t.getStatus() == com.coffee.management.entity.TaskStatus.IN_PROGRESS 
-                        && !t.getCreatedAt().isBefore(startDate) 
-                        && !t.getCreatedAt().isAfter(endDate))
-                .count();
+        Map<Long, AttendanceMetrics> attendanceByStore = calculateAttendanceMetricsByStore(range, now);
+
+        List<StoreMonthlyMetrics> result = new ArrayList<>(stores.size());
+        for (Store store : stores) {
+            Long storeId = store.getId();
+            Map<TaskStatus, Long> tasks = tasksByStore.getOrDefault(storeId, Map.of());
+            AttendanceMetrics attendance = attendanceByStore.getOrDefault(storeId, AttendanceMetrics.EMPTY);
+
+            result.add(StoreMonthlyMetrics.builder()
+                    .store(store)
+                    .month(month)
+                    .totalShifts(shiftsByStore.getOrDefault(storeId, 0L))
+                    .totalMinutes(minutesByStore.getOrDefault(storeId, 0L))
+                    .totalPayroll(payrollByStore.getOrDefault(storeId, BigDecimal.ZERO))
+                    .totalTasks(tasks.values().stream().mapToLong(Long::longValue).sum())
+                    .completedTasks(completedTasksByStore.getOrDefault(storeId, 0L))
+                    .overdueTasks(overdueTasksByStore.getOrDefault(storeId, 0L))
+                    .pendingTasks(tasks.getOrDefault(TaskStatus.PENDING, 0L))
+                    .inProgressTasks(tasks.getOrDefault(TaskStatus.IN_PROGRESS, 0L))
+                    .totalAssignedShifts(attendance.totalAssignedShifts)
+                    .attendedShifts(attendance.attendedShifts)
+                    .missedShifts(attendance.missedShifts)
+                    .lateCheckIns(attendance.lateCheckIns)
+                    .earlyCheckOuts(attendance.earlyCheckOuts)
+                    .build());
+        }
+        return result;
+    }
 
-        // Calculate attendance and punctuality metrics
-        AttendanceMetrics attendanceMetrics = calculateAttendanceMetrics(storeId, startDate, endDate);
+    /**
+     * Build a store report from month-scoped metrics plus the current staff and request counts
+     * (those two are not month-scoped and are always read live)
+     */
+    private StoreReportResponse toStoreReport(StoreMonthlyMetrics metrics, String month, long totalStaff,
+                                              Map<RequestStatus, Long> requests) {
+        BigDecimal totalHoursWorked = BigDecimal.valueOf(metrics.getTotalMinutes())
+                .divide(BigDecimal.valueOf(60), 2, RoundingMode.HALF_UP);
+        AttendanceMetrics attendance = AttendanceMetrics.of(metrics.getTotalAssignedShifts(), metrics.getAttendedShifts(),
+                metrics.getMissedShifts(), metrics.getLateCheckIns(), metrics.getEarlyCheckOuts());
 
         return StoreReportResponse.builder()
-                .storeId(storeId)
-                .storeName(store.getName())
+                .storeId(metrics.getStore().getId())
+                .storeName(metrics.getStore().getName())
                 .month(month)
-                .totalStaff(totalStaff)
-                .totalShifts(totalShifts)
+                .totalStaff((int) totalStaff)
+                .totalShifts(metrics.getTotalShifts())
                 .totalHoursWorked(totalHoursWorked)
-                .totalPayroll(totalPayroll)
-                .pendingRequests(pendingRequests)
-                .approvedRequests(approvedRequests)
-                .rejectedRequests(rejectedRequests)
-                .totalTasks(totalTasks)
-                .completedTasks(completedTasks)
-                .overdueTasks(overdueTasks)
-                .pendingTasks(pendingTasks)
-                .inProgressTasks(inProgressTasks)
-                .totalAssignedShifts(attendanceMetrics.totalAssignedShifts)
-                .attendedShifts(attendanceMetrics.attendedShifts)
-                .missedShifts(attendanceMetrics.missedShifts)
-                .attendanceRate(attendanceMetrics.attendanceRate)
-                .lateCheckIns(attendanceMetrics.lateCheckIns)
-                .earlyCheckOuts(attendanceMetrics.earlyCheckOuts)
-                .punctualityRate(attendanceMetrics.punctualityRate)
+                .totalPayroll(metrics.getTotalPayroll())
+                .pendingRequests(requests.getOrDefault(RequestStatus.PENDING, 0L).intValue())
+                .approvedRequests(requests.getOrDefault(RequestStatus.APPROVED, 0L).intValue())
+                .rejectedRequests(requests.getOrDefault(RequestStatus.REJECTED, 0L).intValue())
+                .totalTasks(metrics.getTotalTasks())
+                .completedTasks(metrics.getCompletedTasks())
+                .overdueTasks(metrics.getOverdueTasks())
+                .pendingTasks(metrics.getPendingTasks())
+                .inProgressTasks(metrics.getInProgressTasks())
+                .totalAssignedShifts(attendance.totalAssignedShifts)
+                .attendedShifts(attendance.attendedShifts)
+                .missedShifts(attendance.missedShifts)
+                .attendanceRate(attendance.attendanceRate)
+                .lateCheckIns(attendance.lateCheckIns)
+                .earlyCheckOuts(attendance.earlyCheckOuts)
+                .punctualityRate(attendance.punctualityRate)
                 .build();
     }
 
     /**
-     * Calculate attendance and punctuality metrics for a store
+     * Request counts of a store keyed by status
      */
-    private AttendanceMetrics calculateAttendanceMetrics(Long storeId, LocalDateTime startDate, LocalDateTime endDate) {
-        // Get all shift assignments for the store in the date range
-        List<com.coffee.management.entity.ShiftAssignment> assignments = 
-                shiftAssignmentRepository.findByStoreIdAndDateRange(storeId, startDate, endDate);
-        
-        long totalAssignedShifts = assignments.size();
-        long attendedShifts = 0;
-        long missedShifts = 0;
-        long lateCheckIns = 0;
-        long earlyCheckOuts = 0;
-
-        // Get all time logs for the store in the date range
-        List<com.coffee.management.entity.TimeLog> timeLogs = 
-                timeLogRepository.findByStoreAndDateRange(storeId, startDate, endDate);
-
-        // Create a map of shift ID to time log for quick lookup
-        Map<Long, com.coffee.management.entity.TimeLog> timeLogByShift = timeLogs.stream()
-                .filter(tl -> tl.getShift() != null)
-                .collect(Collectors.toMap(
-                        tl -> tl.getShift().getId(),
-                        tl -> tl,
-                        (existing, replacement) -> existing
-                ));
+    private Map<RequestStatus, Long> countRequests(Long storeId) {
+        Map<RequestStatus, Long> requests = new EnumMap<>(RequestStatus.class);
+        for (Object[] row : requestRepository.countByStatusForStore(storeId)) {
+            requests.put((RequestStatus) row[0], ((Number) row[1]).longValue());
+        }
+        return requests;
+    }
 
-        LocalDateTime now = LocalDateTime.now();
+    /**
+     * Request counts keyed by store, then by status
+     */
+    private Map<Long, Map<RequestStatus, Long>> countRequestsByStore() {
+        Map<Long, Map<RequestStatus, Long>> requestsByStore = new HashMap<>();
+        for (Object[] row : requestRepository.countGroupByStoreAndStatus()) {
+            requestsByStore.computeIfAbsent((Long) row[0], k -> new EnumMap<>(RequestStatus.class))
+                    .put((RequestStatus) row[1], ((Number) row[2]).longValue());
+        }
+        return requestsByStore;
+    }
 
-        // Process each assignment
-        for (com.coffee.management.entity.ShiftAssignment assignment : assignments) {
-            com.coffee.management.entity.Shift shift = assignment.getShift();
-            com.coffee.management.entity.TimeLog timeLog = timeLogByShift.get(shift.getId());
-
-            if (timeLog != null && timeLog.getCheckIn() != null) {
-                // Employee attended this shift
-                attendedShifts++;
-
-                // Check for late check-in (> 15 minutes after shift start)
-                if (timeLog.getCheckIn().isAfter(shift.getStartDatetime().plusMinutes(15))) {
-                    lateCheckIns++;
-                }
-
-                // Check for early check-out (> 15 minutes before shift end)
-                if (timeLog.getCheckOut() != null && 
-                    timeLog.getCheckOut().isBefore(shift.getEndDatetime().minusMinutes(15))) {
-                    earlyCheckOuts++;
-                }
-            } else if (shift.getEndDatetime().isBefore(now)) {
-                // Shift has passed without attendance
-                missedShifts++;
+    /**
+     * Calculate attendance and punctuality metrics for every store in one grouped query
+     */
+    private Map<Long, AttendanceMetrics> calculateAttendanceMetricsByStore(DateRange range, LocalDateTime now) {
+        Map<Long, AttendanceMetrics> result = new HashMap<>();
+        for (Object[] row : attendanceRepository.countGroupByStore(null, range, now,
+                LATE_THRESHOLD_MINUTES, EARLY_THRESHOLD_MINUTES)) {
+            result.put(((Number) row[0]).longValue(), toAttendanceMetrics(row));
+        }
+        return result;
+    }
+
+    private static Map<Long, Long> toLongMap(List<Object[]> rows) {
+        Map<Long, Long> result = new HashMap<>();
+        for (Object[] row : rows) {
+            if (row[0] != null && row[1] != null) {
+                result.put((Long) row[0], ((Number) row[1]).longValue());
             }
         }
+        return result;
+    }
 
-        // Calculate rates
-        BigDecimal attendanceRate = totalAssignedShifts > 0
-                ? BigDecimal.valueOf(attendedShifts)
-                        .divide(BigDecimal.valueOf(totalAssignedShifts), 4, RoundingMode.HALF_UP)
-                        .multiply(BigDecimal.valueOf(100))
-                        .setScale(2, RoundingMode.HALF_UP)
-                : BigDecimal.ZERO;
+    /**
+     * Calculate attendance and punctuality metrics for a store
+     */
+    private AttendanceMetrics calculateAttendanceMetrics(Long storeId, DateRange range) {
+        List<Object[]> rows = attendanceRepository.countGroupByStore(storeId, range, LocalDateTime.now(),
+                LATE_THRESHOLD_MINUTES, EARLY_THRESHOLD_MINUTES);
+        return rows.isEmpty() ? AttendanceMetrics.EMPTY : toAttendanceMetrics(rows.get(0));
+    }
 
-        BigDecimal punctualityRate = attendedShifts > 0
-                ? BigDecimal.valueOf(attendedShifts - lateCheckIns - earlyCheckOuts)
-                        .divide(BigDecimal.valueOf(attendedShifts), 4, RoundingMode.HALF_UP)
-                        .multiply(BigDecimal.valueOf(100))
-                        .setScale(2, RoundingMode.HALF_UP)
-                : BigDecimal.ZERO;
+    // Row: (storeId, assigned, attended, missed, late, early)
+    private static AttendanceMetrics toAttendanceMetrics(Object[] row) {
+        return AttendanceMetrics.of(toLong(row[1]), toLong(row[2]), toLong(row[3]), toLong(row[4]), toLong(row[5]));
+    }
 
-        return new AttendanceMetrics(
-                totalAssignedShifts,
-                attendedShifts,
-                missedShifts,
-                attendanceRate,
-                lateCheckIns,
-                earlyCheckOuts,
-                punctualityRate
-        );
+    private static long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
     }
 
     /**
      * Helper class to hold attendance metrics
      */
     private static class AttendanceMetrics {
+        static final AttendanceMetrics EMPTY = of(0, 0, 0, 0, 0);
+
         final long totalAssignedShifts;
         final long attendedShifts;
         final long missedShifts;
@@ -404,6 +448,29 @@ public class ReportService {
             this.earlyCheckOuts = earlyCheckOuts;
             this.punctualityRate = punctualityRate;
         }
+
+        /**
+         * Build metrics from raw counters, calculating attendance and punctuality rates
+         */
+        static AttendanceMetrics of(long totalAssignedShifts, long attendedShifts, long missedShifts,
+                                    long lateCheckIns, long earlyCheckOuts) {
+            BigDecimal attendanceRate = totalAssignedShifts > 0
+                    ? BigDecimal.valueOf(attendedShifts)
+                            .divide(BigDecimal.valueOf(totalAssignedShifts), 4, RoundingMode.HALF_UP)
+                            .multiply(BigDecimal.valueOf(100))
+                            .setScale(2, RoundingMode.HALF_UP)
+                    : BigDecimal.ZERO;
+
+            BigDecimal punctualityRate = attendedShifts > 0
+                    ? BigDecimal.valueOf(attendedShifts - lateCheckIns - earlyCheckOuts)
+                            .divide(BigDecimal.valueOf(attendedShifts), 4, RoundingMode.HALF_UP)
+                            .multiply(BigDecimal.valueOf(100))
+                            .setScale(2, RoundingMode.HALF_UP)
+                    : BigDecimal.ZERO;
+
+            return new AttendanceMetrics(totalAssignedShifts, attendedShifts, missedShifts,
+                    attendanceRate, lateCheckIns, earlyCheckOuts, punctualityRate);
+        }
     }
 }
 
@@ -34,11 +34,14 @@ public class RequestService {
     private UserRepository userRepository;
 
     @Autowired
-    private NotificationService notificationService;
+    private NotificationOutboxService notificationOutbox;
 
     @Autowired
     private AuditService auditService;
 
+    @Autowired
+    private ReportCacheService reportCacheService;
+
     /**
      * Create a new request (leave or shift change)
      */
@@ -61,10 +64,13 @@ public class RequestService {
                 .build();
 
         Request saved = requestRepository.save(newRequest);
+        if (user.getStore() != null) {
+            reportCacheService.evictStore(user.getStore().getId());
+        }
 
         // Notify manager
         if (user.getStore() != null && user.getStore().getManager() != null) {
-            notificationService.sendNotification(
+            notificationOutbox.enqueue(
                     user.getStore().getManager().getId(),
                     "Yêu cầu mới từ nhân viên",
                     user.getFullName() + " đã gửi yêu cầu " + 
@@ -165,10 +171,13 @@ public class RequestService {
         request.setReviewNote(reviewRequest.getNote());
 
         Request updated = requestRepository.save(request);
+        if (updated.getUser().getStore() != null) {
+            reportCacheService.evictStore(updated.getUser().getStore().getId());
+        }
 
         // Notify the requester
         String statusText = reviewRequest.getStatus() == RequestStatus.APPROVED ? "đã được duyệt" : "bị từ chối";
-        notificationService.sendNotification(
+        notificationOutbox.enqueue(
                 request.getUser().getId(),
                 "Yêu cầu " + statusText,
                 "Yêu cầu " + (request.getType().name().equals("LEAVE") ? "nghỉ phép" : "đổi ca") + 
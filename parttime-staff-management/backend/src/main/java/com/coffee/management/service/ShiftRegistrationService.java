@@ -35,11 +35,14 @@ public class ShiftRegistrationService {
     private UserRepository userRepository;
 
     @Autowired
-    private NotificationService notificationService;
+    private NotificationOutboxService notificationOutbox;
 
     @Autowired
     private ShiftFinalizationRepository finalizationRepository;
 
+    @Autowired
+    private ReportCacheService reportCacheService;
+
     /**
      * Create shift template for registration
      */
@@ -98,6 +101,7 @@ public class ShiftRegistrationService {
                 .build();
 
         Shift saved = shiftRepository.save(template);
+        reportCacheService.evict(saved.getStore().getId(), saved.getStartDatetime());
         return ShiftTemplateResponse.fromEntity(saved);
     }
 
@@ -172,7 +176,7 @@ public class ShiftRegistrationService {
 
         // Send notification to manager
         if (template.getStore().getManager() != null) {
-            notificationService.sendNotification(template.getStore().getManager().getId(),
+            notificationOutbox.enqueue(template.getStore().getManager().getId(),
                     "Nhân viên đăng ký ca làm",
                     user.getFullName() + " đã đăng ký ca " + template.getTitle() + " vào " + request.getRegistrationDate(),
                     "/shifts");
@@ -9,12 +9,16 @@ import com.coffee.management.repository.*;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import com.coffee.management.security.UserPrincipal;
+import com.coffee.management.util.DateRange;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -38,7 +42,7 @@ public class ShiftService {
     private UserRepository userRepository;
 
     @Autowired
-    private NotificationService notificationService;
+    private NotificationOutboxService notificationOutbox;
 
     @Autowired
     private AuditService auditService;
@@ -49,28 +53,101 @@ public class ShiftService {
     @Autowired
     private ShiftFinalizationRepository finalizationRepository;
 
+    @Autowired
+    private EmployeeRankingEngine rankingEngine;
+
+    @Autowired
+    private ReportCacheService reportCacheService;
+
+    @Autowired
+    private StoreMetricsService storeMetricsService;
+
     /**
      * Get shifts by store
      */
     public List<ShiftResponse> getShiftsByStore(Long storeId, LocalDateTime startDate, LocalDateTime endDate) {
-        List<Shift> shifts;
-        
         if (startDate != null && endDate != null) {
-            shifts = shiftRepository.findByStoreAndDateRange(storeId, startDate, endDate);
-        } else {
-            shifts = shiftRepository.findByStoreId(storeId);
+            return loadCalendar(List.of(storeId), false, DateRange.closed(startDate, endDate));
         }
 
-        return shifts.stream()
+        return shiftRepository.findByStoreId(storeId).stream()
                 .map(ShiftResponse::fromEntity)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Shift calendar of a week (Owner: the given stores, or all stores when none is given;
+     * others: their own store)
+     */
+    @Transactional(readOnly = true)
+    public List<ShiftResponse> getCalendar(LocalDate weekStart, List<Long> storeIds, UserPrincipal currentUser) {
+        DateRange week = DateRange.ofWeek(weekStart);
+        if (currentUser.getRole().equals("OWNER")) {
+            boolean allStores = storeIds == null || storeIds.isEmpty();
+            return loadCalendar(allStores ? List.of() : storeIds, allStores, week);
+        }
+        if (currentUser.getStoreId() == null) {
+            throw new BadRequestException("You are not assigned to any store");
+        }
+        if (storeIds != null && storeIds.stream().anyMatch(id -> !id.equals(currentUser.getStoreId()))) {
+            throw new ForbiddenException("You can only view shifts of your store");
+        }
+        return loadCalendar(List.of(currentUser.getStoreId()), false, week);
+    }
+
+    /**
+     * Shifts with their assignments in two queries (shifts, then assignments of the same shifts),
+     * read as columns so no store, user or assignment entity is loaded
+     */
+    private List<ShiftResponse> loadCalendar(List<Long> storeIds, boolean allStores, DateRange range) {
+        // Never bind an empty IN list
+        List<Long> storeFilter = storeIds.isEmpty() ? List.of(-1L) : storeIds;
+
+        Map<Long, List<ShiftAssignmentResponse>> assignmentsByShift = new HashMap<>();
+        for (Object[] row : assignmentRepository.findCalendarRows(storeFilter, allStores, range)) {
+            assignmentsByShift.computeIfAbsent((Long) row[1], k -> new ArrayList<>()).add(ShiftAssignmentResponse.builder()
+                    .id((Long) row[0])
+                    .shiftId((Long) row[1])
+                    .userId((Long) row[2])
+                    .userName((String) row[3])
+                    .userEmail((String) row[4])
+                    .status((AssignmentStatus) row[5])
+                    .assignedAt((LocalDateTime) row[6])
+                    .build());
+        }
+
+        List<ShiftResponse> shifts = new ArrayList<>();
+        for (Object[] row : shiftRepository.findCalendarRows(storeFilter, allStores, range)) {
+            List<ShiftAssignmentResponse> assignments = assignmentsByShift.getOrDefault((Long) row[0], new ArrayList<>());
+            shifts.add(ShiftResponse.builder()
+                    .id((Long) row[0])
+                    .storeId((Long) row[1])
+                    .storeName((String) row[2])
+                    .title((String) row[3])
+                    .startDatetime((LocalDateTime) row[4])
+                    .endDatetime((LocalDateTime) row[5])
+                    .requiredSlots((Integer) row[6])
+                    .createdById((Long) row[7])
+                    .createdByName((String) row[8])
+                    .createdAt((LocalDateTime) row[9])
+                    .assignedCount(assignments.size())
+                    .confirmedCount((int) assignments.stream()
+                            .filter(a -> a.getStatus() == AssignmentStatus.CONFIRMED)
+                            .count())
+                    .assignments(assignments)
+                    .build());
+        }
+        return shifts;
+    }
+
     /**
      * Get actual shifts (not templates) by store for registration
      */
     public List<ShiftResponse> getActualShiftsForRegistration(Long storeId, LocalDateTime startDate, LocalDateTime endDate) {
-        List<Shift> shifts = shiftRepository.findActualShiftsByStoreAndDateRange(storeId, startDate, endDate);
+        if (startDate == null || endDate == null) {
+            return List.of();
+        }
+        List<Shift> shifts = shiftRepository.findActualShiftsByStoreAndDateRange(storeId, DateRange.closed(startDate, endDate));
         return shifts.stream()
                 .map(ShiftResponse::fromEntity)
                 .collect(Collectors.toList());
@@ -120,6 +197,7 @@ public class ShiftService {
                 .build();
 
         Shift savedShift = shiftRepository.save(shift);
+        refreshReport(store.getId(), savedShift.getStartDatetime());
         
         auditService.log(currentUser.getId(), "CREATE", "SHIFT", savedShift.getId(), 
                 "Created shift: " + savedShift.getTitle() + " at store " + store.getName());
@@ -141,6 +219,9 @@ public class ShiftService {
             }
         }
 
+        LocalDateTime oldStart = shift.getStartDatetime();
+        LocalDateTime oldEnd = shift.getEndDatetime();
+
         if (request.getTitle() != null) {
             shift.setTitle(request.getTitle());
         }
@@ -175,6 +256,14 @@ public class ShiftService {
         }
 
         Shift updatedShift = shiftRepository.save(shift);
+
+        // Shift times feed the employee rankings of both the old and the new month
+        if (!oldStart.equals(updatedShift.getStartDatetime()) || !oldEnd.equals(updatedShift.getEndDatetime())) {
+            rankingEngine.invalidateMonth(oldStart);
+            rankingEngine.invalidateMonth(updatedShift.getStartDatetime());
+            refreshReport(updatedShift.getStore().getId(), oldStart);
+            refreshReport(updatedShift.getStore().getId(), updatedShift.getStartDatetime());
+        }
         return ShiftResponse.fromEntity(updatedShift);
     }
 
@@ -215,6 +304,8 @@ public class ShiftService {
         }
 
         shiftRepository.delete(shift);
+        rankingEngine.invalidateMonth(shift.getStartDatetime());
+        refreshReport(shift.getStore().getId(), shift.getStartDatetime());
         
         String shiftType = (shift.getIsTemplate() != null && shift.getIsTemplate()) ? "template" : "shift";
         auditService.log(currentUser.getId(), "DELETE", "SHIFT", id, 
@@ -300,7 +391,7 @@ public class ShiftService {
                     assignmentRepository.save(assignment);
                     
                     // Send notification
-                    notificationService.sendNotification(userId, 
+                    notificationOutbox.enqueue(userId, 
                             "Đăng ký ca làm đã được xác nhận",
                             "Quản lý đã xác nhận đăng ký ca " + shift.getTitle() + " vào " + shift.getStartDatetime().toLocalDate(),
                             "/my-shifts");
@@ -314,9 +405,11 @@ public class ShiftService {
                         .status(AssignmentStatus.CONFIRMED) // Bắt buộc làm khi quản lý phân công
                         .build();
                 assignmentRepository.save(assignment);
+                rankingEngine.recordAssignment(userId, shift);
+                refreshReport(shift.getStore().getId(), shift.getStartDatetime());
 
                 // Send notification
-                notificationService.sendNotification(userId, 
+                notificationOutbox.enqueue(userId, 
                         "Ca làm mới được phân công",
                         "Bạn đã được phân công ca " + shift.getTitle() + " vào " + shift.getStartDatetime().toLocalDate(),
                         "/my-shifts");
@@ -329,7 +422,7 @@ public class ShiftService {
             assignmentRepository.save(assignment);
             
             // Gửi thông báo cho người bị từ chối
-            notificationService.sendNotification(assignment.getUser().getId(),
+            notificationOutbox.enqueue(assignment.getUser().getId(),
                     "Đăng ký ca làm đã bị từ chối",
                     "Đăng ký ca " + shift.getTitle() + " vào " + shift.getStartDatetime().toLocalDate() + " của bạn đã bị từ chối. Quản lý đã chọn nhân viên khác cho ca này.",
                     "/my-shifts");
@@ -364,17 +457,15 @@ public class ShiftService {
 
         // Delete assignment
         assignmentRepository.delete(assignment);
+        rankingEngine.removeAssignment(userId, shift);
+        refreshReport(shift.getStore().getId(), shift.getStartDatetime());
 
         // Send notification to user (userId is already available, no need to load user object)
-        try {
-            notificationService.sendNotification(userId,
-                    "Ca làm đã bị hủy phân công",
-                    "Bạn đã bị gỡ khỏi ca " + shiftTitle + " vào " + shiftDate,
-                    "/my-shifts");
-        } catch (Exception e) {
-            // Log error but don't fail the deletion if notification fails
-            // This ensures assignment is still deleted even if notification service has issues
-        }
+        // (queued in the outbox, a failing notification does not fail the deletion)
+        notificationOutbox.enqueue(userId,
+                "Ca làm đã bị hủy phân công",
+                "Bạn đã bị gỡ khỏi ca " + shiftTitle + " vào " + shiftDate,
+                "/my-shifts");
 
         // Refresh shift data with all relationships loaded to avoid LazyInitializationException
         Shift updatedShift = shiftRepository.findByIdWithRelations(shiftId)
@@ -448,10 +539,12 @@ public class ShiftService {
                 .status(AssignmentStatus.ASSIGNED)
                 .build();
         assignmentRepository.save(assignment);
+        rankingEngine.recordAssignment(user.getId(), shift);
+        refreshReport(shift.getStore().getId(), shift.getStartDatetime());
 
         // Send notification to manager
         if (shift.getStore().getManager() != null) {
-            notificationService.sendNotification(shift.getStore().getManager().getId(),
+            notificationOutbox.enqueue(shift.getStore().getManager().getId(),
                     "Nhân viên đăng ký ca làm",
                     user.getFullName() + " đã đăng ký ca " + shift.getTitle() + " vào " + shiftDate,
                     "/shifts");
@@ -462,12 +555,11 @@ public class ShiftService {
                 .orElseThrow(() -> new ResourceNotFoundException("Shift", "id", shiftId));
         return ShiftResponse.fromEntity(updatedShift);
     }
-}
-
-
-
-
-
-
-
 
+    // Shift counts and attendance are reported under the store and month of the shift; closed
+    // months are read from the rollup, which has no delta for them and is recomputed instead
+    private void refreshReport(Long storeId, LocalDateTime shiftStart) {
+        reportCacheService.evict(storeId, shiftStart);
+        storeMetricsService.reconcileClosedMonth(storeId, shiftStart);
+    }
+}
@@ -0,0 +1,326 @@
+package com.coffee.management.service;
+
+import com.coffee.management.entity.*;
+import com.coffee.management.repository.PayrollRepository;
+import com.coffee.management.repository.ShiftRepository;
+import com.coffee.management.repository.StoreMonthlyMetricsRepository;
+import com.coffee.management.repository.StoreRepository;
+import com.coffee.management.repository.TimeLogRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Service maintaining the store_monthly_metrics rollup.
+ * Business writes apply small deltas in the same transaction; a nightly job recomputes
+ * the recent months from raw data to repair any drift. Older closed months are reconciled
+ * once by a backfill at startup, so their store reports are read from the rollup too.
+ * Counters without deltas (shifts, attendance, overdue tasks) are kept right in closed months
+ * by re-reconciling the store and month after any write touching them.
+ */
+@Service
+@Transactional
+public class StoreMetricsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StoreMetricsService.class);
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    @Autowired
+    private StoreMonthlyMetricsRepository storeMonthlyMetricsRepository;
+
+    @Autowired
+    private StoreRepository storeRepository;
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private ReportCacheService reportCacheService;
+
+    @Autowired
+    private ShiftRepository shiftRepository;
+
+    @Autowired
+    private TimeLogRepository timeLogRepository;
+
+    @Autowired
+    private PayrollRepository payrollRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Reconciles after commit run in a transaction of their own, not in the one that just committed
+    private TransactionTemplate afterCommitTransaction;
+
+    @Value("${report.metrics.backfill-enabled:true}")
+    private boolean backfillEnabled;
+
+    @Value("${report.metrics.backfill-max-months:36}")
+    private int backfillMaxMonths;
+
+    @PostConstruct
+    public void initTransactions() {
+        afterCommitTransaction = new TransactionTemplate(transactionManager);
+        afterCommitTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Add the worked minutes of a checked-out time log to the store and month of its check-in
+     */
+    public void recordTimeLog(TimeLog timeLog) {
+        Store store = timeLog.getUser().getStore();
+        if (store == null || timeLog.getCheckIn() == null || timeLog.getDurationMinutes() == null) {
+            return;
+        }
+        storeMonthlyMetricsRepository.addWorkedMinutes(store.getId(),
+                timeLog.getCheckIn().format(MONTH_FORMAT), timeLog.getDurationMinutes());
+        reportCacheService.evict(store.getId(), timeLog.getCheckIn());
+    }
+
+    /**
+     * Add the change of a user's total pay (gross pay + adjustments) to the store payroll of the month
+     */
+    public void recordPayrollChange(User user, String month, BigDecimal delta) {
+        if (user.getStore() != null) {
+            recordStorePayrollChange(user.getStore().getId(), month, delta);
+        }
+    }
+
+    /**
+     * Add an already aggregated change of total pay to the store payroll of the month
+     */
+    public void recordStorePayrollChange(Long storeId, String month, BigDecimal delta) {
+        if (storeId == null || delta == null || delta.signum() == 0) {
+            return;
+        }
+        storeMonthlyMetricsRepository.addPayroll(storeId, month, delta);
+        reportCacheService.evict(storeId, month);
+    }
+
+    /**
+     * Recompute the store payroll of the month from the payrolls table, after a batch write.
+     * Unlike a delta this stays right when rows of the batch were left unchanged (no longer
+     * DRAFT) or were rewritten by an overlapping run.
+     */
+    public void refreshStorePayroll(Collection<Long> storeIds, String month) {
+        if (storeIds.isEmpty()) {
+            return;
+        }
+        storeMonthlyMetricsRepository.refreshPayroll(storeIds, month);
+        storeIds.forEach(storeId -> reportCacheService.evict(storeId, month));
+    }
+
+    /**
+     * Record a task status transition.
+     * oldStatus is null for a newly created task, newStatus is null for a deleted task.
+     */
+    public void recordTaskStatusChange(Task task, TaskStatus oldStatus, TaskStatus newStatus) {
+        Long storeId = task.getStore().getId();
+
+        // Task counters are bucketed by the month the task was created in
+        LocalDateTime createdAt = task.getCreatedAt() != null ? task.getCreatedAt() : LocalDateTime.now();
+
+        // Any task change may move the overdue count of the month, even without a status change
+        reportCacheService.evict(storeId, createdAt);
+        reconcileClosedMonth(storeId, createdAt);
+        if (task.getCompletedAt() != null) {
+            reconcileClosedMonth(storeId, task.getCompletedAt());
+        }
+        if (oldStatus == newStatus) {
+            return;
+        }
+        long total = (newStatus != null ? 1 : 0) - (oldStatus != null ? 1 : 0);
+        long pending = indicator(newStatus, TaskStatus.PENDING) - indicator(oldStatus, TaskStatus.PENDING);
+        long inProgress = indicator(newStatus, TaskStatus.IN_PROGRESS) - indicator(oldStatus, TaskStatus.IN_PROGRESS);
+        if (total != 0 || pending != 0 || inProgress != 0) {
+            storeMonthlyMetricsRepository.addTaskCounts(storeId, createdAt.format(MONTH_FORMAT), total, pending, inProgress);
+        }
+
+        // Completed tasks are bucketed by the month they were completed in
+        if (task.getCompletedAt() != null) {
+            long completed = indicator(newStatus, TaskStatus.COMPLETED) - indicator(oldStatus, TaskStatus.COMPLETED);
+            if (completed != 0) {
+                storeMonthlyMetricsRepository.addCompletedTasks(storeId, task.getCompletedAt().format(MONTH_FORMAT), completed);
+                reportCacheService.evict(storeId, task.getCompletedAt());
+            }
+        }
+    }
+
+    private static long indicator(TaskStatus status, TaskStatus expected) {
+        return status == expected ? 1 : 0;
+    }
+
+    /**
+     * Recompute the store's row of a closed month once the current transaction commits, for
+     * writes changing counters that have no delta (shifts, time logs, task due dates). The row
+     * is marked unreconciled right away, so the report reads raw data until the recompute has
+     * run; if it fails, the nightly job picks the month up.
+     */
+    public void reconcileClosedMonth(Long storeId, LocalDateTime time) {
+        if (storeId == null || time == null || !YearMonth.from(time).isBefore(YearMonth.now())) {
+            return;
+        }
+        String month = time.format(MONTH_FORMAT);
+        storeMonthlyMetricsRepository.markUnreconciled(storeId, month);
+        TransactionCallbacks.afterCommitOnce("store-metrics:" + storeId + ":" + month, () -> {
+            try {
+                afterCommitTransaction.executeWithoutResult(status -> reconcileStoreMonth(storeId, month));
+            } catch (Exception e) {
+                logger.error("Error reconciling store metrics of store {} for {}: {}", storeId, month, e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Nightly reconciliation of the previous and current month, and of any older month left
+     * unreconciled by a failed recompute after a write (runs at 02:30)
+     */
+    @Scheduled(cron = "0 30 2 * * *")
+    public void reconcileRecentMonths() {
+        YearMonth current = YearMonth.now();
+        Set<String> months = new TreeSet<>(storeMonthlyMetricsRepository.findUnreconciledMonths());
+        months.add(current.minusMonths(1).format(MONTH_FORMAT));
+        months.add(current.format(MONTH_FORMAT));
+        for (String month : months) {
+            try {
+                reconcileMonth(month);
+            } catch (Exception e) {
+                logger.error("Error reconciling store metrics for {}: {}", month, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Backfill at startup: reconcile every closed month (up to backfill-max-months back, from the
+     * earliest shift, time log or payroll) that still lacks a reconciled row for some store.
+     * Each month commits on its own, so an interrupted backfill resumes where it stopped; once
+     * every month is reconciled this only runs the lookup queries.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void backfillClosedMonths() {
+        if (!backfillEnabled) {
+            return;
+        }
+        String earliestPayrollMonth = payrollRepository.findEarliestMonth();
+        YearMonth earliest = Stream.of(
+                        toYearMonth(shiftRepository.findEarliestStart()),
+                        toYearMonth(timeLogRepository.findEarliestCheckIn()),
+                        earliestPayrollMonth != null ? YearMonth.parse(earliestPayrollMonth) : null)
+                .filter(Objects::nonNull)
+                .min(YearMonth::compareTo)
+                .orElse(null);
+        if (earliest == null) {
+            return;
+        }
+        YearMonth lastClosed = YearMonth.now().minusMonths(1);
+        YearMonth first = earliest.isBefore(lastClosed.minusMonths(backfillMaxMonths - 1))
+                ? lastClosed.minusMonths(backfillMaxMonths - 1) : earliest;
+
+        long storeCount = storeRepository.count();
+        Map<String, Long> reconciledByMonth = new HashMap<>();
+        for (Object[] row : storeMonthlyMetricsRepository.countReconciledGroupByMonth()) {
+            reconciledByMonth.put((String) row[0], ((Number) row[1]).longValue());
+        }
+
+        int backfilled = 0;
+        for (YearMonth month = first; !month.isAfter(lastClosed); month = month.plusMonths(1)) {
+            String key = month.format(MONTH_FORMAT);
+            if (reconciledByMonth.getOrDefault(key, 0L) >= storeCount) {
+                continue;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> reconcileMonth(key));
+                backfilled++;
+            } catch (Exception e) {
+                logger.error("Error backfilling store metrics for {}: {}", key, e.getMessage(), e);
+            }
+        }
+        if (backfilled > 0) {
+            logger.info("Backfilled store metrics for {} closed month(s)", backfilled);
+        }
+    }
+
+    private static YearMonth toYearMonth(LocalDateTime time) {
+        return time != null ? YearMonth.from(time) : null;
+    }
+
+    /**
+     * Recompute every store's rollup row for a month from raw data
+     */
+    public void reconcileMonth(String month) {
+        int reconciled = reconcile(storeRepository.findAll(), month);
+        reportCacheService.evictMonth(month);
+        logger.info("Reconciled store metrics for {} store(s) in {}", reconciled, month);
+    }
+
+    /**
+     * Recompute one store's rollup row for a month from raw data
+     */
+    public void reconcileStoreMonth(Long storeId, String month) {
+        storeRepository.findById(storeId).ifPresent(store -> {
+            reconcile(List.of(store), month);
+            reportCacheService.evict(storeId, month);
+        });
+    }
+
+    private int reconcile(List<Store> stores, String month) {
+        Map<Long, StoreMonthlyMetrics> existingByStore = storeMonthlyMetricsRepository.findByMonth(month).stream()
+                .collect(Collectors.toMap(m -> m.getStore().getId(), Function.identity()));
+        LocalDateTime now = LocalDateTime.now();
+
+        List<StoreMonthlyMetrics> computed = reportService.computeMonthlyMetrics(stores, month);
+        for (StoreMonthlyMetrics fresh : computed) {
+            StoreMonthlyMetrics row = existingByStore.get(fresh.getStore().getId());
+            if (row == null) {
+                row = fresh;
+            } else {
+                row.setTotalShifts(fresh.getTotalShifts());
+                row.setTotalMinutes(fresh.getTotalMinutes());
+                row.setTotalPayroll(fresh.getTotalPayroll());
+                row.setTotalTasks(fresh.getTotalTasks());
+                row.setCompletedTasks(fresh.getCompletedTasks());
+                row.setOverdueTasks(fresh.getOverdueTasks());
+                row.setPendingTasks(fresh.getPendingTasks());
+                row.setInProgressTasks(fresh.getInProgressTasks());
+                row.setTotalAssignedShifts(fresh.getTotalAssignedShifts());
+                row.setAttendedShifts(fresh.getAttendedShifts());
+                row.setMissedShifts(fresh.getMissedShifts());
+                row.setLateCheckIns(fresh.getLateCheckIns());
+                row.setEarlyCheckOuts(fresh.getEarlyCheckOuts());
+            }
+            row.setReconciledAt(now);
+            storeMonthlyMetricsRepository.save(row);
+        }
+        return computed.size();
+    }
+}
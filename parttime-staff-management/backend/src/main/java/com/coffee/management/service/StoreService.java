@@ -34,6 +34,9 @@ public class StoreService {
     @Autowired
     private AuditService auditService;
 
+    @Autowired
+    private ReportCacheService reportCacheService;
+
     /**
      * Get all stores
      */
@@ -78,6 +81,7 @@ public class StoreService {
         }
 
         Store savedStore = storeRepository.save(store);
+        reportCacheService.evictStore(savedStore.getId());
         
         auditService.log(currentUser.getId(), "CREATE", "STORE", savedStore.getId(), 
                 "Created store: " + savedStore.getName());
@@ -118,6 +122,7 @@ public class StoreService {
         }
 
         Store updatedStore = storeRepository.save(store);
+        reportCacheService.evictStore(updatedStore.getId());
         
         auditService.log(currentUser.getId(), "UPDATE", "STORE", updatedStore.getId(), 
                 "Updated store: " + updatedStore.getName());
@@ -139,6 +144,7 @@ public class StoreService {
         }
 
         storeRepository.delete(store);
+        reportCacheService.evictStore(id);
         
         auditService.log(currentUser.getId(), "DELETE", "STORE", id, 
                 "Deleted store: " + store.getName());
@@ -7,10 +7,12 @@ import com.coffee.management.exception.ForbiddenException;
 import com.coffee.management.exception.ResourceNotFoundException;
 import com.coffee.management.repository.*;
 import com.coffee.management.security.UserPrincipal;
+import com.coffee.management.util.DateRange;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -38,11 +40,17 @@ public class TaskService {
     private UserRepository userRepository;
 
     @Autowired
-    private NotificationService notificationService;
+    private NotificationOutboxService notificationOutbox;
 
     @Autowired
     private AuditService auditService;
 
+    @Autowired
+    private StoreMetricsService storeMetricsService;
+
+    @Autowired
+    private EmployeeRankingEngine rankingEngine;
+
     @Autowired
     private com.coffee.management.repository.TimeLogRepository timeLogRepository;
 
@@ -85,7 +93,7 @@ public class TaskService {
      * Get today's tasks for a store
      */
     public List<TaskResponse> getTodaysTasks(Long storeId) {
-        return taskRepository.findTasksDueToday(storeId, LocalDateTime.now())
+        return taskRepository.findTasksDueToday(storeId, DateRange.ofDay(LocalDate.now()))
                 .stream()
                 .map(TaskResponse::fromEntity)
                 .collect(Collectors.toList());
@@ -168,13 +176,15 @@ public class TaskService {
             task.setAssignedTo(assignee);
 
             // Notify assignee
-            notificationService.sendNotification(assignee.getId(),
+            notificationOutbox.enqueue(assignee.getId(),
                     "Nhiệm vụ mới",
                     "Bạn được giao nhiệm vụ: " + task.getTitle(),
                     "/tasks");
         }
 
         Task saved = taskRepository.save(task);
+        storeMetricsService.recordTaskStatusChange(saved, null, saved.getStatus());
+        rankingEngine.recordTask(saved, null);
 
         auditService.log(currentUser.getId(), "CREATE", "TASK", saved.getId(),
                 "Created task: " + task.getTitle());
@@ -209,6 +219,7 @@ public class TaskService {
         LocalDateTime oldDueDate = task.getDueDate();
         String oldNotes = task.getNotes();
         User previousAssignee = task.getAssignedTo();
+        TaskStatus oldStatus = task.getStatus();
         boolean assigneeChanged = false;
 
         if (request.getTitle() != null && !request.getTitle().equals(oldTitle)) {
@@ -248,7 +259,7 @@ public class TaskService {
             
             // Notify new assignee if changed
             if (previousAssignee == null || !previousAssignee.getId().equals(assignee.getId())) {
-                notificationService.sendNotification(assignee.getId(),
+                notificationOutbox.enqueue(assignee.getId(),
                         "Nhiệm vụ mới",
                         "Bạn được giao nhiệm vụ: " + task.getTitle(),
                         "/tasks");
@@ -260,11 +271,13 @@ public class TaskService {
         }
 
         Task updated = taskRepository.save(task);
+        storeMetricsService.recordTaskStatusChange(updated, oldStatus, updated.getStatus());
+        rankingEngine.recordTask(updated, previousAssignee != null ? previousAssignee.getId() : null);
 
         // Notify current assignee about task update with changed fields (if not changing assignee)
         if (!assigneeChanged && task.getAssignedTo() != null && !changedFields.isEmpty()) {
             String changedFieldsText = String.join(", ", changedFields);
-            notificationService.sendNotification(task.getAssignedTo().getId(),
+            notificationOutbox.enqueue(task.getAssignedTo().getId(),
                     "Nhiệm vụ đã bị thay đổi",
                     "Nhiệm vụ \"" + task.getTitle() + "\" đã thay đổi: " + changedFieldsText,
                     "/tasks");
@@ -306,6 +319,7 @@ public class TaskService {
         }
 
         task.setStatus(TaskStatus.IN_PROGRESS);
+        storeMetricsService.recordTaskStatusChange(task, TaskStatus.PENDING, TaskStatus.IN_PROGRESS);
         
         // If task was assigned to all staff, now assign to the one who started it
         if (task.getAssignedTo() == null) {
@@ -314,6 +328,7 @@ public class TaskService {
         }
 
         Task updated = taskRepository.save(task);
+        rankingEngine.recordTask(updated, null);
 
         auditService.log(currentUser.getId(), "START", "TASK", id,
                 "Started task: " + task.getTitle());
@@ -343,20 +358,23 @@ public class TaskService {
             throw new BadRequestException("Task is already completed");
         }
 
+        TaskStatus oldStatus = task.getStatus();
         task.setStatus(TaskStatus.COMPLETED);
         task.setCompletedAt(LocalDateTime.now());
+        storeMetricsService.recordTaskStatusChange(task, oldStatus, TaskStatus.COMPLETED);
         
         User completedBy = userRepository.findById(currentUser.getId()).orElse(null);
         task.setCompletedBy(completedBy);
 
         Task updated = taskRepository.save(task);
+        rankingEngine.recordTask(updated, null);
 
         auditService.log(currentUser.getId(), "COMPLETE", "TASK", id,
                 "Completed task: " + task.getTitle());
 
         // Notify creator if different from completer
         if (task.getCreatedBy() != null && !task.getCreatedBy().getId().equals(currentUser.getId())) {
-            notificationService.sendNotification(task.getCreatedBy().getId(),
+            notificationOutbox.enqueue(task.getCreatedBy().getId(),
                     "Nhiệm vụ hoàn thành",
                     completedBy != null ? completedBy.getFullName() : "Someone" + " đã hoàn thành: " + task.getTitle(),
                     "/tasks");
@@ -386,10 +404,12 @@ public class TaskService {
         User assignedTo = task.getAssignedTo();
 
         taskRepository.delete(task);
+        storeMetricsService.recordTaskStatusChange(task, task.getStatus(), null);
+        rankingEngine.removeTask(task);
 
         // Notify assignee about task deletion
         if (assignedTo != null) {
-            notificationService.sendNotification(assignedTo.getId(),
+            notificationOutbox.enqueue(assignedTo.getId(),
                     "Nhiệm vụ của bạn đã bị xóa",
                     "Nhiệm vụ \"" + taskTitle + "\" đã bị xóa khỏi hệ thống",
                     "/tasks");
@@ -10,6 +10,7 @@ import com.coffee.management.repository.ShiftRepository;
 import com.coffee.management.repository.TimeLogRepository;
 import com.coffee.management.repository.UserRepository;
 import com.coffee.management.security.UserPrincipal;
+import com.coffee.management.util.DateRange;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -40,7 +41,16 @@ public class TimeLogService {
     private AuditService auditService;
 
     @Autowired
-    private NotificationService notificationService;
+    private NotificationOutboxService notificationOutbox;
+
+    @Autowired
+    private StoreMetricsService storeMetricsService;
+
+    @Autowired
+    private EmployeeRankingEngine rankingEngine;
+
+    @Autowired
+    private ReportCacheService reportCacheService;
 
     /**
      * Check in for work
@@ -81,10 +91,11 @@ public class TimeLogService {
         }
 
         TimeLog saved = timeLogRepository.save(timeLog);
+        rankingEngine.recordTimeLog(saved);
+        evictShiftReport(saved);
         
         // Gửi thông báo cho manager khi nhân viên check-in
         if (user.getStore() != null && saved.getShift() != null) {
-            List<User> managers = userRepository.findByStoreIdAndRole(user.getStore().getId(), Role.MANAGER);
             String shiftTitle = saved.getShift().getTitle();
             String checkInTime = saved.getCheckIn().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"));
             
@@ -102,14 +113,13 @@ public class TimeLogService {
                     user.getFullName(), shiftTitle, checkInTime);
             }
             
-            for (User manager : managers) {
-                notificationService.sendNotification(
-                    manager.getId(),
-                    isLate ? "Nhân viên check-in (Đi muộn)" : "Nhân viên check-in",
-                    message,
-                    "/time-logs"
-                );
-            }
+            notificationOutbox.enqueueToStore(
+                user.getStore().getId(),
+                Role.MANAGER,
+                isLate ? "Nhân viên check-in (Đi muộn)" : "Nhân viên check-in",
+                message,
+                "/time-logs"
+            );
         }
         
         return TimeLogResponse.fromEntity(saved);
@@ -130,24 +140,24 @@ public class TimeLogService {
         timeLog.setDurationMinutes(durationMinutes);
 
         TimeLog saved = timeLogRepository.save(timeLog);
+        storeMetricsService.recordTimeLog(saved);
+        rankingEngine.recordTimeLog(saved);
+        evictShiftReport(saved);
         
         // Gửi thông báo cho manager khi nhân viên check-out
         if (saved.getUser().getStore() != null && saved.getShift() != null) {
-            List<User> managers = userRepository.findByStoreIdAndRole(
-                saved.getUser().getStore().getId(), Role.MANAGER);
             String shiftTitle = saved.getShift().getTitle();
             String checkOutTimeStr = saved.getCheckOut().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"));
             String message = String.format("%s đã check-out ca \"%s\" lúc %s", 
                 saved.getUser().getFullName(), shiftTitle, checkOutTimeStr);
             
-            for (User manager : managers) {
-                notificationService.sendNotification(
-                    manager.getId(),
-                    "Nhân viên check-out",
-                    message,
-                    "/time-logs"
-                );
-            }
+            notificationOutbox.enqueueToStore(
+                saved.getUser().getStore().getId(),
+                Role.MANAGER,
+                "Nhân viên check-out",
+                message,
+                "/time-logs"
+            );
         }
         
         return TimeLogResponse.fromEntity(saved);
@@ -184,7 +194,7 @@ public class TimeLogService {
 
         List<TimeLog> logs;
         if (startDate != null && endDate != null) {
-            logs = timeLogRepository.findByUserAndDateRange(userId, startDate, endDate);
+            logs = timeLogRepository.findByUserAndDateRange(userId, DateRange.closed(startDate, endDate));
         } else {
             logs = timeLogRepository.findByUserId(userId);
         }
@@ -213,12 +223,15 @@ public class TimeLogService {
         timeLog.setRecordedBy(RecordedBy.SYSTEM);
 
         TimeLog saved = timeLogRepository.save(timeLog);
+        storeMetricsService.recordTimeLog(saved);
+        rankingEngine.recordTimeLog(saved);
+        evictShiftReport(saved);
         
         // Gửi thông báo cho nhân viên
         if (saved.getShift() != null) {
             String shiftTitle = saved.getShift().getTitle();
             String checkOutTimeStr = saved.getCheckOut().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"));
-            notificationService.sendNotification(
+            notificationOutbox.enqueue(
                 saved.getUser().getId(),
                 "Tự động check-out",
                 String.format("Bạn đã được tự động check-out ca \"%s\" lúc %s (sau 15 phút kể từ khi ca kết thúc)", 
@@ -229,21 +242,18 @@ public class TimeLogService {
         
         // Gửi thông báo cho manager
         if (saved.getUser().getStore() != null && saved.getShift() != null) {
-            List<User> managers = userRepository.findByStoreIdAndRole(
-                saved.getUser().getStore().getId(), Role.MANAGER);
             String shiftTitle = saved.getShift().getTitle();
             String checkOutTimeStr = saved.getCheckOut().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"));
             String message = String.format("%s đã được tự động check-out ca \"%s\" lúc %s (quên check-out)", 
                 saved.getUser().getFullName(), shiftTitle, checkOutTimeStr);
             
-            for (User manager : managers) {
-                notificationService.sendNotification(
-                    manager.getId(),
-                    "Nhân viên tự động check-out",
-                    message,
-                    "/time-logs"
-                );
-            }
+            notificationOutbox.enqueueToStore(
+                saved.getUser().getStore().getId(),
+                Role.MANAGER,
+                "Nhân viên tự động check-out",
+                message,
+                "/time-logs"
+            );
         }
     }
 
@@ -256,7 +266,7 @@ public class TimeLogService {
             throw new ForbiddenException("You can only view time logs from your store");
         }
 
-        return timeLogRepository.findByStoreAndDateRange(storeId, startDate, endDate).stream()
+        return timeLogRepository.findByStoreAndDateRange(storeId, DateRange.closed(startDate, endDate)).stream()
                 .map(TimeLogResponse::fromEntity)
                 .collect(Collectors.toList());
     }
@@ -297,6 +307,9 @@ public class TimeLogService {
         }
 
         TimeLog saved = timeLogRepository.save(timeLog);
+        storeMetricsService.recordTimeLog(saved);
+        rankingEngine.recordTimeLog(saved);
+        evictShiftReport(saved);
         
         auditService.log(currentUser.getId(), "CREATE", "TIME_LOG", saved.getId(), 
                 "Created manual time log for user: " + user.getUsername());
@@ -307,18 +320,27 @@ public class TimeLogService {
     /**
      * Get total hours worked by user in a date range
      */
-    public Long getTotalMinutesByUser(Long userId, LocalDateTime startDate, LocalDateTime endDate) {
-        Long total = timeLogRepository.sumDurationByUserAndDateRange(userId, startDate, endDate);
+    public Long getTotalMinutesByUser(Long userId, DateRange range) {
+        Long total = timeLogRepository.sumDurationByUserAndDateRange(userId, range);
         return total != null ? total : 0L;
     }
 
     /**
      * Get total hours worked by store in a date range
      */
-    public Long getTotalMinutesByStore(Long storeId, LocalDateTime startDate, LocalDateTime endDate) {
-        Long total = timeLogRepository.sumDurationByStoreAndDateRange(storeId, startDate, endDate);
+    public Long getTotalMinutesByStore(Long storeId, DateRange range) {
+        Long total = timeLogRepository.sumDurationByStoreAndDateRange(storeId, range);
         return total != null ? total : 0L;
     }
+
+    // Attendance is reported under the store and month of the shift
+    private void evictShiftReport(TimeLog timeLog) {
+        if (timeLog.getShift() != null) {
+            Long storeId = timeLog.getShift().getStore().getId();
+            reportCacheService.evict(storeId, timeLog.getShift().getStartDatetime());
+            storeMetricsService.reconcileClosedMonth(storeId, timeLog.getShift().getStartDatetime());
+        }
+    }
 }
 
 
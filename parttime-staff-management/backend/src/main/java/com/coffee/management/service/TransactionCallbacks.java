@@ -0,0 +1,63 @@
+package com.coffee.management.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Helpers for work that must only happen once the current transaction is committed
+ */
+final class TransactionCallbacks {
+
+    // Transaction resource key of the keys already registered by afterCommitOnce
+    private static final Object ONCE_KEYS = new Object();
+
+    private TransactionCallbacks() {
+    }
+
+    /**
+     * Run the action after the current transaction commits (never if it rolls back),
+     * or immediately when there is no transaction
+     */
+    static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Like afterCommit, but an action whose key was already registered in the current
+     * transaction is dropped, so a write touching many rows runs it once per key
+     */
+    @SuppressWarnings("unchecked")
+    static void afterCommitOnce(Object key, Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        Set<Object> keys = (Set<Object>) TransactionSynchronizationManager.getResource(ONCE_KEYS);
+        if (keys == null) {
+            Set<Object> registered = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(ONCE_KEYS, registered);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ONCE_KEYS);
+                }
+            });
+            keys = registered;
+        }
+        if (keys.add(key)) {
+            afterCommit(action);
+        }
+    }
+}
@@ -12,12 +12,15 @@ import com.coffee.management.exception.ForbiddenException;
 import com.coffee.management.exception.ResourceNotFoundException;
 import com.coffee.management.repository.StoreRepository;
 import com.coffee.management.repository.UserRepository;
+import com.coffee.management.security.CustomUserDetailsService;
 import com.coffee.management.security.UserPrincipal;
+import com.coffee.management.util.DataUrl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -40,6 +43,21 @@ public class UserService {
     @Autowired
     private AuditService auditService;
 
+    @Autowired
+    private EmployeeRankingEngine rankingEngine;
+
+    @Autowired
+    private ReportCacheService reportCacheService;
+
+    @Autowired
+    private AvatarService avatarService;
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
     /**
      * Get all users (Owner: all, Manager: own store only)
      */
@@ -124,6 +142,12 @@ public class UserService {
         }
 
         User savedUser = userRepository.save(user);
+        if (savedUser.getRole() == Role.STAFF) {
+            rankingEngine.invalidateAll();
+        }
+        if (savedUser.getStore() != null) {
+            reportCacheService.evictStore(savedUser.getStore().getId());
+        }
         
         auditService.log(currentUser.getId(), "CREATE", "USER", savedUser.getId(), 
                 "Created user: " + savedUser.getUsername());
@@ -140,6 +164,9 @@ public class UserService {
 
         // Check permission
         boolean isSelfUpdate = currentUser.getId().equals(id);
+        List<Object> rankedFields = rankedFields(user);
+        List<Object> accessFields = accessFields(user);
+        Long oldStoreId = user.getStore() != null ? user.getStore().getId() : null;
         
         if (!currentUser.getRole().equals("OWNER")) {
             if (currentUser.getRole().equals("MANAGER")) {
@@ -190,11 +217,29 @@ public class UserService {
         if (request.getStatus() != null && !isSelfUpdate) {
             user.setStatus(request.getStatus());
         }
-        if (request.getAvatarUrl() != null) {
-            user.setAvatarUrl(request.getAvatarUrl());
+        // New avatar as a data URL, "" removes it (the current avatar URL sent back is ignored)
+        if (DataUrl.isDataUrl(request.getAvatarUrl())) {
+            user.setAvatarVersion(avatarService.replace(user.getId(), request.getAvatarUrl()));
+        } else if ("".equals(request.getAvatarUrl()) && user.getAvatarVersion() != null) {
+            avatarService.delete(user.getId());
+            user.setAvatarVersion(null);
         }
 
         User updatedUser = userRepository.save(user);
+        // Cached principal used by request authentication (name, email, role, store, status)
+        TransactionCallbacks.afterCommit(() -> userDetailsService.evictUser(updatedUser.getId()));
+        // New role, store or status: the user logs in again
+        if (!accessFields.equals(accessFields(updatedUser))) {
+            refreshTokenService.revokeUser(updatedUser.getId());
+        }
+        if (!rankedFields.equals(rankedFields(updatedUser))) {
+            rankingEngine.invalidateAll();
+            // Staff counts of the old and the new store
+            reportCacheService.evictStore(oldStoreId);
+            if (updatedUser.getStore() != null) {
+                reportCacheService.evictStore(updatedUser.getStore().getId());
+            }
+        }
         
         auditService.log(currentUser.getId(), "UPDATE", "USER", updatedUser.getId(), 
                 "Updated user: " + updatedUser.getUsername());
@@ -226,6 +271,14 @@ public class UserService {
 
         user.setStatus(UserStatus.INACTIVE);
         userRepository.save(user);
+        TransactionCallbacks.afterCommit(() -> userDetailsService.evictUser(id));
+        refreshTokenService.revokeUser(id);
+        if (user.getRole() == Role.STAFF) {
+            rankingEngine.invalidateAll();
+        }
+        if (user.getStore() != null) {
+            reportCacheService.evictStore(user.getStore().getId());
+        }
         
         auditService.log(currentUser.getId(), "DELETE", "USER", user.getId(), 
                 "Deleted user: " + user.getUsername());
@@ -246,6 +299,17 @@ public class UserService {
     public long getStaffCountByStore(Long storeId) {
         return userRepository.countStaffByStore(storeId);
     }
+
+    // Fields that decide what a user may access - a change ends the user's sessions
+    private static List<Object> accessFields(User user) {
+        return Arrays.asList(user.getRole(), user.getStatus(), user.getStore() != null ? user.getStore().getId() : null);
+    }
+
+    // Fields shown in employee rankings and store reports - a change drops the cached rankings and reports
+    private static List<Object> rankedFields(User user) {
+        return Arrays.asList(user.getRole(), user.getStatus(), user.getFullName(),
+                user.getStore() != null ? user.getStore().getId() : null);
+    }
 }
 
 
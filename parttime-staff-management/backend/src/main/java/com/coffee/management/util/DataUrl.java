@@ -0,0 +1,43 @@
+package com.coffee.management.util;
+
+import lombok.Getter;
+
+import java.util.Base64;
+
+/**
+ * Content sent by clients as a base64 data URL ("data:<type>;base64,<data>")
+ */
+@Getter
+public final class DataUrl {
+
+    private static final String PREFIX = "data:";
+    private static final String BASE64_MARKER = ";base64,";
+
+    private final String contentType;
+    private final byte[] content;
+
+    private DataUrl(String contentType, byte[] content) {
+        this.contentType = contentType;
+        this.content = content;
+    }
+
+    public static boolean isDataUrl(String value) {
+        return value != null && value.startsWith(PREFIX);
+    }
+
+    /**
+     * Parse a base64 data URL. The content type is empty when the URL has none
+     * ("data:;base64,..."), parameters such as ";name=a.png" are dropped.
+     *
+     * @throws IllegalArgumentException when the value is not a base64 data URL
+     */
+    public static DataUrl parse(String value) {
+        int marker = value != null ? value.indexOf(BASE64_MARKER) : -1;
+        if (!isDataUrl(value) || marker < 0) {
+            throw new IllegalArgumentException("Not a base64 data URL");
+        }
+        String contentType = value.substring(PREFIX.length(), marker).split(";", 2)[0].trim();
+        byte[] content = Base64.getMimeDecoder().decode(value.substring(marker + BASE64_MARKER.length()));
+        return new DataUrl(contentType, content);
+    }
+}
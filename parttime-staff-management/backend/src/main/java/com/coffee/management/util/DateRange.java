@@ -0,0 +1,80 @@
+package com.coffee.management.util;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Half-open time range [start, end).
+ * Repository queries filter with "column >= start AND column < end", which uses an index on the
+ * column and does not lose rows in the last second of the range (e.g. 23:59:59.500).
+ */
+@Getter
+@EqualsAndHashCode
+public final class DateRange {
+
+    private final LocalDateTime start;
+    private final LocalDateTime end;
+
+    private DateRange(LocalDateTime start, LocalDateTime end) {
+        if (start == null || end == null) {
+            throw new IllegalArgumentException("Range start and end are required");
+        }
+        if (end.isBefore(start)) {
+            throw new IllegalArgumentException("Range end must not be before its start");
+        }
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Range [start, end)
+     */
+    public static DateRange of(LocalDateTime start, LocalDateTime end) {
+        return new DateRange(start, end);
+    }
+
+    /**
+     * Range from start to an inclusive end given to the second, as sent by clients
+     * (e.g. "2024-01-31T23:59:59" includes the whole last second).
+     * An end before the start gives an empty range.
+     */
+    public static DateRange closed(LocalDateTime start, LocalDateTime endInclusive) {
+        LocalDateTime end = endInclusive.truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+        return new DateRange(start, end.isBefore(start) ? start : end);
+    }
+
+    /**
+     * The whole day [date 00:00, next day 00:00)
+     */
+    public static DateRange ofDay(LocalDate date) {
+        return new DateRange(date.atStartOfDay(), date.plusDays(1).atStartOfDay());
+    }
+
+    /**
+     * The seven days starting at weekStart
+     */
+    public static DateRange ofWeek(LocalDate weekStart) {
+        return new DateRange(weekStart.atStartOfDay(), weekStart.plusWeeks(1).atStartOfDay());
+    }
+
+    /**
+     * The whole month [first day 00:00, first day of next month 00:00)
+     */
+    public static DateRange ofMonth(YearMonth month) {
+        return new DateRange(month.atDay(1).atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay());
+    }
+
+    public boolean contains(LocalDateTime time) {
+        return time != null && !time.isBefore(start) && time.isBefore(end);
+    }
+
+    @Override
+    public String toString() {
+        return "[" + start + ", " + end + ")";
+    }
+}
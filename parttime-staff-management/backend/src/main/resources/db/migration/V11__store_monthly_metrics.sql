@@ -0,0 +1,31 @@
+-- =====================================================
+-- Coffee Shop Staff Management System - Store Monthly Metrics
+-- Version 11: Monthly rollup of store report metrics
+-- =====================================================
+
+-- One row per (store, month). Hours, payroll and task counters are kept up to date
+-- incrementally by the services; a nightly job recomputes every column and sets reconciled_at.
+CREATE TABLE store_monthly_metrics (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    store_id BIGINT NOT NULL COMMENT 'ID cơ sở',
+    month VARCHAR(7) NOT NULL COMMENT 'Tháng (YYYY-MM)',
+    total_shifts BIGINT NOT NULL DEFAULT 0 COMMENT 'Tổng số ca',
+    total_minutes BIGINT NOT NULL DEFAULT 0 COMMENT 'Tổng số phút làm việc',
+    total_payroll DECIMAL(15, 2) NOT NULL DEFAULT 0 COMMENT 'Tổng lương',
+    total_tasks BIGINT NOT NULL DEFAULT 0 COMMENT 'Nhiệm vụ tạo trong tháng',
+    completed_tasks BIGINT NOT NULL DEFAULT 0 COMMENT 'Nhiệm vụ hoàn thành trong tháng',
+    overdue_tasks BIGINT NOT NULL DEFAULT 0 COMMENT 'Nhiệm vụ quá hạn',
+    pending_tasks BIGINT NOT NULL DEFAULT 0 COMMENT 'Nhiệm vụ chờ',
+    in_progress_tasks BIGINT NOT NULL DEFAULT 0 COMMENT 'Nhiệm vụ đang làm',
+    total_assigned_shifts BIGINT NOT NULL DEFAULT 0 COMMENT 'Số ca được phân công',
+    attended_shifts BIGINT NOT NULL DEFAULT 0 COMMENT 'Số ca đã đi làm',
+    missed_shifts BIGINT NOT NULL DEFAULT 0 COMMENT 'Số ca vắng mặt',
+    late_check_ins BIGINT NOT NULL DEFAULT 0 COMMENT 'Số lần check-in muộn',
+    early_check_outs BIGINT NOT NULL DEFAULT 0 COMMENT 'Số lần check-out sớm',
+    reconciled_at DATETIME NULL COMMENT 'Lần tính lại toàn bộ gần nhất',
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    CONSTRAINT fk_store_metrics_store FOREIGN KEY (store_id) REFERENCES stores(id) ON DELETE CASCADE,
+    UNIQUE KEY uk_store_metrics_store_month (store_id, month)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE INDEX idx_store_metrics_month ON store_monthly_metrics(month);
@@ -0,0 +1,29 @@
+-- =====================================================
+-- Coffee Shop Staff Management System - Payroll Runs
+-- Version 12: Asynchronous payroll generation jobs
+-- =====================================================
+
+-- One row per payroll generation job. active_key is "<month>:<storeId|ALL>:<ALL_ROLES|STAFF>"
+-- while the run is QUEUED or RUNNING and NULL afterwards, so the unique key allows only one
+-- active run per month, store and role scope (owner runs cover STAFF and MANAGER, manager runs STAFF).
+CREATE TABLE payroll_runs (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    month VARCHAR(7) NOT NULL COMMENT 'Tháng (YYYY-MM)',
+    store_id BIGINT NULL COMMENT 'ID cơ sở, NULL = tất cả cơ sở',
+    include_managers BOOLEAN NOT NULL DEFAULT FALSE COMMENT 'Tính cả lương quản lý',
+    requested_by BIGINT NULL COMMENT 'Người yêu cầu',
+    status VARCHAR(32) NOT NULL DEFAULT 'QUEUED' COMMENT 'QUEUED, RUNNING, COMPLETED, COMPLETED_WITH_ERRORS, FAILED',
+    active_key VARCHAR(32) NULL COMMENT 'Khóa chống chạy trùng khi đang chạy',
+    total_users INT NOT NULL DEFAULT 0 COMMENT 'Tổng số nhân viên',
+    processed_users INT NOT NULL DEFAULT 0 COMMENT 'Số nhân viên đã xử lý',
+    failed_users INT NOT NULL DEFAULT 0 COMMENT 'Số nhân viên bị lỗi',
+    error_message VARCHAR(1000) NULL COMMENT 'Lỗi gần nhất',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    started_at DATETIME NULL,
+    finished_at DATETIME NULL,
+    CONSTRAINT fk_payroll_runs_store FOREIGN KEY (store_id) REFERENCES stores(id) ON DELETE CASCADE,
+    CONSTRAINT fk_payroll_runs_requested_by FOREIGN KEY (requested_by) REFERENCES users(id) ON DELETE SET NULL,
+    UNIQUE KEY uk_payroll_runs_active_key (active_key)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE INDEX idx_payroll_runs_month ON payroll_runs(month, store_id);
@@ -0,0 +1,153 @@
+-- =====================================================
+-- Coffee Shop Staff Management System - Composite Indexes
+-- Version 13: Composite and covering indexes for the repository queries
+-- =====================================================
+
+-- New indexes are created before the single-column ones they replace are dropped, so every
+-- foreign key keeps an index with its column first. Column order: equality filters first,
+-- then the range/ORDER BY column, then the columns read by the query (covering).
+
+-- =====================================================
+-- time_logs
+-- =====================================================
+-- findByUserAndDateRange, findByUserIdAndDateRange(WithShift), sumDurationByUserAndDateRange
+CREATE INDEX idx_time_logs_user_checkin ON time_logs(user_id, check_in, duration_minutes);
+-- findActiveCheckIn: user_id = ? AND check_out IS NULL ORDER BY check_in DESC
+CREATE INDEX idx_time_logs_user_checkout ON time_logs(user_id, check_out, check_in);
+-- findTimeLogsNeedingAutoCheckOut: check_out IS NULL AND shift_id IS NOT NULL
+CREATE INDEX idx_time_logs_open ON time_logs(check_out, shift_id);
+-- Monthly rollups (minutes per user/store, late check-ins, attendance per shift and user)
+CREATE INDEX idx_time_logs_checkin_cover ON time_logs(check_in, user_id, shift_id, duration_minutes, check_out);
+
+DROP INDEX idx_time_logs_user ON time_logs;
+DROP INDEX idx_time_logs_checkin ON time_logs;
+
+-- =====================================================
+-- notifications
+-- =====================================================
+-- findByUserIdAndIsReadFalseOrderByCreatedAtDesc, countUnreadByUser
+CREATE INDEX idx_notifications_user_read ON notifications(user_id, is_read, created_at);
+-- findByUserIdOrderByCreatedAtDesc
+CREATE INDEX idx_notifications_user_created ON notifications(user_id, created_at);
+
+DROP INDEX idx_notifications_user ON notifications;
+DROP INDEX idx_notifications_read ON notifications;
+
+-- =====================================================
+-- shifts
+-- =====================================================
+-- findByStoreAndDateRange, findActualShiftsByStoreAndDateRange, countByStoreAndMonth
+CREATE INDEX idx_shifts_store_start ON shifts(store_id, start_datetime, end_datetime);
+-- findByDateRange, countGroupByStoreAndDateRange, attendance per store
+CREATE INDEX idx_shifts_start_store ON shifts(start_datetime, end_datetime, store_id);
+
+DROP INDEX idx_shifts_store ON shifts;
+DROP INDEX idx_shifts_datetime ON shifts;
+
+-- =====================================================
+-- shift_assignments (uk_shift_user already covers shift_id lookups)
+-- =====================================================
+-- findByUserIdAndStatus, findByUserWithShift, findByUserIdAndDateRange
+CREATE INDEX idx_shift_assignments_user_status ON shift_assignments(user_id, status, shift_id);
+
+-- =====================================================
+-- tasks
+-- =====================================================
+-- findByStoreIdAndStatusOrderByDueDateAsc, findOverdueTasks, findTasksDueToday, countByStatusForStore
+CREATE INDEX idx_tasks_store_status_due ON tasks(store_id, status, due_date);
+-- countByStoreAndDateRange
+CREATE INDEX idx_tasks_store_created ON tasks(store_id, created_at);
+-- findActiveTasksForUser, findByAssignedToIdOrderByDueDateAsc
+CREATE INDEX idx_tasks_assigned_status_due ON tasks(assigned_to, status, due_date);
+-- findByAssignedToIdAndDateRange
+CREATE INDEX idx_tasks_assigned_created ON tasks(assigned_to, created_at);
+-- countGroupByStoreAndStatus, findRankingRows
+CREATE INDEX idx_tasks_created_cover ON tasks(created_at, store_id, status, due_date, assigned_to);
+-- countCompletedGroupByStore, countCompletedByStoreAndDateRange
+CREATE INDEX idx_tasks_status_completed ON tasks(status, completed_at, store_id);
+-- findByCreatedByIdOrderByCreatedAtDesc
+CREATE INDEX idx_tasks_created_by ON tasks(created_by, created_at);
+
+DROP INDEX idx_tasks_store ON tasks;
+DROP INDEX idx_tasks_assigned_to ON tasks;
+DROP INDEX idx_tasks_status ON tasks;
+
+-- =====================================================
+-- users
+-- =====================================================
+-- findActiveStaffByStoreId, findByStoreIdAndRole, countStaffByStore, findByStoreIdAndStatus
+CREATE INDEX idx_users_store_role_status ON users(store_id, role, status);
+-- findAllActiveStaff(WithStore), findByRole, countByRole, countStaffGroupByStore
+CREATE INDEX idx_users_role_status_store ON users(role, status, store_id);
+
+DROP INDEX idx_users_store ON users;
+DROP INDEX idx_users_role ON users;
+
+-- =====================================================
+-- payrolls (uk_user_month already covers user lookups)
+-- =====================================================
+-- findByMonth, findByMonthAndStatus, findKeysByMonth, payroll per store and month
+CREATE INDEX idx_payrolls_month_status ON payrolls(month, status, user_id);
+
+DROP INDEX idx_payrolls_month ON payrolls;
+
+-- =====================================================
+-- requests
+-- =====================================================
+-- findByUserIdAndStatus, requests per store (joined through users)
+CREATE INDEX idx_requests_user_status ON requests(user_id, status, created_at);
+
+DROP INDEX idx_requests_user ON requests;
+
+-- =====================================================
+-- complaints
+-- =====================================================
+-- findByStoreIdAndStatusOrderByCreatedAtDesc, findPendingByStore, countPendingByStore
+CREATE INDEX idx_complaints_store_status ON complaints(store_id, status, created_at);
+-- findByFromUserIdOrderByCreatedAtDesc
+CREATE INDEX idx_complaints_from_user_created ON complaints(from_user_id, created_at);
+-- Resolved complaints against a user in a date range (rankings, reports)
+CREATE INDEX idx_complaints_to_user_status ON complaints(to_user_id, status, created_at);
+-- countResolvedComplaintsGroupByUser
+CREATE INDEX idx_complaints_status_created ON complaints(status, created_at, to_user_id);
+
+DROP INDEX idx_complaints_store ON complaints;
+DROP INDEX idx_complaints_from_user ON complaints;
+DROP INDEX idx_complaints_status ON complaints;
+
+-- =====================================================
+-- audit_log
+-- =====================================================
+-- findByEntityAndEntityId
+CREATE INDEX idx_audit_log_entity_id ON audit_log(entity, entity_id);
+-- findByDateRange, findAllOrderByTimestampDesc
+CREATE INDEX idx_audit_log_timestamp ON audit_log(timestamp);
+
+DROP INDEX idx_audit_log_entity ON audit_log;
+
+-- =====================================================
+-- shift_marketplace / shift_swap_requests
+-- =====================================================
+-- findActiveByShiftId
+CREATE INDEX idx_marketplace_shift_status ON shift_marketplace(shift_id, status);
+-- findByFromUserIdOrderByCreatedAtDesc
+CREATE INDEX idx_marketplace_from_user_created ON shift_marketplace(from_user_id, created_at);
+-- findExpiredListings
+CREATE INDEX idx_marketplace_status_expires ON shift_marketplace(status, expires_at);
+-- findPendingPeerConfirmation
+CREATE INDEX idx_swap_to_user_status ON shift_swap_requests(to_user_id, status, created_at);
+
+DROP INDEX idx_marketplace_shift ON shift_marketplace;
+DROP INDEX idx_marketplace_from_user ON shift_marketplace;
+DROP INDEX idx_marketplace_status ON shift_marketplace;
+
+-- =====================================================
+-- shift_registrations (uk_registration_shift_user_date covers shift + user lookups)
+-- =====================================================
+-- findByUserIdAndRegistrationDateBetween, findActiveRegistrationsByUserAndDateRange
+CREATE INDEX idx_registrations_user_date ON shift_registrations(user_id, registration_date, status);
+-- findByShiftIdAndRegistrationDate, findActiveRegistrationsByShiftAndDate
+CREATE INDEX idx_registrations_shift_date ON shift_registrations(shift_id, registration_date, status);
+
+DROP INDEX idx_registrations_user ON shift_registrations;
+DROP INDEX idx_registrations_shift ON shift_registrations;
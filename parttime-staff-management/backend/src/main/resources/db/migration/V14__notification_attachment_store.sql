@@ -0,0 +1,47 @@
+-- =====================================================
+-- Coffee Shop Staff Management System - Notification Attachments
+-- Version 14: Attachments stored once and referenced by notifications
+-- =====================================================
+
+-- One row per distinct file content (SHA-256 of the bytes). A broadcast references the same row
+-- from every recipient's notification instead of copying the base64 data into each of them.
+CREATE TABLE notification_attachments (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    content_hash CHAR(64) NOT NULL COMMENT 'SHA-256 (hex) của nội dung file',
+    content_type VARCHAR(100) NOT NULL DEFAULT 'application/octet-stream' COMMENT 'Kiểu MIME',
+    size_bytes BIGINT NOT NULL COMMENT 'Kích thước file (byte)',
+    content LONGBLOB NOT NULL COMMENT 'Nội dung file',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_notification_attachments_hash (content_hash)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+ALTER TABLE notifications
+ADD COLUMN attachment_id BIGINT NULL AFTER link,
+ADD CONSTRAINT fk_notifications_attachment FOREIGN KEY (attachment_id) REFERENCES notification_attachments(id) ON DELETE SET NULL;
+
+-- Move inline attachments ("data:<type>;base64,<data>") into the store, once per distinct content
+INSERT IGNORE INTO notification_attachments (content_hash, content_type, size_bytes, content)
+SELECT SHA2(d.content, 256), d.content_type, LENGTH(d.content), d.content
+FROM (
+    SELECT DISTINCT
+        FROM_BASE64(SUBSTRING_INDEX(attachment_url, 'base64,', -1)) AS content,
+        COALESCE(NULLIF(LEFT(SUBSTRING_INDEX(SUBSTRING(attachment_url, 6), ';', 1), 100), ''),
+                 'application/octet-stream') AS content_type
+    FROM notifications
+    WHERE attachment_url LIKE 'data:%;base64,%'
+) d
+WHERE d.content IS NOT NULL;
+
+UPDATE notifications n
+JOIN notification_attachments a
+    ON a.content_hash = SHA2(FROM_BASE64(SUBSTRING_INDEX(n.attachment_url, 'base64,', -1)), 256)
+SET n.attachment_id = a.id
+WHERE n.attachment_url LIKE 'data:%;base64,%';
+
+-- Plain URLs (not inline data) are kept as the notification link when it is free
+UPDATE notifications
+SET link = attachment_url
+WHERE attachment_url IS NOT NULL AND attachment_url NOT LIKE 'data:%'
+  AND link IS NULL AND CHAR_LENGTH(attachment_url) <= 500;
+
+ALTER TABLE notifications DROP COLUMN attachment_url;
@@ -0,0 +1,25 @@
+-- =====================================================
+-- Coffee Shop Staff Management System - User Avatars
+-- Version 15: Avatar images stored outside the users row
+-- =====================================================
+
+-- One row per user and variant (SMALL/MEDIUM thumbnails and the ORIGINAL upload)
+CREATE TABLE user_avatar_images (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    variant VARCHAR(10) NOT NULL COMMENT 'SMALL, MEDIUM, ORIGINAL',
+    content_type VARCHAR(100) NOT NULL COMMENT 'Kiểu MIME',
+    width INT NOT NULL,
+    height INT NOT NULL,
+    content LONGBLOB NOT NULL COMMENT 'Nội dung ảnh',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    UNIQUE KEY uk_user_avatar_variant (user_id, variant)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Hash of the current avatar, part of the avatar URL so a new upload gets a new URL
+ALTER TABLE users ADD COLUMN avatar_version VARCHAR(16) NULL COMMENT 'Phiên bản avatar' AFTER avatar_url;
+
+-- users.avatar_url (base64 LONGTEXT) is no longer mapped. Existing avatars are moved into
+-- user_avatar_images in chunks at startup (AvatarMigrationService), which needs Java to generate
+-- the thumbnails, and the column is cleared row by row; it can be dropped once it is empty.
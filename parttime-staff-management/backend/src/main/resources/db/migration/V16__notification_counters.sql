@@ -0,0 +1,21 @@
+-- =====================================================
+-- Coffee Shop Staff Management System - Notification Counters
+-- Version 16: Unread notification count per user
+-- =====================================================
+
+-- One row per user, kept up to date by NotificationService when notifications are sent or read,
+-- so the unread badge does not count the notifications table. A periodic job recomputes the
+-- counts from notifications and sets reconciled_at.
+CREATE TABLE notification_counters (
+    user_id BIGINT PRIMARY KEY,
+    unread_count BIGINT NOT NULL DEFAULT 0 COMMENT 'Số thông báo chưa đọc',
+    reconciled_at DATETIME NULL COMMENT 'Lần tính lại gần nhất',
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    CONSTRAINT fk_notification_counters_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+INSERT INTO notification_counters (user_id, unread_count, reconciled_at)
+SELECT user_id, COUNT(*), NOW()
+FROM notifications
+WHERE is_read = FALSE
+GROUP BY user_id;
@@ -0,0 +1,23 @@
+-- =====================================================
+-- Coffee Shop Staff Management System - Notification Outbox
+-- Version 17: Notification events written by business transactions
+-- =====================================================
+
+-- Business methods (check-in/out, shift assignment, marketplace, tasks...) insert one row here in
+-- their own transaction instead of creating notifications. A background dispatcher reads due rows
+-- in batches, creates the notifications for the recipients and deletes the rows. Rows that fail
+-- are retried at available_at until max attempts, then kept with last_error.
+CREATE TABLE notification_outbox (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    recipient_user_id BIGINT NULL COMMENT 'Người nhận (một người)',
+    recipient_store_id BIGINT NULL COMMENT 'Hoặc mọi người có recipient_role trong cửa hàng',
+    recipient_role ENUM('OWNER', 'MANAGER', 'STAFF') NULL,
+    title VARCHAR(200) NOT NULL,
+    message TEXT,
+    link VARCHAR(500),
+    attempts INT NOT NULL DEFAULT 0 COMMENT 'Số lần gửi thất bại',
+    last_error VARCHAR(500) NULL,
+    available_at DATETIME NOT NULL COMMENT 'Thời điểm được gửi (lần thử tiếp theo)',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_notification_outbox_due (attempts, available_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,27 @@
+-- =====================================================
+-- Coffee Shop Staff Management System - Refresh Tokens
+-- Version 18: Refresh token families with rotation
+-- =====================================================
+
+-- One row per issued refresh token (id = the token's jti). A login starts a family; every refresh
+-- marks the presented token USED and issues the next one in the same family. Presenting a USED
+-- or REVOKED token again revokes the whole family. Access tokens carry the family id, so they
+-- are rejected as soon as their family is revoked. client_binding (hash of the client's
+-- User-Agent and IP) lets a used token presented again by the same client within a couple of
+-- seconds (tabs refreshing at once) get the same next token. Rows are purged once expired.
+CREATE TABLE refresh_tokens (
+    id VARCHAR(36) PRIMARY KEY COMMENT 'jti của refresh token',
+    family_id VARCHAR(36) NOT NULL COMMENT 'Phiên đăng nhập',
+    user_id BIGINT NOT NULL,
+    status ENUM('ACTIVE', 'USED', 'REVOKED') NOT NULL DEFAULT 'ACTIVE',
+    client_binding CHAR(64) NULL COMMENT 'SHA-256 của User-Agent và IP',
+    replaced_by VARCHAR(36) NULL COMMENT 'Token được cấp khi làm mới',
+    expires_at DATETIME NOT NULL,
+    revoked_at DATETIME NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_refresh_tokens_family (family_id),
+    INDEX idx_refresh_tokens_user_status (user_id, status),
+    INDEX idx_refresh_tokens_revoked (revoked_at),
+    INDEX idx_refresh_tokens_expires (expires_at),
+    CONSTRAINT fk_refresh_tokens_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,379 @@
+package com.coffee.management.repository;
+
+import com.coffee.management.dto.report.EmployeeRankingResponse;
+import com.coffee.management.entity.*;
+import com.coffee.management.service.EmployeeRankingService;
+import com.coffee.management.support.TestData;
+import com.coffee.management.util.DateRange;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * The grouped attendance SQL against the Java loops it replaced: the store report loop of
+ * ReportService and the per-staff loop of EmployeeRankingService, copied below as they were
+ * (only their repository queries are inlined). On shifts with one assignee and at most one time
+ * log each, the store counts and the rankings loaded from findAssignmentAttendance must match
+ * them exactly.
+ * The loops keyed time logs by shift only and kept an arbitrary one, so a shift with several
+ * assignees or several check-ins of one user is counted differently on purpose: the SQL takes
+ * each user's own first check-in and last check-out. That difference is asserted on its own.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class AttendanceRepositoryTest {
+
+    private static final int THRESHOLD_MINUTES = 15;
+
+    @Autowired
+    private AttendanceRepository attendanceRepository;
+
+    @Autowired
+    private EmployeeRankingService employeeRankingService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    // Months no other test reads rankings of (ranking boards are cached per month)
+    private final YearMonth pastMonth = YearMonth.now().minusMonths(7);
+    private final YearMonth futureMonth = YearMonth.now().plusMonths(7);
+    private final YearMonth divergingMonth = YearMonth.now().minusMonths(10);
+    private TestData data;
+    private Store storeA;
+    private Store storeB;
+    private User a1;
+    private User a2;
+    private User b1;
+
+    // One assignee per shift and at most one time log per shift
+    @BeforeEach
+    void setUp() {
+        data = new TestData(entityManager);
+        storeA = data.store();
+        storeB = data.store();
+        a1 = data.user(storeA, Role.STAFF);
+        a2 = data.user(storeA, Role.STAFF);
+        b1 = data.user(storeB, Role.STAFF);
+
+        // On time, exactly at the thresholds (punctual), one minute past them (late and early), late only
+        attended(storeA, a1, 3, 0, 0);
+        attended(storeA, a2, 4, 15, -15);
+        attended(storeA, a1, 5, 16, -16);
+        attended(storeA, a2, 6, 30, 0);
+        attended(storeB, b1, 7, 0, -60);
+
+        // An open check-in counts as attended, never as early
+        Shift open = shift(storeA, pastMonth.atDay(8));
+        data.assign(open, a1);
+        data.timeLog(a1, open, open.getStartDatetime().plusMinutes(20), null);
+
+        // Missed (ended without time log), and upcoming (not missed yet)
+        data.assign(shift(storeB, pastMonth.atDay(9)), b1);
+        data.assign(shift(storeA, pastMonth.atDay(10)), a2);
+        data.assign(shift(storeB, futureMonth.atDay(9)), b1);
+        data.assign(shift(storeA, futureMonth.atDay(10)), a1);
+
+        // Ignored: a shift without assignee, a shift of the month before, a time log without shift
+        shift(storeA, pastMonth.atDay(11));
+        Shift before = shift(storeA, pastMonth.minusMonths(1).atDay(20));
+        data.assign(before, a1);
+        data.timeLog(a1, before, before.getStartDatetime(), before.getEndDatetime());
+        data.timeLog(b1, null, pastMonth.atDay(12).atTime(9, 0), pastMonth.atDay(12).atTime(10, 0));
+
+        data.flushAndClear();
+    }
+
+    @Test
+    void storeCountsMatchReportLoop() {
+        LocalDateTime now = LocalDateTime.now();
+        for (YearMonth month : List.of(pastMonth, futureMonth)) {
+            DateRange range = DateRange.ofMonth(month);
+            for (Store store : List.of(storeA, storeB)) {
+                long[] expected = baselineStoreAttendance(store.getId(), month.atDay(1).atStartOfDay(),
+                        month.atEndOfMonth().atTime(23, 59, 59));
+                List<Object[]> rows = attendanceRepository.countGroupByStore(store.getId(), range, now,
+                        THRESHOLD_MINUTES, THRESHOLD_MINUTES);
+                assertArrayEquals(expected, rows.isEmpty() ? new long[5] : counts(rows.get(0)));
+            }
+
+            // All stores at once
+            Map<Long, long[]> byStore = new HashMap<>();
+            for (Object[] row : attendanceRepository.countGroupByStore(null, range, now, THRESHOLD_MINUTES, THRESHOLD_MINUTES)) {
+                byStore.put(((Number) row[0]).longValue(), counts(row));
+            }
+            for (Store store : List.of(storeA, storeB)) {
+                assertArrayEquals(baselineStoreAttendance(store.getId(), month.atDay(1).atStartOfDay(),
+                        month.atEndOfMonth().atTime(23, 59, 59)), byStore.get(store.getId()));
+            }
+        }
+
+        // The fixtures cover every counter: (assigned, attended, missed, late, early)
+        assertArrayEquals(new long[] {6, 5, 1, 3, 1}, baselineStoreAttendance(storeA.getId(),
+                pastMonth.atDay(1).atStartOfDay(), pastMonth.atEndOfMonth().atTime(23, 59, 59)));
+    }
+
+    @Test
+    void rankingAttendanceMatchesRankingLoop() {
+        for (YearMonth month : List.of(pastMonth, futureMonth)) {
+            LocalDateTime startDate = month.atDay(1).atStartOfDay();
+            LocalDateTime endDate = startDate.plusMonths(1).minusSeconds(1);
+            Map<Long, EmployeeRankingResponse> rankings = employeeRankingService
+                    .getEmployeeRankings(month.getYear(), month.getMonthValue(), null).stream()
+                    .collect(Collectors.toMap(EmployeeRankingResponse::getUserId, Function.identity()));
+
+            for (User staff : List.of(a1, a2, b1)) {
+                EmployeeRankingResponse expected = baselineStaffMetrics(staff, startDate, endDate);
+                EmployeeRankingResponse actual = rankings.get(staff.getId());
+                assertEquals(attendanceFields(expected), attendanceFields(actual), staff.getUsername() + " in " + month);
+            }
+        }
+    }
+
+    @Test
+    void sharedShiftsAndRepeatedCheckInsCountPerUser() {
+        // a1 checks in late, a2 on time on the same shift; a1 checks in twice on another one
+        Shift shared = shift(storeA, divergingMonth.atDay(3));
+        data.assign(shared, a1);
+        data.assign(shared, a2);
+        data.timeLog(a1, shared, shared.getStartDatetime().plusMinutes(20), shared.getEndDatetime());
+        data.timeLog(a2, shared, shared.getStartDatetime(), shared.getEndDatetime());
+        Shift split = shift(storeA, divergingMonth.atDay(4));
+        data.assign(split, a1);
+        data.timeLog(a1, split, split.getStartDatetime(), split.getStartDatetime().plusHours(1));
+        data.timeLog(a1, split, split.getStartDatetime().plusHours(2), split.getEndDatetime());
+        data.flushAndClear();
+
+        DateRange range = DateRange.ofMonth(divergingMonth);
+        Map<List<Long>, List<LocalDateTime>> attendance = new HashMap<>();
+        for (Object[] row : attendanceRepository.findAssignmentAttendance(range)) {
+            attendance.put(List.of(((Number) row[0]).longValue(), ((Number) row[1]).longValue()),
+                    Arrays.asList(toLocalDateTime(row[4]), toLocalDateTime(row[5])));
+        }
+        assertEquals(List.of(shared.getStartDatetime().plusMinutes(20), shared.getEndDatetime()),
+                attendance.get(List.of(a1.getId(), shared.getId())));
+        assertEquals(List.of(shared.getStartDatetime(), shared.getEndDatetime()),
+                attendance.get(List.of(a2.getId(), shared.getId())));
+        assertEquals(List.of(split.getStartDatetime(), split.getEndDatetime()),
+                attendance.get(List.of(a1.getId(), split.getId())));
+
+        // Only a1 is late on the shared shift, and on time on the split one; the report loop applied
+        // a1's late check-in to both assignees and took the second check-in of the split shift
+        long[] counts = counts(attendanceRepository.countGroupByStore(storeA.getId(), range, LocalDateTime.now(),
+                THRESHOLD_MINUTES, THRESHOLD_MINUTES).get(0));
+        assertArrayEquals(new long[] {3, 3, 0, 1, 0}, counts);
+        assertNotEquals(Arrays.toString(counts), Arrays.toString(baselineStoreAttendance(storeA.getId(),
+                divergingMonth.atDay(1).atStartOfDay(), divergingMonth.atEndOfMonth().atTime(23, 59, 59))));
+    }
+
+    // ==================== BASELINE ====================
+
+    /**
+     * ReportService.calculateAttendanceMetrics before the grouped SQL, as
+     * (assigned, attended, missed, late, early)
+     */
+    private long[] baselineStoreAttendance(Long storeId, LocalDateTime startDate, LocalDateTime endDate) {
+        // Get all shift assignments for the store in the date range
+        List<ShiftAssignment> assignments = entityManager.createQuery("SELECT sa FROM ShiftAssignment sa " +
+                        "JOIN FETCH sa.shift s " +
+                        "JOIN FETCH sa.user u " +
+                        "WHERE s.store.id = :storeId " +
+                        "AND s.startDatetime >= :startDate " +
+                        "AND s.startDatetime <= :endDate", ShiftAssignment.class)
+                .setParameter("storeId", storeId)
+                .setParameter("startDate", startDate)
+                .setParameter("endDate", endDate)
+                .getResultList();
+
+        long totalAssignedShifts = assignments.size();
+        long attendedShifts = 0;
+        long missedShifts = 0;
+        long lateCheckIns = 0;
+        long earlyCheckOuts = 0;
+
+        // Get all time logs for the store in the date range
+        List<TimeLog> timeLogs = entityManager.createQuery("SELECT t FROM TimeLog t JOIN t.user u " +
+                        "WHERE u.store.id = :storeId AND t.checkIn >= :startDate AND t.checkIn <= :endDate " +
+                        "ORDER BY t.checkIn DESC", TimeLog.class)
+                .setParameter("storeId", storeId)
+                .setParameter("startDate", startDate)
+                .setParameter("endDate", endDate)
+                .getResultList();
+
+        // Create a map of shift ID to time log for quick lookup
+        Map<Long, TimeLog> timeLogByShift = timeLogs.stream()
+                .filter(tl -> tl.getShift() != null)
+                .collect(Collectors.toMap(
+                        tl -> tl.getShift().getId(),
+                        tl -> tl,
+                        (existing, replacement) -> existing
+                ));
+
+        LocalDateTime now = LocalDateTime.now();
+
+        // Process each assignment
+        for (ShiftAssignment assignment : assignments) {
+            Shift shift = assignment.getShift();
+            TimeLog timeLog = timeLogByShift.get(shift.getId());
+
+            if (timeLog != null && timeLog.getCheckIn() != null) {
+                // Employee attended this shift
+                attendedShifts++;
+
+                // Check for late check-in (> 15 minutes after shift start)
+                if (timeLog.getCheckIn().isAfter(shift.getStartDatetime().plusMinutes(15))) {
+                    lateCheckIns++;
+                }
+
+                // Check for early check-out (> 15 minutes before shift end)
+                if (timeLog.getCheckOut() != null &&
+                    timeLog.getCheckOut().isBefore(shift.getEndDatetime().minusMinutes(15))) {
+                    earlyCheckOuts++;
+                }
+            } else if (shift.getEndDatetime().isBefore(now)) {
+                // Shift has passed without attendance
+                missedShifts++;
+            }
+        }
+
+        return new long[] {totalAssignedShifts, attendedShifts, missedShifts, lateCheckIns, earlyCheckOuts};
+    }
+
+    /**
+     * EmployeeRankingService.calculateStaffMetrics before the ranking engine, attendance part
+     * (the fixtures have no tasks)
+     */
+    private EmployeeRankingResponse baselineStaffMetrics(User staff, LocalDateTime startDate, LocalDateTime endDate) {
+        // Get shift assignments
+        List<ShiftAssignment> assignments = entityManager.createQuery("SELECT sa FROM ShiftAssignment sa " +
+                        "JOIN FETCH sa.shift s " +
+                        "WHERE sa.user.id = :userId " +
+                        "AND s.startDatetime >= :startDate " +
+                        "AND s.startDatetime <= :endDate", ShiftAssignment.class)
+                .setParameter("userId", staff.getId())
+                .setParameter("startDate", startDate)
+                .setParameter("endDate", endDate)
+                .getResultList();
+
+        int totalShifts = assignments.size();
+        int attendedShifts = 0;
+        int missedShifts = 0;
+        double totalHoursWorked = 0;
+
+        // Get time logs
+        List<TimeLog> timeLogs = entityManager.createQuery("SELECT t FROM TimeLog t " +
+                        "WHERE t.user.id = :userId " +
+                        "AND t.checkIn >= :startDate " +
+                        "AND t.checkIn <= :endDate", TimeLog.class)
+                .setParameter("userId", staff.getId())
+                .setParameter("startDate", startDate)
+                .setParameter("endDate", endDate)
+                .getResultList();
+
+        Map<Long, TimeLog> timeLogByShift = timeLogs.stream()
+                .filter(tl -> tl.getShift() != null)
+                .collect(Collectors.toMap(
+                        tl -> tl.getShift().getId(),
+                        tl -> tl,
+                        (existing, replacement) -> existing
+                ));
+
+        int lateCheckIns = 0;
+        int earlyCheckOuts = 0;
+
+        for (ShiftAssignment assignment : assignments) {
+            Shift shift = assignment.getShift();
+            TimeLog timeLog = timeLogByShift.get(shift.getId());
+
+            if (timeLog != null && timeLog.getCheckIn() != null) {
+                attendedShifts++;
+
+                // Calculate hours worked
+                if (timeLog.getCheckOut() != null) {
+                    long minutes = ChronoUnit.MINUTES.between(timeLog.getCheckIn(), timeLog.getCheckOut());
+                    totalHoursWorked += minutes / 60.0;
+                }
+
+                // Check punctuality
+                if (timeLog.getCheckIn().isAfter(shift.getStartDatetime().plusMinutes(15))) {
+                    lateCheckIns++;
+                }
+                if (timeLog.getCheckOut() != null &&
+                    timeLog.getCheckOut().isBefore(shift.getEndDatetime().minusMinutes(15))) {
+                    earlyCheckOuts++;
+                }
+            } else if (shift.getEndDatetime().isBefore(LocalDateTime.now())) {
+                // Shift has passed without attendance
+                missedShifts++;
+            }
+        }
+
+        // Calculate rates
+        double attendanceRate = totalShifts > 0 ? (attendedShifts * 100.0 / totalShifts) : 100;
+        double punctualityRate = attendedShifts > 0 ?
+                ((attendedShifts - lateCheckIns - earlyCheckOuts) * 100.0 / attendedShifts) : 100;
+
+        return EmployeeRankingResponse.builder()
+                .totalShifts(totalShifts)
+                .totalHoursWorked(Math.round(totalHoursWorked * 10) / 10.0)
+                .attendedShifts(attendedShifts)
+                .missedShifts(missedShifts)
+                .attendanceRate(Math.round(attendanceRate * 10) / 10.0)
+                .lateCheckIns(lateCheckIns)
+                .earlyCheckOuts(earlyCheckOuts)
+                .punctualityRate(Math.round(punctualityRate * 10) / 10.0)
+                .build();
+    }
+
+    // ==================== HELPERS ====================
+
+    // A shift with an attending assignee, checking in/out the given minutes off the shift times
+    private void attended(Store store, User user, int day, int checkInOffset, int checkOutOffset) {
+        Shift shift = shift(store, pastMonth.atDay(day));
+        data.assign(shift, user);
+        data.timeLog(user, shift, shift.getStartDatetime().plusMinutes(checkInOffset),
+                shift.getEndDatetime().plusMinutes(checkOutOffset));
+    }
+
+    private Shift shift(Store store, java.time.LocalDate day) {
+        LocalDateTime start = day.atTime(8, 0);
+        return data.shift(store, start, start.plusHours(4));
+    }
+
+    private static List<Object> attendanceFields(EmployeeRankingResponse ranking) {
+        return List.of(ranking.getTotalShifts(), ranking.getAttendedShifts(), ranking.getMissedShifts(),
+                ranking.getLateCheckIns(), ranking.getEarlyCheckOuts(), ranking.getTotalHoursWorked(),
+                ranking.getAttendanceRate(), ranking.getPunctualityRate());
+    }
+
+    // Row: (storeId, assigned, attended, missed, late, early)
+    private static long[] counts(Object[] row) {
+        return new long[] {toLong(row[1]), toLong(row[2]), toLong(row[3]), toLong(row[4]), toLong(row[5])};
+    }
+
+    private static void assertArrayEquals(long[] expected, long[] actual) {
+        assertEquals(Arrays.toString(expected), Arrays.toString(actual));
+    }
+
+    private static long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        return value instanceof java.sql.Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) value;
+    }
+}
@@ -0,0 +1,142 @@
+package com.coffee.management.repository;
+
+import com.coffee.management.entity.Store;
+import com.coffee.management.support.TestData;
+import com.coffee.management.util.DateRange;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Shifts of one store and month counted with the MONTH()/YEAR() filter used before DateRange
+ * and with the half-open range of countByStoreAndDateRange, on benchmark.shifts.rows shifts
+ * (default 300,000) spread over 10 stores and 36 months, with the V13 index on
+ * (store_id, start_datetime, end_datetime). Prints both plans; the range filter must be an
+ * index range, and faster. Both run as plain SQL over a different month each round, so neither
+ * is helped by H2 reusing the previous result.
+ * Run with: mvn test -Pbenchmark -Dtest=ShiftRangeQueryBenchmarkTest
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:shift-range-benchmark;MODE=MySQL;NON_KEYWORDS=MONTH,VALUE,USER;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+class ShiftRangeQueryBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShiftRangeQueryBenchmarkTest.class);
+
+    private static final int ROWS = Integer.getInteger("benchmark.shifts.rows", 300_000);
+    private static final int STORES = 10;
+    private static final int MONTHS = 36;
+    private static final int ROUNDS = 35;
+
+    private static final String MONTH_FUNCTION_SQL = "SELECT COUNT(*) FROM shifts " +
+            "WHERE store_id = ? AND MONTH(start_datetime) = ? AND YEAR(start_datetime) = ?";
+    // The SQL of countByStoreAndDateRange
+    private static final String RANGE_SQL = "SELECT COUNT(*) FROM shifts " +
+            "WHERE store_id = ? AND start_datetime >= ? AND start_datetime < ?";
+
+    @Autowired
+    private ShiftRepository shiftRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void rangeFilterUsesTheIndex() {
+        YearMonth first = YearMonth.now().minusMonths(MONTHS);
+        Long storeId = seed(first);
+        YearMonth month = first.plusMonths(MONTHS / 2);
+        DateRange range = DateRange.ofMonth(month);
+
+        long expected = jdbcTemplate.queryForObject(MONTH_FUNCTION_SQL, Long.class,
+                storeId, month.getMonthValue(), month.getYear());
+        assertEquals(expected, shiftRepository.countByStoreAndDateRange(storeId, range));
+        assertTrue(expected > 0);
+
+        String functionPlan = plan(MONTH_FUNCTION_SQL.replaceFirst("\\?", storeId.toString())
+                .replaceFirst("\\?", String.valueOf(month.getMonthValue()))
+                .replaceFirst("\\?", String.valueOf(month.getYear())));
+        String rangePlan = plan("SELECT COUNT(*) FROM shifts WHERE store_id = " + storeId +
+                " AND start_datetime >= TIMESTAMP '" + range.getStart() + "'" +
+                " AND start_datetime < TIMESTAMP '" + range.getEnd() + "'");
+
+        long functionNanos = median(first, m -> jdbcTemplate.queryForObject(MONTH_FUNCTION_SQL, Long.class,
+                storeId, m.getMonthValue(), m.getYear()));
+        long rangeNanos = median(first, m -> jdbcTemplate.queryForObject(RANGE_SQL, Long.class,
+                storeId, DateRange.ofMonth(m).getStart(), DateRange.ofMonth(m).getEnd()));
+
+        logger.info("Shifts of one store and month among {}: MONTH()/YEAR() {} us, range {} us ({}x)\n" +
+                        "  MONTH()/YEAR() plan: {}\n  range plan: {}",
+                ROWS, functionNanos / 1000, rangeNanos / 1000,
+                String.format("%.1f", (double) functionNanos / Math.max(1, rangeNanos)), functionPlan, rangePlan);
+
+        assertTrue(rangePlan.contains("START_DATETIME >="), "range filter should be an index condition");
+        assertFalse(functionPlan.contains("START_DATETIME >="));
+        assertTrue(rangeNanos < functionNanos, "range filter should be faster than MONTH()/YEAR()");
+    }
+
+    // Shifts round-robin over the stores, evenly over the months, inserted in SQL
+    private Long seed(YearMonth first) {
+        List<Long> storeIds = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            TestData data = new TestData(entityManager);
+            for (int i = 0; i < STORES; i++) {
+                Store store = data.store();
+                storeIds.add(store.getId());
+            }
+        });
+        jdbcTemplate.execute("CREATE INDEX idx_shifts_store_start ON shifts(store_id, start_datetime, end_datetime)");
+        jdbcTemplate.update("INSERT INTO shifts (store_id, title, start_datetime, end_datetime, required_slots, " +
+                "is_template, created_at) " +
+                "SELECT ? + MOD(X, ?), 'Shift', " +
+                "DATEADD(MINUTE, MOD(X * 37, 60 * 24 * 28), DATEADD(MONTH, MOD(X / ?, ?), TIMESTAMP '" +
+                first.atDay(1).atStartOfDay() + "')), " +
+                "DATEADD(HOUR, 4, DATEADD(MINUTE, MOD(X * 37, 60 * 24 * 28), DATEADD(MONTH, MOD(X / ?, ?), TIMESTAMP '" +
+                first.atDay(1).atStartOfDay() + "'))), " +
+                "2, FALSE, NOW() FROM SYSTEM_RANGE(1, ?)",
+                storeIds.get(0), STORES, STORES, MONTHS, STORES, MONTHS, ROWS);
+        jdbcTemplate.execute("ANALYZE");
+        return storeIds.get(0);
+    }
+
+    private String plan(String sql) {
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class).replaceAll("\\s+", " ");
+    }
+
+    private static long median(YearMonth first, ToLongFunction<YearMonth> query) {
+        for (int i = 0; i < MONTHS; i++) {
+            query.applyAsLong(first.plusMonths(i)); // warm-up
+        }
+        long[] nanos = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            YearMonth month = first.plusMonths(i % MONTHS);
+            long start = System.nanoTime();
+            query.applyAsLong(month);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos[ROUNDS / 2];
+    }
+}
@@ -0,0 +1,140 @@
+package com.coffee.management.security;
+
+import com.coffee.management.entity.Role;
+import com.coffee.management.entity.Store;
+import com.coffee.management.entity.User;
+import com.coffee.management.support.TestData;
+import jakarta.persistence.EntityManager;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Latency of authenticating a request, p50 and p99 over benchmark.auth.requests requests
+ * (default 20,000) spread over 500 users: JwtAuthenticationFilter as it is (one verification,
+ * cached principal) against the path before it (validateToken, getUsernameFromToken, then
+ * loadUserByUsername, a query per request).
+ * Run with: mvn test -Pbenchmark -Dtest=AuthenticationLatencyBenchmarkTest
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:auth-benchmark;MODE=MySQL;NON_KEYWORDS=MONTH,VALUE,USER;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+class AuthenticationLatencyBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthenticationLatencyBenchmarkTest.class);
+
+    private static final int REQUESTS = Integer.getInteger("benchmark.auth.requests", 20_000);
+    private static final int USERS = 500;
+
+    @Autowired
+    private JwtAuthenticationFilter filter;
+
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void cachedPrincipalLowersLatency() throws Exception {
+        List<String> tokens = seed();
+
+        // Warm-up of both paths, then measured
+        measure(tokens, true);
+        measure(tokens, false);
+        long[] before = measure(tokens, false);
+        long[] after = measure(tokens, true);
+
+        logger.info("Request authentication over {} requests: before p50 {} us, p99 {} us; " +
+                        "after p50 {} us, p99 {} us",
+                REQUESTS, before[0] / 1000, before[1] / 1000, after[0] / 1000, after[1] / 1000);
+        assertTrue(after[1] < before[1], "p99 should be lower with the cached principal");
+    }
+
+    // {p50, p99} in nanoseconds
+    private long[] measure(List<String> tokens, boolean filterPath) throws ServletException, IOException {
+        long[] nanos = new long[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            String token = tokens.get(i % tokens.size());
+            long start = System.nanoTime();
+            if (filterPath) {
+                authenticateWithFilter(token);
+            } else {
+                authenticateAsBefore(token);
+            }
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return new long[] {nanos[REQUESTS / 2], nanos[REQUESTS * 99 / 100]};
+    }
+
+    private void authenticateWithFilter(String token) throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/notifications/unread-count");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertNotNull(authentication);
+        SecurityContextHolder.clearContext();
+    }
+
+    private void authenticateAsBefore(String token) {
+        assertTrue(tokenProvider.validateToken(token));
+        String username = tokenProvider.getUsernameFromToken(token);
+        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+        assertEquals(username, userDetails.getUsername());
+    }
+
+    // USERS staff over 5 stores, with an access token each
+    private List<String> seed() {
+        List<User> users = transactionTemplate.execute(status -> {
+            TestData data = new TestData(entityManager);
+            List<Store> stores = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                stores.add(data.store());
+            }
+            List<User> created = new ArrayList<>();
+            for (int i = 0; i < USERS; i++) {
+                created.add(data.user(stores.get(i % stores.size()), Role.STAFF));
+            }
+            return created;
+        });
+        List<String> tokens = new ArrayList<>();
+        for (User user : users) {
+            tokens.add(tokenProvider.generateAccessToken(user.getId(), user.getUsername(), null));
+        }
+        return tokens;
+    }
+}
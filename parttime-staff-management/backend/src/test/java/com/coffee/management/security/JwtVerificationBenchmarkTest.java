@@ -0,0 +1,95 @@
+package com.coffee.management.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Access tokens verified per second, one thread: VerifiedToken from the parser and keys built at
+ * startup, against the request path before it (signing key and parser rebuilt on every call,
+ * token parsed twice: validateToken, then getUsernameFromToken).
+ * Each is run for benchmark.jwt.seconds seconds (default 3) after a warm-up of the same length.
+ * Run with: mvn test -Pbenchmark -Dtest=JwtVerificationBenchmarkTest
+ */
+@Tag("benchmark")
+class JwtVerificationBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtVerificationBenchmarkTest.class);
+
+    private static final long SECONDS = Long.getLong("benchmark.jwt.seconds", 3);
+    private static final String SECRET = "mySecretKeyForJWTTokenGenerationThatIsAtLeast256BitsLong123456";
+
+    @Test
+    void verifiesMoreTokensPerSecondThanRebuildingTheParser() {
+        JwtTokenProvider provider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(provider, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(provider, "keyId", "k1");
+        ReflectionTestUtils.setField(provider, "previousKeys", "");
+        ReflectionTestUtils.setField(provider, "accessTokenExpiration", 3_600_000L);
+        ReflectionTestUtils.setField(provider, "refreshTokenExpiration", 86_400_000L);
+        provider.init();
+        String token = provider.generateAccessToken(42L, "staff42", "family-1");
+
+        assertEquals("staff42", provider.verify(token).getUsername());
+        assertEquals("staff42", previousRequestPath(token));
+
+        double before = perSecond(() -> "staff42".equals(previousRequestPath(token)));
+        double after = perSecond(() -> provider.verify(token) != null);
+
+        logger.info("Tokens verified per second: parser rebuilt and two parses {}, shared parser and VerifiedToken {} ({}x)",
+                String.format("%.0f", before), String.format("%.0f", after), String.format("%.1f", after / before));
+        assertTrue(after > before, "shared parser should verify more tokens per second");
+    }
+
+    // JwtTokenProvider before the shared parser: each call decoded the secret and built a parser
+    private static String previousRequestPath(String token) {
+        parse(token);
+        return parse(token).getSubject();
+    }
+
+    private static Claims parse(String token) {
+        return Jwts.parser()
+                .verifyWith(signingKey())
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    private static SecretKey signingKey() {
+        byte[] keyBytes = Decoders.BASE64.decode(SECRET);
+        if (keyBytes.length < 32) {
+            return Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        }
+        return Keys.hmacShaKeyFor(keyBytes);
+    }
+
+    private static double perSecond(BooleanSupplier verification) {
+        run(verification, SECONDS * 1_000_000_000L);
+        long start = System.nanoTime();
+        long count = run(verification, SECONDS * 1_000_000_000L);
+        return count * 1e9 / (System.nanoTime() - start);
+    }
+
+    private static long run(BooleanSupplier verification, long nanos) {
+        long end = System.nanoTime() + nanos;
+        long count = 0;
+        while (System.nanoTime() < end) {
+            assertTrue(verification.getAsBoolean());
+            count++;
+        }
+        return count;
+    }
+}
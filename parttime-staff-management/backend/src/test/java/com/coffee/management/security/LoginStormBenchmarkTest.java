@@ -0,0 +1,134 @@
+package com.coffee.management.security;
+
+import com.coffee.management.entity.Role;
+import com.coffee.management.entity.User;
+import com.coffee.management.exception.ServiceUnavailableException;
+import com.coffee.management.repository.TimeLogRepository;
+import com.coffee.management.support.TestData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Login storm: benchmark.login.threads threads (default 32) checking passwords for
+ * benchmark.login.seconds seconds (default 10) while another thread keeps running a plain
+ * request query (findActiveCheckIn). The p99 of that query is measured alone, during a storm
+ * hashed on the request threads (BCrypt 10, unbounded), and during a storm through the
+ * BoundedPasswordEncoder bean, which also reports its logins per second and 503s.
+ * Run with: mvn test -Pbenchmark -Dtest=LoginStormBenchmarkTest
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:login-storm-benchmark;MODE=MySQL;NON_KEYWORDS=MONTH,VALUE,USER;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+class LoginStormBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoginStormBenchmarkTest.class);
+
+    private static final int THREADS = Integer.getInteger("benchmark.login.threads", 32);
+    private static final long SECONDS = Long.getLong("benchmark.login.seconds", 10);
+    private static final String PASSWORD = "password123";
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private TimeLogRepository timeLogRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void boundedHashingKeepsOtherRequestsFast() throws InterruptedException {
+        assertTrue(passwordEncoder instanceof BoundedPasswordEncoder);
+        Long userId = seed();
+        String hash = new BCryptPasswordEncoder(10).encode(PASSWORD);
+
+        long quietP99 = probeP99(userId, SECONDS * 1_000_000_000L / 2);
+        Storm unbounded = storm(userId, new BCryptPasswordEncoder(10), hash);
+        Storm bounded = storm(userId, passwordEncoder, hash);
+
+        logger.info("Request p99 with {} threads logging in: quiet {} us, " +
+                        "hashing on request threads {} us ({} logins/s), " +
+                        "bounded pool {} us ({} logins/s, {} rejected with 503)",
+                THREADS, quietP99 / 1000, unbounded.probeP99 / 1000, String.format("%.1f", unbounded.loginsPerSecond()),
+                bounded.probeP99 / 1000, String.format("%.1f", bounded.loginsPerSecond()), bounded.rejected);
+        assertTrue(bounded.logins > 0, "bounded pool should still let logins through");
+        assertTrue(bounded.probeP99 < unbounded.probeP99, "bounded hashing should keep the request p99 lower");
+    }
+
+    private Storm storm(Long userId, PasswordEncoder encoder, String hash) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong logins = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            Thread thread = new Thread(() -> {
+                while (running.get()) {
+                    try {
+                        if (encoder.matches(PASSWORD, hash)) {
+                            logins.incrementAndGet();
+                        }
+                    } catch (ServiceUnavailableException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+            }, "login-" + i);
+            threads.add(thread);
+            thread.start();
+        }
+        long start = System.nanoTime();
+        long probeP99 = probeP99(userId, SECONDS * 1_000_000_000L);
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return new Storm(probeP99, logins.get(), rejected.get(), System.nanoTime() - start);
+    }
+
+    private long probeP99(Long userId, long nanos) {
+        List<Long> latencies = new ArrayList<>();
+        long end = System.nanoTime() + nanos;
+        while (System.nanoTime() < end) {
+            long start = System.nanoTime();
+            timeLogRepository.findActiveCheckIn(userId);
+            latencies.add(System.nanoTime() - start);
+        }
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        return sorted[sorted.length * 99 / 100];
+    }
+
+    private Long seed() {
+        return transactionTemplate.execute(status -> {
+            TestData data = new TestData(entityManager);
+            User user = data.user(data.store(), Role.STAFF);
+            return user.getId();
+        });
+    }
+
+    private record Storm(long probeP99, long logins, long rejected, long nanos) {
+
+        double loginsPerSecond() {
+            return logins * 1e9 / nanos;
+        }
+    }
+}
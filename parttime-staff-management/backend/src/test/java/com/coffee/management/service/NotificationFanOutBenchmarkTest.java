@@ -0,0 +1,112 @@
+package com.coffee.management.service;
+
+import com.coffee.management.dto.notification.BroadcastNotificationRequest;
+import com.coffee.management.entity.Notification;
+import com.coffee.management.entity.Role;
+import com.coffee.management.entity.Store;
+import com.coffee.management.entity.User;
+import com.coffee.management.repository.NotificationRepository;
+import com.coffee.management.repository.UserRepository;
+import com.coffee.management.support.TestData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Owner-wide broadcast to benchmark.notifications.recipients staff (default 4,000): one
+ * repository save per recipient, as broadcasts were sent before, against the batched fan-out of
+ * NotificationService. Both create one notification per recipient.
+ * Run with: mvn test -Pbenchmark -Dtest=NotificationFanOutBenchmarkTest
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:fan-out-benchmark;MODE=MySQL;NON_KEYWORDS=MONTH,VALUE,USER;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+class NotificationFanOutBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationFanOutBenchmarkTest.class);
+
+    private static final int RECIPIENTS = Integer.getInteger("benchmark.notifications.recipients", 4000);
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void batchedFanOutIsFasterThanSavePerRecipient() {
+        User owner = seed();
+        List<Long> recipientIds = userRepository.findActiveNonOwnerIds(null);
+        assertEquals(RECIPIENTS, recipientIds.size());
+
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (User user : userRepository.findAllById(recipientIds)) {
+                notificationRepository.save(Notification.builder()
+                        .user(user)
+                        .title("Thông báo")
+                        .message("Lịch làm việc tuần sau đã được cập nhật")
+                        .build());
+            }
+        });
+        long perRecipientMs = (System.nanoTime() - start) / 1_000_000;
+        assertEquals(RECIPIENTS, notificationRepository.count());
+
+        jdbcTemplate.update("DELETE FROM notifications");
+
+        BroadcastNotificationRequest request = new BroadcastNotificationRequest();
+        request.setTitle("Thông báo");
+        request.setMessage("Lịch làm việc tuần sau đã được cập nhật");
+        start = System.nanoTime();
+        Integer sent = transactionTemplate.execute(status ->
+                notificationService.broadcastNotification(request, TestData.principal(owner)));
+        long batchedMs = (System.nanoTime() - start) / 1_000_000;
+
+        logger.info("Broadcast to {} staff: save per recipient {} ms, batched fan-out {} ms ({}x)",
+                RECIPIENTS, perRecipientMs, batchedMs, String.format("%.1f", (double) perRecipientMs / Math.max(1, batchedMs)));
+
+        assertEquals(RECIPIENTS, sent);
+        assertEquals(RECIPIENTS, notificationRepository.count());
+        assertTrue(batchedMs < perRecipientMs, "batched fan-out should be faster than one save per recipient");
+    }
+
+    // The owner and RECIPIENTS staff spread over 4 stores
+    private User seed() {
+        return transactionTemplate.execute(status -> {
+            TestData data = new TestData(entityManager);
+            User owner = data.user(null, Role.OWNER);
+            Store[] stores = {data.store(), data.store(), data.store(), data.store()};
+            for (int i = 0; i < RECIPIENTS; i++) {
+                data.user(stores[i % stores.length], Role.STAFF);
+                if (i % 500 == 0) {
+                    entityManager.flush();
+                }
+            }
+            return owner;
+        });
+    }
+}
@@ -0,0 +1,148 @@
+package com.coffee.management.service;
+
+import com.coffee.management.dto.payroll.PayrollExportRow;
+import com.coffee.management.entity.Role;
+import com.coffee.management.entity.Store;
+import com.coffee.management.repository.PayrollRepository;
+import com.coffee.management.support.TestData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CSV export of benchmark.export.rows payrolls (default 100,000) of one month, written to a
+ * discarding stream. The live heap (measured after a GC every 10,000 rows) must stay flat while
+ * the export runs, on the -Xmx512m of the benchmark profile.
+ * Run with: mvn test -Pbenchmark -Dtest=PayrollExportBenchmarkTest
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:export-benchmark;MODE=MySQL;NON_KEYWORDS=MONTH,VALUE,USER;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+class PayrollExportBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(PayrollExportBenchmarkTest.class);
+
+    private static final int ROWS = Integer.getInteger("benchmark.export.rows", 100_000);
+    private static final long MAX_HEAP_GROWTH_BYTES = 16L * 1024 * 1024;
+
+    @Autowired
+    private PayrollExportService payrollExportService;
+
+    @Autowired
+    private PayrollRepository payrollRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void exportKeepsMemoryFlat() throws Exception {
+        String month = YearMonth.now().minusMonths(1).toString();
+        Store store = transactionTemplate.execute(status -> new TestData(entityManager).store());
+        seed(store.getId(), month);
+
+        // Timed run, then a second run measuring the heap (the GCs would distort the timing)
+        long start = System.nanoTime();
+        payrollExportService.writeCsv(month, null, new LineCountingOutputStream());
+        long exportMs = (System.nanoTime() - start) / 1_000_000;
+
+        LineCountingOutputStream output = new LineCountingOutputStream();
+        long baseline = liveHeap();
+        output.onEvery(10_000, () -> output.peakLiveHeap = Math.max(output.peakLiveHeap, liveHeap()));
+        payrollExportService.writeCsv(month, null, output);
+
+        long growth = Math.max(0, output.peakLiveHeap - baseline);
+
+        // For comparison: the same rows held in a list, as a non-streaming export would
+        long beforeList = liveHeap();
+        long listed = transactionTemplate.execute(status -> {
+            List<PayrollExportRow> rows = payrollRepository.streamExportRows(month, null).toList();
+            long held = liveHeap() - beforeList;
+            assertEquals(ROWS, rows.size());
+            return held;
+        });
+
+        logger.info("Export of {} payrolls: {} ms, {} KB written, live heap growth {} KB " +
+                        "(rows held in a list: {} KB, max heap {} MB)",
+                ROWS, exportMs, output.bytes / 1024, growth / 1024, listed / 1024,
+                Runtime.getRuntime().maxMemory() / (1024 * 1024));
+
+        assertEquals(ROWS + 1, output.lines);
+        assertTrue(growth < MAX_HEAP_GROWTH_BYTES, "live heap grew by " + growth / 1024 + " KB during the export");
+    }
+
+    // ROWS staff of one store with one payroll each, inserted in SQL so the seed itself stays small in memory
+    private void seed(Long storeId, String month) {
+        jdbcTemplate.update("INSERT INTO users (username, password_hash, full_name, email, role, store_id, hourly_rate, " +
+                "status, created_at, updated_at) " +
+                "SELECT 'export' || X, '{noop}secret', 'Nhân viên ' || X, 'export' || X || '@test.local', ?, ?, 25000, " +
+                "'ACTIVE', NOW(), NOW() FROM SYSTEM_RANGE(1, ?)", Role.STAFF.name(), storeId, ROWS);
+        jdbcTemplate.update("INSERT INTO payrolls (user_id, month, total_hours, gross_pay, adjustments, adjustment_note, " +
+                "status, created_at) " +
+                "SELECT id, ?, 80, 2000000, 0, NULL, 'DRAFT', NOW() FROM users WHERE store_id = ?", month, storeId);
+    }
+
+    private static long liveHeap() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    // Discards the CSV, counting bytes and lines
+    private static class LineCountingOutputStream extends OutputStream {
+        long bytes;
+        long lines;
+        long peakLiveHeap;
+        private long every;
+        private Runnable action;
+
+        void onEvery(long lineCount, Runnable action) {
+            this.every = lineCount;
+            this.action = action;
+        }
+
+        @Override
+        public void write(int b) {
+            bytes++;
+            if (b == '\n') {
+                line();
+            }
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) {
+            bytes += length;
+            for (int i = offset; i < offset + length; i++) {
+                if (buffer[i] == '\n') {
+                    line();
+                }
+            }
+        }
+
+        private void line() {
+            lines++;
+            if (action != null && lines % every == 0) {
+                action.run();
+            }
+        }
+    }
+}
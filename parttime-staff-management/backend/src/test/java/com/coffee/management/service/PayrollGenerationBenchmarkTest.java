@@ -0,0 +1,148 @@
+package com.coffee.management.service;
+
+import com.coffee.management.dto.payroll.PayrollResponse;
+import com.coffee.management.entity.Role;
+import com.coffee.management.entity.Shift;
+import com.coffee.management.entity.Store;
+import com.coffee.management.entity.User;
+import com.coffee.management.repository.UserRepository;
+import com.coffee.management.support.TestData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Payroll of one store with benchmark.payroll.users employees (default 5,000), generated user by
+ * user and then through the batch pipeline. Both must produce the same payrolls in the same
+ * order. The all-store generation must keep the order it had before sharding: every STAFF, then
+ * every MANAGER, as read by role.
+ * Run with: mvn test -Pbenchmark -Dtest=PayrollGenerationBenchmarkTest
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:payroll-benchmark;MODE=MySQL;NON_KEYWORDS=MONTH,VALUE,USER;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+class PayrollGenerationBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(PayrollGenerationBenchmarkTest.class);
+
+    private static final int USERS = Integer.getInteger("benchmark.payroll.users", 5000);
+    private static final int STAFF_PER_MANAGER = 1000;
+
+    @Autowired
+    private PayrollService payrollService;
+
+    @Autowired
+    private PayrollBatchService payrollBatchService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void batchPipelineIsFasterThanPerUserGeneration() {
+        YearMonth month = YearMonth.now().minusMonths(1);
+        Store store = seed(month);
+        User owner = transactionTemplate.execute(status -> new TestData(entityManager).user(null, Role.OWNER));
+
+        long start = System.nanoTime();
+        List<PayrollResponse> perUser = payrollService
+                .generatePayroll(month.toString(), store.getId(), TestData.principal(owner)).getPayrolls();
+        long perUserMs = (System.nanoTime() - start) / 1_000_000;
+
+        jdbcTemplate.update("DELETE FROM payrolls");
+        jdbcTemplate.update("DELETE FROM store_monthly_metrics");
+
+        start = System.nanoTime();
+        List<PayrollResponse> batch = payrollBatchService.generatePayroll(month.toString(), store.getId(), true, null);
+        long batchMs = (System.nanoTime() - start) / 1_000_000;
+
+        logger.info("Payroll of {} employees: per user {} ms, batch {} ms ({}x)",
+                USERS, perUserMs, batchMs, String.format("%.1f", (double) perUserMs / Math.max(1, batchMs)));
+
+        int managers = (USERS + STAFF_PER_MANAGER - 1) / STAFF_PER_MANAGER;
+        assertEquals(USERS + managers, perUser.size());
+        assertEquals(userIds(perUser), userIds(batch));
+        Map<Long, PayrollResponse> batchByUser = batch.stream()
+                .collect(Collectors.toMap(PayrollResponse::getUserId, Function.identity()));
+        for (PayrollResponse expected : perUser) {
+            PayrollResponse actual = batchByUser.get(expected.getUserId());
+            assertEquals(0, expected.getTotalHours().compareTo(actual.getTotalHours()));
+            assertEquals(0, expected.getGrossPay().compareTo(actual.getGrossPay()));
+            assertEquals(0, expected.getAdjustments().compareTo(actual.getAdjustments()));
+            assertEquals(expected.getAdjustmentNote(), actual.getAdjustmentNote());
+        }
+        assertTrue(batchMs < perUserMs, "batch pipeline should be faster than per-user generation");
+
+        // All stores: the former path read every STAFF, then every MANAGER
+        List<Long> expectedOrder = new ArrayList<>();
+        userRepository.findByRole(Role.STAFF).forEach(user -> expectedOrder.add(user.getId()));
+        userRepository.findByRole(Role.MANAGER).forEach(user -> expectedOrder.add(user.getId()));
+        List<PayrollResponse> allStores = payrollBatchService.generatePayrollByStore(month.toString(), true, null)
+                .getPayrolls();
+        assertEquals(expectedOrder, userIds(allStores));
+    }
+
+    private static List<Long> userIds(List<PayrollResponse> payrolls) {
+        return payrolls.stream().map(PayrollResponse::getUserId).toList();
+    }
+
+    // One store, USERS staff with two time logs each and a manager per STAFF_PER_MANAGER of them;
+    // every third employee checks in late once. A staff member without a store comes first.
+    private Store seed(YearMonth month) {
+        return transactionTemplate.execute(status -> {
+            TestData data = new TestData(entityManager);
+            data.user(null, Role.STAFF);
+            Store store = data.store();
+            Shift[] shifts = new Shift[10];
+            for (int i = 0; i < shifts.length; i++) {
+                LocalDateTime start = month.atDay(i + 1).atTime(8, 0);
+                shifts[i] = data.shift(store, start, start.plusHours(4));
+            }
+            for (int i = 0; i < USERS; i++) {
+                if (i % STAFF_PER_MANAGER == 0) {
+                    data.user(store, Role.MANAGER);
+                }
+                User staff = data.user(store, Role.STAFF);
+                for (int j = 0; j < 2; j++) {
+                    Shift shift = shifts[(i + j) % shifts.length];
+                    LocalDateTime checkIn = shift.getStartDatetime().plusMinutes(i % 3 == 0 && j == 0 ? 20 : 0);
+                    data.timeLog(staff, shift, checkIn, shift.getEndDatetime());
+                }
+                if (i % 500 == 0) {
+                    data.flushAndClear();
+                    for (int k = 0; k < shifts.length; k++) {
+                        shifts[k] = entityManager.getReference(Shift.class, shifts[k].getId());
+                    }
+                    store = entityManager.getReference(Store.class, store.getId());
+                }
+            }
+            return store;
+        });
+    }
+}
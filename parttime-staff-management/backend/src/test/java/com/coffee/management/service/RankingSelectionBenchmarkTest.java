@@ -0,0 +1,111 @@
+package com.coffee.management.service;
+
+import com.coffee.management.dto.report.EmployeeRankingResponse;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Top 5 of benchmark.ranking.staff staff (default 50,000) with the ranking order: bounded heap
+ * selection as in EmployeeRankingEngine against sorting the whole list as the ranking did before.
+ * Both must select the same staff. Timings are the median of the measured rounds, after warm-up.
+ * Run with: mvn test -Pbenchmark -Dtest=RankingSelectionBenchmarkTest
+ */
+@Tag("benchmark")
+class RankingSelectionBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(RankingSelectionBenchmarkTest.class);
+
+    private static final int STAFF = Integer.getInteger("benchmark.ranking.staff", 50_000);
+    private static final int LIMIT = 5;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURED_ROUNDS = 50;
+
+    private final Comparator<EmployeeRankingResponse> order = EmployeeRankingService.RANKING_ORDER;
+
+    @Test
+    void heapSelectionIsFasterThanFullSort() {
+        List<EmployeeRankingResponse> staff = staff();
+
+        List<EmployeeRankingResponse> sorted = fullSort(staff);
+        List<EmployeeRankingResponse> selected = heapSelection(staff);
+        assertEquals(sorted, selected);
+
+        long sortNanos = median(() -> fullSort(staff));
+        long heapNanos = median(() -> heapSelection(staff));
+
+        logger.info("Top {} of {} staff: full sort {} us, heap selection {} us ({}x)",
+                LIMIT, STAFF, sortNanos / 1000, heapNanos / 1000,
+                String.format("%.1f", (double) sortNanos / Math.max(1, heapNanos)));
+        assertTrue(heapNanos < sortNanos, "heap selection should be faster than the full sort");
+    }
+
+    private List<EmployeeRankingResponse> fullSort(List<EmployeeRankingResponse> staff) {
+        List<EmployeeRankingResponse> ranking = new ArrayList<>(staff);
+        ranking.sort(order);
+        return new ArrayList<>(ranking.subList(0, LIMIT));
+    }
+
+    // Max-heap on the ranking order keeping LIMIT entries, the head being the worst kept
+    private List<EmployeeRankingResponse> heapSelection(List<EmployeeRankingResponse> staff) {
+        PriorityQueue<EmployeeRankingResponse> heap = new PriorityQueue<>(LIMIT + 1, order.reversed());
+        for (EmployeeRankingResponse candidate : staff) {
+            if (heap.size() < LIMIT) {
+                heap.add(candidate);
+            } else if (order.compare(candidate, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(candidate);
+            }
+        }
+        List<EmployeeRankingResponse> selected = new ArrayList<>(heap);
+        selected.sort(order);
+        return selected;
+    }
+
+    private static long median(Supplier<List<EmployeeRankingResponse>> run) {
+        int sink = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            sink += run.get().size();
+        }
+        long[] nanos = new long[MEASURED_ROUNDS];
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            sink += run.get().size();
+            nanos[i] = System.nanoTime() - start;
+        }
+        assertEquals((WARMUP_ROUNDS + MEASURED_ROUNDS) * LIMIT, sink);
+        Arrays.sort(nanos);
+        return nanos[MEASURED_ROUNDS / 2];
+    }
+
+    // Scores on a coarse grid so ties are common and the later levels of the order are used
+    private static List<EmployeeRankingResponse> staff() {
+        Random random = new Random(42);
+        List<EmployeeRankingResponse> staff = new ArrayList<>(STAFF);
+        for (int i = 0; i < STAFF; i++) {
+            int totalShifts = 1 + random.nextInt(20);
+            staff.add(EmployeeRankingResponse.builder()
+                    .userId((long) i + 1)
+                    .fullName("Nhân viên " + random.nextInt(STAFF))
+                    .totalShifts(totalShifts)
+                    .attendanceRate(random.nextInt(11) / 10.0)
+                    .punctualityRate(random.nextInt(11) / 10.0)
+                    .totalHoursWorked(random.nextInt(totalShifts * 4 + 1))
+                    .performanceScore(random.nextInt(101))
+                    .build());
+        }
+        return staff;
+    }
+}
@@ -0,0 +1,96 @@
+package com.coffee.management.service;
+
+import com.coffee.management.dto.auth.RefreshTokenRequest;
+import com.coffee.management.entity.*;
+import com.coffee.management.exception.UnauthorizedException;
+import com.coffee.management.repository.RefreshTokenRepository;
+import com.coffee.management.security.JwtTokenProvider;
+import com.coffee.management.security.VerifiedToken;
+import com.coffee.management.support.TestData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * A used refresh token presented again within the grace period gets the same next token only
+ * from the client it was rotated for; any other client is treated as reuse
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class RefreshTokenServiceTest {
+
+    private static final String TAB = "client-a";
+    private static final String OTHER_CLIENT = "client-b";
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private User user;
+    private RefreshToken first;
+
+    @BeforeEach
+    void setUp() {
+        user = new TestData(entityManager).user(null, Role.STAFF);
+        first = refreshTokenService.startFamily(user.getId(), TAB);
+    }
+
+    @Test
+    void sameClientGetsTheSameNextToken() {
+        RefreshToken next = refreshTokenService.rotate(verify(first), TAB);
+
+        assertEquals(next.getId(), refreshTokenService.rotate(verify(first), TAB).getId());
+        assertEquals(RefreshTokenStatus.ACTIVE, status(next));
+    }
+
+    @Test
+    void otherClientWithinTheGraceRevokesTheFamily() {
+        RefreshToken next = refreshTokenService.rotate(verify(first), TAB);
+
+        assertThrows(UnauthorizedException.class, () -> refreshTokenService.rotate(verify(first), OTHER_CLIENT));
+        assertEquals(RefreshTokenStatus.REVOKED, status(next));
+    }
+
+    @Test
+    void inactiveUserCannotRefresh() {
+        user.setStatus(UserStatus.INACTIVE);
+        entityManager.flush();
+
+        assertThrows(UnauthorizedException.class, () -> authService.refreshToken(
+                new RefreshTokenRequest(refreshToken(first)), TAB));
+        assertEquals(RefreshTokenStatus.ACTIVE, status(first));
+    }
+
+    private VerifiedToken verify(RefreshToken token) {
+        return tokenProvider.verify(refreshToken(token));
+    }
+
+    private String refreshToken(RefreshToken token) {
+        return tokenProvider.generateRefreshToken(user.getId(), user.getUsername(), token.getFamilyId(), token.getId());
+    }
+
+    private RefreshTokenStatus status(RefreshToken token) {
+        entityManager.flush();
+        entityManager.clear();
+        return refreshTokenRepository.findById(token.getId()).orElseThrow().getStatus();
+    }
+}
@@ -0,0 +1,86 @@
+package com.coffee.management.service;
+
+import com.coffee.management.dto.report.StoreReportResponse;
+import com.coffee.management.entity.*;
+import com.coffee.management.support.TestData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The live store report (current month) counts requests and tasks in grouped queries: neither
+ * the number of queries nor the entities loaded grow with the store's requests and tasks
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class ReportServiceStoreReportTest {
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void countsRequestsAndTasksWithoutLoadingThem() {
+        TestData data = new TestData(entityManager);
+        User owner = data.user(null, Role.OWNER);
+        Store small = data.store();
+        Store large = data.store();
+        addRequestsAndTasks(data, small, 1);
+        addRequestsAndTasks(data, large, 20);
+        data.flushAndClear();
+
+        data.resetCounts();
+        StoreReportResponse smallReport = reportService.getStoreReport(small.getId(), YearMonth.now().toString(),
+                TestData.principal(owner));
+        long smallQueries = data.queryCount();
+
+        data.resetCounts();
+        StoreReportResponse largeReport = reportService.getStoreReport(large.getId(), YearMonth.now().toString(),
+                TestData.principal(owner));
+        long largeQueries = data.queryCount();
+        long loadedEntities = data.statistics().getEntityLoadCount();
+
+        assertEquals(smallQueries, largeQueries);
+        assertEquals(1, loadedEntities); // the store
+        assertEquals(40, largeReport.getPendingRequests());
+        assertEquals(20, largeReport.getApprovedRequests());
+        assertEquals(20, largeReport.getRejectedRequests());
+        assertEquals(80, largeReport.getTotalTasks());
+        assertEquals(40, largeReport.getPendingTasks());
+        assertEquals(20, largeReport.getInProgressTasks());
+        assertEquals(20, largeReport.getCompletedTasks());
+        assertEquals(20, largeReport.getOverdueTasks());
+        assertEquals(2, smallReport.getPendingRequests());
+        assertEquals(1, smallReport.getOverdueTasks());
+    }
+
+    // Per unit: 2 pending, 1 approved, 1 rejected request; a pending, an in-progress, a completed
+    // and an overdue (pending, past due) task
+    private void addRequestsAndTasks(TestData data, Store store, int units) {
+        User manager = data.user(store, Role.MANAGER);
+        LocalDateTime nextWeek = LocalDateTime.now().plusDays(7);
+        for (int i = 0; i < units; i++) {
+            User staff = data.user(store, Role.STAFF);
+            data.request(staff, RequestStatus.PENDING);
+            data.request(staff, RequestStatus.PENDING);
+            data.request(staff, RequestStatus.APPROVED);
+            data.request(staff, RequestStatus.REJECTED);
+            data.task(store, manager, TaskStatus.PENDING, nextWeek);
+            data.task(store, manager, TaskStatus.IN_PROGRESS, nextWeek);
+            Task completed = data.task(store, manager, TaskStatus.COMPLETED, nextWeek);
+            completed.setCompletedAt(LocalDateTime.now());
+            data.task(store, manager, TaskStatus.PENDING, LocalDateTime.now().minusDays(1));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.coffee.management.service;
+
+import com.coffee.management.dto.report.SystemReportResponse;
+import com.coffee.management.entity.*;
+import com.coffee.management.support.TestData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The system report runs a fixed number of grouped queries, whatever the number of stores
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class ReportServiceSystemReportTest {
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private TestData data;
+    private User owner;
+    // Reports are cached until commit, so each measurement reads a month not read before
+    private final YearMonth firstMonth = YearMonth.now().minusMonths(2);
+    private final YearMonth secondMonth = YearMonth.now().minusMonths(1);
+
+    @BeforeEach
+    void setUp() {
+        data = new TestData(entityManager);
+        owner = data.user(null, Role.OWNER);
+    }
+
+    @Test
+    void queryCountDoesNotGrowWithStores() {
+        addStores(2);
+        long twoStores = countSystemReportQueries(firstMonth, 2);
+
+        addStores(10);
+        long twelveStores = countSystemReportQueries(secondMonth, 12);
+
+        assertEquals(twoStores, twelveStores);
+    }
+
+    // Each store gets three staff with a late check-in and a payroll in both months
+    private void addStores(int count) {
+        for (int i = 0; i < count; i++) {
+            Store store = data.store();
+            User manager = data.user(store, Role.MANAGER);
+            for (int j = 0; j < 3; j++) {
+                User staff = data.user(store, Role.STAFF);
+                data.request(staff, RequestStatus.PENDING);
+                for (YearMonth month : new YearMonth[]{firstMonth, secondMonth}) {
+                    LocalDateTime start = month.atDay(10).atTime(8, 0);
+                    Shift shift = data.shift(store, start, start.plusHours(4));
+                    data.assign(shift, staff);
+                    data.timeLog(staff, shift, start.plusMinutes(20), start.plusHours(4));
+                    data.payroll(staff, month.toString(), BigDecimal.valueOf(100000));
+                }
+            }
+            data.task(store, manager, TaskStatus.PENDING, LocalDateTime.now().plusDays(1));
+            data.task(store, manager, TaskStatus.COMPLETED, LocalDateTime.now().plusDays(1));
+        }
+        data.flushAndClear();
+    }
+
+    private long countSystemReportQueries(YearMonth month, int expectedStores) {
+        data.resetCounts();
+
+        SystemReportResponse report = reportService.getSystemReport(month.toString(), TestData.principal(owner));
+
+        long queries = data.queryCount();
+        assertEquals(expectedStores, report.getTotalStores());
+        assertEquals(expectedStores, report.getStoreReports().size());
+        assertEquals(expectedStores * 3L, report.getTotalAssignedShifts());
+        assertEquals(expectedStores * 3L, report.getTotalLateCheckIns());
+        assertEquals(0, BigDecimal.valueOf(expectedStores * 300000L).compareTo(report.getTotalPayroll()));
+        return queries;
+    }
+}
@@ -0,0 +1,100 @@
+package com.coffee.management.service;
+
+import com.coffee.management.dto.shift.ShiftResponse;
+import com.coffee.management.entity.Role;
+import com.coffee.management.entity.Shift;
+import com.coffee.management.entity.Store;
+import com.coffee.management.entity.User;
+import com.coffee.management.support.TestData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The shift calendar is read in two statements (shifts, then their assignments),
+ * for one store as for several
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class ShiftServiceCalendarTest {
+
+    @Autowired
+    private ShiftService shiftService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private final LocalDate weekStart = LocalDate.now().plusWeeks(1);
+    private TestData data;
+    private User owner;
+    private final List<Store> stores = new ArrayList<>();
+    private final List<User> managers = new ArrayList<>();
+
+    // Three stores, each with three shifts in the week and two staff on each shift
+    @BeforeEach
+    void setUp() {
+        data = new TestData(entityManager);
+        owner = data.user(null, Role.OWNER);
+        for (int i = 0; i < 3; i++) {
+            Store store = data.store();
+            stores.add(store);
+            managers.add(data.user(store, Role.MANAGER));
+            List<User> staff = List.of(data.user(store, Role.STAFF), data.user(store, Role.STAFF));
+            for (int day = 0; day < 3; day++) {
+                LocalDateTime start = weekStart.plusDays(day).atTime(8, 0);
+                Shift shift = data.shift(store, start, start.plusHours(4));
+                staff.forEach(user -> data.assign(shift, user));
+            }
+        }
+        data.flushAndClear();
+    }
+
+    @Test
+    void oneStoreInTwoStatements() {
+        data.resetCounts();
+
+        List<ShiftResponse> calendar = shiftService.getCalendar(weekStart, null, TestData.principal(managers.get(0)));
+
+        assertEquals(2, data.queryCount());
+        assertEquals(3, calendar.size());
+        calendar.forEach(shift -> {
+            assertEquals(stores.get(0).getId(), shift.getStoreId());
+            assertEquals(2, shift.getAssignedCount());
+        });
+    }
+
+    @Test
+    void severalStoresInTwoStatements() {
+        data.resetCounts();
+
+        List<ShiftResponse> calendar = shiftService.getCalendar(weekStart,
+                List.of(stores.get(0).getId(), stores.get(2).getId()), TestData.principal(owner));
+
+        assertEquals(2, data.queryCount());
+        assertEquals(6, calendar.size());
+        calendar.forEach(shift -> assertEquals(2, shift.getAssignedCount()));
+    }
+
+    @Test
+    void allStoresInTwoStatements() {
+        data.resetCounts();
+
+        List<ShiftResponse> calendar = shiftService.getCalendar(weekStart, null, TestData.principal(owner));
+
+        assertEquals(2, data.queryCount());
+        assertEquals(9, calendar.size());
+        calendar.forEach(shift -> assertEquals(2, shift.getAssignedCount()));
+    }
+}
@@ -0,0 +1,126 @@
+package com.coffee.management.service;
+
+import com.coffee.management.dto.report.StoreReportResponse;
+import com.coffee.management.dto.timelog.ManualTimeLogRequest;
+import com.coffee.management.entity.*;
+import com.coffee.management.repository.StoreMonthlyMetricsRepository;
+import com.coffee.management.support.TestData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+import static com.coffee.management.support.TestData.principal;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Writes to a closed month re-reconcile its rollup row once committed, for the counters that
+ * have no delta (shifts, attendance, overdue tasks). Transactions are committed here, so the
+ * test runs on a database of its own.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:store-metrics-closed-month;MODE=MySQL;NON_KEYWORDS=MONTH,VALUE,USER;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+class StoreMetricsServiceClosedMonthTest {
+
+    @Autowired
+    private StoreMetricsService storeMetricsService;
+
+    @Autowired
+    private StoreMonthlyMetricsRepository storeMonthlyMetricsRepository;
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private ShiftService shiftService;
+
+    @Autowired
+    private TimeLogService timeLogService;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final YearMonth month = YearMonth.now().minusMonths(3);
+    private Store store;
+    private User owner;
+    private User staff;
+    private Shift kept;
+    private Shift deleted;
+    private Task task;
+
+    // Two shifts of the staff member, neither attended, and an overdue task, all in a closed month
+    @BeforeEach
+    void setUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            TestData data = new TestData(entityManager);
+            store = data.store();
+            owner = data.user(null, Role.OWNER);
+            staff = data.user(store, Role.STAFF);
+            LocalDateTime start = month.atDay(10).atTime(8, 0);
+            kept = data.shift(store, start, start.plusHours(4));
+            deleted = data.shift(store, start.plusDays(1), start.plusDays(1).plusHours(4));
+            data.assign(kept, staff);
+            data.assign(deleted, staff);
+            task = data.task(store, owner, TaskStatus.PENDING, month.atDay(20).atTime(18, 0));
+        });
+        jdbcTemplate.update("UPDATE tasks SET created_at = ? WHERE id = ?", month.atDay(5).atTime(9, 0), task.getId());
+        storeMetricsService.reconcileMonth(month.toString());
+
+        StoreMonthlyMetrics row = row();
+        assertEquals(2, row.getTotalShifts());
+        assertEquals(0, row.getAttendedShifts());
+        assertEquals(1, row.getOverdueTasks());
+    }
+
+    @Test
+    void shiftAndTimeLogWritesReconcileTheRow() {
+        transactionTemplate.executeWithoutResult(status -> shiftService.deleteShift(deleted.getId(), principal(owner)));
+        assertEquals(1, row().getTotalShifts());
+
+        ManualTimeLogRequest request = new ManualTimeLogRequest(staff.getId(), kept.getId(),
+                kept.getStartDatetime(), kept.getEndDatetime());
+        transactionTemplate.executeWithoutResult(status -> timeLogService.createManualTimeLog(request, principal(owner)));
+
+        StoreMonthlyMetrics row = row();
+        assertNotNull(row.getReconciledAt());
+        assertEquals(1, row.getTotalShifts());
+        assertEquals(1, row.getAttendedShifts());
+        assertEquals(0, row.getMissedShifts());
+
+        StoreReportResponse report = reportService.getStoreReport(store.getId(), month.toString(), principal(owner));
+        assertEquals(1, report.getTotalShifts());
+        assertEquals(1, report.getAttendedShifts());
+    }
+
+    @Test
+    void completingAnOldOverdueTaskReconcilesTheRow() {
+        transactionTemplate.executeWithoutResult(status -> taskService.completeTask(task.getId(), principal(owner)));
+
+        StoreMonthlyMetrics row = row();
+        assertNotNull(row.getReconciledAt());
+        assertEquals(0, row.getOverdueTasks());
+        assertEquals(0, row.getPendingTasks());
+        assertEquals(0, reportService.getStoreReport(store.getId(), month.toString(), principal(owner)).getOverdueTasks());
+    }
+
+    private StoreMonthlyMetrics row() {
+        return storeMonthlyMetricsRepository.findByStoreIdAndMonth(store.getId(), month.toString()).orElseThrow();
+    }
+}
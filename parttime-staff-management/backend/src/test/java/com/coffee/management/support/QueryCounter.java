@@ -0,0 +1,27 @@
+package com.coffee.management.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread (the statement inspector
+ * of the test profile). Unlike the session factory statistics, the count leaves out the
+ * scheduled jobs that query the database while a test runs.
+ */
+public class QueryCounter implements StatementInspector {
+
+    private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.get()[0]++;
+        return sql;
+    }
+
+    static void reset() {
+        COUNT.get()[0] = 0;
+    }
+
+    static long count() {
+        return COUNT.get()[0];
+    }
+}
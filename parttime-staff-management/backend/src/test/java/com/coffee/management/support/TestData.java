@@ -0,0 +1,154 @@
+package com.coffee.management.support;
+
+import com.coffee.management.entity.*;
+import com.coffee.management.security.UserPrincipal;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Persists minimal fixture rows for service tests and counts the statements they run
+ */
+public class TestData {
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    private final EntityManager entityManager;
+
+    public TestData(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    public Store store() {
+        return persist(Store.builder()
+                .name("Store " + SEQUENCE.incrementAndGet())
+                .address("1 Test Street")
+                .build());
+    }
+
+    public User user(Store store, Role role) {
+        int n = SEQUENCE.incrementAndGet();
+        return persist(User.builder()
+                .username("user" + n)
+                .passwordHash("{noop}secret")
+                .fullName("User " + n)
+                .email("user" + n + "@test.local")
+                .role(role)
+                .store(store)
+                .hourlyRate(BigDecimal.valueOf(25000))
+                .status(UserStatus.ACTIVE)
+                .build());
+    }
+
+    public Shift shift(Store store, LocalDateTime start, LocalDateTime end) {
+        return persist(Shift.builder()
+                .store(store)
+                .title("Shift")
+                .startDatetime(start)
+                .endDatetime(end)
+                .requiredSlots(2)
+                .build());
+    }
+
+    public ShiftAssignment assign(Shift shift, User user) {
+        return persist(ShiftAssignment.builder()
+                .shift(shift)
+                .user(user)
+                .status(AssignmentStatus.ASSIGNED)
+                .build());
+    }
+
+    public TimeLog timeLog(User user, Shift shift, LocalDateTime checkIn, LocalDateTime checkOut) {
+        return persist(TimeLog.builder()
+                .user(user)
+                .shift(shift)
+                .checkIn(checkIn)
+                .checkOut(checkOut)
+                .durationMinutes(checkOut != null ? (int) java.time.Duration.between(checkIn, checkOut).toMinutes() : null)
+                .recordedBy(RecordedBy.SYSTEM)
+                .build());
+    }
+
+    public Task task(Store store, User createdBy, TaskStatus status, LocalDateTime dueDate) {
+        return persist(Task.builder()
+                .store(store)
+                .title("Task")
+                .priority(TaskPriority.MEDIUM)
+                .status(status)
+                .dueDate(dueDate)
+                .createdBy(createdBy)
+                .build());
+    }
+
+    public Request request(User user, RequestStatus status) {
+        return persist(Request.builder()
+                .user(user)
+                .type(RequestType.LEAVE)
+                .startDatetime(LocalDateTime.now().plusDays(1))
+                .endDatetime(LocalDateTime.now().plusDays(2))
+                .status(status)
+                .build());
+    }
+
+    public Payroll payroll(User user, String month, BigDecimal grossPay) {
+        return persist(Payroll.builder()
+                .user(user)
+                .month(month)
+                .totalHours(BigDecimal.TEN)
+                .grossPay(grossPay)
+                .adjustments(BigDecimal.ZERO)
+                .status(PayrollStatus.DRAFT)
+                .build());
+    }
+
+    /**
+     * Write pending rows and detach everything, so the code under test starts from a cold session
+     */
+    public void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    /**
+     * Start counting: clears the statistics and the statements of this thread
+     */
+    public void resetCounts() {
+        statistics().clear();
+        QueryCounter.reset();
+    }
+
+    /**
+     * Statements prepared by this thread since resetCounts()
+     */
+    public long queryCount() {
+        return QueryCounter.count();
+    }
+
+    public Statistics statistics() {
+        return entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+
+    public static UserPrincipal principal(User user) {
+        return UserPrincipal.builder()
+                .id(user.getId())
+                .username(user.getUsername())
+                .fullName(user.getFullName())
+                .email(user.getEmail())
+                .role(user.getRole().name())
+                .storeId(user.getStore() != null ? user.getStore().getId() : null)
+                .active(true)
+                .authorities(List.of(new SimpleGrantedAuthority("ROLE_" + user.getRole().name())))
+                .build();
+    }
+
+    private <T> T persist(T entity) {
+        entityManager.persist(entity);
+        return entity;
+    }
+}
@@ -16,7 +16,8 @@ export interface User {
   storeName?: string;
   hourlyRate?: number;
   status: 'ACTIVE' | 'INACTIVE';
-  avatarUrl?: string;
+  avatarUrl?: string; // e.g. "/users/5/avatar?v=3f2a...", relative to the API base URL
+  avatarVersion?: string;
   createdAt: string;
   updatedAt: string;
 }
@@ -44,7 +45,8 @@ const authService = {
 
   logout: async (): Promise<void> => {
     try {
-      await api.post('/auth/logout');
+      // Revokes the session on the server (refresh and access tokens)
+      await api.post('/auth/logout', { refreshToken: localStorage.getItem('refreshToken') });
     } catch (error) {
       // Ignore logout errors
     }
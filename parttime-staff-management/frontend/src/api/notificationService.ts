@@ -8,11 +8,17 @@ export interface Notification {
   message?: string;
   isRead: boolean;
   link?: string;
-  attachmentUrl?: string;
+  attachmentId?: number;
+  attachmentUrl?: string; // Download path, relative to the API base URL
   attachmentName?: string;
   createdAt: string;
 }
 
+export interface NotificationPage {
+  notifications: Notification[];
+  nextCursor?: string; // Pass to the next request to get the following page, absent on the last page
+}
+
 export interface SendNotificationRequest {
   userId: number;
   title: string;
@@ -21,13 +27,14 @@ export interface SendNotificationRequest {
 }
 
 const notificationService = {
-  getAll: async (): Promise<ApiResponse<Notification[]>> => {
-    const response = await api.get<ApiResponse<Notification[]>>('/notifications');
+  // One page of notifications, newest first
+  getAll: async (cursor?: string, limit = 20): Promise<ApiResponse<NotificationPage>> => {
+    const response = await api.get<ApiResponse<NotificationPage>>('/notifications', { params: { cursor, limit } });
     return response.data;
   },
 
-  getUnread: async (): Promise<ApiResponse<Notification[]>> => {
-    const response = await api.get<ApiResponse<Notification[]>>('/notifications/unread');
+  getUnread: async (cursor?: string, limit = 20): Promise<ApiResponse<NotificationPage>> => {
+    const response = await api.get<ApiResponse<NotificationPage>>('/notifications/unread', { params: { cursor, limit } });
     return response.data;
   },
 
@@ -41,6 +48,12 @@ const notificationService = {
     return response.data;
   },
 
+  // Attachment content (authenticated request, so it cannot be used directly as a link)
+  getAttachment: async (id: number): Promise<Blob> => {
+    const response = await api.get<Blob>(`/notifications/${id}/attachment`, { responseType: 'blob' });
+    return response.data;
+  },
+
   markAsRead: async (id: number): Promise<ApiResponse<void>> => {
     const response = await api.put<ApiResponse<void>>(`/notifications/${id}/read`);
     return response.data;
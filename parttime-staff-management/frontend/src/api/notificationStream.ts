@@ -0,0 +1,105 @@
+import api from './axios';
+import { Notification } from './notificationService';
+
+export interface NotificationStreamHandlers {
+  onNotification: (notification: Notification) => void;
+  onUnreadCount: (unreadCount: number) => void;
+  onConnectionChange: (connected: boolean) => void;
+}
+
+interface StreamEvent {
+  id?: string;
+  event: string;
+  data: string;
+}
+
+const RETRY_DELAY_MS = 5000;
+
+// Split a text/event-stream body into events (comment lines such as keepalives are skipped)
+const readEvents = async (body: ReadableStream<Uint8Array>, onEvent: (event: StreamEvent) => void) => {
+  const reader = body.getReader();
+  const decoder = new TextDecoder();
+  let buffer = '';
+  for (;;) {
+    const { done, value } = await reader.read();
+    if (done) return;
+    buffer += decoder.decode(value, { stream: true }).replace(/\r\n?/g, '\n');
+    let end;
+    while ((end = buffer.indexOf('\n\n')) >= 0) {
+      const block = buffer.slice(0, end);
+      buffer = buffer.slice(end + 2);
+      const event: StreamEvent = { event: 'message', data: '' };
+      const data: string[] = [];
+      block.split('\n').forEach((line) => {
+        if (!line || line.startsWith(':')) return;
+        const colon = line.indexOf(':');
+        const field = colon >= 0 ? line.slice(0, colon) : line;
+        const value = colon >= 0 ? line.slice(colon + 1).replace(/^ /, '') : '';
+        if (field === 'id') event.id = value;
+        else if (field === 'event') event.event = value;
+        else if (field === 'data') data.push(value);
+      });
+      if (data.length > 0) {
+        event.data = data.join('\n');
+        onEvent(event);
+      }
+    }
+  }
+};
+
+/**
+ * Open the notification stream (Server-Sent Events). Uses fetch because EventSource cannot send
+ * the bearer token. After a disconnect it reconnects with Last-Event-ID, so notifications created
+ * meanwhile are sent again. Returns a function that closes the stream.
+ */
+export const openNotificationStream = (handlers: NotificationStreamHandlers): (() => void) => {
+  const controller = new AbortController();
+  let lastEventId: string | undefined;
+  let closed = false;
+
+  const connect = async () => {
+    while (!closed) {
+      try {
+        const headers: Record<string, string> = { Accept: 'text/event-stream' };
+        const token = localStorage.getItem('accessToken');
+        if (token) headers.Authorization = `Bearer ${token}`;
+        if (lastEventId) headers['Last-Event-ID'] = lastEventId;
+
+        const response = await fetch(`${api.defaults.baseURL}/notifications/stream`, {
+          headers,
+          signal: controller.signal,
+        });
+        if (response.status === 401) {
+          // Any API call refreshes the access token through the axios interceptor
+          await api.get('/notifications/unread-count');
+          continue;
+        }
+        if (!response.ok || !response.body) {
+          throw new Error(`Notification stream failed: ${response.status}`);
+        }
+
+        handlers.onConnectionChange(true);
+        await readEvents(response.body, (event) => {
+          if (event.id) lastEventId = event.id;
+          if (event.event === 'notification') {
+            handlers.onNotification(JSON.parse(event.data));
+          } else if (event.event === 'unread') {
+            handlers.onUnreadCount(JSON.parse(event.data).unreadCount);
+          }
+        });
+      } catch (error) {
+        if (closed) return;
+      }
+      handlers.onConnectionChange(false);
+      if (!closed) {
+        await new Promise((resolve) => setTimeout(resolve, RETRY_DELAY_MS));
+      }
+    }
+  };
+
+  connect();
+  return () => {
+    closed = true;
+    controller.abort();
+  };
+};
@@ -50,6 +50,14 @@ const shiftService = {
     return response.data;
   },
 
+  // Week view (weekStart = yyyy-MM-dd); owners may pass several stores, none = all stores
+  getCalendar: async (weekStart: string, storeIds?: number[]): Promise<ApiResponse<Shift[]>> => {
+    const params = new URLSearchParams({ weekStart });
+    storeIds?.forEach((id) => params.append('storeIds', String(id)));
+    const response = await api.get<ApiResponse<Shift[]>>(`/shifts/calendar?${params.toString()}`);
+    return response.data;
+  },
+
   getById: async (id: number): Promise<ApiResponse<Shift>> => {
     const response = await api.get<ApiResponse<Shift>>(`/shifts/${id}`);
     return response.data;
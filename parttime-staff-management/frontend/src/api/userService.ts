@@ -23,6 +23,18 @@ export interface UpdateUserRequest {
   avatarUrl?: string;
 }
 
+// Image source for an avatar URL from the API (SMALL for lists, MEDIUM for profile cards).
+// The original upload needs the bearer token, so it cannot be used as an image source.
+export const getAvatarSrc = (
+  avatarUrl: string | undefined,
+  size: 'small' | 'medium' = 'medium'
+): string | undefined => {
+  if (!avatarUrl) return undefined;
+  // Users cached before avatars were served by the API still carry an inline data URL
+  if (avatarUrl.startsWith('data:')) return avatarUrl;
+  return `${api.defaults.baseURL}${avatarUrl}&size=${size}`;
+};
+
 const userService = {
   getAll: async (): Promise<ApiResponse<User[]>> => {
     const response = await api.get<ApiResponse<User[]>>('/users');
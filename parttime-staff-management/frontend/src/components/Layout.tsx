@@ -3,14 +3,23 @@ import { Outlet, NavLink, useNavigate, useLocation } from "react-router-dom";
 import { useSelector, useDispatch } from "react-redux";
 import { RootState, AppDispatch } from "../app/store";
 import { logout } from "../features/auth/authSlice";
-import { fetchNotifications, fetchUnreadCount, markAsRead } from "../features/notifications/notificationSlice";
+import {
+  fetchNotifications,
+  fetchUnreadCount,
+  markAsRead,
+  notificationReceived,
+  unreadCountReceived,
+  streamingChanged,
+} from "../features/notifications/notificationSlice";
+import { openNotificationStream } from "../api/notificationStream";
+import { getAvatarSrc } from "../api/userService";
 
 const Layout: React.FC = () => {
   const dispatch = useDispatch<AppDispatch>();
   const navigate = useNavigate();
   const location = useLocation();
   const { user } = useSelector((state: RootState) => state.auth);
-  const { unreadCount, notifications, loading } = useSelector(
+  const { unreadCount, notifications, loading, streaming } = useSelector(
     (state: RootState) => state.notifications
   );
   const [sidebarOpen, setSidebarOpen] = useState(false);
@@ -39,16 +48,39 @@ const Layout: React.FC = () => {
     }
   }, [location.pathname]);
 
+  // New notifications and unread counts are pushed by the notification stream
+  useEffect(() => {
+    const close = openNotificationStream({
+      onNotification: (notification) => dispatch(notificationReceived(notification)),
+      onUnreadCount: (count) => dispatch(unreadCountReceived(count)),
+      onConnectionChange: (connected) => {
+        dispatch(streamingChanged(connected));
+        if (connected) {
+          // Catch up on what changed while disconnected
+          dispatch(fetchUnreadCount());
+        }
+      },
+    });
+    return () => {
+      close();
+      dispatch(streamingChanged(false));
+    };
+  }, [dispatch]);
+
   useEffect(() => {
     dispatch(fetchUnreadCount());
     dispatch(fetchNotifications());
-    // Fetch every 30 seconds
+  }, [dispatch]);
+
+  // Fetch every 30 seconds while the stream is not connected
+  useEffect(() => {
+    if (streaming) return;
     const interval = setInterval(() => {
       dispatch(fetchUnreadCount());
       dispatch(fetchNotifications());
     }, 30000);
     return () => clearInterval(interval);
-  }, [dispatch]);
+  }, [dispatch, streaming]);
 
   const handleNotificationClick = async (notification: any) => {
     if (!notification) return;
@@ -174,7 +206,7 @@ const Layout: React.FC = () => {
               >
                 {user?.avatarUrl ? (
                   <img 
-                    src={user.avatarUrl} 
+                    src={getAvatarSrc(user.avatarUrl, 'small')} 
                     alt="Avatar"
                     className="me-2"
                     style={{
@@ -1,17 +1,23 @@
-import { createSlice, createAsyncThunk } from '@reduxjs/toolkit';
+import { createSlice, createAsyncThunk, PayloadAction } from '@reduxjs/toolkit';
 import notificationService, { Notification } from '../../api/notificationService';
 
 interface NotificationState {
   notifications: Notification[];
+  nextCursor: string | null; // Cursor of the next page, null when every page is loaded
   unreadCount: number;
   loading: boolean;
+  loadingMore: boolean;
+  streaming: boolean; // Notification stream connected, polling is not needed
   error: string | null;
 }
 
 const initialState: NotificationState = {
   notifications: [],
+  nextCursor: null,
   unreadCount: 0,
   loading: false,
+  loadingMore: false,
+  streaming: false,
   error: null,
 };
 
@@ -27,6 +33,19 @@ export const fetchNotifications = createAsyncThunk(
   }
 );
 
+// Next page after the notifications already loaded
+export const fetchMoreNotifications = createAsyncThunk(
+  'notifications/fetchMore',
+  async (cursor: string, { rejectWithValue }) => {
+    try {
+      const response = await notificationService.getAll(cursor);
+      return response.data;
+    } catch (error: any) {
+      return rejectWithValue(error.response?.data?.message || 'Failed to fetch notifications');
+    }
+  }
+);
+
 export const fetchUnreadCount = createAsyncThunk(
   'notifications/fetchUnreadCount',
   async (_, { rejectWithValue }) => {
@@ -70,6 +89,18 @@ const notificationSlice = createSlice({
     clearError: (state) => {
       state.error = null;
     },
+    // From the notification stream
+    notificationReceived: (state, action: PayloadAction<Notification>) => {
+      if (!state.notifications.some((n) => n.id === action.payload.id)) {
+        state.notifications.unshift(action.payload);
+      }
+    },
+    unreadCountReceived: (state, action: PayloadAction<number>) => {
+      state.unreadCount = action.payload;
+    },
+    streamingChanged: (state, action: PayloadAction<boolean>) => {
+      state.streaming = action.payload;
+    },
   },
   extraReducers: (builder) => {
     builder
@@ -78,7 +109,28 @@ const notificationSlice = createSlice({
       })
       .addCase(fetchNotifications.fulfilled, (state, action) => {
         state.loading = false;
-        state.notifications = action.payload;
+        const firstPage = action.payload.notifications;
+        if (state.notifications.length <= firstPage.length) {
+          state.notifications = firstPage;
+          state.nextCursor = action.payload.nextCursor || null;
+        } else {
+          // Refresh while more pages are loaded: keep them and add the new notifications on top
+          const fresh = new Set(firstPage.map((n) => n.id));
+          const older = state.notifications.filter((n) => !fresh.has(n.id));
+          state.notifications = [...firstPage, ...older];
+        }
+      })
+      .addCase(fetchMoreNotifications.pending, (state) => {
+        state.loadingMore = true;
+      })
+      .addCase(fetchMoreNotifications.fulfilled, (state, action) => {
+        state.loadingMore = false;
+        const loaded = new Set(state.notifications.map((n) => n.id));
+        state.notifications.push(...action.payload.notifications.filter((n) => !loaded.has(n.id)));
+        state.nextCursor = action.payload.nextCursor || null;
+      })
+      .addCase(fetchMoreNotifications.rejected, (state) => {
+        state.loadingMore = false;
       })
       .addCase(fetchUnreadCount.fulfilled, (state, action) => {
         state.unreadCount = action.payload;
@@ -97,6 +149,6 @@ const notificationSlice = createSlice({
   },
 });
 
-export const { clearError } = notificationSlice.actions;
+export const { clearError, notificationReceived, unreadCountReceived, streamingChanged } = notificationSlice.actions;
 export default notificationSlice.reducer;
 
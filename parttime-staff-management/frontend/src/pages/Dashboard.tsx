@@ -10,6 +10,7 @@ import { fetchMyShifts } from '../features/shifts/shiftSlice';
 import { fetchAvailableListings, fetchPendingApproval, fetchPendingPeerSwaps } from '../features/marketplace/marketplaceSlice';
 import reportService, { SystemReport, StoreReport } from '../api/reportService';
 import timeLogService from '../api/timeLogService';
+import { getAvatarSrc } from '../api/userService';
 import Loading from '../components/Loading';
 import Toast from '../components/Toast';
 import { formatCurrency, getCurrentMonth, formatMonth, formatTime } from '../utils/formatters';
@@ -882,7 +883,7 @@ const Dashboard: React.FC = () => {
                   <div className="employee-info-avatar-section">
                     {user?.avatarUrl ? (
                       <img 
-                        src={user.avatarUrl} 
+                        src={getAvatarSrc(user.avatarUrl, 'medium')} 
                         alt={user.fullName}
                         className="employee-info-avatar"
                       />
@@ -1,19 +1,20 @@
 import React, { useEffect, useState, useRef } from 'react';
 import { useSelector, useDispatch } from 'react-redux';
 import { RootState, AppDispatch } from '../app/store';
-import { fetchNotifications, markAsRead, markAllAsRead } from '../features/notifications/notificationSlice';
+import { fetchNotifications, fetchMoreNotifications, markAsRead, markAllAsRead } from '../features/notifications/notificationSlice';
 import { fetchStores } from '../features/stores/storeSlice';
 import Loading from '../components/Loading';
 import Toast from '../components/Toast';
 import { formatDateTime } from '../utils/formatters';
 import { useNavigate } from 'react-router-dom';
 import api from '../api/axios';
+import notificationService from '../api/notificationService';
 
 const Notifications: React.FC = () => {
   const dispatch = useDispatch<AppDispatch>();
   const navigate = useNavigate();
   const { user } = useSelector((state: RootState) => state.auth);
-  const { notifications, loading } = useSelector((state: RootState) => state.notifications);
+  const { notifications, nextCursor, unreadCount, loading, loadingMore } = useSelector((state: RootState) => state.notifications);
   const { stores } = useSelector((state: RootState) => state.stores);
   const fileInputRef = useRef<HTMLInputElement>(null);
   
@@ -29,6 +30,8 @@ const Notifications: React.FC = () => {
   });
   const [sending, setSending] = useState(false);
   const [uploadingFile, setUploadingFile] = useState(false);
+  // Object URLs of image attachments shown as previews, by notification id
+  const [previewUrls, setPreviewUrls] = useState<Record<number, string>>({});
   const [toast, setToast] = useState<{ show: boolean; message: string; type: 'success' | 'error' }>({ 
     show: false, message: '', type: 'success' 
   });
@@ -45,6 +48,28 @@ const Notifications: React.FC = () => {
     }
   }, [dispatch, canSendNotification]);
 
+  useEffect(() => {
+    let cancelled = false;
+    const created: string[] = [];
+    safeNotifications
+      .filter(n => n.attachmentUrl && n.attachmentName && isImageFile(n.attachmentName))
+      .forEach(n => {
+        notificationService.getAttachment(n.id)
+          .then(blob => {
+            if (cancelled) return;
+            const url = URL.createObjectURL(blob);
+            created.push(url);
+            setPreviewUrls(prev => ({ ...prev, [n.id]: url }));
+          })
+          .catch(() => undefined);
+      });
+    return () => {
+      cancelled = true;
+      created.forEach(url => URL.revokeObjectURL(url));
+    };
+    // eslint-disable-next-line react-hooks/exhaustive-deps
+  }, [notifications]);
+
   const handleClick = async (notification: any) => {
     if (!notification.isRead) {
       await dispatch(markAsRead(notification.id));
@@ -145,14 +170,21 @@ const Notifications: React.FC = () => {
     }
   };
 
-  const handleDownloadAttachment = (attachmentUrl: string, attachmentName: string, e: React.MouseEvent) => {
+  const handleDownloadAttachment = async (notificationId: number, attachmentName: string, e: React.MouseEvent) => {
     e.stopPropagation();
-    const link = document.createElement('a');
-    link.href = attachmentUrl;
-    link.download = attachmentName;
-    document.body.appendChild(link);
-    link.click();
-    document.body.removeChild(link);
+    try {
+      const blob = await notificationService.getAttachment(notificationId);
+      const url = URL.createObjectURL(blob);
+      const link = document.createElement('a');
+      link.href = url;
+      link.download = attachmentName;
+      document.body.appendChild(link);
+      link.click();
+      document.body.removeChild(link);
+      URL.revokeObjectURL(url);
+    } catch {
+      setToast({ show: true, message: 'Không thể tải tệp đính kèm!', type: 'error' });
+    }
   };
 
   const filteredNotifications = filter === 'unread' 
@@ -197,13 +229,13 @@ const Notifications: React.FC = () => {
               className={`btn ${filter === 'all' ? 'btn-coffee' : 'btn-outline-coffee'}`}
               onClick={() => setFilter('all')}
             >
-              Tất cả ({safeNotifications.length})
+              Tất cả ({safeNotifications.length}{nextCursor ? '+' : ''})
             </button>
             <button 
               className={`btn ${filter === 'unread' ? 'btn-coffee' : 'btn-outline-coffee'}`}
               onClick={() => setFilter('unread')}
             >
-              Chưa đọc ({safeNotifications.filter(n => !n.isRead).length})
+              Chưa đọc ({unreadCount})
             </button>
           </div>
         </div>
@@ -239,7 +271,7 @@ const Notifications: React.FC = () => {
                     {isImageFile(notification.attachmentName) ? (
                       <div className="d-flex align-items-center gap-2">
                         <img 
-                          src={notification.attachmentUrl} 
+                          src={previewUrls[notification.id]} 
                           alt={notification.attachmentName}
                           style={{ 
                             maxWidth: '200px', 
@@ -250,7 +282,7 @@ const Notifications: React.FC = () => {
                         />
                         <button
                           className="btn btn-sm btn-outline-primary"
-                          onClick={(e) => handleDownloadAttachment(notification.attachmentUrl!, notification.attachmentName!, e)}
+                          onClick={(e) => handleDownloadAttachment(notification.id, notification.attachmentName!, e)}
                         >
                           <i className="bi bi-download me-1"></i>
                           Tải xuống
@@ -259,7 +291,7 @@ const Notifications: React.FC = () => {
                     ) : (
                       <button
                         className="btn btn-sm btn-outline-secondary d-flex align-items-center gap-2"
-                        onClick={(e) => handleDownloadAttachment(notification.attachmentUrl!, notification.attachmentName!, e)}
+                        onClick={(e) => handleDownloadAttachment(notification.id, notification.attachmentName!, e)}
                       >
                         <i className={`${getFileIcon(notification.attachmentName!)}`}></i>
                         <span>{notification.attachmentName}</span>
@@ -288,6 +320,18 @@ const Notifications: React.FC = () => {
               <p>Không có thông báo nào</p>
             </div>
           )}
+
+          {nextCursor && (
+            <div className="text-center py-3">
+              <button
+                className="btn btn-outline-coffee"
+                onClick={() => dispatch(fetchMoreNotifications(nextCursor))}
+                disabled={loadingMore}
+              >
+                {loadingMore ? 'Đang tải...' : 'Xem thêm'}
+              </button>
+            </div>
+          )}
         </div>
       </div>
 
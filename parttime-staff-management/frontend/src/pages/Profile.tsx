@@ -2,7 +2,7 @@ import React, { useState, useRef } from 'react';
 import { useSelector, useDispatch } from 'react-redux';
 import { RootState, AppDispatch } from '../app/store';
 import { setUser } from '../features/auth/authSlice';
-import userService from '../api/userService';
+import userService, { getAvatarSrc } from '../api/userService';
 import Toast from '../components/Toast';
 import { formatCurrency, formatDateTime } from '../utils/formatters';
 
@@ -142,7 +142,7 @@ const Profile: React.FC = () => {
     return badges[role] || { class: 'bg-secondary', label: role };
   };
 
-  const currentAvatar = avatarPreview || user?.avatarUrl;
+  const currentAvatar = avatarPreview || getAvatarSrc(user?.avatarUrl, 'medium');
 
   if (!user) return null;
 
@@ -8,7 +8,7 @@ import {
   deleteUser,
 } from "../features/users/userSlice";
 import { fetchStores } from "../features/stores/storeSlice";
-import { CreateUserRequest, UpdateUserRequest } from "../api/userService";
+import { CreateUserRequest, UpdateUserRequest, getAvatarSrc } from "../api/userService";
 import Loading from "../components/Loading";
 import Toast from "../components/Toast";
 import ConfirmModal from "../components/ConfirmModal";
@@ -208,7 +208,7 @@ const Users: React.FC = () => {
                       <div className="d-flex align-items-center">
                         {user.avatarUrl ? (
                           <img 
-                            src={user.avatarUrl} 
+                            src={getAvatarSrc(user.avatarUrl, 'small')} 
                             alt={user.fullName}
                             className="me-2"
                             style={{